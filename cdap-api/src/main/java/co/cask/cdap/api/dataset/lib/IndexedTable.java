@@ -38,8 +38,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -94,7 +97,18 @@ import javax.annotation.Nullable;
  * as it would break parsing of the configuration property.
  * </p>
  *
+ * <p>Scanners returned by {@link #readByIndex(byte[], byte[])} and {@link #scanByIndex(byte[], byte[], byte[])}
+ * read ahead a batch of index entries and fetch the matching data rows with a single multi-get. The size of the
+ * batch can be configured with the {@link #INDEX_READ_AHEAD_CONF_KEY} property, either in the dataset properties or
+ * in the runtime arguments. Because the data rows of a batch are read before the first of them is returned, changes
+ * made to these rows while iterating over the scanner, even in the same transaction, are not reflected in the rows
+ * it returns. Set the read ahead to 1 if the rows must be read only when the scanner advances to them. If only the
+ * row keys and the indexed values are needed, {@link #readIndex(byte[], byte[])} and
+ * {@link #scanIndex(byte[], byte[], byte[])} return them from the index table alone, without reading the data table.
+ * </p>
+ *
  * @see #INDEX_COLUMNS_CONF_KEY
+ * @see #INDEX_READ_AHEAD_CONF_KEY
  */
 public class IndexedTable extends AbstractDataset implements Table {
 
@@ -111,6 +125,18 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   public static final String INDEX_COLUMNS_CONF_KEY = "columnsToIndex";
 
+  /**
+   * Configuration key for the number of index entries that index scanners read ahead, in order to fetch
+   * the corresponding data rows in one batch. It can be given in the DatasetSpecification properties or in
+   * the runtime arguments, with the runtime arguments taking precedence.
+   */
+  public static final String INDEX_READ_AHEAD_CONF_KEY = "indexReadAhead";
+
+  /**
+   * Default number of index entries that index scanners read ahead.
+   */
+  public static final int DEFAULT_INDEX_READ_AHEAD = 100;
+
   /**
    * Column key used to store the existence of a row in the secondary index.
    */
@@ -119,6 +145,8 @@ public class IndexedTable extends AbstractDataset implements Table {
   private static final byte[] KEY_DELIMITER = new byte[] { DELIMITER_BYTE };
 
   private final boolean hasColumnWithDelimiter;
+  // number of index entries to read before fetching the data rows
+  private final int readAhead;
   // the two underlying tables
   private Table table, index;
   // the secondary index column
@@ -133,11 +161,28 @@ public class IndexedTable extends AbstractDataset implements Table {
    * @param columnsToIndex the names of the data columns to index
    */
   public IndexedTable(String name, Table table, Table index, SortedSet<byte[]> columnsToIndex) {
+    this(name, table, index, columnsToIndex, DEFAULT_INDEX_READ_AHEAD);
+  }
+
+  /**
+   * Configuration time constructor.
+   *
+   * @param name the name of the table
+   * @param table table to use as the table
+   * @param index table to use as the index
+   * @param columnsToIndex the names of the data columns to index
+   * @param readAhead the number of index entries that index scanners read before fetching the data rows
+   */
+  public IndexedTable(String name, Table table, Table index, SortedSet<byte[]> columnsToIndex, int readAhead) {
     super(name, table, index);
+    if (readAhead <= 0) {
+      throw new IllegalArgumentException("Index read ahead must be positive: " + readAhead);
+    }
     this.table = table;
     this.index = index;
     this.indexedColumns = columnsToIndex;
     this.hasColumnWithDelimiter = hasDelimiterByte(columnsToIndex);
+    this.readAhead = readAhead;
   }
 
   /**
@@ -211,24 +256,49 @@ public class IndexedTable extends AbstractDataset implements Table {
   /**
    * Reads table rows by the given secondary index key.  If no rows are indexed by the given key, then a
    * {@link co.cask.cdap.api.dataset.table.Scanner} with no results will be returned.
-   * 
+   *
+   * <p>The scanner reads the data rows in batches of {@link #INDEX_READ_AHEAD_CONF_KEY} rows. A change made to a
+   * data row after its batch was read, even in the same transaction, is not reflected in the returned row.</p>
+   *
    * @return a Scanner returning rows from the data table, whose stored value for the given column matches the
    * given value.
    * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
    */
   @ReadOnly
   public Scanner readByIndex(byte[] column, byte[] value) {
+    return readByIndex(column, value, false);
+  }
+
+  /**
+   * Reads the row keys indexed by the given secondary index key, without reading the data table. Each {@link Row}
+   * returned by the scanner has the row key of a data row and contains only the given column, with the indexed
+   * value. If no rows are indexed by the given key, then a {@link co.cask.cdap.api.dataset.table.Scanner} with
+   * no results will be returned.
+   *
+   * @return a Scanner returning the keys of the rows in the data table, whose stored value for the given column
+   * matches the given value.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public Scanner readIndex(byte[] column, byte[] value) {
+    return readByIndex(column, value, true);
+  }
+
+  private Scanner readByIndex(byte[] column, byte[] value, boolean indexOnly) {
     assertIndexedColumn(column);
     byte[] rowKeyPrefix = Bytes.concat(column, KEY_DELIMITER, value, KEY_DELIMITER);
     byte[] stopRow = Bytes.stopKeyForPrefix(rowKeyPrefix);
     Scanner indexScan = index.scan(rowKeyPrefix, stopRow);
-    return new IndexScanner(indexScan, column, value);
+    return new IndexScanner(indexScan, column, value, indexOnly);
   }
 
   /**
    * Reads table rows within the given secondary index key range. If no rows are indexed, falling within the given
    * range, then a {@link co.cask.cdap.api.dataset.table.Scanner} with no results will be returned.
    *
+   * <p>The scanner reads the data rows in batches of {@link #INDEX_READ_AHEAD_CONF_KEY} rows. A change made to a
+   * data row after its batch was read, even in the same transaction, is not reflected in the returned row.</p>
+   *
    * @param column the column to use for the index lookup
    * @param startValue the inclusive start of the range for which rows must fall within to be returned in the scan.
    *                   {@code null} means start from first row of the table
@@ -240,6 +310,31 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   @ReadOnly
   public Scanner scanByIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue) {
+    return scanByIndex(column, startValue, endValue, false);
+  }
+
+  /**
+   * Reads the row keys indexed within the given secondary index key range, without reading the data table.
+   * Each {@link Row} returned by the scanner has the row key of a data row and contains only the given column,
+   * with the indexed value. If no rows are indexed, falling within the given range, then a
+   * {@link co.cask.cdap.api.dataset.table.Scanner} with no results will be returned.
+   *
+   * @param column the column to use for the index lookup
+   * @param startValue the inclusive start of the range for which rows must fall within to be returned in the scan.
+   *                   {@code null} means start from first row of the table
+   * @param endValue the exclusive end of the range for which rows must fall within to be returned in the scan
+   *                 {@code null} means end with the last row of the table
+   * @return a Scanner returning the keys of the rows in the data table, whose stored value for the given column
+   *         is within the the given range.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public Scanner scanIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue) {
+    return scanByIndex(column, startValue, endValue, true);
+  }
+
+  private Scanner scanByIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue,
+                              boolean indexOnly) {
     assertIndexedColumn(column);
     // KEY_DELIMITER is not used at the end of the rowKeys, because they are used for a range scan,
     // instead of a fixed-match lookup
@@ -248,7 +343,7 @@ public class IndexedTable extends AbstractDataset implements Table {
     byte[] stopRow = endValue == null ? Bytes.stopKeyForPrefix(Bytes.concat(column, KEY_DELIMITER)) :
       Bytes.concat(column, KEY_DELIMITER, endValue);
     Scanner indexScan = index.scan(startRow, stopRow);
-    return new IndexRangeScanner(indexScan, column, startValue, endValue);
+    return new IndexRangeScanner(indexScan, column, startValue, endValue, indexOnly);
   }
 
   private void assertIndexedColumn(byte[] column) {
@@ -631,10 +726,16 @@ public class IndexedTable extends AbstractDataset implements Table {
     // scanner over index table
     private final Scanner baseScanner;
     private final byte[] column;
+    private final boolean indexOnly;
+    // rows that are already resolved, in index order
+    private final Deque<Row> bufferedRows;
+    private boolean indexExhausted;
 
-    AbstractIndexScanner(Scanner baseScanner, byte[] column) {
+    AbstractIndexScanner(Scanner baseScanner, byte[] column, boolean indexOnly) {
       this.baseScanner = baseScanner;
       this.column = column;
+      this.indexOnly = indexOnly;
+      this.bufferedRows = new ArrayDeque<>();
     }
 
     /**
@@ -648,9 +749,29 @@ public class IndexedTable extends AbstractDataset implements Table {
     @Nullable
     @Override
     public Row next() {
-      // TODO: retrieve results in batches to minimize RPC overhead (requires multi-get support in table)
-      // keep going until we hit a non-null, non-empty data row, or we exhaust the index
-      for (Row indexRow = baseScanner.next(); indexRow != null; indexRow = baseScanner.next()) {
+      // keep going until we resolve a row, or we exhaust the index
+      while (bufferedRows.isEmpty()) {
+        if (indexExhausted) {
+          return null;
+        }
+        fillBuffer();
+      }
+      return bufferedRows.poll();
+    }
+
+    /**
+     * Reads the next batch of matching index entries and adds the rows they resolve to the buffer.
+     */
+    private void fillBuffer() {
+      List<byte[]> rowKeys = new ArrayList<>();
+      List<byte[]> columnValues = new ArrayList<>();
+      while (rowKeys.size() < readAhead) {
+        Row indexRow = baseScanner.next();
+        if (indexRow == null) {
+          // end of index
+          indexExhausted = true;
+          break;
+        }
         byte[] rowkey = indexRow.get(IDX_COL);
         if (rowkey == null) {
           LOG.warn("Row of Indexed table '{}' is missing index column. Row key: {}", getName(), indexRow.getRow());
@@ -661,23 +782,48 @@ public class IndexedTable extends AbstractDataset implements Table {
                                                 indexRow.getRow().length - rowkey.length - 1);
         // Verify that datarow matches the expected row key to avoid issues with column name or value
         // containing the delimiter used. This is a sufficient check, as long as columns don't contain the null byte.
-        if (matches(columnValue)) {
-          Row row = table.get(rowkey);
-          // If a column has null byte (the key delimiter) in it, then we need to check against the data row's column
-          // to be sure this row isn't a false positive in the scan.
-          // For reference, take a look at IndexedTableTest#testIndexKeyDelimiterAmbiguity
-          if (hasColumnWithDelimiter && !Bytes.equals(row.get(column), columnValue)) {
-            continue;
-          }
-          return row;
+        if (!matches(columnValue)) {
+          continue;
+        }
+        // Without a column that has the null byte, the index entry is all that is needed for an index only read,
+        // hence return it right away instead of reading further ahead.
+        if (indexOnly && !hasColumnWithDelimiter) {
+          bufferedRows.add(createIndexRow(rowkey, columnValue));
+          return;
         }
+        rowKeys.add(rowkey);
+        columnValues.add(columnValue);
       }
-      // end of index
-      return null;
+      if (rowKeys.isEmpty()) {
+        return;
+      }
+
+      List<Get> gets = new ArrayList<>(rowKeys.size());
+      for (byte[] rowKey : rowKeys) {
+        gets.add(indexOnly ? new Get(rowKey, column) : new Get(rowKey));
+      }
+      List<Row> rows = table.get(gets);
+      for (int i = 0; i < rows.size(); i++) {
+        Row row = rows.get(i);
+        // If a column has null byte (the key delimiter) in it, then we need to check against the data row's column
+        // to be sure this row isn't a false positive in the scan.
+        // For reference, take a look at IndexedTableTest#testIndexKeyDelimiterAmbiguity
+        if (hasColumnWithDelimiter && !Bytes.equals(row.get(column), columnValues.get(i))) {
+          continue;
+        }
+        bufferedRows.add(indexOnly ? createIndexRow(rowKeys.get(i), columnValues.get(i)) : row);
+      }
+    }
+
+    private Row createIndexRow(byte[] rowKey, byte[] columnValue) {
+      Map<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      columns.put(column, columnValue);
+      return new Result(rowKey, columns);
     }
 
     @Override
     public void close() {
+      bufferedRows.clear();
       baseScanner.close();
     }
   }
@@ -686,8 +832,8 @@ public class IndexedTable extends AbstractDataset implements Table {
   private class IndexScanner extends AbstractIndexScanner {
     private final byte[] value;
 
-    IndexScanner(Scanner baseScanner, byte[] column, byte[] value) {
-      super(baseScanner, column);
+    IndexScanner(Scanner baseScanner, byte[] column, byte[] value, boolean indexOnly) {
+      super(baseScanner, column, indexOnly);
       this.value = value;
     }
 
@@ -702,8 +848,9 @@ public class IndexedTable extends AbstractDataset implements Table {
     private final byte[] start;
     private final byte[] end;
 
-    IndexRangeScanner(Scanner baseScanner, byte[] column, @Nullable byte[] start, @Nullable byte[] end) {
-      super(baseScanner, column);
+    IndexRangeScanner(Scanner baseScanner, byte[] column, @Nullable byte[] start, @Nullable byte[] end,
+                      boolean indexOnly) {
+      super(baseScanner, column, indexOnly);
       this.start = start;
       this.end = end;
     }
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import javax.annotation.Nullable;
 
 /**
  * DatasetDefinition for {@link IndexedTable}.
@@ -48,6 +49,7 @@ public class IndexedTableDefinition
     if (columnNamesToIndex == null) {
       throw new IllegalArgumentException("columnsToIndex must be specified");
     }
+    parseReadAhead(properties.getProperties().get(IndexedTable.INDEX_READ_AHEAD_CONF_KEY));
     return super.configure(instanceName, properties);
   }
 
@@ -70,6 +72,7 @@ public class IndexedTableDefinition
                                                             oldColumnsToIndex, columnNamesToIndex));
       }
     }
+    parseReadAhead(newProperties.getProperties().get(IndexedTable.INDEX_READ_AHEAD_CONF_KEY));
     return super.reconfigure(instanceName, newProperties, currentSpec);
   }
 
@@ -82,7 +85,31 @@ public class IndexedTableDefinition
     Table table = getDataset(datasetContext, "d", spec, arguments, classLoader);
     Table index = getDataset(datasetContext, "i", spec, arguments, classLoader);
 
-    return new IndexedTable(spec.getName(), table, index, columnsToIndex);
+    String readAhead = arguments.get(IndexedTable.INDEX_READ_AHEAD_CONF_KEY);
+    if (readAhead == null) {
+      readAhead = spec.getProperty(IndexedTable.INDEX_READ_AHEAD_CONF_KEY);
+    }
+
+    return new IndexedTable(spec.getName(), table, index, columnsToIndex, parseReadAhead(readAhead));
+  }
+
+  /**
+   * Helper method to parse the number of index entries to read ahead. Returns the default if the value is not set.
+   */
+  private int parseReadAhead(@Nullable String value) {
+    if (value == null) {
+      return IndexedTable.DEFAULT_INDEX_READ_AHEAD;
+    }
+    try {
+      int readAhead = Integer.parseInt(value);
+      if (readAhead > 0) {
+        return readAhead;
+      }
+    } catch (NumberFormatException e) {
+      // fall through to the exception below
+    }
+    throw new IllegalArgumentException(String.format("Invalid value '%s' for '%s', it must be a positive integer",
+                                                     value, IndexedTable.INDEX_READ_AHEAD_CONF_KEY));
   }
 
   /**
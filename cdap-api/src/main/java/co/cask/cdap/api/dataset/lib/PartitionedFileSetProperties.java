@@ -19,7 +19,9 @@ package co.cask.cdap.api.dataset.lib;
 import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.dataset.table.TableProperties;
 
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -38,6 +40,13 @@ public class PartitionedFileSetProperties extends FileSetProperties {
    */
   public static final String PARTITIONING_FIELD_PREFIX = "partitioning.field.";
 
+  /**
+   * The property name for the list of partitioning field names to create secondary indexes for. Indexes allow
+   * partition filters with conditions on these fields to look up the matching partitions, instead of scanning
+   * the partitions table. The indexed fields can only be defined when the dataset is created.
+   */
+  public static final String PARTITIONING_INDEXED_FIELDS = "partitioning.indexed.fields";
+
   /**
    * Read the partitioning for a PartitionedFileSet from its properties.
    *
@@ -71,6 +80,26 @@ public class PartitionedFileSetProperties extends FileSetProperties {
     return builder.build();
   }
 
+  /**
+   * Read the names of the indexed partitioning fields for a PartitionedFileSet from its properties.
+   *
+   * @param properties the dataset properties
+   * @return the names of the indexed partitioning fields, in the order given in the properties. The set is empty
+   *         if the properties contain no indexed fields.
+   */
+  public static Set<String> getIndexedFields(Map<String, String> properties) {
+    String fieldList = properties.get(PARTITIONING_INDEXED_FIELDS);
+    Set<String> fieldNames = new LinkedHashSet<>();
+    if (fieldList != null) {
+      for (String fieldName : fieldList.split(",")) {
+        if (!fieldName.isEmpty()) {
+          fieldNames.add(fieldName);
+        }
+      }
+    }
+    return fieldNames;
+  }
+
   /**
    * @return a properties builder
    */
@@ -105,6 +134,14 @@ public class PartitionedFileSetProperties extends FileSetProperties {
       return this;
     }
 
+    /**
+     * Sets the partitioning fields to create secondary indexes for. Each field must be part of the partitioning.
+     */
+    public Builder setIndexedFields(String... fieldNames) {
+      add(PARTITIONING_INDEXED_FIELDS, String.join(",", fieldNames));
+      return this;
+    }
+
     /**
      * Set the table permissions as a map from user name to a permission string.
      */
@@ -253,7 +253,8 @@ public interface Store {
    * @param namespaces fetch run history that is belonged to one of these namespaces
    * @param earliestStopTime fetch run history that has stopped at or after the earliestStopTime in seconds
    * @param latestStartTime fetch run history that has started before the latestStartTime in seconds
-   * @param limit max number of entries to fetch for this history call
+   * @param limit max number of entries to fetch for each namespace. If more runs match in a namespace,
+   *              the runs that stopped first are returned
    * @return map of logged runs
    */
   Map<ProgramRunId, RunRecordMeta> getHistoricalRuns(Set<NamespaceId> namespaces,
@@ -27,6 +27,7 @@ import co.cask.cdap.proto.security.Privilege;
 import co.cask.cdap.proto.security.VisibilityRequest;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
+import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import co.cask.http.HttpResponder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -38,6 +39,7 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import javax.inject.Inject;
@@ -52,6 +54,7 @@ import javax.ws.rs.Path;
 public class RemotePrivilegesHandler extends AbstractRemoteSystemOpsHandler {
   private static final Logger LOG = LoggerFactory.getLogger(RemotePrivilegesHandler.class);
   private static final Type SET_OF_ACTIONS = new TypeLiteral<Set<Action>>() { }.getType();
+  private static final Type SET_OF_PRIVILEGES = new TypeLiteral<Set<AuthorizationPrivilege>>() { }.getType();
   private static final Gson GSON = new GsonBuilder()
     .registerTypeAdapter(EntityId.class, new EntityIdTypeAdapter())
     .create();
@@ -76,6 +79,25 @@ public class RemotePrivilegesHandler extends AbstractRemoteSystemOpsHandler {
     responder.sendStatus(HttpResponseStatus.OK);
   }
 
+  @POST
+  @Path("/enforceAll")
+  public void enforceAll(FullHttpRequest request, HttpResponder responder) throws Exception {
+    Set<AuthorizationPrivilege> authorizationPrivileges =
+      GSON.fromJson(request.content().toString(StandardCharsets.UTF_8), SET_OF_PRIVILEGES);
+    LOG.trace("Enforcing for {}", authorizationPrivileges);
+    Set<AuthorizationPrivilege> allowed = new HashSet<>();
+    for (AuthorizationPrivilege privilege : authorizationPrivileges) {
+      try {
+        authorizationEnforcer.enforce(privilege.getEntity(), privilege.getPrincipal(), privilege.getAction());
+        allowed.add(privilege);
+      } catch (UnauthorizedException e) {
+        // not allowed, hence not included in the response
+      }
+    }
+    LOG.debug("Returning allowed privileges {} out of {}", allowed, authorizationPrivileges);
+    responder.sendJson(HttpResponseStatus.OK, GSON.toJson(allowed, SET_OF_PRIVILEGES));
+  }
+
   @POST
   @Path("/isVisible")
   public void isVisible(FullHttpRequest request, HttpResponder responder) throws Exception {
@@ -47,6 +47,7 @@ import co.cask.cdap.internal.app.AppFabricDatasetModule;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactRepository;
 import co.cask.cdap.internal.app.runtime.artifact.ArtifactStore;
 import co.cask.cdap.internal.app.runtime.artifact.DefaultArtifactRepository;
+import co.cask.cdap.internal.app.runtime.artifact.UnpackedArtifactCache;
 import co.cask.cdap.internal.provision.ProvisionerModule;
 import co.cask.cdap.logging.guice.LoggingModules;
 import co.cask.cdap.messaging.guice.MessagingServerRuntimeModule;
@@ -151,6 +152,7 @@ public class DefaultPreviewManager implements PreviewManager {
             if (runner instanceof Service) {
               stopQuietly((Service) runner);
             }
+            UnpackedArtifactCache.remove(injector.getInstance(CConfiguration.class));
           }
           ApplicationId application = notification.getKey();
           if (application == null) {
@@ -176,6 +178,7 @@ public class DefaultPreviewManager implements PreviewManager {
       if (runner instanceof Service) {
         stopQuietly((Service) runner);
       }
+      UnpackedArtifactCache.remove(injector.getInstance(CConfiguration.class));
       removePreviewDir(previewApp);
       throw e;
     }
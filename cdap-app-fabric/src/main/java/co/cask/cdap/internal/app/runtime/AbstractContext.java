@@ -74,6 +74,7 @@ import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.DynamicDatasetCache;
 import co.cask.cdap.data2.dataset2.MultiThreadDatasetCache;
+import co.cask.cdap.data2.dataset2.PooledDatasetCache;
 import co.cask.cdap.data2.dataset2.SingleThreadDatasetCache;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
 import co.cask.cdap.data2.metadata.writer.MetadataOperation;
@@ -89,6 +90,7 @@ import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.context.BasicMessagingAdmin;
 import co.cask.cdap.messaging.context.MultiThreadMessagingContext;
 import co.cask.cdap.proto.Notification;
+import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.id.ApplicationId;
 import co.cask.cdap.proto.id.ArtifactId;
 import co.cask.cdap.proto.id.DatasetId;
@@ -211,13 +213,22 @@ public abstract class AbstractContext extends AbstractServiceDiscoverer
       new SystemDatasetInstantiator(dsFramework, program.getClassLoader(), owners);
 
     TransactionSystemClient retryingTxClient = new RetryingShortTransactionSystemClient(txClient, retryStrategy);
-    this.datasetCache = multiThreaded
-      ? new MultiThreadDatasetCache(instantiator, retryingTxClient, program.getId().getNamespaceId(),
-                                    runtimeArgs, programMetrics, staticDatasets, messagingContext)
-      : new SingleThreadDatasetCache(instantiator, retryingTxClient, program.getId().getNamespaceId(),
-                                     runtimeArgs, programMetrics, staticDatasets);
+    // Datasets of a pooled cache must not be used after the end of their transaction, hence workers only use it
+    // if it is enabled explicitly
+    int datasetCachePoolSize = program.getType() == ProgramType.WORKER
+      ? cConf.getInt(Constants.AppFabric.WORKER_DATASET_CACHE_POOL_SIZE) : 0;
     if (!multiThreaded) {
+      this.datasetCache = new SingleThreadDatasetCache(instantiator, retryingTxClient, program.getId().getNamespaceId(),
+                                                       runtimeArgs, programMetrics, staticDatasets);
       datasetCache.addExtraTransactionAware(messagingContext);
+    } else if (datasetCachePoolSize > 0) {
+      this.datasetCache = new PooledDatasetCache(instantiator, retryingTxClient, program.getId().getNamespaceId(),
+                                                 runtimeArgs, programMetrics, staticDatasets, datasetCachePoolSize,
+                                                 cConf.getLong(Constants.AppFabric.WORKER_DATASET_CACHE_POOL_WAIT_MS),
+                                                 messagingContext);
+    } else {
+      this.datasetCache = new MultiThreadDatasetCache(instantiator, retryingTxClient, program.getId().getNamespaceId(),
+                                                      runtimeArgs, programMetrics, staticDatasets, messagingContext);
     }
 
     this.pluginInstantiator = pluginInstantiator;
@@ -21,11 +21,8 @@ import co.cask.cdap.app.runtime.ProgramClassLoaderProvider;
 import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.app.runtime.ProgramRunnerFactory;
 import co.cask.cdap.common.conf.CConfiguration;
-import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.lang.DirectoryClassLoader;
 import co.cask.cdap.common.lang.FilterClassLoader;
-import co.cask.cdap.common.lang.jar.BundleJarUtil;
-import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.internal.app.runtime.ProgramClassLoader;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.security.impersonation.EntityImpersonator;
@@ -50,13 +47,12 @@ final class ArtifactClassLoaderFactory {
 
   private final CConfiguration cConf;
   private final ProgramRunnerFactory programRunnerFactory;
-  private final File tmpDir;
+  private final UnpackedArtifactCache unpackedArtifactCache;
 
   ArtifactClassLoaderFactory(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory) {
     this.cConf = cConf;
     this.programRunnerFactory = programRunnerFactory;
-    this.tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
-                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
+    this.unpackedArtifactCache = UnpackedArtifactCache.get(cConf);
   }
 
   /**
@@ -106,37 +102,38 @@ final class ArtifactClassLoaderFactory {
   }
 
   /**
-   * Unpack the given {@code artifactLocation} to a temporary directory and call
+   * Unpack the given {@code artifactLocation} through the {@link UnpackedArtifactCache} and call
    * {@link #createClassLoader(File)} to create the {@link ClassLoader}.
    *
    * @param artifactLocation the location of the artifact to create the classloader from
    * @return a closeable classloader based off the specified artifact; on closing the returned {@link ClassLoader},
-   *         all temporary resources created for the classloader will be removed
+   *         the unpacked artifact will be released back to the cache
    * @throws IOException if there was an error copying or unpacking the artifact
    * @see #createClassLoader(File)
    */
   private CloseableClassLoader createClassLoader(final Location artifactLocation,
                                                  EntityImpersonator entityImpersonator) throws IOException {
     try {
-      final File unpackDir = entityImpersonator.impersonate(new Callable<File>() {
-        @Override
-        public File call() throws IOException {
-          return BundleJarUtil.unJar(artifactLocation, DirUtils.createTempDir(tmpDir));
-        }
-      });
+      final UnpackedArtifactCache.UnpackedArtifact unpacked = entityImpersonator.impersonate(
+        new Callable<UnpackedArtifactCache.UnpackedArtifact>() {
+          @Override
+          public UnpackedArtifactCache.UnpackedArtifact call() throws IOException {
+            return unpackedArtifactCache.unpack(artifactLocation);
+          }
+        });
 
-      final CloseableClassLoader classLoader = createClassLoader(unpackDir);
+      final CloseableClassLoader classLoader;
+      try {
+        classLoader = createClassLoader(unpacked.getDirectory());
+      } catch (Exception e) {
+        unpacked.close();
+        throw e;
+      }
       return new CloseableClassLoader(classLoader, new Closeable() {
         @Override
         public void close() throws IOException {
-          try {
-            Closeables.closeQuietly(classLoader);
-            if (unpackDir.exists()) {
-              DirUtils.deleteDirectoryContents(unpackDir);
-            }
-          } catch (IOException e) {
-            LOG.warn("Failed to delete directory {}", unpackDir, e);
-          }
+          Closeables.closeQuietly(classLoader);
+          unpacked.close();
         }
       });
     } catch (Exception e) {
@@ -150,7 +147,7 @@ final class ArtifactClassLoaderFactory {
    *
    * @param artifactLocations the locations of the artifact to create the classloader from
    * @return a closeable classloader based off the specified artifacts; on closing the returned {@link ClassLoader},
-   *         all temporary resources created for the classloader will be removed
+   *         the unpacked artifacts will be released back to the cache
    * @throws IOException if there was an error copying or unpacking the artifact
    * @see #createClassLoader(File)
    */
@@ -166,25 +163,29 @@ final class ArtifactClassLoaderFactory {
     }
 
     try {
-      final File unpackDir = entityImpersonator.impersonate(new Callable<File>() {
-        @Override
-        public File call() throws IOException {
-          return BundleJarUtil.unJar(artifactLocation, DirUtils.createTempDir(tmpDir));
-        }
-      });
+      final UnpackedArtifactCache.UnpackedArtifact unpacked = entityImpersonator.impersonate(
+        new Callable<UnpackedArtifactCache.UnpackedArtifact>() {
+          @Override
+          public UnpackedArtifactCache.UnpackedArtifact call() throws IOException {
+            return unpackedArtifactCache.unpack(artifactLocation);
+          }
+        });
 
-      final CloseableClassLoader parentClassLoader = createClassLoader(artifactLocations, entityImpersonator);
-      return new CloseableClassLoader(new DirectoryClassLoader(unpackDir, parentClassLoader, "lib"), new Closeable() {
+      final CloseableClassLoader parentClassLoader;
+      try {
+        parentClassLoader = createClassLoader(artifactLocations, entityImpersonator);
+      } catch (Exception e) {
+        unpacked.close();
+        throw e;
+      }
+      final DirectoryClassLoader classLoader = new DirectoryClassLoader(unpacked.getDirectory(),
+                                                                        parentClassLoader, "lib");
+      return new CloseableClassLoader(classLoader, new Closeable() {
         @Override
         public void close() throws IOException {
-          try {
-            Closeables.closeQuietly(parentClassLoader);
-            if (unpackDir.exists()) {
-              DirUtils.deleteDirectoryContents(unpackDir);
-            }
-          } catch (IOException e) {
-            LOG.warn("Failed to delete directory {}", unpackDir, e);
-          }
+          Closeables.closeQuietly(classLoader);
+          Closeables.closeQuietly(parentClassLoader);
+          unpacked.close();
         }
       });
     } catch (Exception e) {
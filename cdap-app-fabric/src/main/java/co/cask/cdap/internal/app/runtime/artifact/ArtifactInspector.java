@@ -28,6 +28,8 @@ import co.cask.cdap.api.artifact.ArtifactId;
 import co.cask.cdap.api.artifact.CloseableClassLoader;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.data.schema.UnsupportedTypeException;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.api.plugin.EndpointPluginContext;
 import co.cask.cdap.api.plugin.PluginClass;
 import co.cask.cdap.api.plugin.PluginConfig;
@@ -44,29 +46,18 @@ import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.internal.app.runtime.plugin.PluginInstantiator;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
-import com.google.common.base.Throwables;
-import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
 import org.apache.twill.filesystem.Location;
-import org.objectweb.asm.AnnotationVisitor;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -80,7 +71,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -100,11 +90,20 @@ final class ArtifactInspector {
   private final CConfiguration cConf;
   private final ArtifactClassLoaderFactory artifactClassLoaderFactory;
   private final ReflectionSchemaGenerator schemaGenerator;
+  private volatile MetricsContext metricsContext;
 
   ArtifactInspector(CConfiguration cConf, ArtifactClassLoaderFactory artifactClassLoaderFactory) {
     this.cConf = cConf;
     this.artifactClassLoaderFactory = artifactClassLoaderFactory;
     this.schemaGenerator = new ReflectionSchemaGenerator(false);
+    this.metricsContext = new NoopMetricsContext();
+  }
+
+  /**
+   * Sets the {@link MetricsContext} for emitting artifact inspection metrics.
+   */
+  void setMetricsContext(MetricsContext metricsContext) {
+    this.metricsContext = metricsContext;
   }
 
   /**
@@ -128,11 +127,13 @@ final class ArtifactInspector {
     Location artifactLocation = Locations.toLocation(artifactFile);
 
     Path stageDir = Files.createTempDirectory(tmpDir, artifactFile.getName());
+    Stopwatch stopwatch = new Stopwatch().start();
     try {
-      File unpackedDir = BundleJarUtil.unJar(artifactLocation,
-                                             Files.createTempDirectory(stageDir, "unpacked-").toFile());
       try (
-        CloseableClassLoader artifactClassLoader = artifactClassLoaderFactory.createClassLoader(unpackedDir);
+        UnpackedArtifactCache.UnpackedArtifact unpackedArtifact =
+          UnpackedArtifactCache.get(cConf).unpack(artifactLocation);
+        CloseableClassLoader artifactClassLoader =
+          artifactClassLoaderFactory.createClassLoader(unpackedArtifact.getDirectory());
         PluginInstantiator pluginInstantiator =
           new PluginInstantiator(cConf, parentClassLoader == null ? artifactClassLoader : parentClassLoader,
                                  Files.createTempDirectory(stageDir, "plugins-").toFile(),
@@ -146,6 +147,9 @@ final class ArtifactInspector {
     } catch (EOFException | ZipException e) {
       throw new InvalidArtifactException("Artifact " + artifactId + " is not a valid zip file.", e);
     } finally {
+      long elapsedMillis = stopwatch.elapsedMillis();
+      metricsContext.gauge(Constants.Metrics.Name.Artifact.INSPECT_LATENCY_MS, elapsedMillis);
+      LOG.debug("Inspected artifact {} in {} ms", artifactId, elapsedMillis);
       try {
         DirUtils.deleteDirectoryContents(stageDir.toFile());
       } catch (IOException e) {
@@ -237,24 +241,34 @@ final class ArtifactInspector {
 
     try {
       ClassLoader pluginClassLoader = pluginInstantiator.getArtifactClassLoader(artifactId);
-      for (Class<?> cls : getPluginClasses(exportPackages, pluginClassLoader)) {
-        Plugin pluginAnnotation = cls.getAnnotation(Plugin.class);
-        if (pluginAnnotation == null) {
-          continue;
+      PluginClassInspector classInspector = new PluginClassInspector(pluginClassLoader);
+      List<String> classNames = getClassNames(exportPackages, pluginClassLoader);
+
+      // Inspect the class files in parallel without loading them. Only plugin classes that cannot be inspected
+      // from their bytecode alone are loaded afterwards.
+      List<String> pluginClassNames = classNames.parallelStream()
+        .filter(classInspector::isPlugin)
+        .collect(Collectors.toList());
+      List<PluginClass> pluginClasses = pluginClassNames.parallelStream()
+        .map(classInspector::inspect)
+        .collect(Collectors.toList());
+
+      int loadedClasses = 0;
+      for (int i = 0; i < pluginClassNames.size(); i++) {
+        PluginClass pluginClass = pluginClasses.get(i);
+        if (pluginClass == null) {
+          pluginClass = inspectPluginClass(pluginClassLoader.loadClass(pluginClassNames.get(i)));
+          loadedClasses++;
         }
-        Map<String, PluginPropertyField> pluginProperties = Maps.newHashMap();
-        try {
-          String configField = getProperties(TypeToken.of(cls), pluginProperties);
-          Set<String> pluginEndpoints = getPluginEndpoints(cls);
-          PluginClass pluginClass = new PluginClass(pluginAnnotation.type(), getPluginName(cls),
-                                                    getPluginDescription(cls), cls.getName(),
-                                                    configField, pluginProperties, pluginEndpoints,
-                                                    getPluginRequirements(cls));
+        if (pluginClass != null) {
           builder.addPlugin(pluginClass);
-        } catch (UnsupportedTypeException e) {
-          LOG.warn("Plugin configuration type not supported. Plugin ignored. {}", cls, e);
         }
       }
+
+      metricsContext.increment(Constants.Metrics.Name.Artifact.INSPECTED_CLASSES, classNames.size());
+      metricsContext.increment(Constants.Metrics.Name.Artifact.LOADED_PLUGIN_CLASSES, loadedClasses);
+      LOG.debug("Inspected {} classes in artifact {}, found {} plugins, loaded {} plugin classes",
+                classNames.size(), artifactId, pluginClassNames.size(), loadedClasses);
     } catch (Throwable t) {
       throw new InvalidArtifactException(String.format(
         "Class could not be found while inspecting artifact for plugins. " +
@@ -265,6 +279,29 @@ final class ArtifactInspector {
     return builder;
   }
 
+  /**
+   * Inspects the given plugin class with reflection.
+   *
+   * @return the {@link PluginClass} or {@code null} if the class is not a valid plugin
+   */
+  @Nullable
+  private PluginClass inspectPluginClass(Class<?> cls) {
+    Plugin pluginAnnotation = cls.getAnnotation(Plugin.class);
+    if (pluginAnnotation == null) {
+      return null;
+    }
+    Map<String, PluginPropertyField> pluginProperties = Maps.newHashMap();
+    try {
+      String configField = getProperties(TypeToken.of(cls), pluginProperties);
+      Set<String> pluginEndpoints = getPluginEndpoints(cls);
+      return new PluginClass(pluginAnnotation.type(), getPluginName(cls), getPluginDescription(cls), cls.getName(),
+                             configField, pluginProperties, pluginEndpoints, getPluginRequirements(cls));
+    } catch (UnsupportedTypeException e) {
+      LOG.warn("Plugin configuration type not supported. Plugin ignored. {}", cls, e);
+      return null;
+    }
+  }
+
   /**
    * Returns the set of package names that are declared in "Export-Package" in the jar file Manifest.
    */
@@ -275,77 +312,30 @@ final class ArtifactInspector {
   }
 
   /**
-   * Returns an {@link Iterable} of class name that are under the given list of package names that are loadable
-   * through the plugin ClassLoader.
+   * Returns the names of the classes that are under the given list of package names in the top level of the
+   * artifact jar, and are loadable through the plugin ClassLoader.
    */
-  private Iterable<Class<?>> getPluginClasses(final Iterable<String> packages, final ClassLoader pluginClassLoader) {
-    return new Iterable<Class<?>>() {
-      @Override
-      public Iterator<Class<?>> iterator() {
-        final Iterator<String> packageIterator = packages.iterator();
-
-        return new AbstractIterator<Class<?>>() {
-          Iterator<String> classIterator = ImmutableList.<String>of().iterator();
-          String currentPackage;
-
-          @Override
-          protected Class<?> computeNext() {
-            while (!classIterator.hasNext()) {
-              if (!packageIterator.hasNext()) {
-                return endOfData();
-              }
-              currentPackage = packageIterator.next();
-
-              try {
-                // Gets all package resource URL for the given package
-                String resourceName = currentPackage.replace('.', File.separatorChar);
-                Enumeration<URL> resources = pluginClassLoader.getResources(resourceName);
-                List<Iterator<String>> iterators = new ArrayList<>();
-                // Go though all available resources and collect all class names that are plugin classes.
-                while (resources.hasMoreElements()) {
-                  URL packageResource = resources.nextElement();
-
-                  // Only inspect classes in the top level jar file for Plugins.
-                  // The jar manifest may have packages in Export-Package that are loadable from the bundled jar files,
-                  // which is for classloading purpose. Those classes won't be inspected for plugin classes.
-                  // There should be exactly one of resource that match, because it maps to a directory on the FS.
-                  if (packageResource.getProtocol().equals("file")) {
-                    Iterator<String> classFiles = DirUtils.list(new File(packageResource.toURI()), "class").iterator();
-
-                    // Transform class file into class name and filter by @Plugin class only
-                    iterators.add(Iterators.filter(
-                      Iterators.transform(classFiles, new Function<String, String>() {
-                        @Override
-                        public String apply(String input) {
-                          return getClassName(currentPackage, input);
-                        }
-                      }), new Predicate<String>() {
-                        @Override
-                        public boolean apply(String className) {
-                          return isPlugin(className, pluginClassLoader);
-                        }
-                      }));
-                  }
-                }
-                if (!iterators.isEmpty()) {
-                  classIterator = Iterators.concat(iterators.iterator());
-                }
-              } catch (Exception e) {
-                // Cannot happen
-                throw Throwables.propagate(e);
-              }
-            }
-
-            try {
-              return pluginClassLoader.loadClass(classIterator.next());
-            } catch (ClassNotFoundException | NoClassDefFoundError e) {
-              // Cannot happen, since the class name is from the list of the class files under the classloader.
-              throw Throwables.propagate(e);
-            }
+  private List<String> getClassNames(Iterable<String> packages, ClassLoader pluginClassLoader) throws Exception {
+    List<String> classNames = new ArrayList<>();
+    for (String packageName : packages) {
+      // Gets all package resource URL for the given package
+      String resourceName = packageName.replace('.', File.separatorChar);
+      Enumeration<URL> resources = pluginClassLoader.getResources(resourceName);
+      while (resources.hasMoreElements()) {
+        URL packageResource = resources.nextElement();
+
+        // Only inspect classes in the top level jar file for Plugins.
+        // The jar manifest may have packages in Export-Package that are loadable from the bundled jar files,
+        // which is for classloading purpose. Those classes won't be inspected for plugin classes.
+        // There should be exactly one of resource that match, because it maps to a directory on the FS.
+        if (packageResource.getProtocol().equals("file")) {
+          for (String classFile : DirUtils.list(new File(packageResource.toURI()), "class")) {
+            classNames.add(getClassName(packageName, classFile));
           }
-        };
+        }
       }
-    };
+    }
+    return classNames;
   }
 
   /**
@@ -515,38 +505,4 @@ final class ArtifactInspector {
 
     return new PluginPropertyField(name, description, rawType.getSimpleName().toLowerCase(), required, macroSupported);
   }
-
-  /**
-   * Detects if a class is annotated with {@link Plugin} without loading the class.
-   *
-   * @param className name of the class
-   * @param classLoader ClassLoader for loading the class file of the given class
-   * @return true if the given class is annotated with {@link Plugin}
-   */
-  private boolean isPlugin(String className, ClassLoader classLoader) {
-    try (InputStream is = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
-      if (is == null) {
-        return false;
-      }
-
-      // Use ASM to inspect the class bytecode to see if it is annotated with @Plugin
-      final boolean[] isPlugin = new boolean[1];
-      ClassReader cr = new ClassReader(is);
-      cr.accept(new ClassVisitor(Opcodes.ASM5) {
-        @Override
-        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-          if (Plugin.class.getName().equals(Type.getType(desc).getClassName()) && visible) {
-            isPlugin[0] = true;
-          }
-          return super.visitAnnotation(desc, visible);
-        }
-      }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-
-      return isPlugin[0];
-    } catch (IOException e) {
-      // If failed to open the class file, then it cannot be a plugin
-      LOG.warn("Failed to open class file for {}", className, e);
-      return false;
-    }
-  }
 }
@@ -43,7 +43,6 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.id.Id;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
-import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
@@ -65,7 +64,6 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.MinMaxPriorityQueue;
-import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.InputSupplier;
 import com.google.gson.Gson;
@@ -77,6 +75,8 @@ import org.apache.tephra.TransactionFailureException;
 import org.apache.tephra.TransactionSystemClient;
 import org.apache.twill.filesystem.Location;
 import org.apache.twill.filesystem.LocationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -84,6 +84,7 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -91,10 +92,13 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -171,8 +175,13 @@ import javax.annotation.Nullable;
  *
  * With this schema we can perform a scan to look up AppClasses, a scan to look up plugins that extend a specific
  * artifact, and a scan to look up artifacts.
+ *
+ * Since plugin lookups are much more frequent than artifact changes, the plugin and universal plugin rows are also
+ * kept decoded in memory in a {@link PluginCatalog}. The catalog is reloaded after any artifact is added or deleted
+ * through this store, and after it expires.
  */
 public class ArtifactStore {
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactStore.class);
   private static final String ARTIFACTS_PATH = "artifacts";
   private static final String ARTIFACT_PREFIX = "r";
   private static final String PLUGIN_PREFIX = "p";
@@ -193,6 +202,11 @@ public class ArtifactStore {
   private final Transactional transactional;
   private final Impersonator impersonator;
   private final Set<String> requirementBlacklist;
+  private final long pluginCatalogExpiryMillis;
+  // Incremented whenever artifacts are added or deleted, to invalidate the plugin catalog
+  private final AtomicLong pluginCatalogGeneration;
+  private final Object pluginCatalogLock;
+  private volatile PluginCatalog pluginCatalog;
 
   @Inject
   ArtifactStore(CConfiguration cConf, DatasetFramework datasetFramework,
@@ -214,6 +228,10 @@ public class ArtifactStore {
     this.requirementBlacklist =
       new HashSet<>(cConf.getTrimmedStringCollection(Constants.REQUIREMENTS_DATASET_TYPE_EXCLUDE))
         .stream().map(String::toLowerCase).collect(Collectors.toSet());
+    this.pluginCatalogExpiryMillis =
+      TimeUnit.SECONDS.toMillis(cConf.getLong(Constants.AppFabric.PLUGIN_CATALOG_EXPIRY_SECS));
+    this.pluginCatalogGeneration = new AtomicLong();
+    this.pluginCatalogLock = new Object();
   }
 
   /**
@@ -501,6 +519,7 @@ public class ArtifactStore {
                                                                           @Nullable String type)
     throws ArtifactNotFoundException, IOException {
 
+    PluginCatalog catalog = getPluginCatalog();
     return Transactionals.execute(transactional, context -> {
       Table metaTable = getMetaTable(context);
       SortedMap<ArtifactDescriptor, Set<PluginClass>> plugins = getPluginsInArtifact(
@@ -512,13 +531,12 @@ public class ArtifactStore {
         scanUniversalPlugin(NamespaceId.SYSTEM.getNamespace(), type)
       );
 
+      // filter out plugins whose artifacts are not in the system namespace and not in this namespace
+      Id.Namespace namespaceId = Id.Namespace.fromEntityId(namespace);
+      Predicate<Id.Artifact> namespaceFilter = artifactId -> Id.Namespace.SYSTEM.equals(artifactId.getNamespace())
+        || namespaceId.equals(artifactId.getNamespace());
       for (Scan scan : scans) {
-        try (Scanner scanner = metaTable.scan(scan)) {
-          Row row;
-          while ((row = scanner.next()) != null) {
-            addPluginsToMap(namespace, parentArtifactId, plugins, row);
-          }
-        }
+        addPluginsToMap(parentArtifactId, plugins, getPluginEntries(metaTable, catalog, scan, namespaceFilter));
       }
 
       return Collections.unmodifiableSortedMap(plugins);
@@ -573,6 +591,7 @@ public class ArtifactStore {
     @Nullable final Predicate<co.cask.cdap.proto.id.ArtifactId> pluginRange, int limit, ArtifactSortOrder order)
     throws IOException, ArtifactNotFoundException, PluginNotExistsException {
 
+    PluginCatalog catalog = getPluginCatalog();
     SortedMap<ArtifactDescriptor, PluginClass> result = Transactionals.execute(transactional, context -> {
       Table metaTable = getMetaTable(context);
       List<ArtifactDetail> parentArtifactDetails = getArtifacts(metaTable, parentArtifactRange,
@@ -603,18 +622,15 @@ public class ArtifactStore {
       // Add all plugins that extends from the given set of parents
       PluginKey pluginKey = new PluginKey(parentArtifactRange.getNamespace(),
                                           parentArtifactRange.getName(), type, name);
-      Row row = metaTable.get(pluginKey.getRowKey());
-      if (!row.isEmpty()) {
-        addPluginsInRangeToMap(namespace, parentArtifacts, row.getColumns(), plugins, pluginRange, limit);
-      }
+      addPluginsInRangeToMap(namespace, parentArtifacts,
+                             getPluginEntries(metaTable, catalog, pluginKey.getRowKey()), plugins, pluginRange, limit);
 
       // Add all universal plugins
       for (String ns : Arrays.asList(namespace.getNamespace(), NamespaceId.SYSTEM.getNamespace())) {
         UniversalPluginKey universalPluginKey = new UniversalPluginKey(ns, type, name);
-        row = metaTable.get(universalPluginKey.getRowKey());
-        if (!row.isEmpty()) {
-          addPluginsInRangeToMap(namespace, parentArtifacts, row.getColumns(), plugins, pluginRange, limit);
-        }
+        addPluginsInRangeToMap(namespace, parentArtifacts,
+                               getPluginEntries(metaTable, catalog, universalPluginKey.getRowKey()),
+                               plugins, pluginRange, limit);
       }
 
       return Collections.unmodifiableSortedMap(plugins);
@@ -725,6 +741,8 @@ public class ArtifactStore {
     } catch (TransactionFailureException e) {
       destination.delete();
       throw Transactionals.propagate(e, ArtifactAlreadyExistsException.class, IOException.class);
+    } finally {
+      invalidatePluginCatalog();
     }
   }
 
@@ -757,16 +775,20 @@ public class ArtifactStore {
   public void delete(final Id.Artifact artifactId) throws ArtifactNotFoundException, IOException {
 
     // delete everything in a transaction
-    Transactionals.execute(transactional, context -> {
-      // first look up details to get plugins and apps in the artifact
-      ArtifactCell artifactCell = new ArtifactCell(artifactId);
-      Table metaTable = getMetaTable(context);
-      byte[] detailBytes = metaTable.get(artifactCell.rowkey, artifactCell.column);
-      if (detailBytes == null) {
-        throw new ArtifactNotFoundException(artifactId.toEntityId());
-      }
-      deleteMeta(metaTable, artifactId, detailBytes);
-    }, IOException.class, ArtifactNotFoundException.class);
+    try {
+      Transactionals.execute(transactional, context -> {
+        // first look up details to get plugins and apps in the artifact
+        ArtifactCell artifactCell = new ArtifactCell(artifactId);
+        Table metaTable = getMetaTable(context);
+        byte[] detailBytes = metaTable.get(artifactCell.rowkey, artifactCell.column);
+        if (detailBytes == null) {
+          throw new ArtifactNotFoundException(artifactId.toEntityId());
+        }
+        deleteMeta(metaTable, artifactId, detailBytes);
+      }, IOException.class, ArtifactNotFoundException.class);
+    } finally {
+      invalidatePluginCatalog();
+    }
   }
 
   /**
@@ -834,6 +856,7 @@ public class ArtifactStore {
         }
       }
     }, IOException.class);
+    invalidatePluginCatalog();
   }
 
   // write a new artifact snapshot and clean up the old snapshot data
@@ -955,55 +978,22 @@ public class ArtifactStore {
     return result;
   }
 
-  // this method examines all plugins in the given row and checks if they extend the given parent artifact
-  // and are from an artifact in the given namespace.
+  // this method examines the given plugin entries and checks if they extend the given parent artifact.
   // if so, information about the plugin artifact and the plugin details are added to the given map.
-  private void addPluginsToMap(NamespaceId namespace, Id.Artifact parentArtifactId,
+  private void addPluginsToMap(Id.Artifact parentArtifactId,
                                SortedMap<ArtifactDescriptor, Set<PluginClass>> map,
-                               Row row) throws IOException {
-    // column is the artifact namespace, name, and version. value is the serialized PluginData
-    for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
-      ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry = getPluginEntry(namespace, parentArtifactId, column);
-      if (pluginEntry != null && isAllowed(pluginEntry.getSecond())) {
-        ArtifactDescriptor artifactDescriptor = pluginEntry.getFirst();
-        if (!map.containsKey(artifactDescriptor)) {
-          map.put(artifactDescriptor, Sets.<PluginClass>newHashSet());
-        }
-        map.get(artifactDescriptor).add(pluginEntry.getSecond());
+                               List<PluginEntry> entries) {
+    for (PluginEntry entry : entries) {
+      // filter out plugins that don't extend this version of the parent artifact
+      PluginClass pluginClass = entry.pluginData.pluginClass;
+      if (entry.pluginData.isUsableBy(parentArtifactId.toEntityId()) && isAllowed(pluginClass)) {
+        map.computeIfAbsent(entry.descriptor, descriptor -> new HashSet<>()).add(pluginClass);
       }
     }
   }
 
-  /**
-   * Decode the PluginClass from the table column if it is from an artifact in the given namespace and
-   * extends the given parent artifact. If the plugin's artifact is not in the given namespace, or it does not
-   * extend the given parent artifact, return null.
-   */
-  private ImmutablePair<ArtifactDescriptor, PluginClass> getPluginEntry(NamespaceId namespace,
-                                                                        Id.Artifact parentArtifactId,
-                                                                        Map.Entry<byte[], byte[]> column) {
-    // column is the artifact namespace, name, and version. value is the serialized PluginData
-    ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
-    Id.Namespace artifactNamespace = artifactColumn.artifactId.getNamespace();
-    // filter out plugins whose artifacts are not in the system namespace and not in this namespace
-    if (!Id.Namespace.SYSTEM.equals(artifactNamespace) &&
-      !artifactNamespace.equals(Id.Namespace.fromEntityId(namespace))) {
-      return null;
-    }
-    PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
-
-    // filter out plugins that don't extend this version of the parent artifact
-    if (pluginData.isUsableBy(parentArtifactId.toEntityId())) {
-      ArtifactDescriptor artifactDescriptor = new ArtifactDescriptor(
-        artifactColumn.artifactId.toArtifactId(),
-        Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath()));
-      return ImmutablePair.of(artifactDescriptor, pluginData.pluginClass);
-    }
-    return null;
-  }
-
   private void addPluginsInRangeToMap(final NamespaceId namespace, List<Id.Artifact> parentArtifacts,
-                                      Map<byte[], byte[]> columns,
+                                      List<PluginEntry> entries,
                                       SortedMap<ArtifactDescriptor, PluginClass> plugins,
                                       @Nullable Predicate<co.cask.cdap.proto.id.ArtifactId> range,
                                       int limit) {
@@ -1013,22 +1003,15 @@ public class ArtifactStore {
       ? range
       : input -> NamespaceId.SYSTEM.equals(input.getParent()) || input.getParent().equals(namespace);
 
-    for (Map.Entry<byte[], byte[]> column : columns.entrySet()) {
-      // column is the artifact namespace, name, and version. value is the serialized PluginData
-      ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
-
-      if (!range.test(artifactColumn.artifactId.toEntityId())) {
+    for (PluginEntry entry : entries) {
+      if (!range.test(entry.artifactId.toEntityId())) {
         continue;
       }
-      PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
 
       // filter out plugins that don't extend this version of the parent artifact
       for (Id.Artifact parentArtifactId : parentArtifacts) {
-        if (pluginData.isUsableBy(parentArtifactId.toEntityId()) && isAllowed(pluginData.pluginClass)) {
-          plugins.put(new ArtifactDescriptor(
-            artifactColumn.artifactId.toArtifactId(),
-            Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath())),
-                      pluginData.pluginClass);
+        if (entry.pluginData.isUsableBy(parentArtifactId.toEntityId()) && isAllowed(entry.pluginData.pluginClass)) {
+          plugins.put(entry.descriptor, entry.pluginData.pluginClass);
           break;
         }
       }
@@ -1038,6 +1021,139 @@ public class ArtifactStore {
     }
   }
 
+  /**
+   * Returns the plugin entries in the rows of the given scan, from the catalog if it is provided or from the meta
+   * table otherwise. Only entries from artifacts accepted by the given filter are returned.
+   */
+  private List<PluginEntry> getPluginEntries(Table metaTable, @Nullable PluginCatalog catalog,
+                                             Scan scan, Predicate<Id.Artifact> filter) {
+    List<PluginEntry> entries = new ArrayList<>();
+    if (catalog != null) {
+      for (List<PluginEntry> rowEntries : catalog.getRows(scan.getStartRow(), scan.getStopRow())) {
+        for (PluginEntry entry : rowEntries) {
+          if (filter.test(entry.artifactId)) {
+            entries.add(entry);
+          }
+        }
+      }
+      return entries;
+    }
+
+    try (Scanner scanner = metaTable.scan(scan)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        entries.addAll(decodePluginEntries(row, filter));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the plugin entries in the row of the given row key, from the catalog if it is provided or from the meta
+   * table otherwise.
+   */
+  private List<PluginEntry> getPluginEntries(Table metaTable, @Nullable PluginCatalog catalog, byte[] rowKey) {
+    if (catalog != null) {
+      return catalog.getRow(rowKey);
+    }
+    return decodePluginEntries(metaTable.get(rowKey), artifactId -> true);
+  }
+
+  /**
+   * Decodes the plugin entries stored in the given row. Only entries from artifacts accepted by the given filter
+   * are decoded.
+   */
+  private List<PluginEntry> decodePluginEntries(Row row, Predicate<Id.Artifact> filter) {
+    List<PluginEntry> entries = new ArrayList<>();
+    // column is the artifact namespace, name, and version. value is the serialized PluginData
+    for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+      ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
+      if (!filter.test(artifactColumn.artifactId)) {
+        continue;
+      }
+      PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
+      ArtifactDescriptor descriptor = new ArtifactDescriptor(
+        artifactColumn.artifactId.toArtifactId(),
+        Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath()));
+      entries.add(new PluginEntry(artifactColumn.artifactId, descriptor, pluginData));
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the {@link PluginCatalog} to serve plugin lookups from, loading it if there is no valid catalog.
+   * Returns {@code null} if the catalog is disabled.
+   */
+  @Nullable
+  private PluginCatalog getPluginCatalog() throws IOException {
+    if (pluginCatalogExpiryMillis <= 0) {
+      return null;
+    }
+    PluginCatalog catalog = pluginCatalog;
+    if (isValid(catalog)) {
+      return catalog;
+    }
+    // Only load the catalog once when there are concurrent lookups
+    synchronized (pluginCatalogLock) {
+      catalog = pluginCatalog;
+      if (isValid(catalog)) {
+        return catalog;
+      }
+      catalog = loadPluginCatalog();
+      pluginCatalog = catalog;
+      return catalog;
+    }
+  }
+
+  private boolean isValid(@Nullable PluginCatalog catalog) {
+    return catalog != null && catalog.generation == pluginCatalogGeneration.get()
+      && System.currentTimeMillis() - catalog.loadTime < pluginCatalogExpiryMillis;
+  }
+
+  /**
+   * Loads the plugin catalog from all plugin and universal plugin rows in the meta table.
+   *
+   * @throws IOException if there was an exception reading metadata from the metastore
+   */
+  @VisibleForTesting
+  PluginCatalog loadPluginCatalog() throws IOException {
+    // The generation must be read before the transaction starts, so that any change committed after this point
+    // makes the loaded catalog invalid.
+    long generation = pluginCatalogGeneration.get();
+    long loadTime = System.currentTimeMillis();
+    NavigableMap<byte[], List<PluginEntry>> rows = Transactionals.execute(transactional, context -> {
+      Table metaTable = getMetaTable(context);
+      NavigableMap<byte[], List<PluginEntry>> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (String prefix : Arrays.asList(PLUGIN_PREFIX, UNIVERSAL_PLUGIN_PREFIX)) {
+        byte[] startRow = Bytes.toBytes(prefix + ":");
+        try (Scanner scanner = metaTable.scan(new Scan(startRow, Bytes.stopKeyForPrefix(startRow)))) {
+          Row row;
+          while ((row = scanner.next()) != null) {
+            result.put(row.getRow(), Collections.unmodifiableList(decodePluginEntries(row, artifactId -> true)));
+          }
+        }
+      }
+      return result;
+    }, IOException.class);
+
+    PluginCatalog catalog = new PluginCatalog(generation, loadTime, rows);
+    LOG.debug("Loaded plugin catalog with {} plugins in {} ms", catalog.size(), System.currentTimeMillis() - loadTime);
+    return catalog;
+  }
+
+  /**
+   * Loads the plugin catalog so that it is ready for plugin lookups. This is a no-op if the catalog is disabled.
+   *
+   * @throws IOException if there was an exception reading metadata from the metastore
+   */
+  public void warmUpPluginCatalog() throws IOException {
+    getPluginCatalog();
+  }
+
+  private void invalidatePluginCatalog() {
+    pluginCatalogGeneration.incrementAndGet();
+  }
+
   private Scan scanArtifacts(NamespaceId namespace) {
     byte[] startRow = Bytes.toBytes(String.format("%s:%s:", ARTIFACT_PREFIX, namespace.getNamespace()));
     return new Scan(startRow, Bytes.stopKeyForPrefix(startRow));
@@ -1246,6 +1362,51 @@ public class ArtifactStore {
     }
   }
 
+  // A decoded plugin column, which is the plugin data of an artifact in a plugin or universal plugin row.
+  private static final class PluginEntry {
+    private final Id.Artifact artifactId;
+    private final ArtifactDescriptor descriptor;
+    private final PluginData pluginData;
+
+    PluginEntry(Id.Artifact artifactId, ArtifactDescriptor descriptor, PluginData pluginData) {
+      this.artifactId = artifactId;
+      this.descriptor = descriptor;
+      this.pluginData = pluginData;
+    }
+  }
+
+  /**
+   * An immutable in-memory copy of all plugin and universal plugin rows, keyed by row key so that plugin lookups
+   * by parent artifact, type and name can be served with the same row key ranges as the meta table scans.
+   */
+  @VisibleForTesting
+  static final class PluginCatalog {
+    private final long generation;
+    private final long loadTime;
+    private final NavigableMap<byte[], List<PluginEntry>> rows;
+
+    private PluginCatalog(long generation, long loadTime, NavigableMap<byte[], List<PluginEntry>> rows) {
+      this.generation = generation;
+      this.loadTime = loadTime;
+      this.rows = rows;
+    }
+
+    private Collection<List<PluginEntry>> getRows(byte[] startRow, byte[] stopRow) {
+      return rows.subMap(startRow, true, stopRow, false).values();
+    }
+
+    private List<PluginEntry> getRow(byte[] rowKey) {
+      return rows.getOrDefault(rowKey, Collections.emptyList());
+    }
+
+    /**
+     * Returns the number of plugin entries in the catalog.
+     */
+    int size() {
+      return rows.values().stream().mapToInt(List::size).sum();
+    }
+  }
+
   // Data that will be stored for an application class.
   private static class AppData {
     private final ApplicationClass appClass;
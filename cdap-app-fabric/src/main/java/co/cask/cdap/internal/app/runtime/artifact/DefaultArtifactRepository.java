@@ -23,6 +23,7 @@ import co.cask.cdap.api.artifact.ArtifactInfo;
 import co.cask.cdap.api.artifact.ArtifactRange;
 import co.cask.cdap.api.artifact.ArtifactSummary;
 import co.cask.cdap.api.artifact.CloseableClassLoader;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.plugin.PluginClass;
 import co.cask.cdap.api.plugin.PluginSelector;
 import co.cask.cdap.app.runtime.ProgramRunnerFactory;
@@ -55,6 +56,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Strings;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -123,6 +125,20 @@ public class DefaultArtifactRepository implements ArtifactRepository {
     this.impersonator = impersonator;
   }
 
+  /**
+   * Optional guice injection for the {@link MetricsCollectionService} used to emit artifact inspection metrics.
+   * It is optional because not every process using the repository collects metrics.
+   */
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    artifactInspector.setMetricsContext(metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.APP_FABRIC_HTTP,
+      Constants.Metrics.Tag.INSTANCE_ID, "0",
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace()
+    )));
+  }
+
   @Override
   public CloseableClassLoader createArtifactClassLoader(
     Location artifactLocation, EntityImpersonator entityImpersonator) throws IOException {
@@ -407,6 +423,9 @@ public class DefaultArtifactRepository implements ArtifactRepository {
     if (!remainingArtifacts.isEmpty()) {
       LOG.warn("Unable to add system artifacts {} due to cyclic dependencies", Joiner.on(",").join(remainingArtifacts));
     }
+
+    // load the plugin catalog at startup, so that the first plugin lookups are served from memory
+    artifactStore.warmUpPluginCatalog();
   }
 
   @Override
@@ -0,0 +1,450 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.api.annotation.Description;
+import co.cask.cdap.api.annotation.Macro;
+import co.cask.cdap.api.annotation.Name;
+import co.cask.cdap.api.annotation.Plugin;
+import co.cask.cdap.api.plugin.EndpointPluginContext;
+import co.cask.cdap.api.plugin.PluginClass;
+import co.cask.cdap.api.plugin.PluginConfig;
+import co.cask.cdap.api.plugin.PluginPropertyField;
+import co.cask.cdap.api.plugin.Requirements;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Inspects plugin classes by reading their bytecode with ASM, without loading them. The class files are read through
+ * the plugin ClassLoader, which includes the classes from the parent artifact, and are cached for the lifetime of
+ * this instance. This class is thread safe.
+ *
+ * The result is the same as inspecting the loaded class with reflection, as done by {@link ArtifactInspector}.
+ * Whenever that cannot be guaranteed from the bytecode alone, for example for generic config fields, unsupported
+ * property types or invalid endpoints, {@link #inspect(String)} returns {@code null} and the caller has to load
+ * the class instead.
+ */
+final class PluginClassInspector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PluginClassInspector.class);
+
+  private static final String PLUGIN_DESC = Type.getDescriptor(Plugin.class);
+  private static final String NAME_DESC = Type.getDescriptor(Name.class);
+  private static final String DESCRIPTION_DESC = Type.getDescriptor(Description.class);
+  private static final String MACRO_DESC = Type.getDescriptor(Macro.class);
+  private static final String REQUIREMENTS_DESC = Type.getDescriptor(co.cask.cdap.api.annotation.Requirements.class);
+  private static final String PATH_DESC = Type.getDescriptor(javax.ws.rs.Path.class);
+  private static final String PLUGIN_CONFIG_NAME = Type.getInternalName(PluginConfig.class);
+  private static final String ENDPOINT_CONTEXT_NAME = Type.getInternalName(EndpointPluginContext.class);
+
+  // Property type of boxed primitive types and String, same as the lowercase simple name of the unwrapped class
+  private static final Map<String, String> OBJECT_PROPERTY_TYPES = ImmutableMap.<String, String>builder()
+    .put("java/lang/Boolean", "boolean")
+    .put("java/lang/Byte", "byte")
+    .put("java/lang/Character", "char")
+    .put("java/lang/Short", "short")
+    .put("java/lang/Integer", "int")
+    .put("java/lang/Long", "long")
+    .put("java/lang/Float", "float")
+    .put("java/lang/Double", "double")
+    .put("java/lang/Void", "void")
+    .put("java/lang/String", "string")
+    .build();
+
+  private final ClassLoader classLoader;
+  private final ConcurrentMap<String, ClassInfo> classes;
+
+  PluginClassInspector(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+    this.classes = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Detects if a class is annotated with {@link Plugin} without loading the class.
+   *
+   * @param className name of the class
+   * @return true if the given class is annotated with {@link Plugin}
+   */
+  boolean isPlugin(String className) {
+    try {
+      ClassInfo classInfo = getClassInfo(className.replace('.', '/'));
+      return classInfo != null && classInfo.annotations.containsKey(PLUGIN_DESC);
+    } catch (IOException e) {
+      // If failed to open the class file, then it cannot be a plugin
+      LOG.warn("Failed to open class file for {}", className, e);
+      return false;
+    }
+  }
+
+  /**
+   * Creates the {@link PluginClass} for the given plugin class from its bytecode.
+   *
+   * @param className name of a class that is annotated with {@link Plugin}
+   * @return the {@link PluginClass} or {@code null} if the plugin class has to be loaded to inspect it
+   */
+  @Nullable
+  PluginClass inspect(String className) {
+    try {
+      ClassInfo classInfo = getClassInfo(className.replace('.', '/'));
+      Map<String, Object> pluginAnnotation = classInfo == null ? null : classInfo.annotations.get(PLUGIN_DESC);
+      if (pluginAnnotation == null) {
+        throw new FallbackException("class file is not available");
+      }
+
+      Map<String, PluginPropertyField> properties = new HashMap<>();
+      String configField = getProperties(classInfo, properties);
+      return new PluginClass((String) pluginAnnotation.getOrDefault("type", Plugin.DEFAULT_TYPE),
+                             getPluginName(classInfo, className), getDescription(classInfo.annotations), className,
+                             configField, properties, getEndpoints(classInfo), getRequirements(classInfo));
+    } catch (IOException | FallbackException e) {
+      LOG.debug("Plugin class {} has to be loaded for inspection: {}", className, e.getMessage());
+      return null;
+    }
+  }
+
+  private String getPluginName(ClassInfo classInfo, String className) {
+    Map<String, Object> annotation = classInfo.annotations.get(NAME_DESC);
+    String name = annotation == null ? null : (String) annotation.get("value");
+    return Strings.isNullOrEmpty(name) ? className : name;
+  }
+
+  private String getDescription(Map<String, Map<String, Object>> annotations) {
+    Map<String, Object> annotation = annotations.get(DESCRIPTION_DESC);
+    return annotation == null ? "" : (String) annotation.getOrDefault("value", "");
+  }
+
+  private Requirements getRequirements(ClassInfo classInfo) {
+    Map<String, Object> annotation = classInfo.annotations.get(REQUIREMENTS_DESC);
+    if (annotation == null) {
+      return Requirements.EMPTY;
+    }
+    List<?> datasetTypes = (List<?>) annotation.getOrDefault("datasetTypes", Collections.emptyList());
+    return new Requirements(datasetTypes.stream().map(s -> ((String) s).trim().toLowerCase())
+                              .filter(s -> !Strings.isNullOrEmpty(s)).collect(Collectors.toSet()));
+  }
+
+  /**
+   * Gets all config properties for the given plugin.
+   *
+   * @return the name of the config field in the plugin class or {@code null} if the plugin doesn't have a config field
+   */
+  @Nullable
+  private String getProperties(ClassInfo pluginClass,
+                               Map<String, PluginPropertyField> result) throws IOException, FallbackException {
+    for (ClassInfo classInfo = pluginClass; classInfo != null; classInfo = getSuperClassInfo(classInfo)) {
+      for (MemberInfo field : classInfo.fields) {
+        Type fieldType = Type.getType(field.desc);
+        if (fieldType.getSort() != Type.OBJECT || !isPluginConfig(fieldType.getInternalName())) {
+          continue;
+        }
+        if (field.signature != null) {
+          throw new FallbackException("config field " + field.name + " has a generic type");
+        }
+        inspectConfigClass(fieldType.getInternalName(), result);
+        return field.name;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Inspects the plugin config class and build up a map for {@link PluginPropertyField}.
+   */
+  private void inspectConfigClass(String configClassName,
+                                  Map<String, PluginPropertyField> result) throws IOException, FallbackException {
+    ClassInfo classInfo = getRequiredClassInfo(configClassName);
+    for (; classInfo != null && !PLUGIN_CONFIG_NAME.equals(classInfo.name); classInfo = getSuperClassInfo(classInfo)) {
+      for (MemberInfo field : classInfo.fields) {
+        if ((field.access & (Opcodes.ACC_TRANSIENT | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC)) != 0) {
+          continue;
+        }
+        PluginPropertyField property = createPluginProperty(field);
+        if (result.put(property.getName(), property) != null) {
+          throw new FallbackException("config property " + property.getName() + " is defined more than once");
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a {@link PluginPropertyField} based on the given field.
+   */
+  private PluginPropertyField createPluginProperty(MemberInfo field) throws FallbackException {
+    if (field.signature != null) {
+      throw new FallbackException("config field " + field.name + " has a generic type");
+    }
+
+    Map<String, Object> nameAnnotation = field.annotations.get(NAME_DESC);
+    String name = nameAnnotation == null ? field.name : (String) nameAnnotation.get("value");
+    String description = getDescription(field.annotations);
+    boolean macroSupported = field.annotations.containsKey(MACRO_DESC);
+
+    Type fieldType = Type.getType(field.desc);
+    if (fieldType.getSort() != Type.OBJECT && fieldType.getSort() != Type.ARRAY) {
+      return new PluginPropertyField(name, description, fieldType.getClassName(), true, macroSupported);
+    }
+
+    String type = fieldType.getSort() == Type.OBJECT ? OBJECT_PROPERTY_TYPES.get(fieldType.getInternalName()) : null;
+    if (type == null) {
+      throw new FallbackException("config field " + field.name + " has an unsupported type " + fieldType);
+    }
+
+    boolean required = true;
+    for (String annotationDesc : field.annotations.keySet()) {
+      String annotationName = Type.getType(annotationDesc).getInternalName();
+      // Annotations are only visible through reflection if the annotation class can be loaded
+      if (annotationName.endsWith("/Nullable") && classLoader.getResource(annotationName + ".class") != null) {
+        required = false;
+        break;
+      }
+    }
+    return new PluginPropertyField(name, description, type, required, macroSupported);
+  }
+
+  /**
+   * Returns the set of endpoints in the plugin, from the public methods annotated with {@link javax.ws.rs.Path}.
+   */
+  private Set<String> getEndpoints(ClassInfo pluginClass) throws IOException, FallbackException {
+    Set<String> endpoints = new HashSet<>();
+    // Methods overridden by a subclass are not visible through reflection
+    Set<String> methods = new HashSet<>();
+    for (ClassInfo classInfo = pluginClass; classInfo != null; classInfo = getSuperClassInfo(classInfo)) {
+      checkInterfaces(classInfo);
+      for (MemberInfo method : classInfo.methods) {
+        if ((method.access & Opcodes.ACC_PUBLIC) == 0 || method.name.startsWith("<")
+          || !methods.add(method.name + method.desc)) {
+          continue;
+        }
+        Map<String, Object> pathAnnotation = method.annotations.get(PATH_DESC);
+        if (pathAnnotation == null) {
+          continue;
+        }
+        Type[] parameterTypes = Type.getArgumentTypes(method.desc);
+        if ((method.access & Opcodes.ACC_SYNTHETIC) != 0
+          || !endpoints.add((String) pathAnnotation.get("value"))
+          || !(parameterTypes.length == 1 || parameterTypes.length == 2)
+          || (parameterTypes.length == 2 && !ENDPOINT_CONTEXT_NAME.equals(parameterTypes[1].getInternalName()))) {
+          throw new FallbackException("endpoint method " + method.name + " needs to be validated");
+        }
+      }
+    }
+    return endpoints;
+  }
+
+  /**
+   * Checks that the interfaces implemented by the given class don't have endpoint methods. Default methods with
+   * endpoints are rare enough to be left to reflection.
+   */
+  private void checkInterfaces(ClassInfo classInfo) throws IOException, FallbackException {
+    for (String interfaceName : classInfo.interfaces) {
+      if (interfaceName.startsWith("java/")) {
+        continue;
+      }
+      ClassInfo interfaceInfo = getRequiredClassInfo(interfaceName);
+      for (MemberInfo method : interfaceInfo.methods) {
+        if (method.annotations.containsKey(PATH_DESC)) {
+          throw new FallbackException("interface " + interfaceName + " has endpoint method " + method.name);
+        }
+      }
+      checkInterfaces(interfaceInfo);
+    }
+  }
+
+  /**
+   * Returns true if the given class is {@link PluginConfig} or a subclass of it.
+   */
+  private boolean isPluginConfig(String className) throws IOException, FallbackException {
+    // JDK classes are never plugin configs
+    for (String name = className; name != null && !name.startsWith("java/");
+         name = getRequiredClassInfo(name).superName) {
+      if (PLUGIN_CONFIG_NAME.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the {@link ClassInfo} of the super class, or {@code null} if there is no super class or if it is a
+   * JDK class, which doesn't have plugin fields or endpoints.
+   */
+  @Nullable
+  private ClassInfo getSuperClassInfo(ClassInfo classInfo) throws IOException, FallbackException {
+    String superName = classInfo.superName;
+    return superName == null || superName.startsWith("java/") ? null : getRequiredClassInfo(superName);
+  }
+
+  private ClassInfo getRequiredClassInfo(String className) throws IOException, FallbackException {
+    ClassInfo classInfo = getClassInfo(className);
+    if (classInfo == null) {
+      throw new FallbackException("class file of " + className + " is not available");
+    }
+    return classInfo;
+  }
+
+  /**
+   * Reads the class file of the given class through the plugin ClassLoader.
+   *
+   * @param className the internal name of the class
+   * @return the {@link ClassInfo} or {@code null} if the class file is not available
+   */
+  @Nullable
+  private ClassInfo getClassInfo(String className) throws IOException {
+    ClassInfo classInfo = classes.get(className);
+    if (classInfo != null) {
+      return classInfo;
+    }
+    try (InputStream is = classLoader.getResourceAsStream(className + ".class")) {
+      if (is == null) {
+        return null;
+      }
+      classInfo = new ClassInfo();
+      new ClassReader(is).accept(classInfo, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+    ClassInfo existing = classes.putIfAbsent(className, classInfo);
+    return existing == null ? classInfo : existing;
+  }
+
+  /**
+   * Returns an {@link AnnotationVisitor} that collects the annotation values into the given map. Array values are
+   * collected as lists.
+   */
+  private static AnnotationVisitor collectValues(Map<String, Object> values) {
+    return new AnnotationVisitor(Opcodes.ASM5) {
+      @Override
+      public void visit(String name, Object value) {
+        values.put(name, value);
+      }
+
+      @Override
+      public AnnotationVisitor visitArray(String name) {
+        List<Object> list = new ArrayList<>();
+        values.put(name, list);
+        return new AnnotationVisitor(Opcodes.ASM5) {
+          @Override
+          public void visit(String name, Object value) {
+            list.add(value);
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * The parts of a class file that are needed for plugin inspection. Only runtime visible annotations are kept,
+   * since only those are visible through reflection.
+   */
+  private static final class ClassInfo extends ClassVisitor {
+    private final Map<String, Map<String, Object>> annotations = new HashMap<>();
+    private final List<MemberInfo> fields = new ArrayList<>();
+    private final List<MemberInfo> methods = new ArrayList<>();
+    private String name;
+    private String superName;
+    private String[] interfaces = new String[0];
+
+    ClassInfo() {
+      super(Opcodes.ASM5);
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+      this.name = name;
+      this.superName = superName;
+      this.interfaces = interfaces == null ? new String[0] : interfaces;
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+      return visible ? collectValues(annotations.computeIfAbsent(desc, k -> new HashMap<>())) : null;
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+      MemberInfo field = new MemberInfo(access, name, desc, signature);
+      fields.add(field);
+      return new FieldVisitor(Opcodes.ASM5) {
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+          return visible ? collectValues(field.annotations.computeIfAbsent(desc, k -> new HashMap<>())) : null;
+        }
+      };
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      MemberInfo method = new MemberInfo(access, name, desc, signature);
+      methods.add(method);
+      return new MethodVisitor(Opcodes.ASM5) {
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+          return visible ? collectValues(method.annotations.computeIfAbsent(desc, k -> new HashMap<>())) : null;
+        }
+      };
+    }
+  }
+
+  /**
+   * A field or a method of a class.
+   */
+  private static final class MemberInfo {
+    private final int access;
+    private final String name;
+    private final String desc;
+    private final String signature;
+    private final Map<String, Map<String, Object>> annotations = new HashMap<>();
+
+    MemberInfo(int access, String name, String desc, @Nullable String signature) {
+      this.access = access;
+      this.name = name;
+      this.desc = desc;
+      this.signature = signature;
+    }
+  }
+
+  /**
+   * Thrown when a plugin class cannot be inspected from its bytecode alone.
+   */
+  private static final class FallbackException extends Exception {
+    FallbackException(String message) {
+      super(message);
+    }
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.lang.jar.BundleJarUtil;
+import co.cask.cdap.common.utils.DirUtils;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * A cache of unpacked artifact jars on local disk. Artifacts are identified by the SHA-256 checksum of the jar
+ * content, so the same artifact is only unpacked once, no matter from which location it is read. The unpacked
+ * directories are kept across restarts of the process.
+ *
+ * Each {@link #unpack(Location)} call must be paired with closing the returned {@link UnpackedArtifact}.
+ * Directories that are not in use are evicted in least recently used order once the total size of the cache
+ * exceeds the configured maximum. A maximum of zero means no directory is kept after it is no longer in use.
+ *
+ * Instances are shared per cache directory within the process, see {@link #get(CConfiguration)}. An instance
+ * must be removed with {@link #remove(CConfiguration)} when its directory is deleted. The cache directory must
+ * not be shared between processes.
+ */
+public final class UnpackedArtifactCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UnpackedArtifactCache.class);
+  private static final String TEMP_PREFIX = "tmp-";
+  private static final ConcurrentMap<File, UnpackedArtifactCache> CACHES = new ConcurrentHashMap<>();
+
+  private final File cacheDir;
+  private final long maxBytes;
+  // Access ordered, hence iteration order is from the least recently used to the most recently used
+  private final Map<String, Entry> entries;
+  // Checksum of artifacts that were seen before, keyed by location, size and modification time
+  private final Cache<String, String> checksums;
+  private long totalBytes;
+
+  /**
+   * Returns the {@link UnpackedArtifactCache} for the cache directory configured in the given configuration.
+   */
+  public static UnpackedArtifactCache get(CConfiguration cConf) {
+    return CACHES.computeIfAbsent(getCacheDir(cConf), dir -> new UnpackedArtifactCache(
+      dir, cConf.getLong(Constants.AppFabric.ARTIFACT_CACHE_MAX_BYTES)));
+  }
+
+  /**
+   * Removes the {@link UnpackedArtifactCache} for the cache directory configured in the given configuration.
+   * This is called when the local data directory of the configuration is about to be deleted, e.g. when a
+   * preview run is removed.
+   */
+  public static void remove(CConfiguration cConf) {
+    CACHES.remove(getCacheDir(cConf));
+  }
+
+  private static File getCacheDir(CConfiguration cConf) {
+    return new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+                    cConf.get(Constants.AppFabric.ARTIFACT_CACHE_DIR)).getAbsoluteFile();
+  }
+
+  @VisibleForTesting
+  UnpackedArtifactCache(File cacheDir, long maxBytes) {
+    this.cacheDir = cacheDir;
+    this.maxBytes = maxBytes;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.checksums = CacheBuilder.newBuilder().maximumSize(1000).build();
+    loadEntries();
+  }
+
+  /**
+   * Returns the unpacked directory of the given artifact jar, unpacking it if it is not in the cache.
+   *
+   * @param artifactLocation the location of the artifact jar
+   * @return an {@link UnpackedArtifact} that must be closed when the directory is no longer used
+   * @throws IOException if failed to read or unpack the artifact
+   */
+  public UnpackedArtifact unpack(Location artifactLocation) throws IOException {
+    String checksum = getChecksum(artifactLocation);
+
+    Entry entry;
+    boolean created = false;
+    synchronized (this) {
+      entry = entries.get(checksum);
+      if (entry != null && entry.refCount == 0 && !new File(cacheDir, checksum).isDirectory()) {
+        // The directory was removed externally, unpack it again
+        entries.remove(checksum);
+        totalBytes -= entry.size;
+        entry = null;
+      }
+      if (entry == null) {
+        entry = new Entry(checksum);
+        entries.put(checksum, entry);
+        created = true;
+      }
+      entry.refCount++;
+    }
+
+    if (created) {
+      try {
+        entry.directory.set(unpackEntry(entry, artifactLocation));
+      } catch (Throwable t) {
+        // Remove the failed entry so that the next call can retry
+        synchronized (this) {
+          entries.remove(checksum);
+        }
+        entry.directory.setException(t);
+      }
+    }
+
+    try {
+      File dir = Uninterruptibles.getUninterruptibly(entry.directory);
+      // Keep the modification time as the last access time, for eviction ordering after restart
+      if (!dir.setLastModified(System.currentTimeMillis())) {
+        LOG.trace("Failed to update last modified time of {}", dir);
+      }
+      return new UnpackedArtifact(entry, dir);
+    } catch (ExecutionException e) {
+      release(entry);
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Failed to unpack artifact " + artifactLocation, cause);
+    }
+  }
+
+  /**
+   * Unpacks the given artifact into the cache directory and returns the directory.
+   */
+  private File unpackEntry(Entry entry, Location artifactLocation) throws IOException {
+    File targetDir = new File(cacheDir, entry.checksum);
+    File tempDir = new File(cacheDir, TEMP_PREFIX + UUID.randomUUID());
+    try {
+      BundleJarUtil.unJar(artifactLocation, tempDir);
+      long size = getSize(tempDir.toPath());
+      try {
+        Files.move(tempDir.toPath(), targetDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (FileAlreadyExistsException e) {
+        // The directory was left over, e.g. by a process that failed before registering it. Its content is
+        // the same, since it is keyed by checksum.
+        DirUtils.deleteDirectoryContents(tempDir);
+        size = getSize(targetDir.toPath());
+      }
+      synchronized (this) {
+        totalBytes += size;
+        entry.size = size;
+      }
+      LOG.debug("Unpacked artifact {} to {} with size {}", artifactLocation, targetDir, size);
+      evict();
+      return targetDir;
+    } catch (IOException e) {
+      if (tempDir.exists()) {
+        DirUtils.deleteDirectoryContents(tempDir);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Releases one reference to the given entry and evicts entries if the cache exceeded its maximum size.
+   */
+  private void release(Entry entry) {
+    synchronized (this) {
+      entry.refCount--;
+    }
+    evict();
+  }
+
+  /**
+   * Evicts directories that are not in use, from the least recently used, until the cache is within its maximum size.
+   */
+  private void evict() {
+    List<File> evicted = new ArrayList<>();
+    synchronized (this) {
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (totalBytes > maxBytes && iterator.hasNext()) {
+        Entry candidate = iterator.next();
+        // Entries that are being unpacked always have a reference from the unpacking call
+        if (candidate.refCount > 0) {
+          continue;
+        }
+        iterator.remove();
+        totalBytes -= candidate.size;
+
+        // Rename the directory so that the artifact can be unpacked again while the old directory is being deleted
+        File dir = new File(cacheDir, candidate.checksum);
+        File deleteDir = new File(cacheDir, TEMP_PREFIX + UUID.randomUUID());
+        if (dir.renameTo(deleteDir)) {
+          evicted.add(deleteDir);
+        } else {
+          LOG.warn("Failed to evict unpacked artifact directory {}", dir);
+        }
+      }
+    }
+
+    for (File dir : evicted) {
+      try {
+        DirUtils.deleteDirectoryContents(dir);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete directory {}", dir, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the checksum of the artifact content.
+   */
+  private String getChecksum(Location artifactLocation) throws IOException {
+    String locationKey = artifactLocation.toURI() + ":" + artifactLocation.length() + ":"
+      + artifactLocation.lastModified();
+    String checksum = checksums.getIfPresent(locationKey);
+    if (checksum != null) {
+      return checksum;
+    }
+    checksum = ByteStreams.hash(Locations.newInputSupplier(artifactLocation), Hashing.sha256()).toString();
+    checksums.put(locationKey, checksum);
+    return checksum;
+  }
+
+  /**
+   * Loads the directories unpacked by previous processes and removes directories that are left incomplete.
+   */
+  private void loadEntries() {
+    File[] files = DirUtils.mkdirs(cacheDir) ? cacheDir.listFiles() : null;
+    if (files == null) {
+      LOG.warn("Failed to create artifact cache directory {}", cacheDir);
+      return;
+    }
+
+    List<File> dirs = new ArrayList<>();
+    for (File file : files) {
+      if (file.getName().startsWith(TEMP_PREFIX)) {
+        try {
+          DirUtils.deleteDirectoryContents(file);
+        } catch (IOException e) {
+          LOG.warn("Failed to delete directory {}", file, e);
+        }
+      } else if (file.isDirectory()) {
+        dirs.add(file);
+      }
+    }
+
+    // Add from the least recently used, so that the access order of the map matches
+    dirs.sort(Comparator.comparingLong(File::lastModified));
+    for (File dir : dirs) {
+      try {
+        Entry entry = new Entry(dir.getName());
+        entry.size = getSize(dir.toPath());
+        entry.directory.set(dir);
+        entries.put(entry.checksum, entry);
+        totalBytes += entry.size;
+      } catch (IOException e) {
+        LOG.warn("Failed to determine the size of directory {}", dir, e);
+      }
+    }
+    LOG.debug("Loaded {} unpacked artifacts of total size {} from {}", entries.size(), totalBytes, cacheDir);
+  }
+
+  private static long getSize(Path dir) throws IOException {
+    try (Stream<Path> stream = Files.walk(dir)) {
+      return stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+    }
+  }
+
+  /**
+   * An entry in the cache.
+   */
+  private static final class Entry {
+    private final String checksum;
+    private final SettableFuture<File> directory;
+    private int refCount;
+    private long size;
+
+    Entry(String checksum) {
+      this.checksum = checksum;
+      this.directory = SettableFuture.create();
+    }
+  }
+
+  /**
+   * A reference to an unpacked artifact directory. The directory stays available until this is closed.
+   */
+  public final class UnpackedArtifact implements Closeable {
+    private final Entry entry;
+    private final File directory;
+    private final AtomicBoolean closed;
+
+    private UnpackedArtifact(Entry entry, File directory) {
+      this.entry = entry;
+      this.directory = directory;
+      this.closed = new AtomicBoolean();
+    }
+
+    /**
+     * Returns the directory that contains the unpacked artifact. The directory must not be modified.
+     */
+    public File getDirectory() {
+      return directory;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        release(entry);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "UnpackedArtifact{directory=" + directory + "}";
+    }
+  }
+}
@@ -50,6 +50,7 @@ import co.cask.cdap.common.async.ExecutorUtils;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.DatumReader;
 import co.cask.cdap.common.lang.InstantiatorFactory;
 import co.cask.cdap.common.lang.PropertyFieldSetter;
 import co.cask.cdap.common.queue.QueueName;
@@ -78,8 +79,8 @@ import co.cask.cdap.internal.app.runtime.DataSetFieldSetter;
 import co.cask.cdap.internal.app.runtime.MetricsFieldSetter;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.ProgramRunners;
+import co.cask.cdap.internal.io.DatumReaderFactory;
 import co.cask.cdap.internal.io.DatumWriterFactory;
-import co.cask.cdap.internal.io.ReflectionDatumReader;
 import co.cask.cdap.internal.io.SchemaGenerator;
 import co.cask.cdap.internal.lang.Reflections;
 import co.cask.cdap.internal.specification.FlowletMethod;
@@ -138,6 +139,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
   private final CConfiguration cConf;
   private final SchemaGenerator schemaGenerator;
   private final DatumWriterFactory datumWriterFactory;
+  private final DatumReaderFactory datumReaderFactory;
   private final DataFabricFacadeFactory dataFabricFacadeFactory;
   private final StreamCoordinatorClient streamCoordinatorClient;
   private final QueueReaderFactory queueReaderFactory;
@@ -156,6 +158,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
   public FlowletProgramRunner(CConfiguration cConfiguration,
                               SchemaGenerator schemaGenerator,
                               DatumWriterFactory datumWriterFactory,
+                              DatumReaderFactory datumReaderFactory,
                               DataFabricFacadeFactory dataFabricFacadeFactory,
                               StreamCoordinatorClient streamCoordinatorClient,
                               QueueReaderFactory queueReaderFactory,
@@ -171,6 +174,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
     this.cConf = cConfiguration;
     this.schemaGenerator = schemaGenerator;
     this.datumWriterFactory = datumWriterFactory;
+    this.datumReaderFactory = datumReaderFactory;
     this.dataFabricFacadeFactory = dataFabricFacadeFactory;
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.queueReaderFactory = queueReaderFactory;
@@ -630,7 +634,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
 
   private <T> Function<ByteBuffer, T> createInputDatumDecoder(final TypeToken<T> dataType, final Schema schema,
                                                               final SchemaCache schemaCache) {
-    final ReflectionDatumReader<T> datumReader = new ReflectionDatumReader<>(schema, dataType);
+    final DatumReader<T> datumReader = datumReaderFactory.create(dataType, schema);
     final ByteBufferInputStream byteBufferInput = new ByteBufferInputStream(null);
     final BinaryDecoder decoder = new BinaryDecoder(byteBufferInput);
 
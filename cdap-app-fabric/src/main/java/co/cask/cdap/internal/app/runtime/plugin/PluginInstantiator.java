@@ -27,13 +27,11 @@ import co.cask.cdap.api.plugin.PluginConfig;
 import co.cask.cdap.api.plugin.PluginProperties;
 import co.cask.cdap.api.plugin.PluginPropertyField;
 import co.cask.cdap.common.conf.CConfiguration;
-import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.lang.CombineClassLoader;
 import co.cask.cdap.common.lang.InstantiatorFactory;
-import co.cask.cdap.common.lang.jar.BundleJarUtil;
-import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.internal.app.runtime.artifact.Artifacts;
+import co.cask.cdap.internal.app.runtime.artifact.UnpackedArtifactCache;
 import co.cask.cdap.internal.lang.FieldVisitor;
 import co.cask.cdap.internal.lang.Fields;
 import co.cask.cdap.internal.lang.Reflections;
@@ -70,7 +68,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 
@@ -97,7 +97,8 @@ public class PluginInstantiator implements Closeable {
 
   private final LoadingCache<ClassLoaderKey, PluginClassLoader> classLoaders;
   private final InstantiatorFactory instantiatorFactory;
-  private final File tmpDir;
+  private final UnpackedArtifactCache unpackedArtifactCache;
+  private final Queue<UnpackedArtifactCache.UnpackedArtifact> unpackedArtifacts;
   private final File pluginDir;
   private final ClassLoader parentClassLoader;
   private final boolean ownedParentClassLoader;
@@ -109,11 +110,9 @@ public class PluginInstantiator implements Closeable {
   public PluginInstantiator(CConfiguration cConf, ClassLoader parentClassLoader, File pluginDir,
                             boolean filterClassloader) {
     this.instantiatorFactory = new InstantiatorFactory(false);
-    File tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
-                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
-
+    this.unpackedArtifactCache = UnpackedArtifactCache.get(cConf);
+    this.unpackedArtifacts = new ConcurrentLinkedQueue<>();
     this.pluginDir = pluginDir;
-    this.tmpDir = DirUtils.createTempDir(tmpDir);
     this.classLoaders = CacheBuilder.newBuilder()
       .removalListener(new ClassLoaderRemovalListener())
       .build(new ClassLoaderCacheLoader());
@@ -383,16 +382,15 @@ public class PluginInstantiator implements Closeable {
 
   @Override
   public void close() throws IOException {
-    // Cleanup the ClassLoader cache and the temporary directory for the expanded plugin jar.
+    // Cleanup the ClassLoader cache and release the expanded plugin jars.
     classLoaders.invalidateAll();
     if (ownedParentClassLoader) {
       Closeables.closeQuietly((Closeable) parentClassLoader);
     }
-    try {
-      DirUtils.deleteDirectoryContents(tmpDir);
-    } catch (IOException e) {
-      // It's the cleanup step. Nothing much can be done if cleanup failed.
-      LOG.warn("Failed to delete directory {}", tmpDir);
+    UnpackedArtifactCache.UnpackedArtifact unpackedArtifact = unpackedArtifacts.poll();
+    while (unpackedArtifact != null) {
+      unpackedArtifact.close();
+      unpackedArtifact = unpackedArtifacts.poll();
     }
   }
 
@@ -439,9 +437,11 @@ public class PluginInstantiator implements Closeable {
 
     @Override
     public PluginClassLoader load(ClassLoaderKey key) throws Exception {
-      File unpackedDir = DirUtils.createTempDir(tmpDir);
       File artifact = new File(pluginDir, Artifacts.getFileName(key.artifact));
-      BundleJarUtil.unJar(Locations.toLocation(artifact), unpackedDir);
+      UnpackedArtifactCache.UnpackedArtifact unpackedArtifact = unpackedArtifactCache.unpack(
+        Locations.toLocation(artifact));
+      unpackedArtifacts.add(unpackedArtifact);
+      File unpackedDir = unpackedArtifact.getDirectory();
 
       Iterator<ArtifactId> parentIter = key.parents.iterator();
       if (!parentIter.hasNext()) {
@@ -48,11 +48,14 @@ import co.cask.cdap.proto.id.ApplicationId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.ScheduleId;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.tephra.Transaction;
+import org.apache.tephra.TxConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,10 +65,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 /**
@@ -87,6 +97,22 @@ import javax.annotation.Nullable;
  *
  * Lookup of schedules by trigger key is by first finding the all triggers for that event key (using the index),
  * then mapping each of these triggers to the schedule it belongs to.
+ *
+ * Every change to the schedules is also recorded in a change log: for each schedule that is added, updated or
+ * deleted, a row <code>#changes</code> followed by the write pointer of the transaction and the schedule's row key
+ * is written. Because every transaction writes its own change rows, concurrent changes to different schedules do
+ * not conflict. The row <code>#last</code> followed by the schedule's row key holds the write pointer of the latest
+ * change row of that schedule, so that the previous one can be removed, which keeps the change log at one row per
+ * existing or recently deleted schedule. Each process keeps an in-memory {@link TriggerKeyIndex}, which is brought
+ * up to date by scanning the change rows that became visible since its last update, so that a lookup by trigger key
+ * does not need to scan the table or deserialize the schedules. The row <code>#epoch</code> identifies the change log, it is gone if the store
+ * is truncated. Row keys starting with <code>#</code> can never collide with schedule row keys, because namespace
+ * names cannot contain that character.
+ *
+ * The change row and the <code>#last</code> row of a deleted schedule are removed by the first transaction that
+ * deletes schedules once they are older than a day, and at most once per hour. The write pointer up to which
+ * they were removed is kept in the <code>#epoch</code> row, and an index that has not caught up to it since is
+ * rebuilt rather than brought up to date, because it may have missed the removed changes.
  */
 public class ProgramScheduleStoreDataset extends AbstractDataset {
 
@@ -105,6 +131,22 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
   private static final byte[] TRIGGER_KEY_COLUMN_BYTES = Bytes.toBytes(TRIGGER_KEY_COLUMN);
   private static final byte[] TRIGGER_SEPARATOR_BYTES = Bytes.toBytes("" + TRIGGER_SEPARATOR);
 
+  private static final byte[] EPOCH_ROW_BYTES = Bytes.toBytes("#epoch");
+  private static final byte[] EPOCH_COLUMN_BYTES = Bytes.toBytes("e");
+  private static final byte[] CHANGE_LOG_ROW_PREFIX = Bytes.toBytes("#changes");
+  private static final byte[] CHANGED_KEY_COLUMN_BYTES = Bytes.toBytes("k");
+  private static final byte[] LAST_CHANGE_ROW_PREFIX = Bytes.toBytes("#last");
+  private static final byte[] WRITE_POINTER_COLUMN_BYTES = Bytes.toBytes("wp");
+  private static final byte[] COMPACTED_COLUMN_BYTES = Bytes.toBytes("c");
+  // how long the change rows of deleted schedules are kept, and how often they are removed, in write pointer units
+  private static final long DELETED_CHANGE_RETENTION = TimeUnit.DAYS.toMillis(1) * TxConstants.MAX_TX_PER_MS;
+  private static final long COMPACTION_INTERVAL = TimeUnit.HOURS.toMillis(1) * TxConstants.MAX_TX_PER_MS;
+  // first row key after all the rows that start with '#'
+  private static final byte[] FIRST_SCHEDULE_ROW_KEY = Bytes.stopKeyForPrefix(Bytes.toBytes("#"));
+
+  // in-memory trigger key indexes of this process, by dataset instance name
+  private static final ConcurrentMap<String, TriggerKeyIndex> TRIGGER_KEY_INDEXES = new ConcurrentHashMap<>();
+
   // package visible for the dataset definition
   static final String EMBEDDED_TABLE_NAME = "it"; // indexed table
   static final String INDEX_COLUMNS = TRIGGER_KEY_COLUMN; // trigger key
@@ -117,6 +159,9 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
       .create();
 
   private final IndexedTable store;
+  private Transaction tx;
+  // whether the current transaction has modified the store. If so, the in-memory index cannot be used.
+  private boolean changedInTx;
 
   ProgramScheduleStoreDataset(DatasetSpecification spec,
                               @EmbeddedDataset(EMBEDDED_TABLE_NAME) IndexedTable store) {
@@ -124,6 +169,13 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
     this.store = store;
   }
 
+  @Override
+  public void startTx(Transaction tx) {
+    super.startTx(tx);
+    this.tx = tx;
+    changedInTx = false;
+  }
+
   /**
    * Add a schedule to the store.
    *
@@ -171,9 +223,12 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
    */
   public long addSchedules(Iterable<? extends ProgramSchedule> schedules) throws AlreadyExistsException {
     long currentTime = System.currentTimeMillis();
+    List<String> scheduleKeys = new ArrayList<>();
     for (ProgramSchedule schedule : schedules) {
       addScheduleWithStatus(schedule, ProgramScheduleStatus.SUSPENDED, currentTime); // initially suspended
+      scheduleKeys.add(rowKeyForSchedule(schedule.getScheduleId()));
     }
+    logChanges(scheduleKeys);
     return currentTime;
   }
 
@@ -192,6 +247,7 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
     updatePut.add(UPDATED_COLUMN_BYTES, currentTime); // record current time
     updatePut.add(STATUS_COLUMN_BYTES, newStatus.toString());
     store.put(updatePut);
+    logChanges(Collections.singletonList(scheduleKey));
     return currentTime;
   }
 
@@ -230,6 +286,7 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
    * @throws NotFoundException if one of the schedules does not exist in the store
    */
   public void deleteSchedules(Iterable<? extends ScheduleId> scheduleIds) throws NotFoundException {
+    List<String> scheduleKeys = new ArrayList<>();
     for (ScheduleId scheduleId : scheduleIds) {
       String scheduleKey = rowKeyForSchedule(scheduleId);
       if (store.get(new Get(scheduleKey)).isEmpty()) {
@@ -243,7 +300,9 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
           store.delete(row.getRow());
         }
       }
+      scheduleKeys.add(scheduleKey);
     }
+    logDeletes(scheduleKeys);
   }
 
   /**
@@ -255,6 +314,7 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
   // TODO: fix the bug that this method will return fake schedule id https://issues.cask.co/browse/CDAP-13626
   public List<ScheduleId> deleteSchedules(ApplicationId appId) {
     List<ScheduleId> deleted = new ArrayList<>();
+    List<String> scheduleKeys = new ArrayList<>();
     // since all trigger row keys are prefixed by <scheduleRowKey>@,
     // a scan for that prefix finds exactly the schedules and all of its triggers
     byte[] prefix = keyPrefixForApplicationScan(appId);
@@ -263,8 +323,12 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
       while ((row = scanner.next()) != null) {
         store.delete(row.getRow());
         deleted.add(rowKeyToScheduleId(row.getRow()));
+        if (row.get(SCHEDULE_COLUMN_BYTES) != null) {
+          scheduleKeys.add(Bytes.toString(row.getRow()));
+        }
       }
     }
+    logDeletes(scheduleKeys);
     return deleted;
   }
 
@@ -293,6 +357,7 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
         }
       }
     }
+    logDeletes(deleted.stream().map(ProgramScheduleStoreDataset::rowKeyForSchedule).collect(Collectors.toList()));
     return deleted;
   }
 
@@ -335,6 +400,7 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
                                                     schedule.getProgramId(), schedule.getProperties(), updatedTrigger,
                                                     schedule.getConstraints(), schedule.getTimeoutMillis()),
                                 scheduleRecord.getMeta().getStatus(), System.currentTimeMillis());
+          logChanges(Collections.singletonList(rowKeyForSchedule(schedule.getScheduleId())));
         } catch (AlreadyExistsException e) {
           // this should never happen
           LOG.warn("Failed to add the schedule '{}' triggered by '{}' with updated trigger '{}', " +
@@ -453,12 +519,29 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
   }
 
   /**
-   * Find all schedules that have a trigger with a given trigger key.
+   * Find all schedules that have a trigger with a given trigger key. This is served from the in-memory
+   * trigger key index, unless the current transaction has modified the store or its snapshot is older
+   * than the index. In those cases, it falls back to a lookup using the table's index.
    *
    * @param triggerKey the trigger key to look up
    * @return a list of all schedules that are triggered by this key; never null
    */
   public Collection<ProgramScheduleRecord> findSchedules(String triggerKey) {
+    if (!changedInTx) {
+      Collection<ProgramScheduleRecord> found = findSchedulesInIndex(triggerKey);
+      if (found != null) {
+        return found;
+      }
+    }
+    return findSchedulesInTable(triggerKey);
+  }
+
+  /*------------------- private helpers ---------------------*/
+
+  /**
+   * Find all schedules that have a trigger with a given trigger key by scanning the table's index.
+   */
+  private Collection<ProgramScheduleRecord> findSchedulesInTable(String triggerKey) {
     Map<ScheduleId, ProgramScheduleRecord> schedulesFound = new HashMap<>();
     try (Scanner scanner = store.readByIndex(TRIGGER_KEY_COLUMN_BYTES, Bytes.toBytes(triggerKey))) {
       Row triggerRow;
@@ -490,7 +573,188 @@ public class ProgramScheduleStoreDataset extends AbstractDataset {
     return schedulesFound.values();
   }
 
-  /*------------------- private helpers ---------------------*/
+  /**
+   * Find all schedules that have a trigger with a given trigger key using the in-memory index. The index is
+   * first brought up to the snapshot of the current transaction, either by applying the change rows that became
+   * visible since its last update or, if the store was truncated, by rebuilding it from a full scan.
+   *
+   * @return the schedules found, or null if the index cannot be used for the current transaction
+   */
+  @Nullable
+  private Collection<ProgramScheduleRecord> findSchedulesInIndex(String triggerKey) {
+    if (tx == null) {
+      return null;
+    }
+    Row epochRow = store.get(new Get(EPOCH_ROW_BYTES));
+    String epoch = epochRow.getString(EPOCH_COLUMN_BYTES);
+    epoch = epoch == null ? "" : epoch;
+    Long compactedPointer = epochRow.getLong(COMPACTED_COLUMN_BYTES);
+
+    TriggerKeyIndex index = TRIGGER_KEY_INDEXES.get(getName());
+    if (index != null && index.getEpoch().equals(epoch)) {
+      synchronized (index) {
+        if (!index.isCoveredBy(tx)) {
+          // the transaction's snapshot is older than the index
+          return null;
+        }
+        // changes that the index has not caught up to may have been removed by a compaction
+        if (compactedPointer == null || index.getCatchUpPointer() >= compactedPointer) {
+          catchUp(index);
+          return index.find(triggerKey);
+        }
+      }
+    }
+    TriggerKeyIndex rebuilt = rebuildIndex(epoch);
+    // don't replace an index that another thread has brought to a more recent snapshot in the meantime
+    TRIGGER_KEY_INDEXES.merge(getName(), rebuilt, (existing, created) ->
+      existing.getEpoch().equals(created.getEpoch()) && existing.getReadPointer() > created.getReadPointer()
+        ? existing : created);
+    return rebuilt.find(triggerKey);
+  }
+
+  /**
+   * Applies the changes that are visible to the current transaction but not yet reflected in the index. These are
+   * the change rows written by transactions that were still in progress when the index was last updated, and by
+   * transactions that committed after that. Applying a change again is harmless, because the changed schedule
+   * is read from the current snapshot.
+   */
+  private void catchUp(TriggerKeyIndex index) {
+    long startPointer = index.getCatchUpPointer();
+    long stopPointer = tx.getReadPointer() + 1;
+    if (startPointer < stopPointer) {
+      Set<String> changedKeys = new LinkedHashSet<>();
+      try (Scanner scanner = store.scan(new Scan(changeLogRowKey(startPointer), changeLogRowKey(stopPointer)))) {
+        Row row;
+        while ((row = scanner.next()) != null) {
+          changedKeys.add(row.getString(CHANGED_KEY_COLUMN_BYTES));
+        }
+      }
+      for (String scheduleKey : changedKeys) {
+        ScheduleId scheduleId = rowKeyToScheduleId(scheduleKey);
+        Row row = store.get(new Get(scheduleKey));
+        byte[] serialized = row.get(SCHEDULE_COLUMN_BYTES);
+        if (serialized == null) {
+          index.remove(scheduleId);
+        } else {
+          ProgramSchedule schedule = GSON.fromJson(Bytes.toString(serialized), ProgramSchedule.class);
+          index.put(new ProgramScheduleRecord(schedule, extractMetaFromRow(scheduleId, row)),
+                    extractTriggerKeys(schedule));
+        }
+      }
+    }
+    index.setSnapshot(tx);
+  }
+
+  /**
+   * Builds a new trigger key index from all schedules in the store.
+   */
+  private TriggerKeyIndex rebuildIndex(String epoch) {
+    TriggerKeyIndex index = new TriggerKeyIndex(epoch);
+    try (Scanner scanner = store.scan(new Scan(FIRST_SCHEDULE_ROW_KEY, null))) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        byte[] serialized = row.get(SCHEDULE_COLUMN_BYTES);
+        if (serialized != null) {
+          ProgramSchedule schedule = GSON.fromJson(Bytes.toString(serialized), ProgramSchedule.class);
+          index.put(new ProgramScheduleRecord(schedule, extractMetaFromRow(schedule.getScheduleId(), row)),
+                    extractTriggerKeys(schedule));
+        }
+      }
+    }
+    index.setSnapshot(tx);
+    LOG.debug("Rebuilt trigger key index for schedule store '{}' at read pointer {}",
+              getName(), tx.getReadPointer());
+    return index;
+  }
+
+  /**
+   * Records a change to the given schedules in the change log. Only rows specific to this transaction and to
+   * the given schedules are written, so that unrelated schedule changes do not conflict with each other.
+   */
+  private void logChanges(Collection<String> scheduleKeys) {
+    if (scheduleKeys.isEmpty()) {
+      return;
+    }
+    changedInTx = true;
+    if (store.get(new Get(EPOCH_ROW_BYTES)).isEmpty()) {
+      // only happens once for a new or truncated store
+      store.put(new Put(EPOCH_ROW_BYTES, EPOCH_COLUMN_BYTES, UUID.randomUUID().toString()));
+    }
+    long writePointer = tx.getWritePointer();
+    for (String scheduleKey : scheduleKeys) {
+      byte[] lastChangeRowKey = lastChangeRowKey(scheduleKey);
+      Long lastWritePointer = store.get(new Get(lastChangeRowKey)).getLong(WRITE_POINTER_COLUMN_BYTES);
+      if (lastWritePointer != null && lastWritePointer != writePointer) {
+        store.delete(changeLogRowKey(lastWritePointer, scheduleKey));
+      }
+      store.put(new Put(changeLogRowKey(writePointer, scheduleKey), CHANGED_KEY_COLUMN_BYTES, scheduleKey));
+      store.put(new Put(lastChangeRowKey, WRITE_POINTER_COLUMN_BYTES, writePointer));
+    }
+  }
+
+  /**
+   * Records the deletion of the given schedules in the change log, and removes the change rows of schedules
+   * deleted long enough ago.
+   */
+  private void logDeletes(Collection<String> scheduleKeys) {
+    if (scheduleKeys.isEmpty()) {
+      return;
+    }
+    logChanges(scheduleKeys);
+    Long compactedPointer = store.get(new Get(EPOCH_ROW_BYTES)).getLong(COMPACTED_COLUMN_BYTES);
+    long maxWritePointer = tx.getReadPointer() - DELETED_CHANGE_RETENTION;
+    if (maxWritePointer <= 0) {
+      return;
+    }
+    if (compactedPointer == null || maxWritePointer - compactedPointer >= COMPACTION_INTERVAL) {
+      compactChangeLog(maxWritePointer);
+    }
+  }
+
+  /**
+   * Removes the change rows and the <code>#last</code> rows of schedules that were deleted by transactions
+   * with a write pointer before the given one, and records that write pointer in the <code>#epoch</code> row.
+   * Only change rows after the previous compaction are scanned, because the change row of a schedule
+   * is rewritten whenever the schedule changes, including when it is deleted.
+   *
+   * @return the number of change rows removed
+   */
+  @VisibleForTesting
+  int compactChangeLog(long maxWritePointer) {
+    Long compactedPointer = store.get(new Get(EPOCH_ROW_BYTES)).getLong(COMPACTED_COLUMN_BYTES);
+    if (compactedPointer != null && compactedPointer >= maxWritePointer) {
+      return 0;
+    }
+    byte[] startRow = compactedPointer == null ? CHANGE_LOG_ROW_PREFIX : changeLogRowKey(compactedPointer);
+    Map<byte[], String> deletedChanges = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    try (Scanner scanner = store.scan(new Scan(startRow, changeLogRowKey(maxWritePointer)))) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        String scheduleKey = row.getString(CHANGED_KEY_COLUMN_BYTES);
+        if (store.get(new Get(scheduleKey)).get(SCHEDULE_COLUMN_BYTES) == null) {
+          deletedChanges.put(row.getRow(), scheduleKey);
+        }
+      }
+    }
+    for (Map.Entry<byte[], String> entry : deletedChanges.entrySet()) {
+      store.delete(entry.getKey());
+      store.delete(lastChangeRowKey(entry.getValue()));
+    }
+    store.put(new Put(EPOCH_ROW_BYTES, COMPACTED_COLUMN_BYTES, maxWritePointer));
+    return deletedChanges.size();
+  }
+
+  private static byte[] lastChangeRowKey(String scheduleKey) {
+    return Bytes.add(LAST_CHANGE_ROW_PREFIX, Bytes.toBytes(scheduleKey));
+  }
+
+  private static byte[] changeLogRowKey(long writePointer) {
+    return Bytes.add(CHANGE_LOG_ROW_PREFIX, Bytes.toBytes(writePointer));
+  }
+
+  private static byte[] changeLogRowKey(long writePointer, String scheduleKey) {
+    return Bytes.add(CHANGE_LOG_ROW_PREFIX, Bytes.toBytes(writePointer), Bytes.toBytes(scheduleKey));
+  }
 
   /**
    * List schedules with the given key prefix and only returns the schedules that can pass the filter.
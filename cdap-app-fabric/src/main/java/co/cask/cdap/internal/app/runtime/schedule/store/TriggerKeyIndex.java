@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.schedule.store;
+
+import co.cask.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import co.cask.cdap.proto.id.ScheduleId;
+import org.apache.tephra.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory index from trigger key to the schedules that have a trigger for that key. The index reflects
+ * the content of a {@link ProgramScheduleStoreDataset} as seen by a transaction snapshot: all changes up to
+ * the snapshot's read pointer, except the ones of transactions that were still in progress at that time.
+ * The epoch identifies the change log itself, it changes if the store is truncated or recreated.
+ *
+ * This class is thread-safe. Callers that need to check the snapshot and update the index atomically
+ * must synchronize on the index instance.
+ */
+final class TriggerKeyIndex {
+
+  private final String epoch;
+  private final Map<String, Set<ScheduleId>> schedulesByTriggerKey = new HashMap<>();
+  private final Map<ScheduleId, ProgramScheduleRecord> records = new HashMap<>();
+  private final Map<ScheduleId, Set<String>> triggerKeysBySchedule = new HashMap<>();
+  private long readPointer;
+  // sorted write pointers up to the read pointer whose changes are not reflected in the index yet
+  private long[] pending = new long[0];
+
+  TriggerKeyIndex(String epoch) {
+    this.epoch = epoch;
+  }
+
+  String getEpoch() {
+    return epoch;
+  }
+
+  synchronized long getReadPointer() {
+    return readPointer;
+  }
+
+  /**
+   * Returns the smallest write pointer whose changes may not be reflected in the index yet.
+   */
+  synchronized long getCatchUpPointer() {
+    return pending.length > 0 ? pending[0] : readPointer + 1;
+  }
+
+  /**
+   * Returns whether every change reflected in the index is also visible to the given transaction, that is,
+   * whether the index can be brought up to the transaction's snapshot by applying more changes.
+   */
+  synchronized boolean isCoveredBy(Transaction tx) {
+    if (tx.getReadPointer() < readPointer) {
+      return false;
+    }
+    for (long inProgress : tx.getInProgress()) {
+      if (inProgress <= readPointer && Arrays.binarySearch(pending, inProgress) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Records that the index reflects the snapshot of the given transaction.
+   */
+  synchronized void setSnapshot(Transaction tx) {
+    readPointer = tx.getReadPointer();
+    pending = Arrays.stream(tx.getInProgress()).filter(inProgress -> inProgress <= readPointer).sorted().toArray();
+  }
+
+  /**
+   * Adds a schedule to the index, replacing any previous entry for the same schedule.
+   */
+  synchronized void put(ProgramScheduleRecord record, Set<String> triggerKeys) {
+    ScheduleId scheduleId = record.getSchedule().getScheduleId();
+    remove(scheduleId);
+    records.put(scheduleId, record);
+    triggerKeysBySchedule.put(scheduleId, triggerKeys);
+    for (String triggerKey : triggerKeys) {
+      schedulesByTriggerKey.computeIfAbsent(triggerKey, k -> new HashSet<>()).add(scheduleId);
+    }
+  }
+
+  /**
+   * Removes a schedule from the index. This is a no-op if the schedule is not in the index.
+   */
+  synchronized void remove(ScheduleId scheduleId) {
+    records.remove(scheduleId);
+    Set<String> triggerKeys = triggerKeysBySchedule.remove(scheduleId);
+    if (triggerKeys == null) {
+      return;
+    }
+    for (String triggerKey : triggerKeys) {
+      Set<ScheduleId> scheduleIds = schedulesByTriggerKey.get(triggerKey);
+      if (scheduleIds != null && scheduleIds.remove(scheduleId) && scheduleIds.isEmpty()) {
+        schedulesByTriggerKey.remove(triggerKey);
+      }
+    }
+  }
+
+  /**
+   * Returns all schedules that have a trigger for the given trigger key; never null.
+   */
+  synchronized List<ProgramScheduleRecord> find(String triggerKey) {
+    Set<ScheduleId> scheduleIds = schedulesByTriggerKey.getOrDefault(triggerKey, Collections.emptySet());
+    List<ProgramScheduleRecord> result = new ArrayList<>(scheduleIds.size());
+    for (ScheduleId scheduleId : scheduleIds) {
+      result.add(records.get(scheduleId));
+    }
+    return result;
+  }
+}
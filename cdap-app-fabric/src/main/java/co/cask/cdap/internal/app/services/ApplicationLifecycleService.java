@@ -502,10 +502,9 @@ public class ApplicationLifecycleService extends AbstractIdleService {
     List<ApplicationSpecification> allSpecs = new ArrayList<>(store.getAllApplications(namespaceId));
     Map<ApplicationId, ApplicationSpecification> apps = new HashMap<>();
     for (ApplicationSpecification appSpec : allSpecs) {
-      ApplicationId applicationId = namespaceId.app(appSpec.getName(), appSpec.getAppVersion());
-      authorizationEnforcer.enforce(applicationId, authenticationContext.getPrincipal(), Action.ADMIN);
-      apps.put(applicationId, appSpec);
+      apps.put(namespaceId.app(appSpec.getName(), appSpec.getAppVersion()), appSpec);
     }
+    authorizationEnforcer.enforce(apps.keySet(), authenticationContext.getPrincipal(), Action.ADMIN);
 
     if (!runningPrograms.isEmpty()) {
       Set<String> activePrograms = new HashSet<>();
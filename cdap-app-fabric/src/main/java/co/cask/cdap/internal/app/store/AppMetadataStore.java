@@ -68,6 +68,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -77,9 +78,13 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -97,6 +102,18 @@ import javax.annotation.Nullable;
  * The run count will have the row key of format:
  * runRecordCount|namespace|app|version|programtype|program
  *
+ * Completed run records are also indexed by stop time and by status, with row keys of the form:
+ *
+ * runRecordStopIdx|stop time|namespace|app|version|programtype|program|runid
+ * runRecordStatusIdx.status|namespace|app|version|programtype|program|inverted start time|runid
+ *
+ * The index rows only hold the start time (respectively, the stop time) of the run as a long, so that time range
+ * and status queries can find the matching runs without deserializing the run records of all other runs.
+ * Runs that completed before the indexes were introduced are not indexed. The row runRecordIdxSince holds the
+ * time (in seconds) since which all completed runs are indexed, and queries that reach further back fall back to
+ * scanning the run records. The row runRecordIdxMaxDuration holds the longest duration (in seconds) of all indexed
+ * runs, which bounds the stop times to scan for runs that started before a given time.
+ *
  * These rows get deleted whenever state changes, with a new record written on top. In addition, workflow node state
  * is stored as:
  *
@@ -104,6 +121,13 @@ import javax.annotation.Nullable;
  *
  * Workflow node state is updated whenever program state is updated
  * and we notice that the program belongs to a workflow.
+ *
+ * Every write of an application specification also writes a new random stamp for that application:
+ *
+ * appSpecStamp|namespace|app|version
+ *
+ * Since a stamp is never reused, a specification that was read together with a given stamp can be cached
+ * and served to any later transaction that reads the same stamp.
  */
 public class AppMetadataStore extends MetadataStoreDataset {
 
@@ -116,6 +140,7 @@ public class AppMetadataStore extends MetadataStoreDataset {
   private static final byte[] APP_VERSION_UPGRADE_KEY = Bytes.toBytes("version.default.store");
 
   private static final String TYPE_APP_META = "appMeta";
+  private static final String TYPE_APP_SPEC_STAMP = "appSpecStamp";
   private static final String TYPE_STREAM = "stream";
 
   private static final String TYPE_RUN_RECORD_ACTIVE = "runRecordActive";
@@ -130,6 +155,13 @@ public class AppMetadataStore extends MetadataStoreDataset {
   private static final String TYPE_NAMESPACE = "namespace";
   private static final String TYPE_MESSAGE = "msg";
   private static final String TYPE_COUNT = "runRecordCount";
+  private static final String TYPE_RUN_RECORD_STOP_INDEX = "runRecordStopIdx";
+  private static final String TYPE_RUN_RECORD_STATUS_INDEX_PREFIX = "runRecordStatusIdx.";
+  private static final MDSKey RUN_RECORD_INDEX_SINCE_KEY = new MDSKey.Builder().add("runRecordIdxSince").build();
+  private static final MDSKey RUN_RECORD_INDEX_MAX_DURATION_KEY =
+    new MDSKey.Builder().add("runRecordIdxMaxDuration").build();
+  // number of run records to fetch with one multi-get when reading runs found through an index
+  private static final int INDEX_FETCH_BATCH_SIZE = 100;
   private static final Map<ProgramRunStatus, String> STATUS_TYPE_MAP = ImmutableMap.<ProgramRunStatus, String>builder()
     .put(ProgramRunStatus.PENDING, TYPE_RUN_RECORD_ACTIVE)
     .put(ProgramRunStatus.STARTING, TYPE_RUN_RECORD_ACTIVE)
@@ -243,14 +275,31 @@ public class AppMetadataStore extends MetadataStoreDataset {
   public void writeApplication(String namespaceId, String appId, String versionId, ApplicationSpecification spec) {
     write(new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId, versionId).build(),
           new ApplicationMeta(appId, spec));
+    writeAppSpecStamp(namespaceId, appId, versionId);
   }
 
   public void deleteApplication(String namespaceId, String appId, String versionId) {
     deleteAll(new MDSKey.Builder().add(TYPE_APP_META, namespaceId, appId, versionId).build());
+    deleteAll(new MDSKey.Builder().add(TYPE_APP_SPEC_STAMP, namespaceId, appId, versionId).build());
   }
 
   public void deleteApplications(String namespaceId) {
     deleteAll(new MDSKey.Builder().add(TYPE_APP_META, namespaceId).build());
+    deleteAll(new MDSKey.Builder().add(TYPE_APP_SPEC_STAMP, namespaceId).build());
+  }
+
+  /**
+   * Returns the stamp written with the latest specification of the given application, or {@code null} if there is
+   * no such application, or if it was last written before stamps were introduced.
+   */
+  @Nullable
+  public byte[] getAppSpecStamp(ApplicationId appId) {
+    return getValue(getApplicationKeyBuilder(TYPE_APP_SPEC_STAMP, appId).build());
+  }
+
+  private void writeAppSpecStamp(String namespaceId, String appId, String versionId) {
+    writeValue(new MDSKey.Builder().add(TYPE_APP_SPEC_STAMP, namespaceId, appId, versionId).build(),
+               Bytes.toBytes(UUID.randomUUID().toString()));
   }
 
   // todo: do we need appId? may be use from appSpec?
@@ -269,6 +318,7 @@ public class AppMetadataStore extends MetadataStoreDataset {
     updated = ApplicationMeta.updateSpec(existing, spec);
     LOG.trace("Application exists in mds: id: {}, spec: {}", existing);
     write(key, updated);
+    writeAppSpecStamp(namespaceId, appId, versionId);
   }
 
   /**
@@ -756,6 +806,7 @@ public class AppMetadataStore extends MetadataStoreDataset {
       .setStatus(runStatus)
       .setSourceId(sourceId)
       .build();
+    indexCompletedRun(programRunId, existing.getStartTs(), stopTs, runStatus);
     write(key, meta);
     LOG.trace("Recorded {} for program {}", runStatus, programRunId);
     return meta;
@@ -829,7 +880,8 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
   /**
    * Get active runs in all namespaces with a filter, active runs means program run with status STARTING, PENDING,
-   * RUNNING or SUSPENDED.
+   * RUNNING or SUSPENDED. Active run records are kept apart from completed ones and only exist while a run is
+   * active, so their number is bounded by the runs in flight and they are not indexed.
    *
    * @param filter filter to filter run record
    * @return map of run id to run record meta
@@ -1022,14 +1074,76 @@ public class AppMetadataStore extends MetadataStoreDataset {
   private Map<ProgramRunId, RunRecordMeta> getHistoricalRuns(@Nullable ProgramId programId, ProgramRunStatus status,
                                                              final long startTime, final long endTime, int limit,
                                                              @Nullable Predicate<RunRecordMeta> filter) {
-    if (programId == null || !programId.getVersion().equals(ApplicationId.DEFAULT_VERSION)) {
-      MDSKey key = getProgramKeyBuilder(TYPE_RUN_RECORD_COMPLETED, programId).build();
-      return getHistoricalRuns(key, status, startTime, endTime, limit, null, filter);
+    Predicate<MDSKey> keyPredicate = null;
+    if (programId != null && programId.getVersion().equals(ApplicationId.DEFAULT_VERSION)) {
+      keyPredicate = new AppVersionPredicate(ApplicationId.DEFAULT_VERSION);
     }
-
-    Predicate<MDSKey> keyPredicate = new AppVersionPredicate(ApplicationId.DEFAULT_VERSION);
     MDSKey key = getProgramKeyBuilder(TYPE_RUN_RECORD_COMPLETED, programId).build();
-    return getHistoricalRuns(key, status, startTime, endTime, limit, keyPredicate, filter);
+
+    Long indexedSince = getIndexedSince();
+    if (status == ProgramRunStatus.ALL || indexedSince == null || endTime <= indexedSince) {
+      return getHistoricalRuns(key, status, startTime, endTime, limit, keyPredicate, filter);
+    }
+
+    // All runs that started since the indexes were introduced are in the status index.
+    // Runs that started earlier can only be found by scanning the run records.
+    MDSKey indexKey = getProgramKeyBuilder(getStatusIndexType(status), programId).build();
+    Map<ProgramRunId, RunRecordMeta> runs = getRunsFromStatusIndex(indexKey, Math.max(startTime, indexedSince),
+                                                                   endTime, limit, keyPredicate, filter);
+    if (startTime < indexedSince && runs.size() < limit) {
+      runs.putAll(getHistoricalRuns(key, status, startTime, indexedSince, limit - runs.size(), keyPredicate, filter));
+    }
+    return runs;
+  }
+
+  /**
+   * Fetches the completed run records of runs found in a status index, in the order of the index.
+   *
+   * @param indexKey the prefix of the status index to scan
+   * @param startTime fetch runs that started at or after this time in seconds
+   * @param endTime fetch runs that started before this time in seconds
+   * @param limit max number of runs to fetch
+   * @param keyFilter filter for the keys of the index entries
+   * @param valueFilter filter for the run records
+   * @return map of logged runs
+   */
+  private Map<ProgramRunId, RunRecordMeta> getRunsFromStatusIndex(MDSKey indexKey, long startTime, long endTime,
+                                                                  int limit, @Nullable Predicate<MDSKey> keyFilter,
+                                                                  @Nullable Predicate<RunRecordMeta> valueFilter) {
+    MDSKey start = new MDSKey.Builder(indexKey).add(getInvertedTsScanKeyPart(endTime)).build();
+    MDSKey stop = new MDSKey.Builder(indexKey).add(getInvertedTsScanKeyPart(startTime)).build();
+    List<MDSKey> runKeys = new ArrayList<>();
+    scanValues(start, stop, (key, value) -> {
+      if (keyFilter == null || keyFilter.test(key)) {
+        runKeys.add(getRunRecordKeyForStatusIndex(key));
+      }
+      // without a value filter, every run found is returned, so there is no need to look any further
+      return valueFilter != null || runKeys.size() < limit;
+    });
+    return getRunRecords(runKeys, limit, valueFilter);
+  }
+
+  /**
+   * Fetches the run records with the given keys, in batches and in the given order, until the limit is reached.
+   * Keys of run records that do not exist are ignored.
+   */
+  private Map<ProgramRunId, RunRecordMeta> getRunRecords(List<MDSKey> runKeys, int limit,
+                                                         @Nullable Predicate<RunRecordMeta> filter) {
+    Map<ProgramRunId, RunRecordMeta> result = new LinkedHashMap<>();
+    for (List<MDSKey> batch : Iterables.partition(runKeys, INDEX_FETCH_BATCH_SIZE)) {
+      Map<MDSKey, RunRecordMeta> records = getKV(new HashSet<>(batch), RunRecordMeta.class);
+      for (MDSKey key : batch) {
+        RunRecordMeta meta = records.get(key);
+        if (meta == null || (filter != null && !filter.test(meta))) {
+          continue;
+        }
+        result.put(getProgramID(key).run(meta.getPid()), meta);
+        if (result.size() >= limit) {
+          return result;
+        }
+      }
+    }
+    return result;
   }
 
   /**
@@ -1038,25 +1152,60 @@ public class AppMetadataStore extends MetadataStoreDataset {
    * @param namespaces fetch run history that is belonged to one of these namespaces
    * @param earliestStopTime fetch run history that has stopped at or after the earliestStopTime in seconds
    * @param latestStartTime fetch run history that has started before the latestStartTime in seconds
-   * @param limit max number of entries to fetch for this history call
-   * @return map of logged runs
+   * @param limit max number of entries to fetch for each namespace. If more runs match in a namespace,
+   *              the runs that stopped first are returned
+   * @return map of logged runs, in the order in which they stopped within each namespace
    */
   public Map<ProgramRunId, RunRecordMeta> getHistoricalRuns(final Set<NamespaceId> namespaces,
                                                             final long earliestStopTime, final long latestStartTime,
                                                             final int limit) {
+    Long indexedSince = getIndexedSince();
+    if (indexedSince != null && earliestStopTime >= indexedSince) {
+      // use the stop time index to find the runs, then only read the run records of the runs found.
+      // The index is ordered by stop time, so the scan ends once every namespace has reached the limit
+      Set<String> remaining = namespaces.stream().map(NamespaceId::getNamespace).collect(Collectors.toSet());
+      Map<String, Integer> counts = new HashMap<>();
+      List<MDSKey> runKeys = new ArrayList<>();
+      scanStopIndex(earliestStopTime, latestStartTime, getScanTimeoutMillis(), (programRunId, startTs) -> {
+        String namespace = programRunId.getNamespace();
+        if (remaining.contains(namespace)) {
+          runKeys.add(getProgramRunInvertedTimeKey(TYPE_RUN_RECORD_COMPLETED, programRunId, startTs));
+          if (counts.merge(namespace, 1, Integer::sum) >= limit) {
+            remaining.remove(namespace);
+          }
+        }
+        return !remaining.isEmpty();
+      });
+      return getRunRecords(runKeys, Integer.MAX_VALUE, null);
+    }
+
     MDSKey keyPrefix = new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED).build();
-    //return all records in each namespace
-    return namespaces.stream()
-      .flatMap(ns -> getProgramRunIdMap(
-        listKV(new MDSKey.Builder(keyPrefix).add(ns.getNamespace()).build(), null,
-               RunRecordMeta.class, limit, key -> true,
-               // get active runs in a time window with range [earliestStopTime, latestStartTime),
-               // which excludes program run records that stopped before earliestStopTime and
-               // program run records that started after latestStartTime, all remaining records are active
-               // at some point within the time window and will be returned
-               meta -> meta.getStopTs() != null && meta.getStopTs() >= earliestStopTime
-                 && meta.getStartTs() < latestStartTime)).entrySet().stream())
-      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    Map<ProgramRunId, RunRecordMeta> result = new LinkedHashMap<>();
+    for (NamespaceId namespace : namespaces) {
+      // keep the runs that come first in the stop time index order, so that the result is the same as
+      // for the runs found through the index
+      NavigableMap<byte[], Map.Entry<ProgramRunId, RunRecordMeta>> runs = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      scan(new MDSKey.Builder(keyPrefix).add(namespace.getNamespace()).build(), null, RunRecordMeta.class,
+           (KeyValue<RunRecordMeta> input) -> {
+             RunRecordMeta meta = input.getValue();
+             // get active runs in a time window with range [earliestStopTime, latestStartTime),
+             // which excludes program run records that stopped before earliestStopTime and
+             // program run records that started after latestStartTime, all remaining records are active
+             // at some point within the time window and will be returned
+             if (meta.getStopTs() != null && meta.getStopTs() >= earliestStopTime
+               && meta.getStartTs() < latestStartTime) {
+               ProgramRunId programRunId = getProgramID(input.getKey()).run(meta.getPid());
+               runs.put(getStopIndexKey(programRunId, meta.getStopTs()).getKey(),
+                        new AbstractMap.SimpleImmutableEntry<>(programRunId, meta));
+               if (runs.size() > limit) {
+                 runs.pollLastEntry();
+               }
+             }
+             return true;
+           });
+      runs.values().forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+    }
+    return result;
   }
 
   private Map<ProgramRunId, RunRecordMeta> getHistoricalRuns(MDSKey historyKey, ProgramRunStatus status,
@@ -1130,12 +1279,14 @@ public class AppMetadataStore extends MetadataStoreDataset {
   }
 
   public void deleteProgramHistory(String namespaceId, String appId, String versionId) {
+    deleteRunRecordIndexes(namespaceId, appId, versionId);
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_ACTIVE, namespaceId, appId, versionId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId, appId, versionId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_COUNT, namespaceId, appId, versionId).build());
   }
 
   public void deleteProgramHistory(String namespaceId) {
+    deleteRunRecordIndexes(namespaceId);
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_ACTIVE, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_COUNT, namespaceId).build());
@@ -1192,18 +1343,33 @@ public class AppMetadataStore extends MetadataStoreDataset {
    * @return programs that were running between given start and end time
    */
   public Set<RunId> getRunningInRange(long startTimeInSecs, long endTimeInSecs) {
-    // We have scan timeout to be half of transaction timeout to eliminate transaction timeouts during large scans.
-    long scanTimeoutMills = TimeUnit.SECONDS.toMillis(cConf.getLong(TxConstants.Manager.CFG_TX_TIMEOUT)) / 2;
+    long scanTimeoutMills = getScanTimeoutMillis();
     LOG.trace("Scan timeout = {}ms", scanTimeoutMills);
 
     Set<RunId> runIds = new HashSet<>();
-    Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs,
-                                                        scanTimeoutMills));
+    Long indexedSince = getIndexedSince();
+    if (indexedSince != null && startTimeInSecs >= indexedSince) {
+      scanStopIndex(startTimeInSecs, endTimeInSecs, scanTimeoutMills, (programRunId, startTs) -> {
+        runIds.add(RunIds.fromString(programRunId.getRun()));
+        return true;
+      });
+    } else {
+      Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs,
+                                                          scanTimeoutMills));
+    }
     Iterables.addAll(runIds, getRunningInRangeForStatus(TYPE_RUN_RECORD_ACTIVE, startTimeInSecs, endTimeInSecs,
                                                         scanTimeoutMills));
     return runIds;
   }
 
+  /**
+   * @return the maximum time in milliseconds for a single scan over run records
+   */
+  private long getScanTimeoutMillis() {
+    // We have scan timeout to be half of transaction timeout to eliminate transaction timeouts during large scans.
+    return TimeUnit.SECONDS.toMillis(cConf.getLong(TxConstants.Manager.CFG_TX_TIMEOUT)) / 2;
+  }
+
   /**
    * Get the run count of the given program.
    *
@@ -1400,6 +1566,159 @@ public class AppMetadataStore extends MetadataStoreDataset {
     return (new ApplicationId(namespace, application, appVersion).program(ProgramType.valueOf(type), program));
   }
 
+  /**
+   * Adds the index entries for a run that is completed with the given status.
+   */
+  private void indexCompletedRun(ProgramRunId programRunId, long startTs, long stopTs, ProgramRunStatus status) {
+    if (getIndexedSince() == null) {
+      // If there are no completed runs yet, then all completed runs will be indexed. Otherwise, only
+      // runs that complete from now on are indexed, and older runs can only be found by scanning.
+      MDSKey completedKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED).build();
+      boolean hasCompletedRuns = !listKV(completedKey, RunRecordMeta.class, 1).isEmpty();
+      long since = hasCompletedRuns ? TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) : 0L;
+      writeValue(RUN_RECORD_INDEX_SINCE_KEY, Bytes.toBytes(since));
+    }
+    long duration = stopTs - startTs;
+    if (duration > getMaxIndexedRunDuration()) {
+      writeValue(RUN_RECORD_INDEX_MAX_DURATION_KEY, Bytes.toBytes(duration));
+    }
+    writeValue(getStopIndexKey(programRunId, stopTs), Bytes.toBytes(startTs));
+    writeValue(getProgramRunInvertedTimeKey(getStatusIndexType(status), programRunId, startTs), Bytes.toBytes(stopTs));
+  }
+
+  /**
+   * @return the time in seconds since which all completed runs are indexed, or null if no run was indexed yet
+   */
+  @Nullable
+  private Long getIndexedSince() {
+    byte[] value = getValue(RUN_RECORD_INDEX_SINCE_KEY);
+    return value == null ? null : Bytes.toLong(value);
+  }
+
+  /**
+   * @return the longest duration in seconds of all indexed runs, or 0 if no run was indexed yet
+   */
+  private long getMaxIndexedRunDuration() {
+    byte[] value = getValue(RUN_RECORD_INDEX_MAX_DURATION_KEY);
+    return value == null ? 0L : Bytes.toLong(value);
+  }
+
+  /**
+   * Scans the stop time index for runs that stopped at or after the given stop time and started before
+   * the given start time. A run that started before the given start time cannot have stopped later than
+   * the longest duration of all indexed runs after it, which bounds the scan. The scan is broken up into
+   * batches that each take at most the given time, similar to {@link #getRunningInRangeForStatus}.
+   *
+   * @param earliestStopTime the earliest stop time in seconds
+   * @param latestStartTime the start time in seconds before which the runs must have started
+   * @param maxScanTimeMillis the maximum time in milliseconds for a single scan
+   * @param consumer consumer of the run id and start time in seconds of every run found, which returns
+   *                 {@code false} to end the scan
+   */
+  private void scanStopIndex(long earliestStopTime, long latestStartTime, long maxScanTimeMillis,
+                             BiPredicate<ProgramRunId, Long> consumer) {
+    MDSKey indexKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_STOP_INDEX).build();
+    long maxDuration = getMaxIndexedRunDuration();
+    MDSKey stop = latestStartTime > Long.MAX_VALUE - maxDuration
+      ? new MDSKey(Bytes.stopKeyForPrefix(indexKey.getKey()))
+      : new MDSKey.Builder(indexKey).add(latestStartTime + maxDuration + 1).build();
+
+    MDSKey start = new MDSKey.Builder(indexKey).add(earliestStopTime).build();
+    while (start != null) {
+      MDSKey batchStart = start;
+      start = null;
+      Stopwatch stopwatch = new Stopwatch().start();
+      List<MDSKey> lastKey = new ArrayList<>(1);
+      scanValues(batchStart, stop, (key, value) -> {
+        if (!consumeStopIndexEntry(key, value, latestStartTime, consumer)) {
+          return false;
+        }
+        if (stopwatch.elapsedMillis() > maxScanTimeMillis) {
+          lastKey.add(key);
+          return false;
+        }
+        return true;
+      });
+      if (!lastKey.isEmpty()) {
+        // key for next scan is the last key + 1 from the previous scan
+        start = new MDSKey(Bytes.stopKeyForPrefix(lastKey.get(0).getKey()));
+      }
+    }
+  }
+
+  /**
+   * Passes a stop time index entry to the consumer if the run started before the given start time.
+   *
+   * @return {@code false} if the consumer ended the scan
+   */
+  private boolean consumeStopIndexEntry(MDSKey key, byte[] value, long latestStartTime,
+                                        BiPredicate<ProgramRunId, Long> consumer) {
+    long startTs = Bytes.toLong(value);
+    if (startTs >= latestStartTime) {
+      return true;
+    }
+    // Format : recordType, stop time, ns, app, version, type, program, runid
+    MDSKey.Splitter splitter = key.split();
+    splitter.skipString();
+    splitter.skipLong();
+    String namespace = splitter.getString();
+    String application = splitter.getString();
+    String appVersion = splitter.getString();
+    String type = splitter.getString();
+    String program = splitter.getString();
+    String runId = splitter.getString();
+    ProgramId programId = new ApplicationId(namespace, application, appVersion)
+      .program(ProgramType.valueOf(type), program);
+    return consumer.test(programId.run(runId), startTs);
+  }
+
+  /**
+   * Deletes the index entries of all completed runs in a namespace, or in an application if the app id and
+   * version are given.
+   */
+  private void deleteRunRecordIndexes(String namespaceId, String... appIdAndVersion) {
+    MDSKey completedKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).add(appIdAndVersion).build();
+    List<MDSKey> stopIndexKeys = new ArrayList<>();
+    scan(completedKey, null, RunRecordMeta.class, (KeyValue<RunRecordMeta> input) -> {
+      RunRecordMeta meta = input.getValue();
+      if (meta.getStopTs() != null) {
+        stopIndexKeys.add(getStopIndexKey(getProgramID(input.getKey()).run(meta.getPid()), meta.getStopTs()));
+      }
+      return true;
+    });
+    stopIndexKeys.forEach(this::delete);
+    for (ProgramRunStatus status : ProgramRunStatus.values()) {
+      if (status.isEndState()) {
+        deleteAll(new MDSKey.Builder().add(getStatusIndexType(status), namespaceId).add(appIdAndVersion).build());
+      }
+    }
+  }
+
+  private static MDSKey getStopIndexKey(ProgramRunId programRunId, long stopTs) {
+    return new MDSKey.Builder().add(TYPE_RUN_RECORD_STOP_INDEX).add(stopTs)
+      .add(programRunId.getNamespace(), programRunId.getApplication(), programRunId.getVersion(),
+           programRunId.getType().name(), programRunId.getProgram(), programRunId.getRun())
+      .build();
+  }
+
+  private static String getStatusIndexType(ProgramRunStatus status) {
+    return TYPE_RUN_RECORD_STATUS_INDEX_PREFIX + status.name();
+  }
+
+  /**
+   * Returns the key of the completed run record for an entry of a status index, which has the same layout.
+   */
+  private static MDSKey getRunRecordKeyForStatusIndex(MDSKey indexKey) {
+    // Format : recordType, ns, app, version, type, program, inverted start time, runid
+    MDSKey.Splitter splitter = indexKey.split();
+    splitter.skipString();
+    MDSKey.Builder builder = new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED);
+    for (int i = 0; i < 5; i++) {
+      builder.add(splitter.getString());
+    }
+    return builder.add(splitter.getLong()).add(splitter.getString()).build();
+  }
+
   private MDSKey getProgramRunInvertedTimeKey(String recordType, ProgramRunId runId, long startTs) {
     return getProgramKeyBuilder(recordType, runId.getParent())
       .add(getInvertedTsKeyPart(startTs))
@@ -29,6 +29,9 @@ import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.flow.FlowSpecification;
 import co.cask.cdap.api.flow.FlowletDefinition;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.api.service.ServiceSpecification;
 import co.cask.cdap.api.worker.WorkerSpecification;
 import co.cask.cdap.api.workflow.WorkflowActionNode;
@@ -41,12 +44,14 @@ import co.cask.cdap.common.ApplicationNotFoundException;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.ProgramNotFoundException;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.MultiThreadDatasetCache;
 import co.cask.cdap.data2.transaction.TransactionSystemClientAdapter;
 import co.cask.cdap.data2.transaction.Transactions;
+import co.cask.cdap.internal.app.ApplicationSpecificationAdapter;
 import co.cask.cdap.internal.app.ForwardingApplicationSpecification;
 import co.cask.cdap.internal.app.ForwardingFlowSpecification;
 import co.cask.cdap.proto.BasicThrowable;
@@ -63,12 +68,16 @@ import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.WorkflowId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.inject.Inject;
 import org.apache.tephra.RetryStrategies;
 import org.apache.tephra.TransactionSystemClient;
@@ -76,9 +85,17 @@ import org.apache.twill.api.RunId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -87,10 +104,16 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import javax.annotation.Nullable;
 
 /**
  * Implementation of the Store that ultimately places data into MetaDataTable.
+ *
+ * Application specifications are cached in memory together with the stamp that {@link AppMetadataStore} writes
+ * with every specification. A cached specification is only served to a transaction that reads the same stamp,
+ * hence it is never stale, even if the application was modified through another instance of this class.
  */
 public class DefaultStore implements Store {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultStore.class);
@@ -101,10 +124,15 @@ public class DefaultStore implements Store {
   private static final Gson GSON = new Gson();
   private static final Map<String, String> EMPTY_STRING_MAP = ImmutableMap.of();
   private static final Type STRING_MAP_TYPE = new TypeToken<Map<String, String>>() { }.getType();
+  private static final Gson APP_SPEC_GSON =
+    ApplicationSpecificationAdapter.addTypeAdapters(new GsonBuilder()).create();
 
   private CConfiguration configuration;
   private DatasetFramework dsFramework;
   private Transactional transactional;
+  private final Cache<ApplicationId, CachedAppSpec> appSpecCache;
+  private final boolean compactAppSpecCache;
+  private volatile MetricsContext metricsContext = new NoopMetricsContext();
 
   @Inject
   public DefaultStore(CConfiguration conf, DatasetFramework framework, TransactionSystemClient txClient) {
@@ -116,6 +144,24 @@ public class DefaultStore implements Store {
         NamespaceId.SYSTEM, ImmutableMap.of(), null, null)),
       RetryStrategies.retryOnConflict(20, 100)
     );
+    this.appSpecCache = CacheBuilder.newBuilder()
+      .maximumSize(conf.getInt(Constants.AppMetaStore.SPEC_CACHE_SIZE))
+      .build();
+    this.compactAppSpecCache = conf.getBoolean(Constants.AppMetaStore.SPEC_CACHE_COMPACT);
+  }
+
+  /**
+   * Optional guice injection for the {@link MetricsCollectionService} used to emit the hits and misses of the
+   * application specification cache. It is optional because not every process using the store collects metrics.
+   */
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.APP_FABRIC_HTTP,
+      Constants.Metrics.Tag.INSTANCE_ID, "0",
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace()
+    ));
   }
 
   /**
@@ -143,19 +189,19 @@ public class DefaultStore implements Store {
   @Override
   public ProgramDescriptor loadProgram(ProgramId id) throws IOException, ApplicationNotFoundException,
                                                                    ProgramNotFoundException {
-    ApplicationMeta appMeta = Transactionals.execute(transactional, context -> {
-      return getAppMetadataStore(context).getApplication(id.getNamespace(), id.getApplication(), id.getVersion());
+    ApplicationSpecification appSpec = Transactionals.execute(transactional, context -> {
+      return getApplicationSpec(getAppMetadataStore(context), id.getParent());
     });
 
-    if (appMeta == null) {
+    if (appSpec == null) {
       throw new ApplicationNotFoundException(id.getParent());
     }
 
-    if (!programExists(id, appMeta.getSpec())) {
+    if (!programExists(id, appSpec)) {
       throw new ProgramNotFoundException(id);
     }
 
-    return new ProgramDescriptor(id, appMeta.getSpec());
+    return new ProgramDescriptor(id, appSpec);
   }
 
   @Override
@@ -399,6 +445,7 @@ public class DefaultStore implements Store {
     Transactionals.execute(transactional, context -> {
       getAppMetadataStore(context).writeApplication(id.getNamespace(), id.getApplication(), id.getVersion(), spec);
     });
+    appSpecCache.invalidate(id);
   }
 
   // todo: this method should be moved into DeletedProgramHandlerState, bad design otherwise
@@ -406,14 +453,13 @@ public class DefaultStore implements Store {
   public List<ProgramSpecification> getDeletedProgramSpecifications(ApplicationId id,
                                                                     ApplicationSpecification appSpec) {
 
-    ApplicationMeta existing = Transactionals.execute(transactional, context -> {
-      return getAppMetadataStore(context).getApplication(id.getNamespace(), id.getApplication(), id.getVersion());
+    ApplicationSpecification existingAppSpec = Transactionals.execute(transactional, context -> {
+      return getApplicationSpec(getAppMetadataStore(context), id);
     });
 
     List<ProgramSpecification> deletedProgramSpecs = Lists.newArrayList();
 
-    if (existing != null) {
-      ApplicationSpecification existingAppSpec = existing.getSpec();
+    if (existingAppSpec != null) {
 
       Map<String, ProgramSpecification> existingSpec = ImmutableMap.<String, ProgramSpecification>builder()
         .putAll(existingAppSpec.getMapReduce())
@@ -562,6 +608,7 @@ public class DefaultStore implements Store {
       metaStore.deleteApplication(id.getNamespace(), id.getApplication(), id.getVersion());
       metaStore.deleteProgramHistory(id.getNamespace(), id.getApplication(), id.getVersion());
     });
+    appSpecCache.invalidate(id);
   }
 
   @Override
@@ -573,6 +620,7 @@ public class DefaultStore implements Store {
       metaStore.deleteApplications(id.getNamespace());
       metaStore.deleteProgramHistory(id.getNamespace());
     });
+    invalidateAppSpecs(id);
   }
 
   @Override
@@ -585,6 +633,7 @@ public class DefaultStore implements Store {
       metaStore.deleteAllStreams(id.getNamespace());
       metaStore.deleteProgramHistory(id.getNamespace());
     });
+    invalidateAppSpecs(id);
   }
 
   @Override
@@ -684,9 +733,79 @@ public class DefaultStore implements Store {
     }
   }
 
+  @Nullable
   private ApplicationSpecification getApplicationSpec(AppMetadataStore mds, ApplicationId id) {
+    // Applications written before stamps were introduced have no stamp. They are not cached until they are updated.
+    byte[] stamp = mds.getAppSpecStamp(id);
+    if (stamp != null) {
+      CachedAppSpec cached = appSpecCache.getIfPresent(id);
+      if (cached != null && Arrays.equals(stamp, cached.stamp)) {
+        metricsContext.increment(Constants.Metrics.Name.AppMetaStore.SPEC_CACHE_HITS, 1);
+        return cached.getSpec();
+      }
+    }
+    metricsContext.increment(Constants.Metrics.Name.AppMetaStore.SPEC_CACHE_MISSES, 1);
+
     ApplicationMeta meta = mds.getApplication(id.getNamespace(), id.getApplication(), id.getVersion());
-    return meta == null ? null : meta.getSpec();
+    if (meta == null) {
+      return null;
+    }
+    if (stamp != null) {
+      appSpecCache.put(id, compactAppSpecCache ? new CachedAppSpec(stamp, compress(meta.getSpec()))
+                                               : new CachedAppSpec(stamp, meta.getSpec()));
+    }
+    return meta.getSpec();
+  }
+
+  private void invalidateAppSpecs(NamespaceId namespaceId) {
+    appSpecCache.asMap().keySet().removeIf(appId -> appId.getParent().equals(namespaceId));
+  }
+
+  private static byte[] compress(ApplicationSpecification spec) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (Writer writer = new OutputStreamWriter(new DeflaterOutputStream(bos), StandardCharsets.UTF_8)) {
+      APP_SPEC_GSON.toJson(spec, ApplicationSpecification.class, writer);
+    } catch (IOException e) {
+      // Cannot happen since everything is written to memory
+      throw Throwables.propagate(e);
+    }
+    return bos.toByteArray();
+  }
+
+  private static ApplicationSpecification decompress(byte[] compressed) {
+    try (Reader reader = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(compressed)),
+                                               StandardCharsets.UTF_8)) {
+      return APP_SPEC_GSON.fromJson(reader, ApplicationSpecification.class);
+    } catch (IOException e) {
+      // Cannot happen since everything is read from memory
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * An application specification in the cache, together with the stamp it was read with. The specification is
+   * either kept as is, or as compressed json if the cache is configured to be compact.
+   */
+  private static final class CachedAppSpec {
+    private final byte[] stamp;
+    private final ApplicationSpecification spec;
+    private final byte[] compressedSpec;
+
+    CachedAppSpec(byte[] stamp, ApplicationSpecification spec) {
+      this.stamp = stamp;
+      this.spec = spec;
+      this.compressedSpec = null;
+    }
+
+    CachedAppSpec(byte[] stamp, byte[] compressedSpec) {
+      this.stamp = stamp;
+      this.spec = null;
+      this.compressedSpec = compressedSpec;
+    }
+
+    ApplicationSpecification getSpec() {
+      return spec != null ? spec : decompress(compressedSpec);
+    }
   }
 
   private static ApplicationSpecification replaceServiceSpec(ApplicationSpecification appSpec,
@@ -18,11 +18,16 @@ package co.cask.cdap.metadata;
 
 import co.cask.cdap.api.metadata.MetadataEntity;
 import co.cask.cdap.api.metadata.MetadataScope;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.app.store.Store;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.app.RunIds;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.entity.EntityExistenceVerifier;
 import co.cask.cdap.common.metadata.MetadataRecordV2;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
 import co.cask.cdap.data2.metadata.lineage.DefaultLineageStoreReader;
 import co.cask.cdap.data2.metadata.lineage.Lineage;
@@ -34,14 +39,18 @@ import co.cask.cdap.proto.ProgramRunStatus;
 import co.cask.cdap.proto.id.ApplicationId;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
@@ -57,6 +66,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
@@ -87,14 +97,34 @@ public class LineageAdmin {
   private final Store store;
   private final MetadataStore metadataStore;
   private final EntityExistenceVerifier<EntityId> entityExistenceVerifier;
+  private final MetricsContext metricsContext;
+  // Cache from a program run to the workflow run that started it, or empty if it was not started by a workflow.
+  // Both never change once the run record exists.
+  private final Cache<ProgramRunId, Optional<ProgramRunId>> workflowRunCache;
 
-  @Inject
+  @VisibleForTesting
   LineageAdmin(LineageStoreReader lineageStoreReader, Store store, MetadataStore metadataStore,
                EntityExistenceVerifier<EntityId> entityExistenceVerifier) {
+    this(lineageStoreReader, store, metadataStore, entityExistenceVerifier, CConfiguration.create(),
+         new NoOpMetricsCollectionService());
+  }
+
+  @Inject
+  LineageAdmin(LineageStoreReader lineageStoreReader, Store store, MetadataStore metadataStore,
+               EntityExistenceVerifier<EntityId> entityExistenceVerifier, CConfiguration cConf,
+               MetricsCollectionService metricsCollectionService) {
     this.lineageStoreReader = lineageStoreReader;
     this.store = store;
     this.metadataStore = metadataStore;
     this.entityExistenceVerifier = entityExistenceVerifier;
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.METADATA_SERVICE,
+      Constants.Metrics.Tag.INSTANCE_ID, "0",
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace()
+    ));
+    this.workflowRunCache = CacheBuilder.newBuilder()
+      .maximumSize(cConf.getInt(Constants.Metadata.LINEAGE_WORKFLOW_CACHE_SIZE))
+      .build();
   }
 
   /**
@@ -185,32 +215,13 @@ public class LineageAdmin {
                                                RunIds.getTime(runId, TimeUnit.MILLISECONDS));
   }
 
-  @Nullable
-  private ProgramRunId getWorkflowProgramRunid (Relation relation, Map<ProgramRunId,
-    RunRecordMeta> runRecordMap, Map<String, ProgramRunId> workflowIdMap) {
-    ProgramRunId workflowProgramRunId = null;
-
-    RunRecordMeta runRecord = runRecordMap.get(
-      new ProgramRunId(relation.getProgram().getNamespace(), relation.getProgram().getApplication(),
-                       relation.getProgram().getType(), relation.getProgram().getProgram(),
-                       relation.getRun().getId()));
-    if (runRecord != null
-      && runRecord.getProperties().containsKey("workflowrunid")) {
-      String workflowRunId = runRecord.getProperties().get("workflowrunid");
-      workflowProgramRunId = workflowIdMap.get(workflowRunId);
-    }
-    return workflowProgramRunId;
-  }
-
-  private Multimap<RelationKey, Relation> getRollupRelations (Multimap<RelationKey, Relation> relations,
-                                                              Map<ProgramRunId, RunRecordMeta> runRecordMap,
-                                                              Map<String, ProgramRunId> workflowIdMap)
-    throws NotFoundException {
+  private Multimap<RelationKey, Relation> getRollupRelations(Multimap<RelationKey, Relation> relations,
+                                                             Map<ProgramRunId, ProgramRunId> workflowRuns) {
 
     Multimap<RelationKey, Relation> relationsNew = HashMultimap.create();
     for (Map.Entry<RelationKey, Collection<Relation>> entry : relations.asMap().entrySet()) {
       for (Relation relation : entry.getValue()) {
-        ProgramRunId workflowProgramRunId = getWorkflowProgramRunid(relation, runRecordMap, workflowIdMap);
+        ProgramRunId workflowProgramRunId = workflowRuns.get(toProgramRunId(relation));
         if (workflowProgramRunId == null) {
           relationsNew.put(entry.getKey(), relation);
         } else {
@@ -234,61 +245,85 @@ public class LineageAdmin {
     return relationsNew;
   }
 
-  private Set<String> getWorkflowIds (Multimap<RelationKey, Relation> relations,
-                                      Map<ProgramRunId, RunRecordMeta> runRecordMap) throws NotFoundException {
-
-    final Set<String> workflowIDs = new HashSet<>();
-    for (Relation relation : Iterables.concat(relations.values())) {
-      RunRecordMeta runRecord = runRecordMap.get(
-        new ProgramRunId(relation.getProgram().getNamespace(), relation.getProgram().getApplication(),
-                         relation.getProgram().getType(), relation.getProgram().getProgram(),
-                         relation.getRun().getId()));
-      if (runRecord != null && runRecord.getProperties().containsKey("workflowrunid")) {
-        String workflowRunId = runRecord.getProperties().get("workflowrunid");
-        workflowIDs.add(workflowRunId);
+  /**
+   * Returns the workflow runs that started the given program runs. Program runs that were not started by a workflow
+   * are not in the returned map. Lookups are served from {@link #workflowRunCache} if possible.
+   */
+  private Map<ProgramRunId, ProgramRunId> getWorkflowRuns(Set<ProgramRunId> programRunIds) {
+    Map<ProgramRunId, ProgramRunId> workflowRuns = new HashMap<>();
+    Set<ProgramRunId> uncachedRunIds = new HashSet<>();
+    for (ProgramRunId programRunId : programRunIds) {
+      Optional<ProgramRunId> workflowRun = workflowRunCache.getIfPresent(programRunId);
+      if (workflowRun == null) {
+        uncachedRunIds.add(programRunId);
+      } else {
+        workflowRun.ifPresent(run -> workflowRuns.put(programRunId, run));
       }
     }
-
-    return workflowIDs;
-  }
-
-  private Multimap<RelationKey, Relation> doComputeRollupLineage(Multimap<RelationKey,
-    Relation> relations) throws NotFoundException {
-
-    // Make a set of all ProgramIDs in the relations
-    Set<ProgramRunId> programRunIdSet = new HashSet<>();
-    for (Relation relation : Iterables.concat(relations.values())) {
-      programRunIdSet.add(new ProgramRunId(relation.getProgram().getNamespace(), relation.getProgram().getApplication(),
-                                        relation.getProgram().getType(), relation.getProgram().getProgram(),
-                                        relation.getRun().getId()));
+    metricsContext.increment(Constants.Metrics.Name.Lineage.WORKFLOW_CACHE_HITS,
+                             programRunIds.size() - uncachedRunIds.size());
+    metricsContext.increment(Constants.Metrics.Name.Lineage.WORKFLOW_CACHE_MISSES, uncachedRunIds.size());
+    if (uncachedRunIds.isEmpty()) {
+      return workflowRuns;
     }
 
-    // Get RunRecordMeta for all these ProgramRunIDs
-    final Map<ProgramRunId, RunRecordMeta> runRecordMap = store.getRuns(programRunIdSet);
-
-    // Get workflow Run IDs for all the programs in the relations
-    final Set<String> workflowIDs = getWorkflowIds(relations, runRecordMap);
+    // Get RunRecordMeta for all the uncached ProgramRunIDs, and find the workflow run ids from them
+    Map<ProgramRunId, String> workflowRunIds = new HashMap<>();
+    for (Map.Entry<ProgramRunId, RunRecordMeta> entry : store.getRuns(uncachedRunIds).entrySet()) {
+      String workflowRunId = entry.getValue().getProperties().get("workflowrunid");
+      if (workflowRunId == null) {
+        workflowRunCache.put(entry.getKey(), Optional.empty());
+      } else {
+        workflowRunIds.put(entry.getKey(), workflowRunId);
+      }
+    }
+    if (workflowRunIds.isEmpty()) {
+      return workflowRuns;
+    }
 
     // Get Program IDs for workflow Run IDs
     // TODO: These scans could be expensive. CDAP-7571.
+    Set<String> workflowIds = new HashSet<>(workflowRunIds.values());
     Map<ProgramRunId, RunRecordMeta> workflowRunRecordMap =
-      store.getRuns(ProgramRunStatus.ALL,
-                    input ->  workflowIDs.contains(input.getPid()));
+      store.getRuns(ProgramRunStatus.ALL, input -> workflowIds.contains(input.getPid()));
 
     // Create a map from RunId to ProgramId for all workflows
     Map<String, ProgramRunId> workflowIdMap = new HashMap<>();
     for (Map.Entry<ProgramRunId, RunRecordMeta> entry : workflowRunRecordMap.entrySet()) {
       workflowIdMap.put(entry.getValue().getPid(), entry.getKey());
     }
+    for (Map.Entry<ProgramRunId, String> entry : workflowRunIds.entrySet()) {
+      ProgramRunId workflowRun = workflowIdMap.get(entry.getValue());
+      if (workflowRun != null) {
+        workflowRuns.put(entry.getKey(), workflowRun);
+        workflowRunCache.put(entry.getKey(), Optional.of(workflowRun));
+      }
+    }
+    return workflowRuns;
+  }
+
+  private Multimap<RelationKey, Relation> doComputeRollupLineage(Multimap<RelationKey, Relation> relations) {
+    // Make a set of all ProgramIDs in the relations
+    Set<ProgramRunId> programRunIdSet = new HashSet<>();
+    for (Relation relation : Iterables.concat(relations.values())) {
+      programRunIdSet.add(toProgramRunId(relation));
+    }
 
     // For all relations, replace ProgramIds with workflow ProgramIds
-    return getRollupRelations(relations, runRecordMap, workflowIdMap);
+    return getRollupRelations(relations, getWorkflowRuns(programRunIdSet));
+  }
+
+  private ProgramRunId toProgramRunId(Relation relation) {
+    return new ProgramRunId(relation.getProgram().getNamespace(), relation.getProgram().getApplication(),
+                            relation.getProgram().getType(), relation.getProgram().getProgram(),
+                            relation.getRun().getId());
   }
 
   private Lineage doComputeLineage(final NamespacedEntityId sourceData, long startMillis, long endMillis,
                                    int levels, @Nullable String rollup) throws NotFoundException {
     LOG.trace("Computing lineage for data {}, startMillis {}, endMillis {}, levels {}",
               sourceData, startMillis, endMillis, levels);
+    long computeStartTime = System.nanoTime();
 
     // Convert start time and end time period into scan keys in terms of program start times.
     Set<RunId> runningInRange = store.getRunningInRange(TimeUnit.MILLISECONDS.toSeconds(startMillis),
@@ -306,39 +341,46 @@ public class LineageAdmin {
     Set<ProgramId> visitedPrograms = new HashSet<>();
     Set<ProgramId> toVisitPrograms = new HashSet<>();
 
+    // Visit the lineage graph level by level. The relations of all datasets, and then of all programs,
+    // in the frontier of a level are fetched together in one transaction.
+    int scans = 0;
+    int level = 0;
     toVisitDatasets.add(sourceData);
-    for (int i = 0; i < levels; ++i) {
-      LOG.trace("Level {}", i);
+    for (; level < levels && !toVisitDatasets.isEmpty(); ++level) {
+      LOG.trace("Level {}", level);
+      toVisitDatasets.removeAll(visitedDatasets);
+      visitedDatasets.addAll(toVisitDatasets);
       toVisitPrograms.clear();
-      for (NamespacedEntityId d : toVisitDatasets) {
-        if (visitedDatasets.add(d)) {
-          LOG.trace("Visiting dataset {}", d);
-          // Fetch related programs
-          Iterable<Relation> programRelations = getProgramRelations(d, scanRange.getStart(), scanRange.getEnd(),
-                                                                    scanRange.getFilter());
-          LOG.trace("Got program relations {}", programRelations);
-          for (Relation relation : programRelations) {
-            relations.put(new RelationKey(relation), relation);
-          }
-          Iterables.addAll(toVisitPrograms, Iterables.transform(programRelations, RELATION_TO_PROGRAM_FUNCTION));
+      if (!toVisitDatasets.isEmpty()) {
+        LOG.trace("Visiting datasets {}", toVisitDatasets);
+        // Fetch related programs
+        Set<Relation> programRelations = lineageStoreReader.getDataRelations(toVisitDatasets, scanRange.getStart(),
+                                                                             scanRange.getEnd(),
+                                                                             scanRange.getFilter());
+        scans += toVisitDatasets.size();
+        LOG.trace("Got program relations {}", programRelations);
+        for (Relation relation : programRelations) {
+          relations.put(new RelationKey(relation), relation);
         }
+        Iterables.addAll(toVisitPrograms, Iterables.transform(programRelations, RELATION_TO_PROGRAM_FUNCTION));
       }
 
+      toVisitPrograms.removeAll(visitedPrograms);
+      visitedPrograms.addAll(toVisitPrograms);
       toVisitDatasets.clear();
-      for (ProgramId p : toVisitPrograms) {
-        if (visitedPrograms.add(p)) {
-          LOG.trace("Visiting program {}", p);
-          // Fetch related datasets
-          Iterable<Relation> datasetRelations = lineageStoreReader.getRelations(p, scanRange.getStart(),
+      if (!toVisitPrograms.isEmpty()) {
+        LOG.trace("Visiting programs {}", toVisitPrograms);
+        // Fetch related datasets
+        Set<Relation> datasetRelations = lineageStoreReader.getProgramRelations(toVisitPrograms,
+                                                                                scanRange.getStart(),
                                                                                 scanRange.getEnd(),
                                                                                 scanRange.getFilter());
-          LOG.trace("Got data relations {}", datasetRelations);
-          for (Relation relation : datasetRelations) {
-            relations.put(new RelationKey(relation), relation);
-          }
-          Iterables.addAll(toVisitDatasets,
-                           Iterables.transform(datasetRelations, RELATION_TO_DATA_FUNCTION));
+        scans += toVisitPrograms.size();
+        LOG.trace("Got data relations {}", datasetRelations);
+        for (Relation relation : datasetRelations) {
+          relations.put(new RelationKey(relation), relation);
         }
+        Iterables.addAll(toVisitDatasets, Iterables.transform(datasetRelations, RELATION_TO_DATA_FUNCTION));
       }
     }
 
@@ -349,20 +391,13 @@ public class LineageAdmin {
     Lineage lineage = new Lineage(Iterables.concat(Maps.transformValues(relations.asMap(),
                                                                         COLLAPSE_UNKNOWN_TYPE_FUNCTION).values()));
     LOG.trace("Got lineage {}", lineage);
-    return lineage;
-  }
 
-  private Iterable<Relation> getProgramRelations(NamespacedEntityId data, long start, long end,
-                                                 Predicate<Relation> filter) {
-    if (data instanceof DatasetId) {
-      return lineageStoreReader.getRelations((DatasetId) data, start, end, filter);
-    }
-
-    if (data instanceof StreamId) {
-      return lineageStoreReader.getRelations((StreamId) data, start, end, filter);
-    }
-
-    throw new IllegalStateException("Unknown data type " + data);
+    metricsContext.increment(Constants.Metrics.Name.Lineage.COMPUTE_REQUESTS, 1);
+    metricsContext.increment(Constants.Metrics.Name.Lineage.COMPUTE_LEVELS, level);
+    metricsContext.increment(Constants.Metrics.Name.Lineage.COMPUTE_SCANS, scans);
+    metricsContext.gauge(Constants.Metrics.Name.Lineage.COMPUTE_LATENCY_MS,
+                         TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - computeStartTime));
+    return lineage;
   }
 
   /**
@@ -28,6 +28,7 @@ import co.cask.cdap.common.security.AuditDetail;
 import co.cask.cdap.common.security.AuditPolicy;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
 import co.cask.cdap.data2.metadata.dataset.SortInfo;
+import co.cask.cdap.data2.metadata.dataset.WeightedSearchRanker;
 import co.cask.cdap.proto.EntityScope;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.codec.NamespacedEntityIdCodec;
@@ -278,10 +279,8 @@ public class MetadataHttpHandler extends AbstractHttpHandler {
     }
 
     SortInfo sortInfo = SortInfo.of(URLDecoder.decode(sort, StandardCharsets.UTF_8.name()));
-    if (SortInfo.DEFAULT.equals(sortInfo)) {
-      if (!(cursor.isEmpty()) || 0 != numCursors) {
-        throw new BadRequestException("Cursors are not supported when sort info is not specified.");
-      }
+    if (SortInfo.DEFAULT.equals(sortInfo) && !cursor.isEmpty() && !WeightedSearchRanker.isValidCursor(cursor)) {
+      throw new BadRequestException(String.format("Invalid cursor '%s' when sort info is not specified.", cursor));
     }
 
     NamespaceId namespaceId;
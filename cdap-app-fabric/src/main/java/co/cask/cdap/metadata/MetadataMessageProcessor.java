@@ -19,6 +19,8 @@ package co.cask.cdap.metadata;
 
 import co.cask.cdap.data2.metadata.writer.MetadataMessage;
 
+import java.util.List;
+
 /**
  * Interface for metadata message processor
  */
@@ -29,4 +31,15 @@ public interface MetadataMessageProcessor {
    */
   void processMessage(MetadataMessage message);
 
+  /**
+   * Processes a list of {@link MetadataMessage} from the same batch, in the order they were published.
+   * By default it calls {@link #processMessage(MetadataMessage)} for each message. Processors can override
+   * this method to combine writes of the whole batch.
+   */
+  default void processMessages(List<MetadataMessage> messages) {
+    for (MetadataMessage message : messages) {
+      processMessage(message);
+    }
+  }
+
 }
@@ -67,9 +67,13 @@ import org.apache.tephra.TxConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -195,8 +199,12 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
   protected void processMessages(DatasetContext datasetContext,
                                  Iterator<ImmutablePair<String, MetadataMessage>> messages) {
     Map<MetadataMessage.Type, MetadataMessageProcessor> processors = new HashMap<>();
+    // Consecutive messages handled by the same processor are batched together. The batch is flushed
+    // whenever the processor changes, so that messages are still applied in the order of the topic.
+    MetadataMessageProcessor batchProcessor = null;
+    List<MetadataMessage> batch = new ArrayList<>();
 
-    // Loop over all fetched messages and process them with corresponding MetadataMessageProcessor
+    // Loop over all fetched messages and process them with the corresponding MetadataMessageProcessor
     while (messages.hasNext()) {
       MetadataMessage message = messages.next().getSecond();
 
@@ -232,8 +240,24 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
         continue;
       }
 
-      processor.processMessage(message);
+      if (processor != batchProcessor) {
+        flushBatch(batchProcessor, batch);
+        batchProcessor = processor;
+      }
+      batch.add(message);
+    }
+    flushBatch(batchProcessor, batch);
+  }
+
+  /**
+   * Processes the given batch of messages with the given processor and clears the batch.
+   * All batches of one fetch are processed in the same transaction.
+   */
+  private void flushBatch(@Nullable MetadataMessageProcessor processor, List<MetadataMessage> batch) {
+    if (processor != null && !batch.isEmpty()) {
+      processor.processMessages(new ArrayList<>(batch));
     }
+    batch.clear();
   }
 
   /**
@@ -249,23 +273,50 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
 
     @Override
     public void processMessage(MetadataMessage message) {
-      if (!(message.getEntityId() instanceof ProgramRunId)) {
-        LOG.warn("Missing program run id from the lineage access information. Ignoring the message {}", message);
-        return;
+      processMessages(Collections.singletonList(message));
+    }
+
+    @Override
+    public void processMessages(List<MetadataMessage> messages) {
+      // Repeated accesses of the same data by the same run and component with the same access type
+      // map to the same row in the lineage dataset. Only the last one of them needs to be written.
+      Map<List<Object>, ImmutablePair<ProgramRunId, DataAccessLineage>> accesses = new LinkedHashMap<>();
+      int skipped = 0;
+      for (MetadataMessage message : messages) {
+        if (!(message.getEntityId() instanceof ProgramRunId)) {
+          LOG.warn("Missing program run id from the lineage access information. Ignoring the message {}", message);
+          continue;
+        }
+
+        DataAccessLineage lineage = message.getPayload(GSON, DataAccessLineage.class);
+        ProgramRunId programRunId = (ProgramRunId) message.getEntityId();
+        if (lineage.getDatasetId() == null && lineage.getStreamId() == null) {
+          // This shouldn't happen
+          LOG.warn("Missing dataset id from the lineage access information. Ignoring the message {}", message);
+          continue;
+        }
+        if (accesses.put(Arrays.asList(programRunId, lineage.getDatasetId(), lineage.getStreamId(),
+                                       lineage.getAccessType(), lineage.getComponentId()),
+                         new ImmutablePair<>(programRunId, lineage)) != null) {
+          skipped++;
+        }
       }
 
-      DataAccessLineage lineage = message.getPayload(GSON, DataAccessLineage.class);
-      ProgramRunId programRunId = (ProgramRunId) message.getEntityId();
+      for (ImmutablePair<ProgramRunId, DataAccessLineage> access : accesses.values()) {
+        addAccess(access.getFirst(), access.getSecond());
+      }
+      if (skipped > 0) {
+        getMetricsContext().increment("process.lineage.skipped", skipped);
+      }
+    }
 
+    private void addAccess(ProgramRunId programRunId, DataAccessLineage lineage) {
       if (lineage.getDatasetId() != null) {
         lineageDataset.addAccess(programRunId, lineage.getDatasetId(),
                                  lineage.getAccessType(), lineage.getAccessTime(), lineage.getComponentId());
-      } else if (lineage.getStreamId() != null) {
+      } else {
         lineageDataset.addAccess(programRunId, lineage.getStreamId(),
                                  lineage.getAccessType(), lineage.getAccessTime(), lineage.getComponentId());
-      } else {
-        // This shouldn't happen
-        LOG.warn("Missing dataset id from the lineage access information. Ignoring the message {}", message);
       }
     }
   }
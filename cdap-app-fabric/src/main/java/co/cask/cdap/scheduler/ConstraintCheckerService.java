@@ -19,8 +19,11 @@ package co.cask.cdap.scheduler;
 import co.cask.cdap.api.Transactional;
 import co.cask.cdap.api.Transactionals;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.app.store.Store;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
 import co.cask.cdap.common.service.RetryStrategy;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
@@ -45,9 +48,11 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import org.apache.tephra.RetryStrategies;
 import org.apache.tephra.TransactionFailureException;
 import org.apache.tephra.TransactionSystemClient;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,13 +60,20 @@ import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * Checks the jobs in the JobQueue for constraint satisfaction, and launches them.
+ * There is one checker thread per partition of the JobQueue. A checker thread scans its partition when it is
+ * signaled through {@link #signal(int)} that a job may have become pending, when a time boundary of a job in the
+ * partition arrives, such as the end of a delay or the start of a time range, or when it has been idle for the
+ * configured maximum time. The time boundaries are kept in a {@link TimerWheel}.
  */
+@Singleton
 class ConstraintCheckerService extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
+  private static final int TIMER_WHEEL_SLOTS = 1024;
 
   private final Transactional transactional;
   private final DatasetFramework datasetFramework;
@@ -71,8 +83,14 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final PropertiesResolver propertiesResolver;
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final CConfiguration cConf;
+  private final MetricsContext metricsContext;
+  private final long tickMillis;
+  private final long maxIdleMillis;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
+  private ScheduledExecutorService timerExecutor;
+  private TimerWheel<Integer> timerWheel;
+  private volatile ConstraintCheckerThread[] checkerThreads;
   private volatile boolean stopping = false;
 
   @Inject
@@ -81,7 +99,8 @@ class ConstraintCheckerService extends AbstractIdleService {
                            NamespaceQueryAdmin namespaceQueryAdmin,
                            CConfiguration cConf,
                            DatasetFramework datasetFramework,
-                           TransactionSystemClient txClient) {
+                           TransactionSystemClient txClient,
+                           MetricsCollectionService metricsCollectionService) {
     this.store = store;
     this.lifecycleService = lifecycleService;
     this.propertiesResolver = propertiesResolver;
@@ -95,6 +114,26 @@ class ConstraintCheckerService extends AbstractIdleService {
       RetryStrategies.retryOnConflict(20, 100)
     );
     this.datasetFramework = datasetFramework;
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.MASTER_SERVICES,
+      Constants.Metrics.Tag.INSTANCE_ID, "0",
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace()
+    ));
+    this.tickMillis = cConf.getLong(Constants.Scheduler.CONSTRAINT_CHECK_TICK_MILLIS);
+    this.maxIdleMillis = cConf.getLong(Constants.Scheduler.CONSTRAINT_CHECK_MAX_IDLE_MILLIS);
+  }
+
+  /**
+   * Signals the checker thread of the given partition to scan the partition, because a job in it
+   * may have become ready for constraint checking. This method is a no-op if the service is not running.
+   *
+   * @param partition the partition of the JobQueue
+   */
+  void signal(int partition) {
+    ConstraintCheckerThread[] threads = checkerThreads;
+    if (threads != null && partition >= 0 && partition < threads.length) {
+      threads[partition].signal();
+    }
   }
 
   @Override
@@ -104,9 +143,20 @@ class ConstraintCheckerService extends AbstractIdleService {
       Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("constraint-checker-task-%d").build()));
     taskRunner = new ScheduleTaskRunner(store, lifecycleService, propertiesResolver, namespaceQueryAdmin, cConf);
 
+    timerWheel = new TimerWheel<>(TIMER_WHEEL_SLOTS, tickMillis, System.currentTimeMillis());
+    timerExecutor = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("constraint-checker-timer"));
+    timerExecutor.scheduleAtFixedRate(() -> timerWheel.advance(System.currentTimeMillis(), this::signal),
+                                      tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+
     int numPartitions = Schedulers.getJobQueue(multiThreadDatasetCache, datasetFramework, cConf).getNumPartitions();
+    ConstraintCheckerThread[] threads = new ConstraintCheckerThread[numPartitions];
     for (int partition = 0; partition < numPartitions; partition++) {
-      taskExecutorService.submit(new ConstraintCheckerThread(partition));
+      threads[partition] = new ConstraintCheckerThread(partition);
+    }
+    checkerThreads = threads;
+    for (ConstraintCheckerThread thread : threads) {
+      taskExecutorService.submit(thread);
     }
     LOG.info("Started ConstraintCheckerService. state: " + state());
   }
@@ -115,6 +165,10 @@ class ConstraintCheckerService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     stopping = true;
     LOG.info("Stopping ConstraintCheckerService.");
+    timerExecutor.shutdownNow();
+    for (ConstraintCheckerThread thread : checkerThreads) {
+      thread.signal();
+    }
     try {
       // Shutdown the executor and wait for all pending task to be completed for max of 5 seconds
       taskExecutorService.shutdown();
@@ -136,6 +190,9 @@ class ConstraintCheckerService extends AbstractIdleService {
     private JobQueueDataset jobQueue;
     private Job lastConsumed;
     private int failureCount;
+    private boolean signaled;
+    // The earliest time that a job seen in the current scan of the partition needs to be checked again
+    private long nextCheckTime = Long.MAX_VALUE;
 
     ConstraintCheckerThread(int partition) {
       // TODO: [CDAP-11370] Need to be configured in cdap-default.xml. Retry with delay ranging from 0.1s to 30s
@@ -151,10 +208,14 @@ class ConstraintCheckerService extends AbstractIdleService {
 
       while (!stopping) {
         try {
-          long sleepTime = checkJobQueue();
-          // Don't sleep if sleepTime returned is 0
-          if (sleepTime > 0) {
-            TimeUnit.MILLISECONDS.sleep(sleepTime);
+          long waitTime = checkJobQueue();
+          // Don't wait if waitTime returned is 0
+          if (waitTime > 0) {
+            if (failureCount > 0) {
+              TimeUnit.MILLISECONDS.sleep(waitTime);
+            } else {
+              awaitSignal(waitTime);
+            }
           }
         } catch (InterruptedException e) {
           // sleep is interrupted, just exit without doing anything
@@ -162,17 +223,46 @@ class ConstraintCheckerService extends AbstractIdleService {
       }
     }
 
+    /**
+     * Signals this thread to scan the partition.
+     */
+    synchronized void signal() {
+      signaled = true;
+      notifyAll();
+    }
+
+    /**
+     * Waits until this thread is signaled or the given time has elapsed.
+     */
+    private synchronized void awaitSignal(long timeoutMillis) throws InterruptedException {
+      if (!signaled && !stopping) {
+        wait(timeoutMillis);
+      }
+      signaled = false;
+    }
+
     /**
      * Check jobs in job queue for constraint satisfaction.
      *
-     * @return sleep time in milliseconds before next fetch
+     * @return time in milliseconds to wait before next fetch
      */
     private long checkJobQueue() {
-      boolean emptyFetch = false;
+      boolean scanCompleted = false;
       try {
-        emptyFetch = Transactionals.execute(transactional, context -> {
+        if (lastConsumed == null) {
+          // Starting a new scan of the partition, so any signal received up to now is handled by this scan.
+          synchronized (this) {
+            signaled = false;
+          }
+          nextCheckTime = Long.MAX_VALUE;
+        }
+        scanCompleted = Transactionals.execute(transactional, context -> {
           return checkJobConstraints();
         });
+        metricsContext.increment(Constants.Metrics.Name.Scheduler.CONSTRAINT_CHECK_SCANS, 1);
+        if (scanCompleted && nextCheckTime != Long.MAX_VALUE) {
+          timerWheel.schedule(partition, nextCheckTime);
+        }
 
         // run any ready jobs
         runReadyJobs();
@@ -188,28 +278,38 @@ class ConstraintCheckerService extends AbstractIdleService {
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
 
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      // Wait for a signal if the whole partition has been scanned. Jobs that need to be checked again at a
+      // later time will be signaled by the timer wheel.
+      return scanCompleted && readyJobs.isEmpty() ? maxIdleMillis : 0L;
     }
 
+    /**
+     * Checks the jobs of the partition, starting from the last consumed job.
+     *
+     * @return {@code true} if the end of the partition was reached
+     */
     private boolean checkJobConstraints() {
-      boolean emptyScan = true;
-
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
         // limit the batches of the scan to 1000ms
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
           checkAndUpdateJob(jobQueue, job);
         }
       }
-      return emptyScan;
+      return false;
+    }
+
+    /**
+     * Records that a job in the partition needs to be checked again at the given time.
+     */
+    private void checkAgainAt(long timeMillis) {
+      nextCheckTime = Math.min(nextCheckTime, timeMillis);
     }
 
     private void checkAndUpdateJob(JobQueueDataset jobQueue, Job job) {
@@ -225,15 +325,19 @@ class ConstraintCheckerService extends AbstractIdleService {
           (job.getState() == Job.State.PENDING_TRIGGER &&
             now - job.getDeleteTimeMillis() > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
+        } else if (job.getState() == Job.State.PENDING_TRIGGER) {
+          checkAgainAt(job.getDeleteTimeMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS + 1);
         }
         return;
       }
-      if (now - job.getCreationTime() >= job.getSchedule().getTimeoutMillis() +
-        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS) {
+      long timeoutTime = job.getCreationTime() + job.getSchedule().getTimeoutMillis() +
+        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS;
+      if (now >= timeoutTime) {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(), job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
         return;
       }
+      checkAgainAt(timeoutTime);
       if (job.getState() != Job.State.PENDING_CONSTRAINT) {
         return;
       }
@@ -285,6 +389,8 @@ class ConstraintCheckerService extends AbstractIdleService {
 
       try {
         taskRunner.launch(job);
+        metricsContext.gauge(Constants.Metrics.Name.Scheduler.TRIGGER_TO_LAUNCH_MS,
+                             System.currentTimeMillis() - job.getCreationTime());
       } catch (Exception e) {
         LOG.error("Skip launching job {} because the program {} encountered an exception while launching.",
                   job.getJobKey(), job.getSchedule().getProgramId(), e);
@@ -315,6 +421,9 @@ class ConstraintCheckerService extends AbstractIdleService {
         }
         if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
           satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+          // NOT_SATISFIED result always carries the time to check again
+          // noinspection ConstantConditions
+          checkAgainAt(result.getNextCheckTime());
         }
       }
       return satisfiedState;
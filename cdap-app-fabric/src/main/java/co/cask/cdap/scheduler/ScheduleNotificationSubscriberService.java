@@ -49,9 +49,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -70,18 +72,21 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final DatasetFramework datasetFramework;
   private final TransactionSystemClient txClient;
   private final MetricsCollectionService metricsCollectionService;
+  private final ConstraintCheckerService constraintCheckerService;
   private final List<Service> subscriberServices;
   private ScheduledExecutorService subscriberExecutor;
 
   @Inject
   ScheduleNotificationSubscriberService(CConfiguration cConf, MessagingService messagingService,
                                         DatasetFramework datasetFramework, TransactionSystemClient txClient,
-                                        MetricsCollectionService metricsCollectionService) {
+                                        MetricsCollectionService metricsCollectionService,
+                                        ConstraintCheckerService constraintCheckerService) {
     this.cConf = cConf;
     this.messagingService = messagingService;
     this.datasetFramework = datasetFramework;
     this.txClient = txClient;
     this.metricsCollectionService = metricsCollectionService;
+    this.constraintCheckerService = constraintCheckerService;
     this.subscriberServices = Arrays.asList(new SchedulerEventSubscriberService(),
                                             new DataEventSubscriberService(),
                                             new ProgramStatusEventSubscriberService());
@@ -123,6 +128,9 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
    */
   private abstract class AbstractSchedulerSubscriberService extends AbstractNotificationSubscriberService {
 
+    // Job queue partitions that had jobs updated by the last processed batch
+    private final Set<Integer> updatedPartitions = new HashSet<>();
+
     AbstractSchedulerSubscriberService(String name, String topic, int fetchSize, boolean transactionalFetch) {
       super(name, cConf, topic, transactionalFetch, fetchSize,
             cConf.getLong(Constants.Scheduler.EVENT_POLL_DELAY_MILLIS),
@@ -151,11 +159,30 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       }
     }
 
+    @Override
+    protected void postProcess() {
+      // Signal the constraint checker after the transaction is committed, so that the updated jobs are visible to it
+      for (int partition : updatedPartitions) {
+        constraintCheckerService.signal(partition);
+      }
+      updatedPartitions.clear();
+    }
+
     @Override
     protected ScheduledExecutorService executor() {
       return subscriberExecutor;
     }
 
+    /**
+     * Adds the given notification to the job of the given schedule, and records the job queue partition
+     * of the schedule to be signaled after the transaction is committed.
+     */
+    protected void addNotification(JobQueueDataset jobQueue, ProgramScheduleRecord schedule,
+                                   Notification notification) {
+      jobQueue.addNotification(schedule, notification);
+      updatedPartitions.add(jobQueue.getPartition(schedule.getSchedule().getScheduleId()));
+    }
+
     /**
      * Processes a single {@link Notification}.
      */
@@ -209,7 +236,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         LOG.warn("Ignore notification that doesn't have a schedule {} associated with, {}", scheduleId, notification);
         return;
       }
-      jobQueue.addNotification(record, notification);
+      addNotification(jobQueue, record, notification);
     }
   }
 
@@ -233,7 +260,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       }
       DatasetId datasetId = DatasetId.fromString(datasetIdString);
       for (ProgramScheduleRecord schedule : scheduleStore.findSchedules(Schedulers.triggerKeyForPartition(datasetId))) {
-        jobQueue.addNotification(schedule, notification);
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
@@ -273,7 +300,7 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       String triggerKeyForProgramStatus = Schedulers.triggerKeyForProgramStatus(programId, programStatus);
 
       for (ProgramScheduleRecord schedule : scheduleStore.findSchedules(triggerKeyForProgramStatus)) {
-        jobQueue.addNotification(schedule, notification);
+        addNotification(jobQueue, schedule, notification);
       }
     }
   }
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.scheduler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel for keeping track of deadlines with a coarse granularity. Each deadline is rounded up to
+ * a tick and placed into one of a fixed number of slots, so that scheduling a deadline and expiring the
+ * deadlines of a tick are constant time operations regardless of how many deadlines are pending.
+ * Deadlines that are more than one revolution of the wheel away stay in their slot until their tick arrives.
+ * The same target scheduled more than once for the same tick only expires once.
+ *
+ * @param <T> type of the targets to be notified when their deadline arrives
+ */
+final class TimerWheel<T> {
+
+  private final long tickMillis;
+  private final List<Set<Timeout<T>>> slots;
+  // The next tick to be expired
+  private long currentTick;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param numSlots number of slots in the wheel
+   * @param tickMillis number of milliseconds covered by each slot
+   * @param startTimeMillis the time that the wheel starts from
+   */
+  TimerWheel(int numSlots, long tickMillis, long startTimeMillis) {
+    if (numSlots <= 0 || tickMillis <= 0) {
+      throw new IllegalArgumentException("Number of slots and tick duration must be positive");
+    }
+    this.tickMillis = tickMillis;
+    this.slots = new ArrayList<>(numSlots);
+    for (int i = 0; i < numSlots; i++) {
+      slots.add(new LinkedHashSet<>());
+    }
+    this.currentTick = startTimeMillis / tickMillis;
+  }
+
+  /**
+   * Schedules the given target to expire at the given time. A deadline that has already passed expires
+   * when the wheel is advanced to the next tick.
+   */
+  synchronized void schedule(T target, long deadlineMillis) {
+    // Round up so that a target never expires before its deadline
+    long tick = Math.max(currentTick, (deadlineMillis + tickMillis - 1) / tickMillis);
+    slots.get(getSlot(tick)).add(new Timeout<>(target, tick));
+  }
+
+  /**
+   * Advances the wheel to the given time and expires all the targets whose deadline is not later than it.
+   *
+   * @param nowMillis the current time
+   * @param consumer the {@link Consumer} to be called for each expired target. It is called without holding
+   *                 the lock of this wheel
+   * @return the number of targets expired
+   */
+  int advance(long nowMillis, Consumer<T> consumer) {
+    List<T> expired = new ArrayList<>();
+    synchronized (this) {
+      long nowTick = nowMillis / tickMillis;
+      // Each slot only needs to be visited once, even if the wheel is advanced by more than one revolution
+      long endTick = Math.min(nowTick, currentTick + slots.size() - 1);
+      for (long tick = currentTick; tick <= endTick; tick++) {
+        Iterator<Timeout<T>> iterator = slots.get(getSlot(tick)).iterator();
+        while (iterator.hasNext()) {
+          Timeout<T> timeout = iterator.next();
+          if (timeout.tick <= nowTick) {
+            expired.add(timeout.target);
+            iterator.remove();
+          }
+        }
+      }
+      currentTick = Math.max(currentTick, nowTick + 1);
+    }
+    expired.forEach(consumer);
+    return expired.size();
+  }
+
+  /**
+   * Returns the number of targets that are pending to expire.
+   */
+  synchronized int size() {
+    int size = 0;
+    for (Set<Timeout<T>> slot : slots) {
+      size += slot.size();
+    }
+    return size;
+  }
+
+  private int getSlot(long tick) {
+    return (int) (tick % slots.size());
+  }
+
+  /**
+   * A target with the tick that it expires at.
+   */
+  private static final class Timeout<T> {
+    private final T target;
+    private final long tick;
+
+    Timeout(T target, long tick) {
+      this.target = target;
+      this.tick = tick;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Timeout<?> other = (Timeout<?>) o;
+      return tick == other.tick && Objects.equals(target, other.target);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(target, tick);
+    }
+  }
+}
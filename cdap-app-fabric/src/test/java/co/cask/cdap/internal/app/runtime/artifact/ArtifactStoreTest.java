@@ -61,6 +61,7 @@ import org.apache.twill.filesystem.Location;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
@@ -79,6 +80,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -1449,6 +1451,98 @@ public class ArtifactStoreTest {
     }
   }
 
+  @Test
+  public void testPluginCatalog() throws Exception {
+    Id.Artifact parentId = Id.Artifact.from(Id.Namespace.SYSTEM, "parent", "1.0.0");
+    writeArtifact(parentId, new ArtifactMeta(ArtifactClasses.builder().build()), "parent");
+    Assert.assertEquals(0, artifactStore.loadPluginCatalog().size());
+    Assert.assertTrue(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId).isEmpty());
+
+    // adding a plugin artifact should be visible to lookups right away
+    Set<ArtifactRange> parents = ImmutableSet.of(new ArtifactRange(
+      parentId.getNamespace().getId(), parentId.getName(), new ArtifactVersion("1.0.0"), new ArtifactVersion("2.0.0")));
+    PluginClass pluginClass = new PluginClass("atype", "plugin1", "", "c.c.c.plugin1", "cfg",
+                                              ImmutableMap.<String, PluginPropertyField>of());
+    Id.Artifact pluginId = Id.Artifact.from(Id.Namespace.DEFAULT, "plugins", "1.0.0");
+    writeArtifact(pluginId, new ArtifactMeta(ArtifactClasses.builder().addPlugin(pluginClass).build(), parents),
+                  "plugins");
+    Assert.assertEquals(1, artifactStore.loadPluginCatalog().size());
+
+    SortedMap<ArtifactDescriptor, Set<PluginClass>> plugins =
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype");
+    Assert.assertEquals(ImmutableSet.of(pluginClass), plugins.get(plugins.firstKey()));
+    Assert.assertEquals(pluginId.toArtifactId(), plugins.firstKey().getArtifactId());
+    Assert.assertEquals(1, artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype", "plugin1",
+                                                          null, Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED).size());
+
+    // plugins from other namespaces should not be visible
+    Assert.assertTrue(artifactStore.getPluginClasses(Ids.namespace("other"), parentId).isEmpty());
+
+    // deleting the plugin artifact should be visible to lookups right away
+    artifactStore.delete(pluginId);
+    Assert.assertTrue(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype").isEmpty());
+    try {
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype", "plugin1",
+                                     null, Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED);
+      Assert.fail();
+    } catch (PluginNotExistsException e) {
+      // expected
+    }
+    Assert.assertEquals(0, artifactStore.loadPluginCatalog().size());
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() throws Exception {
+    int numArtifacts = 1000;
+    int pluginsPerArtifact = 5;
+    int numLookups = 1000;
+    Id.Artifact parentId = Id.Artifact.from(Id.Namespace.SYSTEM, "parent", "1.0.0");
+    writeArtifact(parentId, new ArtifactMeta(ArtifactClasses.builder().build()), "parent");
+    Set<ArtifactRange> parents = ImmutableSet.of(new ArtifactRange(
+      parentId.getNamespace().getId(), parentId.getName(), new ArtifactVersion("1.0.0"), new ArtifactVersion("2.0.0")));
+
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < numArtifacts; i++) {
+      ArtifactClasses.Builder classes = ArtifactClasses.builder();
+      for (int j = 0; j < pluginsPerArtifact; j++) {
+        classes.addPlugin(new PluginClass("type" + j, "plugin" + i, "", "c.c.c.plugin" + i, "cfg",
+                                          ImmutableMap.<String, PluginPropertyField>of()));
+      }
+      Id.Namespace namespace = i % 2 == 0 ? Id.Namespace.SYSTEM : Id.Namespace.DEFAULT;
+      writeArtifact(Id.Artifact.from(namespace, "plugins" + i, "1.0.0"), new ArtifactMeta(classes.build(), parents),
+                    "plugins" + i);
+    }
+    System.out.println(String.format("Added %d plugin artifacts in %d ms", numArtifacts,
+                                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+    startNanos = System.nanoTime();
+    int size = artifactStore.loadPluginCatalog().size();
+    System.out.println(String.format("Loaded plugin catalog with %d plugins in %d ms", size,
+                                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+    // the first lookup loads the catalog, the following ones are served from it
+    startNanos = System.nanoTime();
+    int found = artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "type0").size();
+    System.out.println(String.format("First lookup found %d artifacts in %d ms", found,
+                                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+    startNanos = System.nanoTime();
+    for (int i = 0; i < numLookups; i++) {
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "type" + (i % pluginsPerArtifact));
+    }
+    System.out.println(String.format("Looked up plugins by type %d times in %d ms", numLookups,
+                                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+    startNanos = System.nanoTime();
+    for (int i = 0; i < numLookups; i++) {
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "type0", "plugin" + (i % numArtifacts),
+                                     null, Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED);
+    }
+    System.out.println(String.format("Looked up plugins by type and name %d times in %d ms", numLookups,
+                                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+  }
+
 
   private void assertEqual(Id.Artifact expectedId, ArtifactMeta expectedMeta,
                            String expectedContents, ArtifactDetail actual) throws IOException {
@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.api.annotation.Description;
+import co.cask.cdap.api.annotation.Macro;
+import co.cask.cdap.api.annotation.Name;
+import co.cask.cdap.api.annotation.Plugin;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.api.dataset.table.Table;
+import co.cask.cdap.api.plugin.EndpointPluginContext;
+import co.cask.cdap.api.plugin.PluginClass;
+import co.cask.cdap.api.plugin.PluginConfig;
+import co.cask.cdap.api.plugin.PluginPropertyField;
+import co.cask.cdap.api.plugin.Requirements;
+import co.cask.cdap.internal.app.runtime.artifact.app.inspection.InspectionApp;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.ws.rs.Path;
+
+/**
+ * Unit tests for {@link PluginClassInspector}.
+ */
+public class PluginClassInspectorTest {
+
+  private final PluginClassInspector inspector = new PluginClassInspector(getClass().getClassLoader());
+
+  @Test
+  public void testIsPlugin() {
+    Assert.assertTrue(inspector.isPlugin(InspectionApp.AppPlugin.class.getName()));
+    Assert.assertTrue(inspector.isPlugin(EndpointPlugin.class.getName()));
+    Assert.assertFalse(inspector.isPlugin(InspectionApp.class.getName()));
+    Assert.assertFalse(inspector.isPlugin(PConfig.class.getName()));
+    Assert.assertFalse(inspector.isPlugin("not.exist.Class"));
+  }
+
+  @Test
+  public void testInspect() {
+    ImmutableMap<String, PluginPropertyField> inspectionProperties = ImmutableMap.of(
+      "y", new PluginPropertyField("y", "", "double", true, true),
+      "isSomething", new PluginPropertyField("isSomething", "", "boolean", true, false));
+
+    Assert.assertEquals(
+      new PluginClass(InspectionApp.PLUGIN_TYPE, InspectionApp.PLUGIN_NAME, InspectionApp.PLUGIN_DESCRIPTION,
+                      InspectionApp.AppPlugin.class.getName(), "pluginConf", inspectionProperties),
+      inspector.inspect(InspectionApp.AppPlugin.class.getName()));
+
+    Assert.assertEquals(
+      new PluginClass(InspectionApp.PLUGIN_TYPE, "DuplicateRequirementsPlugin", InspectionApp.PLUGIN_DESCRIPTION,
+                      InspectionApp.DuplicateRequirementsPlugin.class.getName(), "pluginConf", inspectionProperties,
+                      Collections.emptySet(), new Requirements(ImmutableSet.of(Table.TYPE, "duplicate"))),
+      inspector.inspect(InspectionApp.DuplicateRequirementsPlugin.class.getName()));
+
+    Assert.assertEquals(
+      new PluginClass(InspectionApp.PLUGIN_TYPE, InspectionApp.MULTIPLE_REQUIREMENTS_PLUGIN,
+                      InspectionApp.PLUGIN_DESCRIPTION, InspectionApp.MultipleRequirementsPlugin.class.getName(),
+                      "pluginConf", inspectionProperties, Collections.emptySet(),
+                      new Requirements(ImmutableSet.of(Table.TYPE, KeyValueTable.TYPE))),
+      inspector.inspect(InspectionApp.MultipleRequirementsPlugin.class.getName()));
+
+    // Plugin with default type and name, inherited config field and endpoints
+    Assert.assertEquals(
+      new PluginClass(Plugin.DEFAULT_TYPE, EndpointPlugin.class.getName(), "", EndpointPlugin.class.getName(), "conf",
+                      ImmutableMap.of(
+                        "name", new PluginPropertyField("name", "the name", "string", true, false),
+                        "count", new PluginPropertyField("count", "", "int", false, true),
+                        "base", new PluginPropertyField("base", "", "long", true, false)),
+                      ImmutableSet.of("first", "second"), Requirements.EMPTY),
+      inspector.inspect(EndpointPlugin.class.getName()));
+  }
+
+  @Test
+  public void testFallback() {
+    // Classes that cannot be fully inspected from bytecode should be left to reflection
+    Assert.assertNull(inspector.inspect(GenericConfigPlugin.class.getName()));
+    Assert.assertNull(inspector.inspect(UnsupportedTypePlugin.class.getName()));
+    Assert.assertNull(inspector.inspect(InvalidEndpointPlugin.class.getName()));
+    Assert.assertNull(inspector.inspect("not.exist.Class"));
+  }
+
+  /**
+   * Base config class.
+   */
+  public static class BaseConfig extends PluginConfig {
+    private long base;
+    private transient String ignored;
+    private static final String CONSTANT = "constant";
+  }
+
+  /**
+   * Config with properties of different types.
+   */
+  public static class PConfig extends BaseConfig {
+    @Description("the name")
+    private String name;
+
+    @Macro
+    @Nullable
+    @Name("count")
+    private Integer num;
+  }
+
+  /**
+   * Base plugin class that holds the config.
+   */
+  public abstract static class BasePlugin {
+    private PConfig conf;
+  }
+
+  /**
+   * Plugin with endpoints.
+   */
+  @Plugin
+  public static class EndpointPlugin extends BasePlugin {
+
+    @Path("first")
+    public String first(String request) {
+      return request;
+    }
+
+    @Path("second")
+    public String second(String request, EndpointPluginContext context) {
+      return request;
+    }
+
+    @Path("hidden")
+    private String hidden(String request) {
+      return request;
+    }
+  }
+
+  /**
+   * Config with a generic field.
+   */
+  public static class GenericConfig<T> extends PluginConfig {
+    private T value;
+  }
+
+  /**
+   * Plugin with a generic config.
+   */
+  @Plugin
+  public static class GenericConfigPlugin {
+    private GenericConfig<String> conf;
+  }
+
+  /**
+   * Config with an unsupported property type.
+   */
+  public static class UnsupportedConfig extends PluginConfig {
+    private List<String> values;
+  }
+
+  /**
+   * Plugin with an unsupported config.
+   */
+  @Plugin
+  public static class UnsupportedTypePlugin {
+    private UnsupportedConfig conf;
+  }
+
+  /**
+   * Plugin with an invalid endpoint.
+   */
+  @Plugin
+  public static class InvalidEndpointPlugin {
+    @Path("invalid")
+    public String invalid(String request, String other) {
+      return request;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.apache.twill.filesystem.LocationFactory;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Unit tests for {@link UnpackedArtifactCache}.
+ */
+public class UnpackedArtifactCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSharedDirectory() throws IOException {
+    LocationFactory locationFactory = new LocalLocationFactory(TMP_FOLDER.newFolder());
+    Location jar1 = createJar(locationFactory.create("artifact1.jar"), "content");
+    Location jar2 = createJar(locationFactory.create("artifact2.jar"), "content");
+    Location jar3 = createJar(locationFactory.create("artifact3.jar"), "other");
+
+    UnpackedArtifactCache cache = new UnpackedArtifactCache(TMP_FOLDER.newFolder(), Long.MAX_VALUE);
+    try (
+      UnpackedArtifactCache.UnpackedArtifact unpacked1 = cache.unpack(jar1);
+      UnpackedArtifactCache.UnpackedArtifact unpacked2 = cache.unpack(jar2);
+      UnpackedArtifactCache.UnpackedArtifact unpacked3 = cache.unpack(jar3)
+    ) {
+      // Same content should share the same directory, regardless of the location
+      Assert.assertEquals(unpacked1.getDirectory(), unpacked2.getDirectory());
+      Assert.assertNotEquals(unpacked1.getDirectory(), unpacked3.getDirectory());
+      Assert.assertTrue(new File(unpacked1.getDirectory(), "test.txt").isFile());
+      Assert.assertTrue(new File(unpacked3.getDirectory(), "test.txt").isFile());
+    }
+  }
+
+  @Test
+  public void testPersistence() throws IOException {
+    LocationFactory locationFactory = new LocalLocationFactory(TMP_FOLDER.newFolder());
+    Location jar = createJar(locationFactory.create("artifact.jar"), "content");
+    File cacheDir = TMP_FOLDER.newFolder();
+
+    File dir;
+    try (UnpackedArtifactCache.UnpackedArtifact unpacked = new UnpackedArtifactCache(cacheDir, Long.MAX_VALUE)
+      .unpack(jar)) {
+      dir = unpacked.getDirectory();
+    }
+
+    // Leftover from unpacking that didn't complete should be removed
+    File tempDir = new File(cacheDir, "tmp-incomplete");
+    Assert.assertTrue(tempDir.mkdirs());
+
+    // A new cache on the same directory should reuse the unpacked directory
+    UnpackedArtifactCache cache = new UnpackedArtifactCache(cacheDir, Long.MAX_VALUE);
+    Assert.assertFalse(tempDir.exists());
+    long lastModified = dir.lastModified();
+    try (UnpackedArtifactCache.UnpackedArtifact unpacked = cache.unpack(jar)) {
+      Assert.assertEquals(dir, unpacked.getDirectory());
+      Assert.assertTrue(new File(unpacked.getDirectory(), "test.txt").isFile());
+      Assert.assertTrue(dir.lastModified() >= lastModified);
+    }
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    LocationFactory locationFactory = new LocalLocationFactory(TMP_FOLDER.newFolder());
+    Location jar = createJar(locationFactory.create("artifact.jar"), "content");
+
+    UnpackedArtifactCache cache = new UnpackedArtifactCache(TMP_FOLDER.newFolder(), 0L);
+    UnpackedArtifactCache.UnpackedArtifact unpacked1 = cache.unpack(jar);
+    UnpackedArtifactCache.UnpackedArtifact unpacked2 = cache.unpack(jar);
+    File dir = unpacked1.getDirectory();
+
+    // The directory must stay while there is still a reference to it
+    unpacked1.close();
+    unpacked1.close();
+    Assert.assertTrue(dir.isDirectory());
+
+    unpacked2.close();
+    Assert.assertFalse(dir.exists());
+
+    // Unpacking again should recreate the directory
+    try (UnpackedArtifactCache.UnpackedArtifact unpacked = cache.unpack(jar)) {
+      Assert.assertEquals(dir, unpacked.getDirectory());
+      Assert.assertTrue(new File(unpacked.getDirectory(), "test.txt").isFile());
+    }
+  }
+
+  @Test
+  public void testMissingArtifact() throws IOException {
+    LocationFactory locationFactory = new LocalLocationFactory(TMP_FOLDER.newFolder());
+    Location location = locationFactory.create("missing.jar");
+
+    File cacheDir = TMP_FOLDER.newFolder();
+    UnpackedArtifactCache cache = new UnpackedArtifactCache(cacheDir, Long.MAX_VALUE);
+    try {
+      cache.unpack(location).close();
+      Assert.fail("Expected unpacking a missing jar to fail");
+    } catch (IOException e) {
+      // expected
+    }
+
+    // Nothing should be left in the cache directory
+    String[] files = cacheDir.list();
+    Assert.assertNotNull(files);
+    Assert.assertEquals(0, files.length);
+  }
+
+  @Test
+  public void testSharedInstance() throws IOException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TMP_FOLDER.newFolder().getAbsolutePath());
+    CConfiguration otherCConf = CConfiguration.create();
+    otherCConf.set(Constants.CFG_LOCAL_DATA_DIR, TMP_FOLDER.newFolder().getAbsolutePath());
+
+    UnpackedArtifactCache cache = UnpackedArtifactCache.get(cConf);
+    Assert.assertSame(cache, UnpackedArtifactCache.get(cConf));
+    Assert.assertNotSame(cache, UnpackedArtifactCache.get(otherCConf));
+
+    // After removal, a new instance is created for the same directory
+    UnpackedArtifactCache.remove(cConf);
+    Assert.assertNotSame(cache, UnpackedArtifactCache.get(cConf));
+
+    UnpackedArtifactCache.remove(cConf);
+    UnpackedArtifactCache.remove(otherCConf);
+  }
+
+  private Location createJar(Location location, String content) throws IOException {
+    try (JarOutputStream output = new JarOutputStream(location.getOutputStream())) {
+      output.putNextEntry(new JarEntry("test.txt"));
+      output.write(content.getBytes(StandardCharsets.UTF_8));
+      output.closeEntry();
+    }
+    return location;
+  }
+}
@@ -23,6 +23,7 @@ import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.transaction.TransactionExecutorFactory;
 import co.cask.cdap.internal.app.runtime.schedule.ProgramSchedule;
 import co.cask.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import co.cask.cdap.internal.app.runtime.schedule.ProgramScheduleStatus;
 import co.cask.cdap.internal.app.runtime.schedule.trigger.AndTrigger;
 import co.cask.cdap.internal.app.runtime.schedule.trigger.OrTrigger;
 import co.cask.cdap.internal.app.runtime.schedule.trigger.PartitionTrigger;
@@ -39,8 +40,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.apache.tephra.TransactionAware;
+import org.apache.tephra.TransactionContext;
 import org.apache.tephra.TransactionExecutor;
 import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.TxConstants;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -264,6 +267,156 @@ public class ProgramScheduleStoreDatasetTest extends AppFabricTestBase {
     });
   }
 
+  @Test
+  public void testFindSchedulesSeesLatestChanges() throws Exception {
+    DatasetFramework dsFramework = getInjector().getInstance(DatasetFramework.class);
+    TransactionSystemClient txClient = getInjector().getInstance(TransactionSystemClient.class);
+    TransactionExecutorFactory txExecutorFactory = new DynamicTransactionExecutorFactory(txClient);
+    dsFramework.truncateInstance(Schedulers.STORE_DATASET_ID);
+    ProgramScheduleStoreDataset store = dsFramework.getDataset(Schedulers.STORE_DATASET_ID, new HashMap<>(), null);
+    Assert.assertNotNull(store);
+    TransactionExecutor txExecutor = txExecutorFactory.createExecutor(Collections.singleton((TransactionAware) store));
+
+    ProgramSchedule sched1 = new ProgramSchedule("sched1", "one partition schedule", PROG1_ID,
+                                                 ImmutableMap.of(), new PartitionTrigger(DS1_ID, 1),
+                                                 ImmutableList.of());
+    ProgramSchedule sched2 = new ProgramSchedule("sched2", "another partition schedule", PROG2_ID,
+                                                 ImmutableMap.of(), new PartitionTrigger(DS1_ID, 2),
+                                                 ImmutableList.of());
+    String triggerKey = Schedulers.triggerKeyForPartition(DS1_ID);
+
+    txExecutor.execute(() -> {
+      // populate the in-memory index, then verify that changes in the same transaction are visible
+      Assert.assertTrue(store.findSchedules(triggerKey).isEmpty());
+      store.addSchedule(sched1);
+      Assert.assertEquals(ImmutableSet.of(sched1), toScheduleSet(store.findSchedules(triggerKey)));
+    });
+    txExecutor.execute(() -> {
+      Assert.assertEquals(ImmutableSet.of(sched1), toScheduleSet(store.findSchedules(triggerKey)));
+      store.addSchedule(sched2);
+      store.updateScheduleStatus(sched1.getScheduleId(), ProgramScheduleStatus.SCHEDULED);
+    });
+    txExecutor.execute(() -> {
+      Collection<ProgramScheduleRecord> found = store.findSchedules(triggerKey);
+      Assert.assertEquals(ImmutableSet.of(sched1, sched2), toScheduleSet(found));
+      for (ProgramScheduleRecord record : found) {
+        Assert.assertEquals(record.getSchedule().equals(sched1)
+                              ? ProgramScheduleStatus.SCHEDULED : ProgramScheduleStatus.SUSPENDED,
+                            record.getMeta().getStatus());
+      }
+    });
+    // a schedule store that is truncated must not be served from the stale index
+    dsFramework.truncateInstance(Schedulers.STORE_DATASET_ID);
+    txExecutor.execute(() -> {
+      Assert.assertTrue(store.findSchedules(triggerKey).isEmpty());
+    });
+  }
+
+  @Test
+  public void testConcurrentChangesToDifferentSchedules() throws Exception {
+    DatasetFramework dsFramework = getInjector().getInstance(DatasetFramework.class);
+    TransactionSystemClient txClient = getInjector().getInstance(TransactionSystemClient.class);
+    TransactionExecutorFactory txExecutorFactory = new DynamicTransactionExecutorFactory(txClient);
+    dsFramework.truncateInstance(Schedulers.STORE_DATASET_ID);
+    ProgramScheduleStoreDataset store = dsFramework.getDataset(Schedulers.STORE_DATASET_ID, new HashMap<>(), null);
+    ProgramScheduleStoreDataset store1 = dsFramework.getDataset(Schedulers.STORE_DATASET_ID, new HashMap<>(), null);
+    ProgramScheduleStoreDataset store2 = dsFramework.getDataset(Schedulers.STORE_DATASET_ID, new HashMap<>(), null);
+    Assert.assertNotNull(store);
+    Assert.assertNotNull(store1);
+    Assert.assertNotNull(store2);
+    TransactionExecutor txExecutor = txExecutorFactory.createExecutor(Collections.singleton((TransactionAware) store));
+
+    ProgramSchedule sched1 = new ProgramSchedule("sched1", "one partition schedule", PROG1_ID,
+                                                 ImmutableMap.of(), new PartitionTrigger(DS1_ID, 1),
+                                                 ImmutableList.of());
+    ProgramSchedule sched2 = new ProgramSchedule("sched2", "another partition schedule", PROG2_ID,
+                                                 ImmutableMap.of(), new PartitionTrigger(DS1_ID, 2),
+                                                 ImmutableList.of());
+    String triggerKey = Schedulers.triggerKeyForPartition(DS1_ID);
+    txExecutor.execute(() -> store.addSchedule(sched1));
+
+    // change two different schedules in concurrent transactions
+    TransactionContext txContext1 = new TransactionContext(txClient, store1);
+    TransactionContext txContext2 = new TransactionContext(txClient, store2);
+    txContext1.start();
+    store1.updateScheduleStatus(sched1.getScheduleId(), ProgramScheduleStatus.SCHEDULED);
+    txContext2.start();
+    store2.addSchedule(sched2);
+
+    // a transaction that starts while the others are in progress brings the index to its snapshot
+    txExecutor.execute(() -> {
+      Collection<ProgramScheduleRecord> found = store.findSchedules(triggerKey);
+      Assert.assertEquals(ImmutableSet.of(sched1), toScheduleSet(found));
+      Assert.assertEquals(ProgramScheduleStatus.SUSPENDED, found.iterator().next().getMeta().getStatus());
+    });
+
+    // neither of the two transactions conflicts with the other
+    txContext1.finish();
+    txContext2.finish();
+
+    // the changes of the transactions that were in progress are applied to the index
+    txExecutor.execute(() -> {
+      Collection<ProgramScheduleRecord> found = store.findSchedules(triggerKey);
+      Assert.assertEquals(ImmutableSet.of(sched1, sched2), toScheduleSet(found));
+      for (ProgramScheduleRecord record : found) {
+        Assert.assertEquals(record.getSchedule().equals(sched1)
+                              ? ProgramScheduleStatus.SCHEDULED : ProgramScheduleStatus.SUSPENDED,
+                            record.getMeta().getStatus());
+      }
+    });
+  }
+
+  @Test
+  public void testCompactChangeLog() throws Exception {
+    DatasetFramework dsFramework = getInjector().getInstance(DatasetFramework.class);
+    TransactionSystemClient txClient = getInjector().getInstance(TransactionSystemClient.class);
+    TransactionExecutorFactory txExecutorFactory = new DynamicTransactionExecutorFactory(txClient);
+    dsFramework.truncateInstance(Schedulers.STORE_DATASET_ID);
+    ProgramScheduleStoreDataset store = dsFramework.getDataset(Schedulers.STORE_DATASET_ID, new HashMap<>(), null);
+    Assert.assertNotNull(store);
+    TransactionExecutor txExecutor = txExecutorFactory.createExecutor(Collections.singleton((TransactionAware) store));
+
+    ProgramSchedule sched1 = new ProgramSchedule("sched1", "one partition schedule", PROG1_ID,
+                                                 ImmutableMap.of(), new PartitionTrigger(DS1_ID, 1),
+                                                 ImmutableList.of());
+    ProgramSchedule sched2 = new ProgramSchedule("sched2", "another partition schedule", PROG2_ID,
+                                                 ImmutableMap.of(), new PartitionTrigger(DS1_ID, 2),
+                                                 ImmutableList.of());
+    String triggerKey = Schedulers.triggerKeyForPartition(DS1_ID);
+    txExecutor.execute(() -> {
+      store.addSchedules(ImmutableList.of(sched1, sched2));
+    });
+    // bring the index up to date before sched1 is deleted
+    txExecutor.execute(() -> {
+      Assert.assertEquals(ImmutableSet.of(sched1, sched2), toScheduleSet(store.findSchedules(triggerKey)));
+    });
+    txExecutor.execute(() -> {
+      store.deleteSchedule(sched1.getScheduleId());
+    });
+
+    // only the change row of the deleted schedule is removed, and only once
+    long now = System.currentTimeMillis() * TxConstants.MAX_TX_PER_MS;
+    txExecutor.execute(() -> {
+      Assert.assertEquals(1, store.compactChangeLog(now));
+    });
+    txExecutor.execute(() -> {
+      Assert.assertEquals(0, store.compactChangeLog(now + 1));
+    });
+
+    // the index missed the removed change, so it must be rebuilt to no longer find the deleted schedule
+    txExecutor.execute(() -> {
+      Assert.assertEquals(ImmutableSet.of(sched2), toScheduleSet(store.findSchedules(triggerKey)));
+    });
+
+    // a schedule with the same name can be added again after its change rows were removed
+    txExecutor.execute(() -> {
+      store.addSchedule(sched1);
+    });
+    txExecutor.execute(() -> {
+      Assert.assertEquals(ImmutableSet.of(sched1, sched2), toScheduleSet(store.findSchedules(triggerKey)));
+    });
+  }
+
   private Set<ProgramSchedule> toScheduleSet(Collection<ProgramScheduleRecord> records) {
     return records.stream().map(ProgramScheduleRecord::getSchedule).collect(Collectors.toSet());
   }
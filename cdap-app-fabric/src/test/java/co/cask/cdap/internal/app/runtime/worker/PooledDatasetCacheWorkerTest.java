@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.worker;
+
+import co.cask.cdap.AppWithWorker;
+import co.cask.cdap.api.dataset.DatasetDefinition;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
+import co.cask.cdap.app.runtime.ProgramController;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.Tasks;
+import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
+import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.dataset2.DynamicDatasetCache;
+import co.cask.cdap.data2.dataset2.SingleThreadDatasetCache;
+import co.cask.cdap.data2.transaction.TransactionExecutorFactory;
+import co.cask.cdap.internal.AppFabricTestHelper;
+import co.cask.cdap.internal.DefaultId;
+import co.cask.cdap.internal.app.deploy.pipeline.ApplicationWithPrograms;
+import co.cask.cdap.internal.app.runtime.AbstractListener;
+import co.cask.cdap.internal.app.runtime.BasicArguments;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.test.SlowTests;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Injector;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.tephra.TransactionExecutor;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.twill.common.Threads;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests running a worker with {@link Constants.AppFabric#WORKER_DATASET_CACHE_POOL_SIZE} set, which makes the
+ * worker use a {@link co.cask.cdap.data2.dataset2.PooledDatasetCache}.
+ */
+@Category(SlowTests.class)
+public class PooledDatasetCacheWorkerTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final Supplier<File> TEMP_FOLDER_SUPPLIER = () -> {
+    try {
+      return TEMP_FOLDER.newFolder();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  };
+
+  private static TransactionManager txService;
+  private static TransactionExecutorFactory txExecutorFactory;
+  private static DynamicDatasetCache datasetCache;
+  private static MetricStore metricStore;
+
+  @BeforeClass
+  public static void beforeClass() {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.AppFabric.WORKER_DATASET_CACHE_POOL_SIZE, 2);
+
+    Injector injector = AppFabricTestHelper.getInjector(cConf);
+    txService = injector.getInstance(TransactionManager.class);
+    txExecutorFactory = injector.getInstance(TransactionExecutorFactory.class);
+    DatasetFramework dsFramework = injector.getInstance(DatasetFramework.class);
+    datasetCache = new SingleThreadDatasetCache(
+      new SystemDatasetInstantiator(dsFramework, PooledDatasetCacheWorkerTest.class.getClassLoader(), null),
+      injector.getInstance(TransactionSystemClient.class),
+      NamespaceId.DEFAULT, DatasetDefinition.NO_ARGUMENTS, null, null);
+    metricStore = injector.getInstance(MetricStore.class);
+
+    txService.startAndWait();
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    txService.stopAndWait();
+  }
+
+  @Test
+  public void testWorker() throws Exception {
+    ApplicationWithPrograms app = AppFabricTestHelper.deployApplicationWithManager(AppWithWorker.class,
+                                                                                   TEMP_FOLDER_SUPPLIER);
+    ProgramController controller = AppFabricTestHelper.submit(app, AppWithWorker.TableWriter.class.getName(),
+                                                              new BasicArguments(), TEMP_FOLDER_SUPPLIER);
+
+    // wait until the worker has written the "run" row
+    TransactionExecutor executor = txExecutorFactory.createExecutor(datasetCache);
+    Tasks.waitFor(AppWithWorker.RUN, () -> executor.execute(() -> {
+      KeyValueTable kvTable = datasetCache.getDataset(AppWithWorker.DATASET);
+      return Bytes.toString(kvTable.read(AppWithWorker.RUN));
+    }), 10, TimeUnit.SECONDS);
+
+    CountDownLatch completed = new CountDownLatch(1);
+    controller.addListener(new AbstractListener() {
+      @Override
+      public void completed() {
+        completed.countDown();
+      }
+    }, Threads.SAME_THREAD_EXECUTOR);
+    controller.stop();
+    Assert.assertTrue(completed.await(30, TimeUnit.SECONDS));
+
+    txExecutorFactory.createExecutor(datasetCache.getTransactionAwares()).execute(() -> {
+      KeyValueTable kvTable = datasetCache.getDataset(AppWithWorker.DATASET);
+      Assert.assertEquals(AppWithWorker.INITIALIZE, Bytes.toString(kvTable.read(AppWithWorker.INITIALIZE)));
+      Assert.assertEquals(AppWithWorker.STOP, Bytes.toString(kvTable.read(AppWithWorker.STOP)));
+    });
+
+    // the worker instantiated its dataset through the pool
+    Tasks.waitFor(true, () -> {
+      Collection<MetricTimeSeries> metrics = metricStore.query(new MetricDataQuery(
+        0, System.currentTimeMillis() / 1000L, Integer.MAX_VALUE,
+        "system." + Constants.Metrics.Name.Dataset.CACHE_POOL_INSTANTIATIONS, AggregationFunction.SUM,
+        ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, DefaultId.NAMESPACE.getEntityName(),
+                        Constants.Metrics.Tag.APP, AppWithWorker.NAME,
+                        Constants.Metrics.Tag.WORKER, AppWithWorker.WORKER),
+        Collections.emptyList()));
+      return !metrics.isEmpty() && metrics.iterator().next().getTimeValues().get(0).getValue() > 0;
+    }, 10, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+  }
+}
@@ -36,6 +36,7 @@ import co.cask.cdap.proto.id.ProgramRunId;
 import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Injector;
@@ -44,6 +45,7 @@ import org.apache.tephra.TransactionFailureException;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -759,6 +761,138 @@ public class AppMetadataStoreTest {
     });
   }
 
+  @Test
+  public void testIndexedRunQueries() throws Exception {
+    AppMetadataStore store = getMetadataStore("testIndexedRunQueries");
+    TransactionExecutor txnl = getTxExecutor(store);
+    ProgramId programId = NamespaceId.DEFAULT.app("app").workflow("program");
+
+    // runs i start at (i + 1) * 10 seconds and stop 5 seconds later
+    Map<ProgramRunStatus, List<ProgramRunId>> runsByStatus = new HashMap<>();
+    List<ProgramRunId> allRuns = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      ProgramRunId runId = programId.run(RunIds.generate((i + 1) * 10000L));
+      ProgramRunStatus status = STOP_STATUSES.get(i % STOP_STATUSES.size());
+      long startTs = RunIds.getTime(runId.getRun(), TimeUnit.SECONDS);
+      txnl.execute(() -> {
+        recordProvisionAndStart(runId, store);
+        store.recordProgramRunning(runId, startTs, null, AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+        store.recordProgramStop(runId, startTs + 5, status, null,
+                                AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      });
+      runsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(runId);
+      allRuns.add(runId);
+    }
+
+    // a run of another program that starts at 150 seconds and runs much longer than all other runs
+    ProgramRunId longRunId = NamespaceId.DEFAULT.app("app").workflow("long").run(RunIds.generate(150000L));
+    txnl.execute(() -> {
+      recordProvisionAndStart(longRunId, store);
+      store.recordProgramRunning(longRunId, 150, null, AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      store.recordProgramStop(longRunId, 1000, ProgramRunStatus.COMPLETED, null,
+                              AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+    });
+
+    txnl.execute(() -> {
+      // runs are listed by status, most recent first
+      for (ProgramRunStatus status : STOP_STATUSES) {
+        List<ProgramRunId> expected = Lists.reverse(runsByStatus.get(status));
+        Assert.assertEquals(expected, new ArrayList<>(
+          store.getRuns(programId, status, 0, Long.MAX_VALUE, Integer.MAX_VALUE, null).keySet()));
+        Assert.assertEquals(expected.subList(0, 2), new ArrayList<>(
+          store.getRuns(programId, status, 0, Long.MAX_VALUE, 2, null).keySet()));
+        // runs 10 to 19 start in [110, 210)
+        Assert.assertEquals(expected.stream().filter(allRuns.subList(10, 20)::contains).collect(Collectors.toList()),
+                            new ArrayList<>(store.getRuns(programId, status, 110, 210, Integer.MAX_VALUE,
+                                                          null).keySet()));
+      }
+
+      // runs that were active in [113, 212) are runs 10 to 20 and the long run
+      Set<ProgramRunId> expectedRuns = new HashSet<>(allRuns.subList(10, 21));
+      expectedRuns.add(longRunId);
+      Assert.assertEquals(expectedRuns.stream()
+                            .map(runId -> RunIds.fromString(runId.getRun())).collect(Collectors.toSet()),
+                          store.getRunningInRange(113, 212));
+      Assert.assertEquals(expectedRuns,
+                          store.getHistoricalRuns(Collections.singleton(NamespaceId.DEFAULT), 113, 212,
+                                                  Integer.MAX_VALUE).keySet());
+      // only the long run was active in [400, 500), although it stopped long after the end of that range
+      Assert.assertEquals(Collections.singleton(RunIds.fromString(longRunId.getRun())),
+                          store.getRunningInRange(400, 500));
+      Assert.assertTrue(store.getHistoricalRuns(Collections.singleton(new NamespaceId("other")), 113, 212,
+                                                Integer.MAX_VALUE).isEmpty());
+
+      // with more runs than the limit, the runs that stopped first are returned
+      Assert.assertEquals(allRuns.subList(10, 13), new ArrayList<>(
+        store.getHistoricalRuns(ImmutableSet.of(NamespaceId.DEFAULT, new NamespaceId("other")), 113, 212,
+                                3).keySet()));
+      // a query that reaches back before the indexes were introduced, at time 0 here, scans the run records
+      // instead, which must return the same runs
+      Assert.assertEquals(allRuns.subList(0, 3), new ArrayList<>(
+        store.getHistoricalRuns(Collections.singleton(NamespaceId.DEFAULT), 0, 212, 3).keySet()));
+      Assert.assertEquals(allRuns.subList(0, 3), new ArrayList<>(
+        store.getHistoricalRuns(Collections.singleton(NamespaceId.DEFAULT), -1, 212, 3).keySet()));
+    });
+
+    // deleting the program history must also remove the index entries
+    txnl.execute(() -> {
+      store.deleteProgramHistory(programId.getNamespace(), programId.getApplication(), programId.getVersion());
+    });
+    txnl.execute(() -> {
+      Assert.assertTrue(store.getRunningInRange(0, Long.MAX_VALUE).isEmpty());
+      Assert.assertTrue(store.getRuns(programId, ProgramRunStatus.FAILED, 0, Long.MAX_VALUE,
+                                      Integer.MAX_VALUE, null).isEmpty());
+    });
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() throws Exception {
+    AppMetadataStore store = getMetadataStore("testRunQuerySpeed");
+    TransactionExecutor txnl = getTxExecutor(store);
+    int numRuns = 1000000;
+    int runsPerTx = 1000;
+    List<ProgramId> programIds = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      programIds.add(NamespaceId.DEFAULT.app("app" + i).workflow("program"));
+    }
+
+    // each run starts one second after the previous one and runs for ten seconds
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < numRuns; i += runsPerTx) {
+      int first = i;
+      txnl.execute(() -> {
+        for (int j = first; j < first + runsPerTx; j++) {
+          ProgramRunId runId = programIds.get(j % programIds.size()).run(RunIds.generate((j + 1) * 1000L));
+          recordProvisionAndStart(runId, store);
+          store.recordProgramStop(runId, j + 11, STOP_STATUSES.get(j % STOP_STATUSES.size()), null,
+                                  AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+        }
+      });
+    }
+    System.out.println(String.format("Recorded %d runs in %d ms", numRuns,
+                                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+
+    long start = numRuns - 1000;
+    long end = numRuns - 900;
+    txnl.execute(() -> {
+      long nanos = System.nanoTime();
+      int found = Iterables.size(Iterables.concat(
+        store.getRunningInRangeForStatus("runRecordCompleted", start, end, Long.MAX_VALUE, Ticker.systemTicker())));
+      System.out.println(String.format("Scanning run records found %d runs in range in %d ms", found,
+                                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos)));
+      nanos = System.nanoTime();
+      found = store.getRunningInRange(start, end).size();
+      System.out.println(String.format("Stop time index found %d runs in range in %d ms", found,
+                                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos)));
+      nanos = System.nanoTime();
+      found = store.getRuns(programIds.get(0), ProgramRunStatus.FAILED, start, Long.MAX_VALUE,
+                            Integer.MAX_VALUE, null).size();
+      System.out.println(String.format("Status index found %d failed runs in %d ms", found,
+                                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos)));
+    });
+  }
+
   private List<ProgramRunId> addProgramCount(TransactionExecutor txnl, AppMetadataStore store,
                                              ProgramId programId, int count) throws Exception {
     List<ProgramRunId> runIds = new ArrayList<>();
@@ -47,8 +47,11 @@ import co.cask.cdap.app.program.ProgramDescriptor;
 import co.cask.cdap.app.runtime.ProgramController;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.app.RunIds;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.namespace.NamespaceAdmin;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
+import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.internal.AppFabricTestHelper;
 import co.cask.cdap.internal.app.deploy.Specifications;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
@@ -76,6 +79,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.inject.Injector;
+import org.apache.tephra.TransactionSystemClient;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.Before;
@@ -495,6 +499,42 @@ public class DefaultStoreTest {
     assertChangedFooAppSpecAndInMetadataStore(stored);
   }
 
+  @Test
+  public void testCachedApplicationSpec() throws Exception {
+    testCachedApplicationSpec(false);
+    testCachedApplicationSpec(true);
+  }
+
+  private void testCachedApplicationSpec(boolean compact) throws Exception {
+    // Use two stores that share the same table, so that one of them does not see the changes done through the other
+    Injector injector = AppFabricTestHelper.getInjector();
+    CConfiguration cConf = CConfiguration.copy(injector.getInstance(CConfiguration.class));
+    cConf.setBoolean(Constants.AppMetaStore.SPEC_CACHE_COMPACT, compact);
+    DefaultStore store1 = new DefaultStore(cConf, injector.getInstance(DatasetFramework.class),
+                                           injector.getInstance(TransactionSystemClient.class));
+    DefaultStore store2 = new DefaultStore(cConf, injector.getInstance(DatasetFramework.class),
+                                           injector.getInstance(TransactionSystemClient.class));
+
+    ApplicationId id = new ApplicationId("account1", "application1");
+    store1.addApplication(id, Specifications.from(new FooApp()));
+    Assert.assertTrue(store1.getApplication(id).getFlows().containsKey("flow1"));
+    // reading again is served from the cache
+    Assert.assertTrue(store1.getApplication(id).getFlows().containsKey("flow1"));
+    Assert.assertTrue(store1.getApplication(id).getMapReduce().containsKey("mrJob1"));
+
+    // update through the other store, the cached spec should not be returned anymore
+    store2.addApplication(id, Specifications.from(new ChangedFooApp()));
+    ApplicationSpecification stored = store1.getApplication(id);
+    Assert.assertFalse(stored.getFlows().containsKey("flow1"));
+    assertChangedFooAppSpecAndInMetadataStore(stored);
+    Assert.assertEquals(FlowImpl.class.getName(),
+                        store1.loadProgram(id.flow("flow3")).getSpecification().getClassName());
+
+    // delete through the other store
+    store2.removeApplication(id);
+    Assert.assertNull(store1.getApplication(id));
+  }
+
   private static class FooApp extends AbstractApplication {
     @Override
     public void configure() {
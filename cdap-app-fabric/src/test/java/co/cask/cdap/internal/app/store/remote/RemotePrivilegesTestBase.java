@@ -156,6 +156,34 @@ public abstract class RemotePrivilegesTestBase {
     privilegesManager.revoke(Authorizable.fromEntityId(NS));
   }
 
+  @Test
+  public void testBulkEnforce() throws Exception {
+    ApplicationId app1 = NS.app("app1");
+    ApplicationId app2 = NS.app("app2");
+    privilegesManager.grant(Authorizable.fromEntityId(app1), ALICE, Collections.singleton(Action.ADMIN));
+    privilegesManager.grant(Authorizable.fromEntityId(app2), ALICE, EnumSet.of(Action.ADMIN, Action.READ));
+    privilegesManager.grant(Authorizable.fromEntityId(app2), BOB, Collections.singleton(Action.ADMIN));
+
+    authorizationEnforcer.enforce(ImmutableSet.of(app1, app2), ALICE, Action.ADMIN);
+    authorizationEnforcer.enforce(ImmutableSet.<EntityId>of(), BOB, Action.ADMIN);
+    authorizationEnforcer.enforce(app2, ALICE, EnumSet.of(Action.ADMIN, Action.READ));
+    try {
+      authorizationEnforcer.enforce(ImmutableSet.of(app1, app2), BOB, Action.ADMIN);
+      Assert.fail();
+    } catch (UnauthorizedException e) {
+      // expected
+    }
+    try {
+      authorizationEnforcer.enforce(app1, ALICE, EnumSet.of(Action.ADMIN, Action.READ));
+      Assert.fail();
+    } catch (UnauthorizedException e) {
+      // expected
+    }
+
+    privilegesManager.revoke(Authorizable.fromEntityId(app1));
+    privilegesManager.revoke(Authorizable.fromEntityId(app2));
+  }
+
   @Test
   public void testVisibility() throws Exception {
     ApplicationId app1 = NS.app("app1");
@@ -19,6 +19,8 @@ package co.cask.cdap.metadata;
 import co.cask.cdap.AllProgramsApp;
 import co.cask.cdap.AppWithWorkflow;
 import co.cask.cdap.api.app.ApplicationSpecification;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.api.lineage.field.EndPoint;
 import co.cask.cdap.api.lineage.field.InputField;
 import co.cask.cdap.api.lineage.field.Operation;
@@ -28,12 +30,16 @@ import co.cask.cdap.api.lineage.field.WriteOperation;
 import co.cask.cdap.api.metadata.Metadata;
 import co.cask.cdap.api.metadata.MetadataEntity;
 import co.cask.cdap.api.metadata.MetadataScope;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
 import co.cask.cdap.api.workflow.NodeStatus;
 import co.cask.cdap.api.workflow.Value;
 import co.cask.cdap.api.workflow.WorkflowToken;
 import co.cask.cdap.app.store.Store;
 import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.metadata.MetadataRecordV2;
 import co.cask.cdap.common.utils.Tasks;
 import co.cask.cdap.config.PreferencesService;
@@ -98,6 +104,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -135,6 +142,8 @@ public class MetadataSubscriberServiceTest extends AppFabricTestBase {
     ProgramRunId run1 = flow1.run(RunIds.generate());
     lineageWriter.addAccess(run1, dataset1, AccessType.READ);
     lineageWriter.addAccess(run1, dataset2, AccessType.WRITE);
+    // Repeated access in the same batch
+    lineageWriter.addAccess(run1, dataset1, AccessType.READ);
 
     LineageStoreReader lineageReader = new DefaultLineageStoreReader(getDatasetFramework(),
                                                                      getTxClient(), lineageDatasetId);
@@ -191,6 +200,7 @@ public class MetadataSubscriberServiceTest extends AppFabricTestBase {
     Assert.assertTrue(usageRegistry.getDatasets(spark1).isEmpty());
 
     // Start the MetadataSubscriberService
+    long skippedLineage = getSkippedLineageAccesses();
     MetadataSubscriberService subscriberService = getInjector().getInstance(MetadataSubscriberService.class);
     subscriberService
       .setLineageDatasetId(lineageDatasetId)
@@ -204,6 +214,11 @@ public class MetadataSubscriberServiceTest extends AppFabricTestBase {
       Tasks.waitFor(true, () -> expectedLineage.equals(lineageReader.getEntitiesForRun(run1)),
                     10, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
 
+      // The repeated access in the same batch should be skipped
+      Tasks.waitFor(skippedLineage + 1, this::getSkippedLineageAccesses,
+                    10, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+      Assert.assertEquals(1, lineageReader.getRelations(dataset1, 0L, Long.MAX_VALUE, x -> true).size());
+
       // Emit one more lineage
       lineageWriter.addAccess(run1, stream1, AccessType.UNKNOWN, flowlet1);
       expectedLineage.add(stream1);
@@ -637,6 +652,25 @@ public class MetadataSubscriberServiceTest extends AppFabricTestBase {
     }
   }
 
+  /**
+   * Returns the total number of lineage accesses that the {@link MetadataSubscriberService} skipped because
+   * the same access was repeated in the same batch.
+   */
+  private long getSkippedLineageAccesses() {
+    Map<String, String> tags = ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+                                               Constants.Metrics.Tag.COMPONENT, Constants.Service.MASTER_SERVICES);
+    Collection<MetricTimeSeries> results = getInjector().getInstance(MetricStore.class).query(
+      new MetricDataQuery(0, 0, Integer.MAX_VALUE, "system.process.lineage.skipped",
+                          AggregationFunction.SUM, tags, Collections.emptyList()));
+    long total = 0L;
+    for (MetricTimeSeries timeSeries : results) {
+      for (TimeValue timeValue : timeSeries.getTimeValues()) {
+        total += timeValue.getValue();
+      }
+    }
+    return total;
+  }
+
   private DatasetFramework getDatasetFramework() {
     return getInjector().getInstance(DatasetFramework.class);
   }
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link TimerWheel}.
+ */
+public class TimerWheelTest {
+
+  @Test
+  public void testExpiry() {
+    TimerWheel<String> wheel = new TimerWheel<>(8, 100, 1000);
+    wheel.schedule("a", 1250);
+    wheel.schedule("b", 1300);
+    wheel.schedule("c", 1000);
+
+    List<String> expired = new ArrayList<>();
+    // Deadlines are rounded up to the tick, so "a" is not expired at 1250
+    Assert.assertEquals(1, wheel.advance(1250, expired::add));
+    Assert.assertEquals(Collections.singletonList("c"), expired);
+
+    expired.clear();
+    Assert.assertEquals(2, wheel.advance(1300, expired::add));
+    Assert.assertEquals(Arrays.asList("a", "b"), expired);
+    Assert.assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void testMultipleRevolutions() {
+    TimerWheel<String> wheel = new TimerWheel<>(4, 10, 0);
+    // Same slot, different revolutions
+    wheel.schedule("a", 20);
+    wheel.schedule("b", 60);
+    wheel.schedule("c", 100);
+
+    List<String> expired = new ArrayList<>();
+    wheel.advance(20, expired::add);
+    Assert.assertEquals(Collections.singletonList("a"), expired);
+
+    // Advancing by more than one revolution at once expires everything due
+    expired.clear();
+    wheel.advance(75, expired::add);
+    Assert.assertEquals(Collections.singletonList("b"), expired);
+    Assert.assertEquals(1, wheel.size());
+
+    expired.clear();
+    wheel.advance(1000, expired::add);
+    Assert.assertEquals(Collections.singletonList("c"), expired);
+  }
+
+  @Test
+  public void testPastDeadlineAndDuplicates() {
+    TimerWheel<Integer> wheel = new TimerWheel<>(16, 100, 0);
+    wheel.advance(5000, i -> { });
+
+    // Past deadlines expire on the next tick
+    wheel.schedule(1, 100);
+    // Same target and tick is only expired once
+    wheel.schedule(2, 5150);
+    wheel.schedule(2, 5200);
+    Assert.assertEquals(2, wheel.size());
+
+    List<Integer> expired = new ArrayList<>();
+    wheel.advance(5100, expired::add);
+    Assert.assertEquals(Collections.singletonList(1), expired);
+
+    expired.clear();
+    wheel.advance(5200, expired::add);
+    Assert.assertEquals(Collections.singletonList(2), expired);
+  }
+}
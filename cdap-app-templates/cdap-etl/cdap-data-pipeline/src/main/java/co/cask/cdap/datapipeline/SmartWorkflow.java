@@ -172,7 +172,6 @@ public class SmartWorkflow extends AbstractWorkflow {
                                                             AlertPublisher.PLUGIN_TYPE),
                                             config.getEngine()).generateSpec(config);
     properties.put(Constants.PIPELINE_SPEC_KEY, GSON.toJson(spec));
-    setProperties(properties);
 
     stageSpecs = new HashMap<>();
     useSpark = config.getEngine() == Engine.SPARK;
@@ -184,7 +183,11 @@ public class SmartWorkflow extends AbstractWorkflow {
       }
     }
 
-    plan = createPlan();
+    PipelinePlanner planner = createPlanner();
+    plan = planner.plan(spec);
+    // set the estimated cost of the plan next to the spec so that it can be inspected before the pipeline is run
+    properties.put(Constants.PIPELINE_PLAN_COST_KEY, GSON.toJson(planner.estimateCost(plan)));
+    setProperties(properties);
 
     WorkflowProgramAdder programAdder = new TrunkProgramAdder(getConfigurer());
     // single phase, just add the program directly
@@ -344,7 +347,7 @@ public class SmartWorkflow extends AbstractWorkflow {
     }
   }
 
-  private PipelinePlan createPlan() {
+  private PipelinePlanner createPlanner() {
     PipelinePlanner planner;
     Set<String> actionTypes = ImmutableSet.of(Action.PLUGIN_TYPE, Constants.SPARK_PROGRAM_PLUGIN_TYPE);
     Set<String> multiPortTypes = ImmutableSet.of(SplitterTransform.PLUGIN_TYPE);
@@ -359,7 +362,7 @@ public class SmartWorkflow extends AbstractWorkflow {
                                     ImmutableSet.of(SparkCompute.PLUGIN_TYPE, SparkSink.PLUGIN_TYPE),
                                     actionTypes, multiPortTypes);
     }
-    return planner.plan(spec);
+    return planner;
   }
 
   private void updateTokenWithTriggeringProperties(TriggeringScheduleInfo scheduleInfo,
@@ -63,7 +63,9 @@ import co.cask.cdap.etl.mock.batch.MockRuntimeDatasetSource;
 import co.cask.cdap.etl.mock.batch.MockSink;
 import co.cask.cdap.etl.mock.batch.MockSource;
 import co.cask.cdap.etl.mock.batch.NodeStatesAction;
+import co.cask.cdap.etl.mock.batch.aggregator.CombinableFieldSumAggregator;
 import co.cask.cdap.etl.mock.batch.aggregator.FieldCountAggregator;
+import co.cask.cdap.etl.mock.batch.aggregator.FieldSumAggregator;
 import co.cask.cdap.etl.mock.batch.aggregator.GroupFilterAggregator;
 import co.cask.cdap.etl.mock.batch.aggregator.IdentityAggregator;
 import co.cask.cdap.etl.mock.batch.joiner.MockJoiner;
@@ -1957,6 +1959,84 @@ public class DataPipelineTest extends HydratorTestBase {
     validateMetric(5, appId, "sink2.records.in");
   }
 
+  @Test
+  public void testMapRedCombinableAggregator() throws Exception {
+    testCombinableAggregator(Engine.MAPREDUCE);
+  }
+
+  @Test
+  public void testSparkCombinableAggregator() throws Exception {
+    testCombinableAggregator(Engine.SPARK);
+  }
+
+  private void testCombinableAggregator(Engine engine) throws Exception {
+    String sourceName = "combineInput-" + engine.name();
+    String sink1Name = "combineOutput1-" + engine.name();
+    String sink2Name = "combineOutput2-" + engine.name();
+    Schema inputSchema = Schema.recordOf(
+      "testRecord",
+      Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("item", Schema.of(Schema.Type.LONG))
+    );
+    /*
+       source --|--> agg1 --> sink1
+                |
+                |--> agg2 --> sink2
+
+       agg1 aggregates all values of a group, agg2 combines them first.
+     */
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder()
+      .setEngine(engine)
+      .addStage(new ETLStage("source", MockSource.getPlugin(sourceName, inputSchema)))
+      .addStage(new ETLStage("sink1", MockSink.getPlugin(sink1Name)))
+      .addStage(new ETLStage("sink2", MockSink.getPlugin(sink2Name)))
+      .addStage(new ETLStage("agg1", FieldSumAggregator.getPlugin("user", "item")))
+      .addStage(new ETLStage("agg2", CombinableFieldSumAggregator.getPlugin("user", "item")))
+      .addConnection("source", "agg1")
+      .addConnection("source", "agg2")
+      .addConnection("agg1", "sink1")
+      .addConnection("agg2", "sink2")
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(APP_ARTIFACT, etlConfig);
+    ApplicationId appId = NamespaceId.DEFAULT.app("CombinableAggApp-" + engine);
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    DataSetManager<Table> inputManager = getDataset(NamespaceId.DEFAULT.dataset(sourceName));
+    MockSource.writeInput(inputManager, ImmutableList.of(
+      StructuredRecord.builder(inputSchema).set("user", "samuel").set("item", 1L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "samuel").set("item", 2L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "samuel").set("item", 3L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "john").set("item", 4L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "john").set("item", 5L).build(),
+      StructuredRecord.builder(inputSchema).set("user", "mary").set("item", 6L).build()));
+
+    WorkflowManager workflowManager = appManager.getWorkflowManager(SmartWorkflow.NAME);
+    workflowManager.start();
+    workflowManager.waitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Schema outputSchema = Schema.recordOf(
+      "user.sum",
+      Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("item", Schema.of(Schema.Type.LONG))
+    );
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(outputSchema).set("user", "all").set("item", 21L).build(),
+      StructuredRecord.builder(outputSchema).set("user", "samuel").set("item", 6L).build(),
+      StructuredRecord.builder(outputSchema).set("user", "john").set("item", 9L).build(),
+      StructuredRecord.builder(outputSchema).set("user", "mary").set("item", 6L).build());
+
+    // combining must not change the output
+    DataSetManager<Table> sinkManager = getDataset(sink1Name);
+    Assert.assertEquals(expected, Sets.newHashSet(MockSink.readOutput(sinkManager)));
+    sinkManager = getDataset(sink2Name);
+    Assert.assertEquals(expected, Sets.newHashSet(MockSink.readOutput(sinkManager)));
+
+    validateMetric(6, appId, "agg1.records.in");
+    validateMetric(4, appId, "agg1.records.out");
+    validateMetric(4, appId, "agg2.records.out");
+  }
+
   @Test
   public void testSparkSinkAndCompute() throws Exception {
     // use the SparkSink to train a model
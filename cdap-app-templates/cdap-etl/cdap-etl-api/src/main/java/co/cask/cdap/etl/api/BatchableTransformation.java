@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.api;
+
+import co.cask.cdap.api.annotation.Beta;
+
+import java.util.List;
+
+/**
+ * A {@link Transformation} that is able to transform a batch of input objects in a single call.
+ * When a {@link Transform} implements this interface, pipeline executors will collect input into batches
+ * and call {@link #transformBatch(List, Emitter)} once per batch instead of calling
+ * {@link #transform(Object, Emitter)} once per record. Consecutive batchable stages are chained so that
+ * each stage is dispatched once per batch.
+ *
+ * Pipelines may still call {@link #transform(Object, Emitter)} for individual records, so both methods
+ * must produce the same output for the same input. The order of records within a batch is the order in which
+ * they were received, but no ordering is guaranteed across batches.
+ *
+ * @param <IN> Type of input object
+ * @param <OUT> Type of output object
+ */
+@Beta
+public interface BatchableTransformation<IN, OUT> extends Transformation<IN, OUT> {
+
+  /**
+   * Transform a batch of input objects and emit output using {@link Emitter}.
+   * The list of input is reused by the pipeline once this method returns, so implementations must not
+   * keep a reference to it.
+   *
+   * @param input the batch of input data to be transformed. It is never empty
+   * @param emitter {@link Emitter} to emit data to the next stage
+   * @throws Exception if there's an error during this method invocation
+   */
+  void transformBatch(List<IN> input, Emitter<OUT> emitter) throws Exception;
+}
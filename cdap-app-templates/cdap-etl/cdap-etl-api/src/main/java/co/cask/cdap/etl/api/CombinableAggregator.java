@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.api;
+
+import co.cask.cdap.api.annotation.Beta;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Aggregator} that is able to partially aggregate the values of a group before they are shuffled.
+ * When an aggregator implements this interface, pipelines will combine values with the same group key
+ * on the map side (in MapReduce) or use a reduce by key (in Spark) instead of sending every input value
+ * through the shuffle.
+ *
+ * Combining may happen zero or more times, on any subset of the values for a group, and in any order.
+ * This means {@link #combine(Object, Object)} must be associative and commutative, and
+ * {@link #aggregate(Object, Iterator, Emitter)} must produce the same output whether it is given the original
+ * group values or values that were combined.
+ *
+ * @param <GROUP_KEY> Type of group key
+ * @param <GROUP_VALUE> Type of values to group
+ * @param <OUT> Type of output object
+ */
+@Beta
+public interface CombinableAggregator<GROUP_KEY, GROUP_VALUE, OUT> extends Aggregator<GROUP_KEY, GROUP_VALUE, OUT> {
+
+  /**
+   * Combine two values that belong to the same group into a single partially aggregated value.
+   *
+   * @param value1 the first value to combine. It is either an input value or a previously combined value
+   * @param value2 the second value to combine. It is either an input value or a previously combined value
+   * @return the combined value
+   * @throws Exception if there is some error combining the values
+   */
+  GROUP_VALUE combine(GROUP_VALUE value1, GROUP_VALUE value2) throws Exception;
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.batch;
+
+import co.cask.cdap.etl.api.BatchableTransformation;
+import co.cask.cdap.etl.api.Destroyable;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.common.Destroyables;
+import co.cask.cdap.etl.common.RecordInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Processes stages that can transform a batch of records at once. Values are unwrapped from their RecordInfo and
+ * buffered until the batch is full, then the underlying transformation is called once for the entire batch.
+ * Any partial batch is transformed when the stage is flushed.
+ *
+ * When several batchable stages are chained, each one receives the output of the previous batch one record at a time
+ * and dispatches it once its own batch is full, so every stage is still called once per batch.
+ *
+ * @param <T> type of input object
+ */
+public class BatchingPipeStage<T> extends PipeStage<RecordInfo<T>> {
+  private final BatchableTransformation<T, Object> transform;
+  private final int batchSize;
+  private final Emitter<Object> emitter;
+  private final List<T> batch;
+
+  public BatchingPipeStage(String stageName, BatchableTransformation<T, Object> transform, int batchSize,
+                           Emitter<Object> emitter) {
+    super(stageName);
+    if (batchSize < 1) {
+      throw new IllegalArgumentException(String.format("Invalid batch size %d for stage '%s'. It must be positive.",
+                                                       batchSize, stageName));
+    }
+    this.transform = transform;
+    this.batchSize = batchSize;
+    this.emitter = emitter;
+    this.batch = new ArrayList<>(batchSize);
+  }
+
+  @Override
+  protected void consumeInput(RecordInfo<T> input) throws Exception {
+    batch.add(input.getValue());
+    if (batch.size() >= batchSize) {
+      transformBatch();
+    }
+  }
+
+  @Override
+  protected void flushOutput() throws Exception {
+    if (!batch.isEmpty()) {
+      transformBatch();
+    }
+  }
+
+  private void transformBatch() throws Exception {
+    try {
+      transform.transformBatch(batch, emitter);
+    } finally {
+      batch.clear();
+    }
+  }
+
+  @Override
+  public void destroy() {
+    batch.clear();
+    if (transform instanceof Destroyable) {
+      Destroyables.destroyQuietly((Destroyable) transform);
+    }
+  }
+}
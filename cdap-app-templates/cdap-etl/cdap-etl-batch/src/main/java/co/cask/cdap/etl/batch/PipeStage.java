@@ -22,7 +22,9 @@ import com.google.common.base.Throwables;
 
 /**
  * A stage in the PipeTransformExecutor. Pipe transforms should send each output record immediately to all output stages
- * without buffering anything in memory.
+ * without buffering anything in memory. The only exceptions are stages that combine records to reduce the amount of
+ * data shuffled and stages that transform records in batches, which must send any buffered records when they are
+ * flushed.
  *
  * @param <T> type of input record
  */
@@ -42,16 +44,22 @@ public abstract class PipeStage<T> implements Destroyable {
   public void consume(T input) {
     try {
       consumeInput(input);
-    } catch (StageFailureException e) {
-      // Another stage has already failed, just throw the exception as-is
-      throw e;
     } catch (Exception e) {
-      Throwable rootCause = Throwables.getRootCause(e);
-      // Create StageFailureException to save the Stage information
-      throw new StageFailureException(
-        String.format("Failed to execute pipeline stage '%s' with the error: %s. Please review your pipeline " +
-                        "configuration and check the system logs for more details.", stageName, rootCause.getMessage()),
-        rootCause);
+      throw toStageFailure(e);
+    }
+  }
+
+  /**
+   * Flush any output buffered by this stage and send it to the relevant output transforms.
+   * This is called once after all input records have been consumed.
+   *
+   * @throws StageFailureException if there was an exception flushing the output
+   */
+  public void flush() {
+    try {
+      flushOutput();
+    } catch (Exception e) {
+      throw toStageFailure(e);
     }
   }
 
@@ -62,4 +70,27 @@ public abstract class PipeStage<T> implements Destroyable {
    * @throws Exception if there was a failure processing the input
    */
   protected abstract void consumeInput(T input) throws Exception;
+
+  /**
+   * Flush any buffered output, throwing an exception if there is a failure. Most stages send each output
+   * immediately, so by default this does nothing.
+   *
+   * @throws Exception if there was a failure flushing the output
+   */
+  protected void flushOutput() throws Exception {
+    // no-op
+  }
+
+  private StageFailureException toStageFailure(Exception e) {
+    if (e instanceof StageFailureException) {
+      // Another stage has already failed, just throw the exception as-is
+      return (StageFailureException) e;
+    }
+    Throwable rootCause = Throwables.getRootCause(e);
+    // Create StageFailureException to save the Stage information
+    return new StageFailureException(
+      String.format("Failed to execute pipeline stage '%s' with the error: %s. Please review your pipeline " +
+                      "configuration and check the system logs for more details.", stageName, rootCause.getMessage()),
+      rootCause);
+  }
 }
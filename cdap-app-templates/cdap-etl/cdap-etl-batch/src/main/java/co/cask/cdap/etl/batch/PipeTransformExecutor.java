@@ -44,6 +44,17 @@ public class PipeTransformExecutor<IN> implements Destroyable {
     }
   }
 
+  /**
+   * Flush output buffered by any of the stages. Must be called after the last iteration has been run.
+   * Stages are flushed in the iteration order of the stage map, which must be a topological order so that output
+   * flushed by a stage is also flushed by every stage after it.
+   */
+  public void flush() {
+    for (PipeStage stage : pipeStages.values()) {
+      stage.flush();
+    }
+  }
+
   @Override
   public void destroy() {
     for (PipeStage stage : pipeStages.values()) {
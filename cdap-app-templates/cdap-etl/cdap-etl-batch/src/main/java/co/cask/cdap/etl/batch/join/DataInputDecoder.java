@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import co.cask.cdap.common.io.Decoder;
+import com.google.common.base.Charsets;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Decoder} that reads from a {@link DataInput} data written by a {@link DataOutputEncoder}.
+ */
+final class DataInputDecoder implements Decoder {
+  private final DataInput in;
+
+  DataInputDecoder(DataInput in) {
+    this.in = in;
+  }
+
+  @Nullable
+  @Override
+  public Object readNull() throws IOException {
+    // No-op
+    return null;
+  }
+
+  @Override
+  public boolean readBool() throws IOException {
+    return in.readBoolean();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    return WritableUtils.readVInt(in);
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    return WritableUtils.readVLong(in);
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    return in.readFloat();
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    return in.readDouble();
+  }
+
+  @Override
+  public String readString() throws IOException {
+    return new String(readByteArray(), Charsets.UTF_8);
+  }
+
+  @Override
+  public ByteBuffer readBytes() throws IOException {
+    return ByteBuffer.wrap(readByteArray());
+  }
+
+  @Override
+  public void skipFloat() throws IOException {
+    in.skipBytes(4);
+  }
+
+  @Override
+  public void skipDouble() throws IOException {
+    in.skipBytes(8);
+  }
+
+  @Override
+  public void skipString() throws IOException {
+    skipBytes();
+  }
+
+  @Override
+  public void skipBytes() throws IOException {
+    in.skipBytes(WritableUtils.readVInt(in));
+  }
+
+  private byte[] readByteArray() throws IOException {
+    byte[] bytes = new byte[WritableUtils.readVInt(in)];
+    in.readFully(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import co.cask.cdap.common.io.Encoder;
+import com.google.common.base.Charsets;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link Encoder} that writes to a {@link DataOutput}, using variable length encoding for ints and longs.
+ */
+final class DataOutputEncoder implements Encoder {
+  private final DataOutput out;
+
+  DataOutputEncoder(DataOutput out) {
+    this.out = out;
+  }
+
+  @Override
+  public Encoder writeNull() throws IOException {
+    // No-op
+    return this;
+  }
+
+  @Override
+  public Encoder writeBool(boolean b) throws IOException {
+    out.writeBoolean(b);
+    return this;
+  }
+
+  @Override
+  public Encoder writeInt(int i) throws IOException {
+    WritableUtils.writeVInt(out, i);
+    return this;
+  }
+
+  @Override
+  public Encoder writeLong(long l) throws IOException {
+    WritableUtils.writeVLong(out, l);
+    return this;
+  }
+
+  @Override
+  public Encoder writeFloat(float f) throws IOException {
+    out.writeFloat(f);
+    return this;
+  }
+
+  @Override
+  public Encoder writeDouble(double d) throws IOException {
+    out.writeDouble(d);
+    return this;
+  }
+
+  @Override
+  public Encoder writeString(String s) throws IOException {
+    return writeBytes(s.getBytes(Charsets.UTF_8));
+  }
+
+  @Override
+  public Encoder writeBytes(byte[] bytes) throws IOException {
+    return writeBytes(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public Encoder writeBytes(byte[] bytes, int off, int len) throws IOException {
+    WritableUtils.writeVInt(out, len);
+    out.write(bytes, off, len);
+    return this;
+  }
+
+  @Override
+  public Encoder writeBytes(ByteBuffer buffer) throws IOException {
+    if (buffer.hasArray()) {
+      return writeBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return writeBytes(bytes);
+  }
+}
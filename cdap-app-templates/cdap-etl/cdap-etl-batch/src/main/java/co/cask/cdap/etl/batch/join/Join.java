@@ -20,18 +20,29 @@ import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.JoinConfig;
 import co.cask.cdap.etl.api.JoinElement;
 import co.cask.cdap.etl.api.Joiner;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.cdap.etl.common.Constants;
 import com.google.common.collect.Sets;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
- * Performs join operation
+ * Performs join operation. Join elements for the join key are buffered per stage before the cartesian product
+ * is computed. If there are more elements than allowed by the {@link JoinSpillConfig}, the largest per stage
+ * buffer is spilled to local disk. Without a spill config, all elements are kept in memory. The largest stage
+ * is also used as the outermost loop of the product, so that it only needs to be read once.
+ *
  * @param <JOIN_KEY> type of join key
  * @param <INPUT_RECORD> type of input record
  * @param <OUT> type of output of mapreduce
@@ -43,51 +54,107 @@ public class Join<JOIN_KEY, INPUT_RECORD, OUT> {
   private Iterator<JoinElement<INPUT_RECORD>> iterator;
   private Emitter<OUT> emitter;
   private final int numOfInputs;
+  @Nullable
+  private final JoinSpillConfig<INPUT_RECORD> spillConfig;
 
   public Join(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, JOIN_KEY joinKey,
               Iterator<JoinElement<INPUT_RECORD>> iterator, int numOfInputs, Emitter<OUT> emitter) throws Exception {
+    this(joiner, joinKey, iterator, numOfInputs, emitter, null);
+  }
+
+  public Join(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, JOIN_KEY joinKey,
+              Iterator<JoinElement<INPUT_RECORD>> iterator, int numOfInputs, Emitter<OUT> emitter,
+              @Nullable JoinSpillConfig<INPUT_RECORD> spillConfig) throws Exception {
     this.joiner = joiner;
     this.joinKey = joinKey;
     this.iterator = iterator;
     this.numOfInputs = numOfInputs;
     this.emitter = emitter;
+    this.spillConfig = spillConfig;
   }
 
   public void joinRecords() throws Exception {
-    Map<String, List<JoinElement<INPUT_RECORD>>> perStageJoinElements = getPerStageJoinElements();
-    JoinConfig joinConfig = joiner.getJoinConfig();
-    Set<String> requiredInputs = Sets.newHashSet(joinConfig.getRequiredInputs());
+    Map<String, SpillableJoinElements<INPUT_RECORD>> perStageJoinElements = new HashMap<>();
+    try {
+      getPerStageJoinElements(perStageJoinElements);
+      JoinConfig joinConfig = joiner.getJoinConfig();
+      Set<String> requiredInputs = Sets.newHashSet(joinConfig.getRequiredInputs());
 
-    if (!perStageJoinElements.keySet().containsAll(requiredInputs)) {
-      return;
-    }
+      if (!perStageJoinElements.keySet().containsAll(requiredInputs)) {
+        return;
+      }
 
-    join(perStageJoinElements, requiredInputs);
+      join(perStageJoinElements, requiredInputs);
+    } finally {
+      for (SpillableJoinElements<INPUT_RECORD> joinElements : perStageJoinElements.values()) {
+        joinElements.close();
+      }
+    }
   }
 
-  private Map<String, List<JoinElement<INPUT_RECORD>>> getPerStageJoinElements() {
-    Map<String, List<JoinElement<INPUT_RECORD>>> perStageJoinElements = new HashMap<>();
+  private void getPerStageJoinElements(Map<String, SpillableJoinElements<INPUT_RECORD>> perStageJoinElements)
+    throws IOException {
+    int numInMemory = 0;
     while (iterator.hasNext()) {
       JoinElement<INPUT_RECORD> joinElement = iterator.next();
       String stageName = joinElement.getStageName();
-      if (perStageJoinElements.get(stageName) == null) {
-        perStageJoinElements.put(stageName, new ArrayList<JoinElement<INPUT_RECORD>>());
+      SpillableJoinElements<INPUT_RECORD> joinElements = perStageJoinElements.get(stageName);
+      if (joinElements == null) {
+        joinElements = spillConfig == null ?
+          new SpillableJoinElements<INPUT_RECORD>(stageName) : spillConfig.createElements(stageName);
+        perStageJoinElements.put(stageName, joinElements);
+      }
+      joinElements.add(joinElement);
+      numInMemory++;
+
+      if (spillConfig != null && numInMemory > spillConfig.getMaxInMemoryElements()) {
+        numInMemory -= spillLargest(perStageJoinElements.values());
       }
-      perStageJoinElements.get(stageName).add(joinElement);
     }
-    return perStageJoinElements;
   }
 
-  private void join(Map<String, List<JoinElement<INPUT_RECORD>>> perStageJoinElements, Set<String> requiredInputs)
-    throws Exception {
-    List<List<JoinElement<INPUT_RECORD>>> list = new ArrayList<>(perStageJoinElements.values());
+  /**
+   * Spills the stage with the most elements in memory.
+   *
+   * @return the number of elements that were spilled
+   */
+  private int spillLargest(Collection<SpillableJoinElements<INPUT_RECORD>> allJoinElements) throws IOException {
+    SpillableJoinElements<INPUT_RECORD> largest = null;
+    for (SpillableJoinElements<INPUT_RECORD> joinElements : allJoinElements) {
+      if (largest == null || joinElements.getInMemorySize() > largest.getInMemorySize()) {
+        largest = joinElements;
+      }
+    }
+    if (largest == null) {
+      return 0;
+    }
+    int numSpilled = largest.getInMemorySize();
+    long bytesSpilled = largest.spill();
+    StageMetrics stageMetrics = spillConfig.getStageMetrics();
+    if (stageMetrics != null) {
+      stageMetrics.count(Constants.Metrics.JOIN_SPILLS, 1);
+      stageMetrics.count(Constants.Metrics.JOIN_SPILL_BYTES, (int) Math.min(bytesSpilled, Integer.MAX_VALUE));
+    }
+    return numSpilled;
+  }
+
+  private void join(Map<String, SpillableJoinElements<INPUT_RECORD>> perStageJoinElements,
+                    Set<String> requiredInputs) throws Exception {
+    List<SpillableJoinElements<INPUT_RECORD>> list = new ArrayList<>(perStageJoinElements.values());
+    // iterate over the largest stage in the outermost loop so that it is only read once
+    Collections.sort(list, new Comparator<SpillableJoinElements<INPUT_RECORD>>() {
+      @Override
+      public int compare(SpillableJoinElements<INPUT_RECORD> o1, SpillableJoinElements<INPUT_RECORD> o2) {
+        return Integer.compare(o2.size(), o1.size());
+      }
+    });
     ArrayList<JoinElement<INPUT_RECORD>> joinRow = new ArrayList<>();
     Set<String> joinRowInputs = new HashSet<>();
     getCartesianProduct(list, 0, joinRow, joinRowInputs, requiredInputs);
   }
 
   // TODO use iterative algorithm instead of recursion
-  private void getCartesianProduct(List<List<JoinElement<INPUT_RECORD>>> list, int index,
+  private void getCartesianProduct(List<? extends Iterable<JoinElement<INPUT_RECORD>>> list, int index,
                                    List<JoinElement<INPUT_RECORD>> joinRow,
                                    Set<String> joinRowInputs, Set<String> requiredInputs) throws Exception {
     // Check up to the end of the list and emit only if records from all the required inputs are present in joinElements
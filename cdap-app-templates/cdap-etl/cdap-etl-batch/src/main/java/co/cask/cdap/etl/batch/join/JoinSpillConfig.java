@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import co.cask.cdap.etl.api.StageMetrics;
+import com.google.common.base.Supplier;
+
+import java.io.File;
+import javax.annotation.Nullable;
+
+/**
+ * Controls when and where a {@link Join} spills join elements to local disk. A join without a spill config
+ * keeps all join elements in memory.
+ *
+ * @param <INPUT_RECORD> type of input record
+ */
+public class JoinSpillConfig<INPUT_RECORD> {
+  private final int maxInMemoryElements;
+  private final File spillDir;
+  private final Supplier<RecordCodec<INPUT_RECORD>> codecSupplier;
+  private final StageMetrics stageMetrics;
+
+  /**
+   * @param maxInMemoryElements maximum number of join elements for a single join key to keep in memory.
+   *                            Once exceeded, elements are spilled to disk.
+   * @param spillDir the local directory to create spill files in
+   * @param codecSupplier supplies codecs used to write and read spilled records. Codecs are only requested
+   *                      once elements actually need to be spilled
+   * @param stageMetrics metrics for the joiner stage, used to report spills. Can be null if no metrics are needed
+   */
+  public JoinSpillConfig(int maxInMemoryElements, File spillDir, Supplier<RecordCodec<INPUT_RECORD>> codecSupplier,
+                         @Nullable StageMetrics stageMetrics) {
+    this.maxInMemoryElements = maxInMemoryElements;
+    this.spillDir = spillDir;
+    this.codecSupplier = codecSupplier;
+    this.stageMetrics = stageMetrics;
+  }
+
+  public int getMaxInMemoryElements() {
+    return maxInMemoryElements;
+  }
+
+  SpillableJoinElements<INPUT_RECORD> createElements(String stageName) {
+    return new SpillableJoinElements<>(stageName, spillDir, codecSupplier);
+  }
+
+  @Nullable
+  StageMetrics getStageMetrics() {
+    return stageMetrics;
+  }
+}
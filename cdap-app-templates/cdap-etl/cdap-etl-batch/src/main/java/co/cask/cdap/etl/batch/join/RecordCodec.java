@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes records so that they can be spilled to local disk and read back.
+ * A codec may keep state between records, so a separate instance must be used for each stream of records.
+ *
+ * @param <T> type of record
+ */
+public interface RecordCodec<T> {
+
+  /**
+   * Encode a record to the given output.
+   */
+  void encode(T record, DataOutput out) throws IOException;
+
+  /**
+   * Decode the next record from the given input.
+   */
+  T decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import co.cask.cdap.etl.api.JoinElement;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * The {@link JoinElement JoinElements} from a single stage for a single join key. Elements are kept in memory
+ * until they are spilled, after which they are appended to a local file. Iterating over the elements reads back
+ * the spilled elements followed by the ones still in memory, so the elements can be iterated over multiple times
+ * without holding all of them in memory. Elements created without a spill directory can not be spilled.
+ *
+ * @param <INPUT_RECORD> type of input record
+ */
+public class SpillableJoinElements<INPUT_RECORD> implements Iterable<JoinElement<INPUT_RECORD>>, Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(SpillableJoinElements.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final String stageName;
+  @Nullable
+  private final File spillDir;
+  @Nullable
+  private final Supplier<RecordCodec<INPUT_RECORD>> codecSupplier;
+  private final List<JoinElement<INPUT_RECORD>> inMemory;
+  private final Set<Closeable> openReaders;
+  private File spillFile;
+  private DataOutputStream spillOutput;
+  private RecordCodec<INPUT_RECORD> writeCodec;
+  private RecordCodec<INPUT_RECORD> readCodec;
+  private int numSpilled;
+
+  SpillableJoinElements(String stageName) {
+    this(stageName, null, null);
+  }
+
+  SpillableJoinElements(String stageName, @Nullable File spillDir,
+                        @Nullable Supplier<RecordCodec<INPUT_RECORD>> codecSupplier) {
+    this.stageName = stageName;
+    this.spillDir = spillDir;
+    this.codecSupplier = codecSupplier;
+    this.inMemory = new ArrayList<>();
+    this.openReaders = new HashSet<>();
+  }
+
+  public void add(JoinElement<INPUT_RECORD> joinElement) {
+    inMemory.add(joinElement);
+  }
+
+  /**
+   * @return total number of elements, both spilled and in memory
+   */
+  public int size() {
+    return numSpilled + inMemory.size();
+  }
+
+  /**
+   * @return number of elements that are currently held in memory
+   */
+  public int getInMemorySize() {
+    return inMemory.size();
+  }
+
+  /**
+   * Write all the elements that are currently in memory to the spill file.
+   *
+   * @return the number of bytes written to the spill file
+   * @throws IOException if there was an error writing to the spill file
+   */
+  public long spill() throws IOException {
+    if (inMemory.isEmpty()) {
+      return 0L;
+    }
+    if (spillOutput == null) {
+      Preconditions.checkState(spillDir != null && codecSupplier != null,
+                               "Join elements of stage '%s' can only be kept in memory.", stageName);
+      spillFile = File.createTempFile("join-" + stageName, ".spill", spillDir);
+      spillOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile), BUFFER_SIZE));
+      writeCodec = codecSupplier.get();
+    }
+    int sizeBefore = spillOutput.size();
+    for (JoinElement<INPUT_RECORD> joinElement : inMemory) {
+      writeCodec.encode(joinElement.getInputRecord(), spillOutput);
+    }
+    spillOutput.flush();
+    numSpilled += inMemory.size();
+    inMemory.clear();
+    // size() saturates at Integer.MAX_VALUE, which only affects the reported number of bytes
+    return spillOutput.size() - sizeBefore;
+  }
+
+  @Override
+  public Iterator<JoinElement<INPUT_RECORD>> iterator() {
+    if (numSpilled == 0) {
+      return inMemory.iterator();
+    }
+    return Iterators.concat(new SpilledIterator(), inMemory.iterator());
+  }
+
+  /**
+   * Closes all readers and deletes the spill file.
+   */
+  @Override
+  public void close() {
+    for (Closeable reader : openReaders) {
+      Closeables.closeQuietly(reader);
+    }
+    openReaders.clear();
+    Closeables.closeQuietly(spillOutput);
+    if (spillFile != null && !spillFile.delete()) {
+      LOG.warn("Failed to delete join spill file {}", spillFile);
+    }
+    inMemory.clear();
+  }
+
+  /**
+   * Reads back all spilled elements, closing the file once the last one has been read.
+   */
+  private final class SpilledIterator extends AbstractIterator<JoinElement<INPUT_RECORD>> {
+    private final int numElements;
+    private DataInputStream input;
+    private int numRead;
+
+    private SpilledIterator() {
+      this.numElements = numSpilled;
+    }
+
+    @Override
+    protected JoinElement<INPUT_RECORD> computeNext() {
+      if (numRead >= numElements) {
+        closeInput();
+        return endOfData();
+      }
+      try {
+        if (input == null) {
+          input = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile), BUFFER_SIZE));
+          openReaders.add(input);
+          if (readCodec == null) {
+            readCodec = codecSupplier.get();
+          }
+        }
+        numRead++;
+        return new JoinElement<>(stageName, readCodec.decode(input));
+      } catch (IOException e) {
+        closeInput();
+        throw Throwables.propagate(e);
+      }
+    }
+
+    private void closeInput() {
+      if (input != null) {
+        Closeables.closeQuietly(input);
+        openReaders.remove(input);
+        input = null;
+      }
+    }
+  }
+}
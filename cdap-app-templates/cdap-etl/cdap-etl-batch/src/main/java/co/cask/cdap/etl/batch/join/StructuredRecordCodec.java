@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.format.io.StructuredRecordDatumReader;
+import co.cask.cdap.format.io.StructuredRecordDatumWriter;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@link RecordCodec} for {@link StructuredRecord StructuredRecords} that uses the compact binary record encoding.
+ * The schema is only written when it differs from the schema of the previous record, which means it is usually
+ * written once per stream.
+ */
+public class StructuredRecordCodec implements RecordCodec<StructuredRecord> {
+  private final StructuredRecordDatumWriter datumWriter = new StructuredRecordDatumWriter();
+  private final StructuredRecordDatumReader datumReader = new StructuredRecordDatumReader();
+  private Schema writeSchema;
+  private Schema readSchema;
+
+  @Override
+  public void encode(StructuredRecord record, DataOutput out) throws IOException {
+    Schema schema = record.getSchema();
+    boolean schemaChanged = !schema.equals(writeSchema);
+    out.writeBoolean(schemaChanged);
+    if (schemaChanged) {
+      WritableUtils.writeString(out, schema.toString());
+      writeSchema = schema;
+    }
+    datumWriter.encode(record, new DataOutputEncoder(out));
+  }
+
+  @Override
+  public StructuredRecord decode(DataInput in) throws IOException {
+    if (in.readBoolean()) {
+      readSchema = Schema.parseJson(WritableUtils.readString(in));
+    }
+    return datumReader.read(new DataInputDecoder(in), readSchema);
+  }
+}
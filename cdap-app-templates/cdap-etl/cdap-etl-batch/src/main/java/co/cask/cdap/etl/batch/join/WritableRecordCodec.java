@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import co.cask.cdap.etl.batch.conversion.WritableConversion;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.ObjectWritable;
+import org.apache.hadoop.io.Writable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@link RecordCodec} that converts records to their {@link Writable} form and serializes them
+ * using Hadoop's {@link ObjectWritable}.
+ *
+ * @param <T> type of record
+ * @param <W> the Writable type the record is converted to
+ */
+public class WritableRecordCodec<T, W extends Writable> implements RecordCodec<T> {
+  private final WritableConversion<T, W> conversion;
+  private final Configuration conf;
+
+  public WritableRecordCodec(WritableConversion<T, W> conversion, Configuration conf) {
+    this.conversion = conversion;
+    this.conf = conf;
+  }
+
+  @Override
+  public void encode(T record, DataOutput out) throws IOException {
+    new ObjectWritable(conversion.toWritable(record)).write(out);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T decode(DataInput in) throws IOException {
+    ObjectWritable objectWritable = new ObjectWritable();
+    // ObjectWritable needs the conf in order to load the class of the record
+    objectWritable.setConf(conf);
+    objectWritable.readFields(in);
+    return conversion.fromWritable((W) objectWritable.get());
+  }
+}
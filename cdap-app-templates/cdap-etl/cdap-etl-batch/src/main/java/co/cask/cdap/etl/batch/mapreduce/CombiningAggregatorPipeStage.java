@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.mapreduce;
+
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.api.preview.DataTracer;
+import co.cask.cdap.etl.api.CombinableAggregator;
+import co.cask.cdap.etl.api.Destroyable;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.cdap.etl.api.Transformation;
+import co.cask.cdap.etl.batch.PipeStage;
+import co.cask.cdap.etl.batch.conversion.WritableConversion;
+import co.cask.cdap.etl.common.Constants;
+import co.cask.cdap.etl.common.Destroyables;
+import co.cask.cdap.etl.common.NoErrorEmitter;
+import co.cask.cdap.etl.common.RecordInfo;
+import co.cask.cdap.etl.common.StageStatisticsCollector;
+import co.cask.cdap.etl.common.TrackedTransform;
+import org.apache.hadoop.io.Writable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Map side stage for a {@link CombinableAggregator}. Instead of writing every input value to the shuffle,
+ * values with the same group key are combined in memory and only the combined value is written out.
+ * Combined values are written whenever the number of buffered groups reaches the configured maximum,
+ * and when the stage is flushed at the end of the map task.
+ *
+ * Groups are buffered by the Writable version of their key, since that is what the shuffle uses to decide
+ * whether two keys belong to the same group.
+ *
+ * Like the map side of other aggregators, the groupBy call is tracked for metrics, statistics and data tracing.
+ *
+ * @param <GROUP_KEY> type of group key output by the aggregator
+ * @param <GROUP_VAL> type of group value used by the aggregator
+ * @param <OUT_KEY> type of output key for mapreduce. Must implement WritableComparable
+ * @param <OUT_VAL> type of output value for mapreduce. Must implement Writable
+ */
+public class CombiningAggregatorPipeStage<GROUP_KEY, GROUP_VAL, OUT_KEY extends Writable, OUT_VAL extends Writable>
+  extends PipeStage<RecordInfo<GROUP_VAL>> {
+  private final CombinableAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator;
+  private final TrackedTransform<GROUP_VAL, GROUP_KEY> groupBy;
+  private final NoErrorEmitter<GROUP_KEY> groupKeyEmitter;
+  private final WritableConversion<GROUP_KEY, OUT_KEY> keyConversion;
+  private final WritableConversion<GROUP_VAL, OUT_VAL> valConversion;
+  private final int maxGroups;
+  private final Emitter<Object> emitter;
+  private final Map<OUT_KEY, KeyValue<GROUP_KEY, GROUP_VAL>> groups;
+
+  public CombiningAggregatorPipeStage(String stageName, CombinableAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator,
+                                      WritableConversion<GROUP_KEY, OUT_KEY> keyConversion,
+                                      WritableConversion<GROUP_VAL, OUT_VAL> valConversion,
+                                      int maxGroups, StageMetrics stageMetrics, DataTracer dataTracer,
+                                      StageStatisticsCollector collector, Emitter<Object> emitter) {
+    super(stageName);
+    this.aggregator = aggregator;
+    this.groupBy = new TrackedTransform<>(new GroupByTransformation<>(aggregator), stageMetrics,
+                                          Constants.Metrics.RECORDS_IN, null, dataTracer, collector);
+    this.groupKeyEmitter =
+      new NoErrorEmitter<>("Errors and Alerts cannot be emitted from the groupBy method of an aggregator");
+    this.keyConversion = keyConversion;
+    this.valConversion = valConversion;
+    this.maxGroups = maxGroups;
+    this.emitter = emitter;
+    this.groups = new LinkedHashMap<>();
+  }
+
+  @Override
+  protected void consumeInput(RecordInfo<GROUP_VAL> input) throws Exception {
+    GROUP_VAL value = input.getValue();
+    groupKeyEmitter.reset();
+    groupBy.transform(value, groupKeyEmitter);
+    for (GROUP_KEY groupKey : groupKeyEmitter.getEntries()) {
+      OUT_KEY writableKey = keyConversion.toWritable(groupKey);
+      KeyValue<GROUP_KEY, GROUP_VAL> existing = groups.get(writableKey);
+      if (existing == null) {
+        groups.put(writableKey, new KeyValue<>(groupKey, value));
+      } else {
+        groups.put(writableKey, new KeyValue<>(groupKey, aggregator.combine(existing.getValue(), value)));
+      }
+    }
+
+    if (groups.size() >= maxGroups) {
+      flushOutput();
+    }
+  }
+
+  @Override
+  protected void flushOutput() throws Exception {
+    for (Map.Entry<OUT_KEY, KeyValue<GROUP_KEY, GROUP_VAL>> entry : groups.entrySet()) {
+      emitter.emit(new KeyValue<>(entry.getKey(), valConversion.toWritable(entry.getValue().getValue())));
+    }
+    groups.clear();
+  }
+
+  @Override
+  public void destroy() {
+    groups.clear();
+    if (aggregator instanceof Destroyable) {
+      Destroyables.destroyQuietly((Destroyable) aggregator);
+    }
+  }
+
+  /**
+   * Transformation that emits the group keys of a value.
+   */
+  private static class GroupByTransformation<GROUP_KEY, GROUP_VAL> implements Transformation<GROUP_VAL, GROUP_KEY> {
+    private final CombinableAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator;
+
+    GroupByTransformation(CombinableAggregator<GROUP_KEY, GROUP_VAL, ?> aggregator) {
+      this.aggregator = aggregator;
+    }
+
+    @Override
+    public void transform(GROUP_VAL input, Emitter<GROUP_KEY> emitter) throws Exception {
+      aggregator.groupBy(input, emitter);
+    }
+  }
+}
@@ -98,6 +98,16 @@ public class ETLMapReduce extends AbstractMapReduce {
   static final String RUNTIME_ARGS_KEY = "cdap.etl.runtime.args";
   static final String INPUT_ALIAS_KEY = "cdap.etl.source.alias.key";
   static final String SINK_OUTPUTS_KEY = "cdap.etl.sink.outputs";
+  // maximum number of groups a combinable aggregator buffers in a mapper before writing them out
+  static final String COMBINER_MAX_GROUPS_KEY = "cdap.etl.combiner.max.groups";
+  static final int DEFAULT_COMBINER_MAX_GROUPS = 10000;
+  // maximum number of records a joiner keeps in memory for a single join key before spilling to local disk.
+  // A value that is not positive disables spilling
+  static final String JOIN_MAX_IN_MEMORY_RECORDS_KEY = "cdap.etl.join.max.inmemory.records";
+  static final int DEFAULT_JOIN_MAX_IN_MEMORY_RECORDS = 100000;
+  // number of records a batchable transform receives in each call
+  static final String TRANSFORM_BATCH_SIZE_KEY = "cdap.etl.transform.batch.size";
+  static final int DEFAULT_TRANSFORM_BATCH_SIZE = 1024;
   static final Type RUNTIME_ARGS_TYPE = new TypeToken<Map<String, String>>() { }.getType();
   static final Type INPUT_ALIAS_TYPE = new TypeToken<Map<String, String>>() { }.getType();
   static final Type SINK_OUTPUTS_TYPE = new TypeToken<Map<String, SinkOutput>>() { }.getType();
@@ -468,6 +478,19 @@ public class ETLMapReduce extends AbstractMapReduce {
       }
     }
 
+    @Override
+    protected void cleanup(Mapper.Context context) throws IOException, InterruptedException {
+      // write out anything buffered by the pipeline, such as values combined by an aggregator
+      try {
+        transformRunner.flush();
+      } catch (StageFailureException e) {
+        PIPELINE_LOG.error("{}", e.getMessage(), e.getCause());
+        Throwables.propagate(e.getCause());
+      } catch (Exception e) {
+        Throwables.propagate(e);
+      }
+    }
+
     @Override
     public void destroy() {
       transformRunner.destroy();
@@ -506,6 +529,19 @@ public class ETLMapReduce extends AbstractMapReduce {
       }
     }
 
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+      // write out anything buffered by the pipeline, such as records waiting to be transformed in a batch
+      try {
+        transformRunner.flush();
+      } catch (StageFailureException e) {
+        PIPELINE_LOG.error("{}", e.getMessage(), e.getCause());
+        Throwables.propagate(e.getCause());
+      } catch (Exception e) {
+        Throwables.propagate(e);
+      }
+    }
+
     @Override
     public void destroy() {
       transformRunner.destroy();
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.etl.batch.mapreduce;
 
+import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.dataset.lib.KeyValue;
 import co.cask.cdap.api.macro.MacroEvaluator;
 import co.cask.cdap.api.mapreduce.MapReduceTaskContext;
@@ -23,6 +24,8 @@ import co.cask.cdap.api.metrics.Metrics;
 import co.cask.cdap.api.preview.DataTracer;
 import co.cask.cdap.etl.api.Aggregator;
 import co.cask.cdap.etl.api.AlertPublisher;
+import co.cask.cdap.etl.api.BatchableTransformation;
+import co.cask.cdap.etl.api.CombinableAggregator;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.ErrorTransform;
 import co.cask.cdap.etl.api.JoinElement;
@@ -30,6 +33,7 @@ import co.cask.cdap.etl.api.Joiner;
 import co.cask.cdap.etl.api.SplitterTransform;
 import co.cask.cdap.etl.api.StageLifecycle;
 import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.cdap.etl.api.Transform;
 import co.cask.cdap.etl.api.TransformContext;
 import co.cask.cdap.etl.api.Transformation;
 import co.cask.cdap.etl.api.batch.BatchAggregator;
@@ -37,6 +41,7 @@ import co.cask.cdap.etl.api.batch.BatchJoiner;
 import co.cask.cdap.etl.api.batch.BatchJoinerRuntimeContext;
 import co.cask.cdap.etl.api.batch.BatchRuntimeContext;
 import co.cask.cdap.etl.api.batch.BatchSource;
+import co.cask.cdap.etl.batch.BatchingPipeStage;
 import co.cask.cdap.etl.batch.ConnectorSourceEmitter;
 import co.cask.cdap.etl.batch.DirectOutputPipeStage;
 import co.cask.cdap.etl.batch.MultiOutputTransformPipeStage;
@@ -48,6 +53,10 @@ import co.cask.cdap.etl.batch.UnwrapPipeStage;
 import co.cask.cdap.etl.batch.conversion.WritableConversion;
 import co.cask.cdap.etl.batch.conversion.WritableConversions;
 import co.cask.cdap.etl.batch.join.Join;
+import co.cask.cdap.etl.batch.join.JoinSpillConfig;
+import co.cask.cdap.etl.batch.join.RecordCodec;
+import co.cask.cdap.etl.batch.join.StructuredRecordCodec;
+import co.cask.cdap.etl.batch.join.WritableRecordCodec;
 import co.cask.cdap.etl.common.BasicArguments;
 import co.cask.cdap.etl.common.Constants;
 import co.cask.cdap.etl.common.DefaultMacroEvaluator;
@@ -58,12 +67,14 @@ import co.cask.cdap.etl.common.PipelinePhase;
 import co.cask.cdap.etl.common.PipelineRuntime;
 import co.cask.cdap.etl.common.RecordInfo;
 import co.cask.cdap.etl.common.StageStatisticsCollector;
+import co.cask.cdap.etl.common.TrackedBatchableTransform;
 import co.cask.cdap.etl.common.TrackedMultiOutputTransform;
 import co.cask.cdap.etl.common.TrackedTransform;
 import co.cask.cdap.etl.common.TransformExecutor;
 import co.cask.cdap.etl.common.preview.LimitingTransform;
 import co.cask.cdap.etl.spec.StageSpec;
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
 import org.apache.hadoop.conf.Configuration;
@@ -73,9 +84,11 @@ import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -157,9 +170,7 @@ public class MapReduceTransformExecutorFactory<T> {
     StageStatisticsCollector collector = isPipelineContainsCondition ?
       new MapReduceStageStatisticsCollector(stageName, taskAttemptContext) : new NoopStageStatisticsCollector();
     if (BatchAggregator.PLUGIN_TYPE.equals(pluginType)) {
-      BatchAggregator<?, ?, ?> batchAggregator = pluginInstantiator.newPluginInstance(stageName, macroEvaluator);
-      BatchRuntimeContext runtimeContext = createRuntimeContext(stageSpec);
-      batchAggregator.initialize(runtimeContext);
+      BatchAggregator<?, ?, ?> batchAggregator = getInitializedAggregator(stageSpec);
       if (isMapPhase) {
         return getTrackedEmitKeyStep(new MapperAggregatorTransformation(batchAggregator, mapOutputKeyClassName,
                                                                         mapOutputValClassName),
@@ -181,7 +192,8 @@ public class MapReduceTransformExecutorFactory<T> {
       } else {
         return getTrackedMergeStep(
           new ReducerJoinerTransformation(batchJoiner, mapOutputKeyClassName, mapOutputValClassName,
-                                          runtimeContext.getInputSchemas().size()), stageMetrics,
+                                          runtimeContext.getInputSchemas().size(),
+                                          createJoinSpillConfig(stageMetrics)), stageMetrics,
           taskContext.getDataTracer(stageName), collector);
       }
     }
@@ -215,9 +227,17 @@ public class MapReduceTransformExecutorFactory<T> {
     List<String> traversalOrder = pipeline.getDag().getTopologicalOrder();
     Collections.reverse(traversalOrder);
 
-    Map<String, PipeStage> pipeStages = new HashMap<>();
+    Map<String, PipeStage> reversePipeStages = new HashMap<>();
     for (String stageName : traversalOrder) {
-      pipeStages.put(stageName, getPipeStage(pipeline, stageName, pipeStages, outputWriter));
+      reversePipeStages.put(stageName, getPipeStage(pipeline, stageName, reversePipeStages, outputWriter));
+    }
+
+    // the executor flushes stages in iteration order, which must be topological so that records flushed by one
+    // stage are flushed by the stages after it
+    Collections.reverse(traversalOrder);
+    Map<String, PipeStage> pipeStages = new LinkedHashMap<>();
+    for (String stageName : traversalOrder) {
+      pipeStages.put(stageName, reversePipeStages.get(stageName));
     }
 
     // sourceStageName will be null in reducers, so need to handle that case
@@ -252,6 +272,8 @@ public class MapReduceTransformExecutorFactory<T> {
         // connectors and joiners require the getting the RecordInfo class directly instead of unwrapping it
         Transformation<RecordInfo<Object>, Object> sink = getTransformation(stageSpec);
         return new DirectOutputPipeStage<>(stageName, sink, new SinkEmitter<>(stageName, outputWriter));
+      } else if (isMapPhase && BatchAggregator.PLUGIN_TYPE.equals(pluginType)) {
+        return getMapperAggregatorPipeStage(stageSpec, new SinkEmitter<>(stageName, outputWriter));
       } else {
         // others (batchsink, aggregators, alertpublisher), only required the value within the RecordInfo
         return new UnwrapPipeStage<>(stageName, getTransformation(stageSpec),
@@ -299,11 +321,117 @@ public class MapReduceTransformExecutorFactory<T> {
     if (SplitterTransform.PLUGIN_TYPE.equals(pluginType)) {
       // this is a SplitterTransform, needs to emit records to the right outputs based on port
       return new MultiOutputTransformPipeStage<>(stageName, getMultiOutputTransform(stageSpec), pipeEmitter);
+    } else if (Transform.PLUGIN_TYPE.equals(pluginType)) {
+      return getTransformPipeStage(stageSpec, pipeEmitter);
     } else {
       return new UnwrapPipeStage<>(stageName, getTransformation(stageSpec), pipeEmitter);
     }
   }
 
+  /**
+   * Creates the pipe stage for a transform. If the transform is a {@link BatchableTransformation}, input records
+   * are buffered and transformed a batch at a time. Otherwise, each record is transformed as soon as it is received.
+   */
+  @SuppressWarnings("unchecked")
+  private PipeStage getTransformPipeStage(StageSpec stageSpec, Emitter<Object> emitter) throws Exception {
+    String stageName = stageSpec.getName();
+    Transformation transformation = getInitializedTransformation(stageSpec);
+    StageMetrics stageMetrics = new DefaultStageMetrics(metrics, stageName);
+    TaskAttemptContext taskAttemptContext = (TaskAttemptContext) taskContext.getHadoopContext();
+    StageStatisticsCollector collector = isPipelineContainsCondition ?
+      new MapReduceStageStatisticsCollector(stageName, taskAttemptContext) : new NoopStageStatisticsCollector();
+    DataTracer dataTracer = taskContext.getDataTracer(stageName);
+
+    if (!(transformation instanceof BatchableTransformation)) {
+      return new UnwrapPipeStage<>(stageName, new TrackedTransform<>(transformation, stageMetrics, dataTracer,
+                                                                     collector), emitter);
+    }
+
+    int batchSize = taskAttemptContext.getConfiguration().getInt(ETLMapReduce.TRANSFORM_BATCH_SIZE_KEY,
+                                                                 ETLMapReduce.DEFAULT_TRANSFORM_BATCH_SIZE);
+    return new BatchingPipeStage<>(stageName,
+                                   new TrackedBatchableTransform<>((BatchableTransformation) transformation,
+                                                                   stageMetrics, dataTracer, collector),
+                                   batchSize, emitter);
+  }
+
+  /**
+   * Creates the pipe stage for an aggregator in the map phase. If the aggregator is a {@link CombinableAggregator},
+   * values for the same group are combined before they are written to the shuffle. Otherwise, every value
+   * is written to the shuffle along with each of its group keys.
+   */
+  @SuppressWarnings("unchecked")
+  private PipeStage getMapperAggregatorPipeStage(StageSpec stageSpec, Emitter<Object> emitter) throws Exception {
+    String stageName = stageSpec.getName();
+    StageMetrics stageMetrics = new DefaultStageMetrics(metrics, stageName);
+    TaskAttemptContext taskAttemptContext = (TaskAttemptContext) taskContext.getHadoopContext();
+    StageStatisticsCollector collector = isPipelineContainsCondition ?
+      new MapReduceStageStatisticsCollector(stageName, taskAttemptContext) : new NoopStageStatisticsCollector();
+    BatchAggregator<?, ?, ?> batchAggregator = getInitializedAggregator(stageSpec);
+
+    if (!(batchAggregator instanceof CombinableAggregator)) {
+      return new UnwrapPipeStage<>(stageName,
+                                   getTrackedEmitKeyStep(new MapperAggregatorTransformation(batchAggregator,
+                                                                                            mapOutputKeyClassName,
+                                                                                            mapOutputValClassName),
+                                                         stageMetrics, taskContext.getDataTracer(stageName),
+                                                         collector),
+                                   emitter);
+    }
+
+    int maxGroups = taskAttemptContext.getConfiguration().getInt(ETLMapReduce.COMBINER_MAX_GROUPS_KEY,
+                                                                 ETLMapReduce.DEFAULT_COMBINER_MAX_GROUPS);
+    return new CombiningAggregatorPipeStage<>(stageName, (CombinableAggregator) batchAggregator,
+                                              getConversion(mapOutputKeyClassName),
+                                              getConversion(mapOutputValClassName),
+                                              maxGroups, stageMetrics, taskContext.getDataTracer(stageName),
+                                              collector, emitter);
+  }
+
+  /**
+   * Creates the config that determines when a joiner spills join elements to local disk in the reducer.
+   * StructuredRecords are spilled using the binary record encoding, everything else is spilled as a Writable.
+   *
+   * @return the spill config, or {@code null} if spilling is disabled
+   */
+  @Nullable
+  private <INPUT_RECORD> JoinSpillConfig<INPUT_RECORD> createJoinSpillConfig(StageMetrics stageMetrics) {
+    final Configuration hConf = ((JobContext) taskContext.getHadoopContext()).getConfiguration();
+    int maxInMemory = hConf.getInt(ETLMapReduce.JOIN_MAX_IN_MEMORY_RECORDS_KEY,
+                                   ETLMapReduce.DEFAULT_JOIN_MAX_IN_MEMORY_RECORDS);
+    if (maxInMemory <= 0) {
+      return null;
+    }
+    // task containers set java.io.tmpdir to a directory local to the container that is cleaned up with it
+    File spillDir = new File(System.getProperty("java.io.tmpdir"));
+    Supplier<RecordCodec<INPUT_RECORD>> codecSupplier = new Supplier<RecordCodec<INPUT_RECORD>>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public RecordCodec<INPUT_RECORD> get() {
+        if (StructuredRecord.class.getName().equals(mapOutputValClassName)) {
+          return (RecordCodec<INPUT_RECORD>) new StructuredRecordCodec();
+        }
+        return new WritableRecordCodec<>(MapReduceTransformExecutorFactory.<INPUT_RECORD, Writable>getConversion(
+          mapOutputValClassName), hConf);
+      }
+    };
+    return new JoinSpillConfig<>(maxInMemory, spillDir, codecSupplier, stageMetrics);
+  }
+
+  private BatchAggregator<?, ?, ?> getInitializedAggregator(StageSpec stageSpec) throws Exception {
+    BatchAggregator<?, ?, ?> batchAggregator = pluginInstantiator.newPluginInstance(stageSpec.getName(),
+                                                                                    macroEvaluator);
+    BatchRuntimeContext runtimeContext = createRuntimeContext(stageSpec);
+    batchAggregator.initialize(runtimeContext);
+    return batchAggregator;
+  }
+
+  private static <T, W extends Writable> WritableConversion<T, W> getConversion(String className) {
+    WritableConversion<T, W> conversion = WritableConversions.getConversion(className);
+    // if the conversion is null, it means the user is using a Writable already
+    return conversion == null ? new CastConversion<T, W>() : conversion;
+  }
+
   /**
    * Instantiates and initializes the plugin for the stage.
    *
@@ -396,9 +524,12 @@ public class MapReduceTransformExecutorFactory<T> {
     private final WritableConversion<JOIN_KEY, REDUCE_KEY> keyConversion;
     private final WritableConversion<INPUT_RECORD, REDUCE_VALUE> inputConversion;
     private final int numOfInputs;
+    @Nullable
+    private final JoinSpillConfig<INPUT_RECORD> spillConfig;
 
     ReducerJoinerTransformation(Joiner<JOIN_KEY, INPUT_RECORD, OUT> joiner, String joinKeyClassName,
-                                String joinInputClassName, int numOfInputs) {
+                                String joinInputClassName, int numOfInputs,
+                                @Nullable JoinSpillConfig<INPUT_RECORD> spillConfig) {
       this.joiner = joiner;
       WritableConversion<JOIN_KEY, REDUCE_KEY> keyConversion = WritableConversions.getConversion(joinKeyClassName);
       WritableConversion<INPUT_RECORD, REDUCE_VALUE> inputConversion =
@@ -407,6 +538,7 @@ public class MapReduceTransformExecutorFactory<T> {
       this.inputConversion = inputConversion == null ?
         new CastConversion<INPUT_RECORD, REDUCE_VALUE>() : inputConversion;
       this.numOfInputs = numOfInputs;
+      this.spillConfig = spillConfig;
     }
 
     @Override
@@ -422,7 +554,7 @@ public class MapReduceTransformExecutorFactory<T> {
           }
         });
 
-      Join join = new Join<>(joiner, joinKey, inputIterator, numOfInputs, emitter);
+      Join join = new Join<>(joiner, joinKey, inputIterator, numOfInputs, emitter, spillConfig);
       join.joinRecords();
     }
   }
@@ -142,6 +142,10 @@ public class TransformRunner<KEY, VALUE> {
     transformExecutor.runOneIteration(input);
   }
 
+  public void flush() {
+    transformExecutor.flush();
+  }
+
   public void destroy() {
     Destroyables.destroyQuietly(transformExecutor);
   }
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.batch;
+
+import co.cask.cdap.etl.api.BatchableTransformation;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.common.DefaultEmitter;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link BatchingPipeStage}.
+ */
+public class BatchingPipeStageTest {
+  private static final int NUM_STAGES = 10;
+
+  @Test
+  public void testBatchedChainMatchesPerRecordChain() {
+    List<IncrementTransform> batchedTransforms = new ArrayList<>();
+    DefaultEmitter<Object> batchedOutput = new DefaultEmitter<>();
+    PipeTransformExecutor<Integer> batched = createChain(batchedTransforms, true, 1024, batchedOutput);
+
+    List<IncrementTransform> perRecordTransforms = new ArrayList<>();
+    DefaultEmitter<Object> perRecordOutput = new DefaultEmitter<>();
+    PipeTransformExecutor<Integer> perRecord = createChain(perRecordTransforms, false, 1024, perRecordOutput);
+
+    for (int i = 0; i < 2500; i++) {
+      batched.runOneIteration(i);
+      perRecord.runOneIteration(i);
+    }
+    // the last partial batch should not be transformed until the executor is flushed
+    Assert.assertEquals(2048, batchedOutput.getEntries().size());
+    batched.flush();
+    perRecord.flush();
+
+    List<Object> expected = new ArrayList<>(perRecordOutput.getEntries());
+    Assert.assertEquals(2500, expected.size());
+    Assert.assertEquals(expected, new ArrayList<>(batchedOutput.getEntries()));
+    Assert.assertEquals(NUM_STAGES, expected.get(0));
+
+    // every stage should have been called once for each of the three batches, and never for individual records
+    for (IncrementTransform transform : batchedTransforms) {
+      Assert.assertEquals(3, transform.batchCalls);
+      Assert.assertEquals(0, transform.recordCalls);
+    }
+    for (IncrementTransform transform : perRecordTransforms) {
+      Assert.assertEquals(0, transform.batchCalls);
+      Assert.assertEquals(2500, transform.recordCalls);
+    }
+  }
+
+  @Test
+  public void testFlushWithoutInput() {
+    List<IncrementTransform> transforms = new ArrayList<>();
+    DefaultEmitter<Object> output = new DefaultEmitter<>();
+    PipeTransformExecutor<Integer> executor = createChain(transforms, true, 10, output);
+    executor.flush();
+    Assert.assertTrue(output.getEntries().isEmpty());
+    for (IncrementTransform transform : transforms) {
+      Assert.assertEquals(0, transform.batchCalls);
+    }
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() {
+    int numRecords = 5000000;
+    for (int run = 0; run < 3; run++) {
+      for (boolean isBatched : new boolean[] { false, true }) {
+        PipeTransformExecutor<Integer> executor =
+          createChain(new ArrayList<IncrementTransform>(), isBatched, 1024, new DiscardingEmitter());
+        long startTime = System.nanoTime();
+        for (int i = 0; i < numRecords; i++) {
+          executor.runOneIteration(i);
+        }
+        executor.flush();
+        long endTime = System.nanoTime();
+        System.out.println((isBatched ? "Batched" : "Per record") + " time spent: " +
+                             TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+      }
+    }
+  }
+
+  /**
+   * Creates a chain of transforms that each add one to their input.
+   */
+  private PipeTransformExecutor<Integer> createChain(List<IncrementTransform> transforms, boolean isBatched,
+                                                    int batchSize, Emitter<Object> output) {
+    List<String> stageNames = new ArrayList<>();
+    for (int i = 0; i < NUM_STAGES; i++) {
+      stageNames.add("t" + i);
+    }
+
+    // create stages in reverse order so that each stage's output exists when it is created
+    Map<String, PipeStage> reverseStages = new LinkedHashMap<>();
+    Emitter<Object> emitter = output;
+    for (int i = NUM_STAGES - 1; i >= 0; i--) {
+      String stageName = stageNames.get(i);
+      IncrementTransform transform = new IncrementTransform();
+      transforms.add(transform);
+      PipeStage stage = isBatched ? new BatchingPipeStage<>(stageName, transform, batchSize, emitter) :
+        new UnwrapPipeStage<>(stageName, transform, emitter);
+      reverseStages.put(stageName, stage);
+      if (i > 0) {
+        emitter = PipeEmitter.builder(stageNames.get(i - 1)).addOutputConsumer(stage).build();
+      }
+    }
+
+    Map<String, PipeStage> stages = new LinkedHashMap<>();
+    for (String stageName : stageNames) {
+      stages.put(stageName, reverseStages.get(stageName));
+    }
+    Collections.reverse(transforms);
+    return new PipeTransformExecutor<>(stages, ImmutableSet.of(stageNames.get(0)));
+  }
+
+  /**
+   * Adds one to its input, keeping track of how many times it was called.
+   */
+  private static class IncrementTransform implements BatchableTransformation<Integer, Object> {
+    private int recordCalls;
+    private int batchCalls;
+
+    @Override
+    public void transform(Integer input, Emitter<Object> emitter) {
+      recordCalls++;
+      emitter.emit(input + 1);
+    }
+
+    @Override
+    public void transformBatch(List<Integer> input, Emitter<Object> emitter) {
+      batchCalls++;
+      for (Integer value : input) {
+        emitter.emit(value + 1);
+      }
+    }
+  }
+
+  /**
+   * Drops all output, so that the speed test does not keep it in memory.
+   */
+  private static class DiscardingEmitter extends DefaultEmitter<Object> {
+
+    @Override
+    public void emit(Object value) {
+      // no-op
+    }
+  }
+}
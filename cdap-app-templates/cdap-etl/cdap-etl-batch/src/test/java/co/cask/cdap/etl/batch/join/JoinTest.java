@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.join;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.etl.api.JoinConfig;
+import co.cask.cdap.etl.api.JoinElement;
+import co.cask.cdap.etl.api.Joiner;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.cdap.etl.common.Constants;
+import co.cask.cdap.etl.common.DefaultEmitter;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link Join}.
+ */
+public class JoinTest {
+  private static final Schema PURCHASE_SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("item", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+  private static final Schema USER_SCHEMA = Schema.recordOf(
+    "user",
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("age", Schema.of(Schema.Type.INT)));
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSpilledJoinMatchesInMemoryJoin() throws Exception {
+    List<JoinElement<StructuredRecord>> input = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      input.add(new JoinElement<>("purchases", StructuredRecord.builder(PURCHASE_SCHEMA)
+        .set("user", "u0").set("item", "item" + i).set("price", i % 3 == 0 ? null : (double) i).build()));
+      if (i % 10 == 0) {
+        input.add(new JoinElement<>("users", StructuredRecord.builder(USER_SCHEMA)
+          .set("user", "u0").set("age", i).build()));
+      }
+    }
+
+    DefaultEmitter<String> inMemoryEmitter = new DefaultEmitter<>();
+    new Join<>(new ConcatJoiner(), "u0", input.iterator(), 2, inMemoryEmitter).joinRecords();
+
+    File spillDir = TMP_FOLDER.newFolder();
+    CountingStageMetrics metrics = new CountingStageMetrics();
+    JoinSpillConfig<StructuredRecord> spillConfig =
+      new JoinSpillConfig<>(7, spillDir, new Supplier<RecordCodec<StructuredRecord>>() {
+        @Override
+        public RecordCodec<StructuredRecord> get() {
+          return new StructuredRecordCodec();
+        }
+      }, metrics);
+    DefaultEmitter<String> spillingEmitter = new DefaultEmitter<>();
+    new Join<>(new ConcatJoiner(), "u0", input.iterator(), 2, spillingEmitter, spillConfig).joinRecords();
+
+    Assert.assertEquals(250, inMemoryEmitter.getEntries().size());
+    Assert.assertEquals(new HashSet<>(inMemoryEmitter.getEntries()), new HashSet<>(spillingEmitter.getEntries()));
+    Assert.assertTrue(metrics.get(Constants.Metrics.JOIN_SPILLS) > 0);
+    Assert.assertTrue(metrics.get(Constants.Metrics.JOIN_SPILL_BYTES) > 0);
+    // spill files are removed once the join key is processed
+    String[] remaining = spillDir.list();
+    Assert.assertNotNull(remaining);
+    Assert.assertEquals(0, remaining.length);
+  }
+
+  @Test
+  public void testMissingRequiredInput() throws Exception {
+    List<JoinElement<StructuredRecord>> input = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      input.add(new JoinElement<>("purchases", StructuredRecord.builder(PURCHASE_SCHEMA)
+        .set("user", "u1").set("item", "item" + i).set("price", (double) i).build()));
+    }
+    JoinSpillConfig<StructuredRecord> spillConfig =
+      new JoinSpillConfig<>(3, TMP_FOLDER.newFolder(), new Supplier<RecordCodec<StructuredRecord>>() {
+        @Override
+        public RecordCodec<StructuredRecord> get() {
+          return new StructuredRecordCodec();
+        }
+      }, null);
+    DefaultEmitter<String> emitter = new DefaultEmitter<>();
+    new Join<>(new ConcatJoiner(), "u1", input.iterator(), 2, emitter, spillConfig).joinRecords();
+    Assert.assertTrue(emitter.getEntries().isEmpty());
+  }
+
+  /**
+   * Inner join that outputs the items and ages of each joined row, ordered by stage.
+   */
+  private static class ConcatJoiner implements Joiner<String, StructuredRecord, String> {
+
+    @Override
+    public String joinOn(String stageName, StructuredRecord inputRecord) {
+      return inputRecord.get("user");
+    }
+
+    @Override
+    public JoinConfig getJoinConfig() {
+      return new JoinConfig(ImmutableSet.of("purchases", "users"));
+    }
+
+    @Override
+    public String merge(String joinKey, Iterable<JoinElement<StructuredRecord>> joinResult) {
+      Map<String, StructuredRecord> records = new HashMap<>();
+      for (JoinElement<StructuredRecord> joinElement : joinResult) {
+        records.put(joinElement.getStageName(), joinElement.getInputRecord());
+      }
+      StructuredRecord purchase = records.get("purchases");
+      return joinKey + ":" + purchase.get("item") + ":" + purchase.get("price") + ":" + records.get("users").get("age");
+    }
+  }
+
+  /**
+   * StageMetrics that keeps counts in memory.
+   */
+  private static class CountingStageMetrics implements StageMetrics {
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    int get(String metricName) {
+      Integer count = counts.get(metricName);
+      return count == null ? 0 : count;
+    }
+
+    @Override
+    public void count(String metricName, int delta) {
+      counts.put(metricName, get(metricName) + delta);
+    }
+
+    @Override
+    public void gauge(String metricName, long value) {
+      // no-op
+    }
+
+    @Override
+    public void pipelineCount(String metricName, int delta) {
+      // no-op
+    }
+
+    @Override
+    public void pipelineGauge(String metricName, long value) {
+      // no-op
+    }
+  }
+}
@@ -26,6 +26,7 @@ public final class Constants {
   public static final String PIPELINEID = "pipeline";
   public static final String PIPELINE_SPEC_KEY = "pipeline.spec";
   public static final String PIPELINE_PLAN = "pipeline.plan";
+  public static final String PIPELINE_PLAN_COST_KEY = "pipeline.plan.cost";
   public static final String STAGE_LOGGING_ENABLED = "stage.logging.enabled";
   public static final String EVENT_TYPE_TAG = "MDC:eventType";
   public static final String PIPELINE_LIFECYCLE_TAG_VALUE = "lifecycle";
@@ -82,6 +83,8 @@ public final class Constants {
     public static final String RECORDS_ALERT = "records.alert";
     public static final String AGG_GROUPS = "aggregator.groups";
     public static final String JOIN_KEYS = "joiner.keys";
+    public static final String JOIN_SPILLS = "joiner.spills";
+    public static final String JOIN_SPILL_BYTES = "joiner.spill.bytes";
   }
 
   /**
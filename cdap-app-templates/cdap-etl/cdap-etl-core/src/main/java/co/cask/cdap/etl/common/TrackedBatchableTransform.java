@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.api.preview.DataTracer;
+import co.cask.cdap.etl.api.BatchableTransformation;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.StageMetrics;
+
+import java.util.List;
+
+/**
+ * A {@link TrackedTransform} for a {@link BatchableTransformation}. Input metrics are emitted once per batch
+ * instead of once per record.
+ *
+ * @param <IN> Type of input object
+ * @param <OUT> Type of output object
+ */
+public class TrackedBatchableTransform<IN, OUT> extends TrackedTransform<IN, OUT>
+  implements BatchableTransformation<IN, OUT> {
+  private final BatchableTransformation<IN, OUT> transform;
+  private final StageMetrics metrics;
+  private final DataTracer dataTracer;
+  private final StageStatisticsCollector collector;
+
+  public TrackedBatchableTransform(BatchableTransformation<IN, OUT> transform, StageMetrics metrics,
+                                   DataTracer dataTracer, StageStatisticsCollector collector) {
+    super(transform, metrics, dataTracer, collector);
+    this.transform = transform;
+    this.metrics = metrics;
+    this.dataTracer = dataTracer;
+    this.collector = collector;
+  }
+
+  @Override
+  public void transformBatch(List<IN> input, Emitter<OUT> emitter) throws Exception {
+    metrics.count(Constants.Metrics.RECORDS_IN, input.size());
+    for (int i = 0; i < input.size(); i++) {
+      collector.incrementInputRecordCount();
+    }
+    transform.transformBatch(input, new TrackedEmitter<>(emitter, metrics, Constants.Metrics.RECORDS_OUT,
+                                                         dataTracer, collector));
+  }
+}
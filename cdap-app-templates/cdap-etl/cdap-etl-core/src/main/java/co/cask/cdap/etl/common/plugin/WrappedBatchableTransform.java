@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.common.plugin;
+
+import co.cask.cdap.etl.api.BatchableTransformation;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.Transform;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Wrapper around a {@link Transform} that is also a {@link BatchableTransformation}. Keeps the batch
+ * capability visible to the pipeline executors, which only ever see the wrapped plugin.
+ *
+ * @param <IN> type of input
+ * @param <OUT> type of output
+ */
+public class WrappedBatchableTransform<IN, OUT> extends WrappedTransform<IN, OUT>
+  implements BatchableTransformation<IN, OUT> {
+  private final BatchableTransformation<IN, OUT> batchableTransformation;
+  private final Caller caller;
+  private final OperationTimer operationTimer;
+
+  @SuppressWarnings("unchecked")
+  public WrappedBatchableTransform(Transform<IN, OUT> transform, Caller caller, OperationTimer operationTimer) {
+    super(transform, caller, operationTimer);
+    this.batchableTransformation = (BatchableTransformation<IN, OUT>) transform;
+    this.caller = caller;
+    this.operationTimer = operationTimer;
+  }
+
+  @Override
+  public void transformBatch(final List<IN> input, final Emitter<OUT> emitter) throws Exception {
+    operationTimer.start();
+    try {
+      caller.call(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          batchableTransformation.transformBatch(input, new UntimedEmitter<>(emitter, operationTimer));
+          return null;
+        }
+      });
+    } finally {
+      operationTimer.reset();
+    }
+  }
+}
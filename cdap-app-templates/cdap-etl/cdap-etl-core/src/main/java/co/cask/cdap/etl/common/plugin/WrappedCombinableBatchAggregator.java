@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.common.plugin;
+
+import co.cask.cdap.etl.api.CombinableAggregator;
+import co.cask.cdap.etl.api.batch.BatchAggregator;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Wrapper around a {@link BatchAggregator} that is also a {@link CombinableAggregator}. Keeps the combine
+ * capability visible to the pipeline executors, which only ever see the wrapped plugin.
+ *
+ * @param <GROUP_KEY> group key type. Must be a supported type
+ * @param <GROUP_VALUE> group value type. Must be a supported type
+ * @param <OUT> output object type
+ */
+public class WrappedCombinableBatchAggregator<GROUP_KEY, GROUP_VALUE, OUT>
+  extends WrappedBatchAggregator<GROUP_KEY, GROUP_VALUE, OUT>
+  implements CombinableAggregator<GROUP_KEY, GROUP_VALUE, OUT> {
+  private final CombinableAggregator<GROUP_KEY, GROUP_VALUE, OUT> combinableAggregator;
+  private final Caller caller;
+  private final OperationTimer operationTimer;
+
+  @SuppressWarnings("unchecked")
+  public WrappedCombinableBatchAggregator(BatchAggregator<GROUP_KEY, GROUP_VALUE, OUT> aggregator, Caller caller,
+                                          OperationTimer operationTimer) {
+    super(aggregator, caller, operationTimer);
+    this.combinableAggregator = (CombinableAggregator<GROUP_KEY, GROUP_VALUE, OUT>) aggregator;
+    this.caller = caller;
+    this.operationTimer = operationTimer;
+  }
+
+  @Override
+  public GROUP_VALUE combine(final GROUP_VALUE value1, final GROUP_VALUE value2) throws Exception {
+    operationTimer.start();
+    try {
+      return caller.call(new Callable<GROUP_VALUE>() {
+        @Override
+        public GROUP_VALUE call() throws Exception {
+          return combinableAggregator.combine(value1, value2);
+        }
+      });
+    } finally {
+      operationTimer.reset();
+    }
+  }
+}
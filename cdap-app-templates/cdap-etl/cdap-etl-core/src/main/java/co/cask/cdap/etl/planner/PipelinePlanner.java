@@ -261,6 +261,42 @@ public class PipelinePlanner {
     return new PipelinePlan(phases, phaseConnections);
   }
 
+  /**
+   * Estimate the cost of running the given plan. Phases are assumed to be created by this planner, so that
+   * connectors that are sources of a phase are read by it and connectors that are sinks of a phase are written by it.
+   *
+   * @param plan the plan to estimate the cost of
+   * @return the estimated cost of the plan
+   */
+  public PlanCost estimateCost(PipelinePlan plan) {
+    Set<String> connectors = new HashSet<>();
+    Map<String, PlanCost.PhaseCost> phaseCosts = new HashMap<>();
+    for (Map.Entry<String, PipelinePhase> phaseEntry : plan.getPhases().entrySet()) {
+      PipelinePhase phase = phaseEntry.getValue();
+      int reduceStages = 0;
+      int connectorReads = 0;
+      int connectorWrites = 0;
+      for (StageSpec stageSpec : phase) {
+        String pluginType = stageSpec.getPlugin().getType();
+        if (reduceTypes.contains(pluginType)) {
+          reduceStages++;
+        }
+        if (!Constants.Connector.PLUGIN_TYPE.equals(pluginType)) {
+          continue;
+        }
+        connectors.add(stageSpec.getName());
+        if (phase.getSources().contains(stageSpec.getName())) {
+          connectorReads++;
+        } else {
+          connectorWrites++;
+        }
+      }
+      phaseCosts.put(phaseEntry.getKey(),
+                     new PlanCost.PhaseCost(phase.size(), reduceStages, connectorReads, connectorWrites));
+    }
+    return new PlanCost(connectors.size(), phaseCosts);
+  }
+
   /**
    * This method is responsible for returning {@link Map} of condition and associated connector name.
    * By default each condition will have associated connector named as conditionname.connector. This connector
@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.planner;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Estimated cost of running a {@link PipelinePlan}. The main cost of splitting a pipeline into multiple phases is
+ * that the data at each connector has to be fully written to a local dataset by one phase and fully read back by
+ * every phase that uses it. The number of connector accesses counts every time a connector dataset is written or
+ * read in its entirety, which can be compared across plans of the same pipeline.
+ */
+public class PlanCost {
+  private final int phases;
+  private final int reducePhases;
+  private final int connectors;
+  private final int connectorWrites;
+  private final int connectorReads;
+  private final int connectorAccesses;
+  private final Map<String, PhaseCost> phaseCosts;
+
+  public PlanCost(int connectors, Map<String, PhaseCost> phaseCosts) {
+    int reducePhases = 0;
+    int connectorWrites = 0;
+    int connectorReads = 0;
+    for (PhaseCost phaseCost : phaseCosts.values()) {
+      reducePhases += phaseCost.getReduceStages() > 0 ? 1 : 0;
+      connectorWrites += phaseCost.getConnectorWrites();
+      connectorReads += phaseCost.getConnectorReads();
+    }
+    this.phases = phaseCosts.size();
+    this.reducePhases = reducePhases;
+    this.connectors = connectors;
+    this.connectorWrites = connectorWrites;
+    this.connectorReads = connectorReads;
+    this.connectorAccesses = connectorWrites + connectorReads;
+    this.phaseCosts = ImmutableMap.copyOf(phaseCosts);
+  }
+
+  /**
+   * @return number of phases in the plan
+   */
+  public int getPhases() {
+    return phases;
+  }
+
+  /**
+   * @return number of phases that contain a reduce stage, which requires a shuffle
+   */
+  public int getReducePhases() {
+    return reducePhases;
+  }
+
+  /**
+   * @return number of connector datasets in the plan
+   */
+  public int getConnectors() {
+    return connectors;
+  }
+
+  /**
+   * @return number of times a connector dataset is written
+   */
+  public int getConnectorWrites() {
+    return connectorWrites;
+  }
+
+  /**
+   * @return number of times a connector dataset is read
+   */
+  public int getConnectorReads() {
+    return connectorReads;
+  }
+
+  /**
+   * @return number of times a connector dataset is written or read, which is the sum of connector writes and reads
+   */
+  public int getConnectorAccesses() {
+    return connectorAccesses;
+  }
+
+  /**
+   * @return phase name to the estimated cost of that phase
+   */
+  public Map<String, PhaseCost> getPhaseCosts() {
+    return phaseCosts;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    PlanCost that = (PlanCost) o;
+
+    return connectors == that.connectors && Objects.equals(phaseCosts, that.phaseCosts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(connectors, phaseCosts);
+  }
+
+  @Override
+  public String toString() {
+    return "PlanCost{" +
+      "phases=" + phases +
+      ", reducePhases=" + reducePhases +
+      ", connectors=" + connectors +
+      ", connectorWrites=" + connectorWrites +
+      ", connectorReads=" + connectorReads +
+      ", connectorAccesses=" + connectorAccesses +
+      ", phaseCosts=" + phaseCosts +
+      '}';
+  }
+
+  /**
+   * Estimated cost of a single phase in the plan.
+   */
+  public static class PhaseCost {
+    private final int stages;
+    private final int reduceStages;
+    private final int connectorReads;
+    private final int connectorWrites;
+
+    public PhaseCost(int stages, int reduceStages, int connectorReads, int connectorWrites) {
+      this.stages = stages;
+      this.reduceStages = reduceStages;
+      this.connectorReads = connectorReads;
+      this.connectorWrites = connectorWrites;
+    }
+
+    /**
+     * @return number of stages in the phase, including connectors
+     */
+    public int getStages() {
+      return stages;
+    }
+
+    /**
+     * @return number of reduce stages in the phase
+     */
+    public int getReduceStages() {
+      return reduceStages;
+    }
+
+    /**
+     * @return number of connector datasets read by the phase
+     */
+    public int getConnectorReads() {
+      return connectorReads;
+    }
+
+    /**
+     * @return number of connector datasets written by the phase
+     */
+    public int getConnectorWrites() {
+      return connectorWrites;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      PhaseCost that = (PhaseCost) o;
+
+      return stages == that.stages && reduceStages == that.reduceStages &&
+        connectorReads == that.connectorReads && connectorWrites == that.connectorWrites;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(stages, reduceStages, connectorReads, connectorWrites);
+    }
+
+    @Override
+    public String toString() {
+      return "PhaseCost{" +
+        "stages=" + stages +
+        ", reduceStages=" + reduceStages +
+        ", connectorReads=" + connectorReads +
+        ", connectorWrites=" + connectorWrites +
+        '}';
+    }
+  }
+}
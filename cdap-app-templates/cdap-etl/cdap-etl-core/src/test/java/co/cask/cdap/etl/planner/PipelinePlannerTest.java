@@ -287,6 +287,57 @@ public class PipelinePlannerTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testEstimateCost() {
+    /*
+             |--- n2(r) --- n3
+        n1 --|
+             |--- n4(r) --- n5
+
+        should be planned as:
+
+                                    |--- n2(r) --- n3
+        n1 --- n1.out.connector  ---|
+                                    |--- n4(r) --- n5
+
+        with a single connector written once and read by both reduce phases.
+     */
+    Set<StageSpec> stageSpecs = ImmutableSet.of(
+      StageSpec.builder("n1", NODE).build(),
+      StageSpec.builder("n2", REDUCE).build(),
+      StageSpec.builder("n3", NODE).build(),
+      StageSpec.builder("n4", REDUCE).build(),
+      StageSpec.builder("n5", NODE).build()
+    );
+    Set<Connection> connections = ImmutableSet.of(
+      new Connection("n1", "n2"),
+      new Connection("n2", "n3"),
+      new Connection("n1", "n4"),
+      new Connection("n4", "n5")
+    );
+    Set<String> pluginTypes = ImmutableSet.of(NODE.getType(), REDUCE.getType(), Constants.Connector.PLUGIN_TYPE);
+    Set<String> reduceTypes = ImmutableSet.of(REDUCE.getType());
+    Set<String> emptySet = ImmutableSet.of();
+    PipelinePlanner planner = new PipelinePlanner(pluginTypes, reduceTypes, emptySet, emptySet, emptySet);
+    PipelineSpec pipelineSpec = PipelineSpec.builder().addStages(stageSpecs).addConnections(connections).build();
+
+    PipelinePlan plan = planner.plan(pipelineSpec);
+    PlanCost cost = planner.estimateCost(plan);
+    Assert.assertEquals(3, cost.getPhases());
+    Assert.assertEquals(2, cost.getReducePhases());
+    Assert.assertEquals(1, cost.getConnectors());
+    Assert.assertEquals(1, cost.getConnectorWrites());
+    Assert.assertEquals(2, cost.getConnectorReads());
+    Assert.assertEquals(3, cost.getConnectorAccesses());
+
+    String n1Phase = PipelinePlanner.getPhaseName(new Dag(ImmutableSet.of(new Connection("n1", "n1.out.connector"))));
+    String n3Phase = PipelinePlanner.getPhaseName(new Dag(ImmutableSet.of(new Connection("n1.out.connector", "n2"),
+                                                                          new Connection("n2", "n3"))));
+    Assert.assertEquals(plan.getPhases().keySet(), cost.getPhaseCosts().keySet());
+    Assert.assertEquals(new PlanCost.PhaseCost(2, 0, 0, 1), cost.getPhaseCosts().get(n1Phase));
+    Assert.assertEquals(new PlanCost.PhaseCost(3, 1, 1, 0), cost.getPhaseCosts().get(n3Phase));
+  }
+
   @Test
   public void testSimpleCondition() {
     /*
@@ -21,6 +21,8 @@ import co.cask.cdap.api.spark.JavaSparkExecutionContext;
 import co.cask.cdap.etl.api.Alert;
 import co.cask.cdap.etl.api.AlertPublisher;
 import co.cask.cdap.etl.api.AlertPublisherContext;
+import co.cask.cdap.etl.api.BatchableTransformation;
+import co.cask.cdap.etl.api.CombinableAggregator;
 import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.batch.SparkCompute;
 import co.cask.cdap.etl.api.batch.SparkExecutionPluginContext;
@@ -38,12 +40,15 @@ import co.cask.cdap.etl.spark.SparkCollection;
 import co.cask.cdap.etl.spark.SparkPairCollection;
 import co.cask.cdap.etl.spark.SparkPipelineRuntime;
 import co.cask.cdap.etl.spark.function.AggregatorAggregateFunction;
+import co.cask.cdap.etl.spark.function.AggregatorCombineFunction;
 import co.cask.cdap.etl.spark.function.AggregatorGroupByFunction;
+import co.cask.cdap.etl.spark.function.BatchTransformFunction;
 import co.cask.cdap.etl.spark.function.CountingFunction;
 import co.cask.cdap.etl.spark.function.FlatMapFunc;
 import co.cask.cdap.etl.spark.function.MultiOutputTransformFunction;
 import co.cask.cdap.etl.spark.function.PairFlatMapFunc;
 import co.cask.cdap.etl.spark.function.PluginFunctionContext;
+import co.cask.cdap.etl.spark.function.SingletonIterableFunction;
 import co.cask.cdap.etl.spark.function.TransformFunction;
 import co.cask.cdap.etl.spec.StageSpec;
 import com.google.gson.Gson;
@@ -51,9 +56,11 @@ import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.Function2;
 import org.apache.spark.api.java.function.PairFlatMapFunction;
 import scala.Tuple2;
 
+import java.util.Iterator;
 import javax.annotation.Nullable;
 
 
@@ -64,6 +71,9 @@ import javax.annotation.Nullable;
  */
 public class RDDCollection<T> implements SparkCollection<T> {
   private static final Gson GSON = new Gson();
+  // number of records a batchable transform receives in each call. Can be set through the pipeline properties.
+  private static final String TRANSFORM_BATCH_SIZE_KEY = "spark.cdap.etl.transform.batch.size";
+  private static final int DEFAULT_TRANSFORM_BATCH_SIZE = 1024;
   private final JavaSparkExecutionContext sec;
   private final JavaSparkContext jsc;
   private final DatasetContext datasetContext;
@@ -97,8 +107,16 @@ public class RDDCollection<T> implements SparkCollection<T> {
   }
 
   @Override
-  public SparkCollection<RecordInfo<Object>> transform(StageSpec stageSpec, StageStatisticsCollector collector) {
+  public SparkCollection<RecordInfo<Object>> transform(StageSpec stageSpec,
+                                                       StageStatisticsCollector collector) throws Exception {
     PluginFunctionContext pluginFunctionContext = new PluginFunctionContext(stageSpec, sec, collector);
+    if (pluginFunctionContext.isPluginType(BatchableTransformation.class)) {
+      // transform each partition a batch at a time instead of calling the plugin for every record
+      int batchSize = jsc.getConf().getInt(TRANSFORM_BATCH_SIZE_KEY, DEFAULT_TRANSFORM_BATCH_SIZE);
+      FlatMapFunc<Iterator<T>, RecordInfo<Object>> batchFunction =
+        new BatchTransformFunction<>(pluginFunctionContext, batchSize);
+      return wrap(rdd.mapPartitions(Compat.convert(batchFunction)));
+    }
     return wrap(rdd.flatMap(Compat.convert(new TransformFunction<T>(pluginFunctionContext))));
   }
 
@@ -123,8 +141,16 @@ public class RDDCollection<T> implements SparkCollection<T> {
 
     JavaPairRDD<Object, T> keyedCollection = rdd.flatMapToPair(sparkGroupByFunction);
 
-    JavaPairRDD<Object, Iterable<T>> groupedCollection = partitions == null ?
-      keyedCollection.groupByKey() : keyedCollection.groupByKey(partitions);
+    JavaPairRDD<Object, Iterable<T>> groupedCollection;
+    if (pluginFunctionContext.isPluginType(CombinableAggregator.class)) {
+      // combine values map side and only send a single value per group to the aggregate function
+      Function2<T, T, T> combineFunction = new AggregatorCombineFunction<>(pluginFunctionContext);
+      JavaPairRDD<Object, T> combinedCollection = partitions == null ?
+        keyedCollection.reduceByKey(combineFunction) : keyedCollection.reduceByKey(combineFunction, partitions);
+      groupedCollection = combinedCollection.mapValues(new SingletonIterableFunction<T>());
+    } else {
+      groupedCollection = partitions == null ? keyedCollection.groupByKey() : keyedCollection.groupByKey(partitions);
+    }
 
     FlatMapFunc<Tuple2<Object, Iterable<T>>, RecordInfo<Object>> aggregateFunction =
       new AggregatorAggregateFunction<>(pluginFunctionContext);
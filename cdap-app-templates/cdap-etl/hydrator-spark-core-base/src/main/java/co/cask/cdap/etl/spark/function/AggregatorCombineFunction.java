@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.spark.function;
+
+import co.cask.cdap.etl.api.CombinableAggregator;
+import co.cask.cdap.etl.api.batch.BatchAggregator;
+import co.cask.cdap.etl.common.Destroyables;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.util.TaskCompletionListener;
+
+/**
+ * Function that uses a {@link CombinableAggregator} to combine two values in the same group.
+ * Used to reduce values by key instead of grouping all of them before aggregation.
+ * Non-serializable fields are lazily created since this is used in a Spark closure. The aggregator is destroyed
+ * when the task that created it completes.
+ *
+ * @param <GROUP_VAL> type of group value
+ */
+public class AggregatorCombineFunction<GROUP_VAL> implements Function2<GROUP_VAL, GROUP_VAL, GROUP_VAL> {
+  private final PluginFunctionContext pluginFunctionContext;
+  private transient CombinableAggregator<?, GROUP_VAL, ?> aggregator;
+
+  public AggregatorCombineFunction(PluginFunctionContext pluginFunctionContext) {
+    this.pluginFunctionContext = pluginFunctionContext;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public GROUP_VAL call(GROUP_VAL value1, GROUP_VAL value2) throws Exception {
+    if (aggregator == null) {
+      final BatchAggregator<?, GROUP_VAL, ?> batchAggregator = pluginFunctionContext.createPlugin();
+      batchAggregator.initialize(pluginFunctionContext.createBatchRuntimeContext());
+      aggregator = (CombinableAggregator<?, GROUP_VAL, ?>) batchAggregator;
+      TaskContext taskContext = TaskContext.get();
+      if (taskContext != null) {
+        taskContext.addTaskCompletionListener(new TaskCompletionListener() {
+          @Override
+          public void onTaskCompletion(TaskContext context) {
+            aggregator = null;
+            Destroyables.destroyQuietly(batchAggregator);
+          }
+        });
+      }
+    }
+    return aggregator.combine(value1, value2);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.etl.spark.function;
+
+import co.cask.cdap.etl.api.BatchableTransformation;
+import co.cask.cdap.etl.api.Transform;
+import co.cask.cdap.etl.common.RecordInfo;
+import co.cask.cdap.etl.common.TrackedBatchableTransform;
+import co.cask.cdap.etl.spark.CombinedEmitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Function that uses a Transform that is also a {@link BatchableTransformation} to transform an entire partition.
+ * Records in the partition are read in batches and the transform is called once per batch. Batches are read lazily,
+ * so only a single batch of input and its output are held in memory at a time.
+ * Non-serializable fields are lazily created since this is used in a Spark closure.
+ *
+ * @param <T> type of input object
+ */
+public class BatchTransformFunction<T> implements FlatMapFunc<Iterator<T>, RecordInfo<Object>> {
+  private final PluginFunctionContext pluginFunctionContext;
+  private final int batchSize;
+  private transient TrackedBatchableTransform<T, Object> transform;
+  private transient CombinedEmitter<Object> emitter;
+
+  public BatchTransformFunction(PluginFunctionContext pluginFunctionContext, int batchSize) {
+    this.pluginFunctionContext = pluginFunctionContext;
+    this.batchSize = batchSize;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public Iterable<RecordInfo<Object>> call(final Iterator<T> input) throws Exception {
+    if (transform == null) {
+      Transform<T, Object> plugin = pluginFunctionContext.createPlugin();
+      plugin.initialize(pluginFunctionContext.createBatchRuntimeContext());
+      transform = new TrackedBatchableTransform<>((BatchableTransformation<T, Object>) plugin,
+                                                  pluginFunctionContext.createStageMetrics(),
+                                                  pluginFunctionContext.getDataTracer(),
+                                                  pluginFunctionContext.getStageStatisticsCollector());
+      emitter = new CombinedEmitter<>(pluginFunctionContext.getStageName());
+    }
+    return new Iterable<RecordInfo<Object>>() {
+      @Override
+      public Iterator<RecordInfo<Object>> iterator() {
+        return new BatchIterator(input);
+      }
+    };
+  }
+
+  /**
+   * Iterates over the output of each batch, transforming the next batch when the current output is exhausted.
+   */
+  private final class BatchIterator extends AbstractIterator<RecordInfo<Object>> {
+    private final Iterator<T> input;
+    private final List<T> batch;
+    private Iterator<RecordInfo<Object>> output;
+
+    private BatchIterator(Iterator<T> input) {
+      this.input = input;
+      this.batch = new ArrayList<>(batchSize);
+      this.output = Collections.emptyIterator();
+    }
+
+    @Override
+    protected RecordInfo<Object> computeNext() {
+      while (!output.hasNext()) {
+        if (!input.hasNext()) {
+          return endOfData();
+        }
+        while (batch.size() < batchSize && input.hasNext()) {
+          batch.add(input.next());
+        }
+        emitter.reset();
+        try {
+          transform.transformBatch(batch, emitter);
+        } catch (Exception e) {
+          throw Throwables.propagate(e);
+        } finally {
+          batch.clear();
+        }
+        output = emitter.getEmitted().iterator();
+      }
+      return output.next();
+    }
+  }
+}
@@ -94,6 +94,19 @@ public class PluginFunctionContext implements Serializable {
     return getPluginContext().newPluginInstance(stageSpec.getName(), macroEvaluator);
   }
 
+  /**
+   * Returns whether the plugin for the stage is of the given type. The plugin class is checked so that no plugin
+   * instance needs to be created.
+   */
+  public boolean isPluginType(Class<?> type) {
+    if (Constants.Connector.PLUGIN_TYPE.equals(stageSpec.getPluginType())) {
+      String connectorType = stageSpec.getPlugin().getProperties().get(Constants.Connector.TYPE);
+      return connectorType.equals(Constants.Connector.SOURCE_TYPE) ?
+        type.isAssignableFrom(SingleConnectorSource.class) : type.isAssignableFrom(SingleConnectorSink.class);
+    }
+    return type.isAssignableFrom(getPluginContext().loadPluginClass(stageSpec.getName()));
+  }
+
   public String getStageName() {
     return stageSpec.getName();
   }
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.spark.function;
+
+import org.apache.spark.api.java.function.Function;
+
+import java.util.Collections;
+
+/**
+ * Function that wraps a single value in an Iterable. Used to pass values that were already reduced by key
+ * to functions that expect a group of values.
+ *
+ * @param <T> type of value
+ */
+public class SingletonIterableFunction<T> implements Function<T, Iterable<T>> {
+
+  @Override
+  public Iterable<T> call(T value) throws Exception {
+    return Collections.singletonList(value);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.mock.batch.aggregator;
+
+import co.cask.cdap.api.annotation.Name;
+import co.cask.cdap.api.annotation.Plugin;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.plugin.PluginClass;
+import co.cask.cdap.etl.api.CombinableAggregator;
+import co.cask.cdap.etl.api.batch.BatchAggregator;
+import co.cask.cdap.etl.proto.v2.ETLPlugin;
+
+/**
+ * A {@link FieldSumAggregator} that combines values of the same group before they are aggregated.
+ */
+@Plugin(type = BatchAggregator.PLUGIN_TYPE)
+@Name("CombinableFieldSum")
+public class CombinableFieldSumAggregator extends FieldSumAggregator
+  implements CombinableAggregator<String, StructuredRecord, StructuredRecord> {
+  public static final PluginClass PLUGIN_CLASS = getPluginClass("CombinableFieldSum",
+                                                                CombinableFieldSumAggregator.class);
+
+  public CombinableFieldSumAggregator(Config config) {
+    super(config);
+  }
+
+  @Override
+  public StructuredRecord combine(StructuredRecord value1, StructuredRecord value2) throws Exception {
+    // keep all other fields of the first value, only the summed field is looked at by aggregate
+    StructuredRecord.Builder builder = StructuredRecord.builder(value1.getSchema());
+    for (Schema.Field field : value1.getSchema().getFields()) {
+      builder.set(field.getName(), value1.get(field.getName()));
+    }
+    long sum = value1.<Long>get(config.sumField) + value2.<Long>get(config.sumField);
+    return builder.set(config.sumField, sum).build();
+  }
+
+  public static ETLPlugin getPlugin(String groupField, String sumField) {
+    return getPlugin("CombinableFieldSum", groupField, sumField);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.mock.batch.aggregator;
+
+import co.cask.cdap.api.annotation.Name;
+import co.cask.cdap.api.annotation.Plugin;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.plugin.PluginClass;
+import co.cask.cdap.api.plugin.PluginConfig;
+import co.cask.cdap.api.plugin.PluginPropertyField;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.PipelineConfigurer;
+import co.cask.cdap.etl.api.batch.BatchAggregator;
+import co.cask.cdap.etl.api.batch.BatchAggregatorContext;
+import co.cask.cdap.etl.proto.v2.ETLPlugin;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Groups on a string field and sums up a long field. Every record is also added to an 'all' group.
+ * Used together with {@link CombinableFieldSumAggregator} to test that combining values gives the same results.
+ */
+@Plugin(type = BatchAggregator.PLUGIN_TYPE)
+@Name("FieldSum")
+public class FieldSumAggregator extends BatchAggregator<String, StructuredRecord, StructuredRecord> {
+  public static final PluginClass PLUGIN_CLASS = getPluginClass("FieldSum", FieldSumAggregator.class);
+  protected final Config config;
+
+  public FieldSumAggregator(Config config) {
+    this.config = config;
+  }
+
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
+    pipelineConfigurer.getStageConfigurer().setOutputSchema(config.getSchema());
+  }
+
+  @Override
+  public void prepareRun(BatchAggregatorContext context) throws Exception {
+    context.setGroupKeyClass(String.class);
+  }
+
+  @Override
+  public void groupBy(StructuredRecord input, Emitter<String> emitter) throws Exception {
+    emitter.emit(input.get(config.groupField).toString());
+    emitter.emit("all");
+  }
+
+  @Override
+  public void aggregate(String groupKey, Iterator<StructuredRecord> groupValues,
+                        Emitter<StructuredRecord> emitter) throws Exception {
+    long sum = 0;
+    while (groupValues.hasNext()) {
+      sum += groupValues.next().<Long>get(config.sumField);
+    }
+    emitter.emit(StructuredRecord.builder(config.getSchema())
+                   .set(config.groupField, groupKey)
+                   .set(config.sumField, sum)
+                   .build());
+  }
+
+  /**
+   * Conf for the aggregator.
+   */
+  public static class Config extends PluginConfig {
+    protected final String groupField;
+
+    protected final String sumField;
+
+    public Config() {
+      this.groupField = "group";
+      this.sumField = "value";
+    }
+
+    private Schema getSchema() {
+      return Schema.recordOf(groupField + ".sum",
+                             Schema.Field.of(groupField, Schema.of(Schema.Type.STRING)),
+                             Schema.Field.of(sumField, Schema.of(Schema.Type.LONG)));
+    }
+  }
+
+  public static ETLPlugin getPlugin(String groupField, String sumField) {
+    return getPlugin("FieldSum", groupField, sumField);
+  }
+
+  static ETLPlugin getPlugin(String name, String groupField, String sumField) {
+    Map<String, String> properties = new HashMap<>();
+    properties.put("groupField", groupField);
+    properties.put("sumField", sumField);
+    return new ETLPlugin(name, BatchAggregator.PLUGIN_TYPE, properties, null);
+  }
+
+  static PluginClass getPluginClass(String name, Class<? extends FieldSumAggregator> pluginClass) {
+    Map<String, PluginPropertyField> properties = new HashMap<>();
+    properties.put("groupField", new PluginPropertyField("groupField", "", "string", true, false));
+    properties.put("sumField", new PluginPropertyField("sumField", "", "string", true, false));
+    return new PluginClass(BatchAggregator.PLUGIN_TYPE, name, "", pluginClass.getName(), "config", properties);
+  }
+}
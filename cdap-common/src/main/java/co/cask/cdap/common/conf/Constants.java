@@ -190,6 +190,9 @@ public final class Constants {
     public static final String LOCAL_DATASET_DELETER_INITIAL_DELAY_SECONDS
       = "app.program.local.dataset.deleter.initial.delay";
     public static final String SYSTEM_ARTIFACTS_DIR = "app.artifact.dir";
+    public static final String ARTIFACT_CACHE_DIR = "app.artifact.cache.dir";
+    public static final String ARTIFACT_CACHE_MAX_BYTES = "app.artifact.cache.max.bytes";
+    public static final String PLUGIN_CATALOG_EXPIRY_SECS = "app.artifact.plugin.catalog.expiry.secs";
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
     public static final String SPARK_YARN_CLIENT_REWRITE = "app.program.spark.yarn.client.rewrite.enabled";
     public static final String SPARK_COMPAT = "app.program.spark.compat";
@@ -201,6 +204,9 @@ public final class Constants {
 
     public static final String PROGRAM_TRANSACTION_CONTROL = "app.program.transaction.control";
 
+    public static final String WORKER_DATASET_CACHE_POOL_SIZE = "app.program.worker.dataset.cache.pool.size";
+    public static final String WORKER_DATASET_CACHE_POOL_WAIT_MS = "app.program.worker.dataset.cache.pool.wait.ms";
+
     /**
      * Guice named bindings.
      */
@@ -345,6 +351,9 @@ public final class Constants {
     public static final String PROGRAM_STATUS_EVENT_FETCH_SIZE = "scheduler.program.status.event.fetch.size";
 
     public static final String JOB_QUEUE_NUM_PARTITIONS = "scheduler.job.queue.num.partitions";
+
+    public static final String CONSTRAINT_CHECK_TICK_MILLIS = "scheduler.constraint.check.tick.millis";
+    public static final String CONSTRAINT_CHECK_MAX_IDLE_MILLIS = "scheduler.constraint.check.max.idle.millis";
   }
 
   /**
@@ -352,6 +361,8 @@ public final class Constants {
    */
   public static final class AppMetaStore {
     public static final String TABLE = "app.meta";
+    public static final String SPEC_CACHE_SIZE = "app.meta.spec.cache.size";
+    public static final String SPEC_CACHE_COMPACT = "app.meta.spec.cache.compact";
   }
 
   /**
@@ -422,6 +433,9 @@ public final class Constants {
     // tables. Constant could be moved to Table after that is changed. See CDAP-1193 for more info
     public static final String TABLE_TX_DISABLED = "dataset.table.tx.disabled";
 
+    // Whether HBase tables report how the mutations of each commit are spread over regions
+    public static final String TABLE_PERSIST_REGION_METRICS_ENABLED = "dataset.table.persist.region.metrics.enabled";
+
     public static final String DATA_DIR = "dataset.data.dir";
     public static final String DEFAULT_DATA_DIR = "data";
 
@@ -429,6 +443,10 @@ public final class Constants {
 
     public static final String DATA_EVENT_TOPIC = "data.event.topic";
 
+    // Client side cache of dataset instance metadata in the RemoteDatasetFramework
+    public static final String CLIENT_META_CACHE_SIZE = "dataset.client.meta.cache.size";
+    public static final String CLIENT_META_CACHE_EXPIRY_SECS = "dataset.client.meta.cache.expiry.secs";
+
     /**
      * Constants for PartitionedFileSet's DynamicPartitioner
      */
@@ -606,6 +624,10 @@ public final class Constants {
     public static final String CLIENT_BOSS_THREADS = "router.client.boss.threads";
     public static final String CLIENT_WORKER_THREADS = "router.client.worker.threads";
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
+    public static final String BACKEND_POOL_MAX_IDLE_CONNECTIONS = "router.backend.pool.max.idle.connections";
+    public static final String BACKEND_FAILURE_BACKOFF_SECS = "router.backend.failure.backoff.secs";
+    public static final String AUTH_TOKEN_CACHE_SIZE = "router.auth.token.cache.size";
+    public static final String AUTH_TOKEN_CACHE_EXPIRY_SECS = "router.auth.token.cache.expiry.secs";
     public static final String ROUTER_USERSERVICE_FALLBACK_STRAGEY = "router.userservice.fallback.strategy";
     public static final String ROUTER_AUDIT_PATH_CHECK_ENABLED = "router.audit.path.check.enabled";
     public static final String ROUTER_AUDIT_LOG_ENABLED = "router.audit.log.enabled";
@@ -781,6 +803,14 @@ public final class Constants {
         public static final String OP_COUNT = "dataset.store.ops";
         public static final String WRITE_COUNT = "dataset.store.writes";
         public static final String WRITE_BYTES = "dataset.store.bytes";
+        public static final String CLIENT_META_CACHE_HITS = "dataset.client.meta.cache.hits";
+        public static final String CLIENT_META_CACHE_MISSES = "dataset.client.meta.cache.misses";
+        public static final String CLIENT_META_REMOTE_LATENCY_MS = "dataset.client.meta.remote.latency.ms";
+        public static final String CACHE_POOL_INSTANTIATIONS = "dataset.cache.pool.instantiations";
+        public static final String CACHE_POOL_WAIT_MS = "dataset.cache.pool.wait.ms";
+        public static final String PERSIST_LATENCY_MS = "dataset.store.persist.latency.ms";
+        public static final String PERSIST_REGIONS = "dataset.store.persist.regions";
+        public static final String PERSIST_MAX_REGION_MUTATIONS = "dataset.store.persist.max.region.mutations";
       }
 
       /**
@@ -791,6 +821,57 @@ public final class Constants {
         public static final String PROCESS_MAX_DELAY = "log.process.max.delay";
         public static final String PROCESS_MESSAGES_COUNT = "log.process.message.count";
       }
+
+      /**
+       * Lineage metrics
+       */
+      public static final class Lineage {
+        public static final String COMPUTE_REQUESTS = "lineage.compute.requests";
+        public static final String COMPUTE_LATENCY_MS = "lineage.compute.latency.ms";
+        public static final String COMPUTE_LEVELS = "lineage.compute.levels";
+        public static final String COMPUTE_SCANS = "lineage.compute.scans";
+        public static final String WORKFLOW_CACHE_HITS = "lineage.workflow.cache.hits";
+        public static final String WORKFLOW_CACHE_MISSES = "lineage.workflow.cache.misses";
+      }
+
+      /**
+       * Scheduler metrics
+       */
+      public static final class Scheduler {
+        public static final String TRIGGER_TO_LAUNCH_MS = "schedule.trigger.to.launch.ms";
+        public static final String CONSTRAINT_CHECK_SCANS = "schedule.constraint.check.scans";
+      }
+
+      /**
+       * Router metrics
+       */
+      public static final class Router {
+        public static final String BACKEND_CONNECTIONS_CREATED = "router.backend.connections.created";
+        public static final String BACKEND_CONNECTIONS_REUSED = "router.backend.connections.reused";
+        public static final String BACKEND_CONNECTIONS_IDLE = "router.backend.connections.idle";
+        public static final String BACKEND_CONNECT_LATENCY_MS = "router.backend.connect.latency.ms";
+        public static final String BACKEND_CONNECT_FAILURES = "router.backend.connect.failures";
+        public static final String AUTH_TOKEN_CACHE_HITS = "router.auth.token.cache.hits";
+        public static final String AUTH_TOKEN_CACHE_MISSES = "router.auth.token.cache.misses";
+        public static final String AUTH_LATENCY_US = "router.auth.latency.us";
+      }
+
+      /**
+       * Application metadata store metrics
+       */
+      public static final class AppMetaStore {
+        public static final String SPEC_CACHE_HITS = "app.meta.spec.cache.hits";
+        public static final String SPEC_CACHE_MISSES = "app.meta.spec.cache.misses";
+      }
+
+      /**
+       * Artifact inspection metrics
+       */
+      public static final class Artifact {
+        public static final String INSPECT_LATENCY_MS = "artifact.inspect.latency.ms";
+        public static final String INSPECTED_CLASSES = "artifact.inspect.classes";
+        public static final String LOADED_PLUGIN_CLASSES = "artifact.inspect.loaded.plugin.classes";
+      }
     }
 
     /**
@@ -1337,6 +1418,8 @@ public final class Constants {
     public static final String MESSAGING_POLL_DELAY_MILLIS = "metadata.messaging.poll.delay.millis";
 
     public static final String MIGRATOR_BATCH_SIZE = "metadata.upgrade.migration.batch.size";
+
+    public static final String LINEAGE_WORKFLOW_CACHE_SIZE = "metadata.lineage.workflow.cache.size";
   }
 
   /**
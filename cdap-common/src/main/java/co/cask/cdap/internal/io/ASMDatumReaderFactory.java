@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.DatumReader;
+import co.cask.cdap.common.io.Decoder;
+import com.google.common.base.Objects;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import javax.inject.Inject;
+
+/**
+ * A factory class for creating {@link DatumReader} instance for different data type and schema.
+ * Unlike {@link ReflectionDatumReader}, which resolves the source schema against the target schema and type
+ * for every datum it reads, readers created by this factory resolve each source schema once into a tree of
+ * readers that only decode values and set fields through the {@link FieldAccessor} generated by the
+ * {@link FieldAccessorFactory}. The resolved readers are cached and shared by all {@link DatumReader} created
+ * from the same factory.
+ */
+public final class ASMDatumReaderFactory implements DatumReaderFactory {
+
+  private final LoadingCache<CacheKey, DatumReaderGenerator.ValueReader> valueReaders;
+
+  @Inject
+  public ASMDatumReaderFactory(final FieldAccessorFactory fieldAccessorFactory) {
+    this.valueReaders = CacheBuilder.newBuilder().build(new CacheLoader<CacheKey, DatumReaderGenerator.ValueReader>() {
+      @Override
+      public DatumReaderGenerator.ValueReader load(CacheKey key) throws Exception {
+        return new DatumReaderGenerator(fieldAccessorFactory).generate(key.getType(), key.getSourceSchema(),
+                                                                       key.getTargetSchema());
+      }
+    });
+  }
+
+  /**
+   * Creates a {@link DatumReader} that is able to decode data into the given data type with the given
+   * {@link Schema}. The instance created is thread safe and reusable.
+   *
+   * @param type Type information of the data type to be decoded.
+   * @param schema Schema of the data type.
+   * @param <T> Type of the data type.
+   * @return A {@link DatumReader} instance.
+   */
+  @Override
+  public <T> DatumReader<T> create(TypeToken<T> type, Schema schema) {
+    return new ResolvingDatumReader<>(type, schema);
+  }
+
+  /**
+   * Returns the {@link DatumReaderGenerator.ValueReader} for reading data of the given source schema.
+   */
+  private DatumReaderGenerator.ValueReader getValueReader(TypeToken<?> type, Schema sourceSchema,
+                                                          Schema targetSchema) throws IOException {
+    try {
+      return valueReaders.get(new CacheKey(type, sourceSchema, targetSchema));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * A {@link DatumReader} that remembers the reader for the last source schema it has seen, since a reader
+   * is usually used to read data written with the same schema.
+   *
+   * @param <T> Type of the data type.
+   */
+  private final class ResolvingDatumReader<T> implements DatumReader<T> {
+
+    private final TypeToken<T> type;
+    private final Schema schema;
+    private volatile ResolvedReader resolved;
+
+    ResolvingDatumReader(TypeToken<T> type, Schema schema) {
+      this.type = type;
+      this.schema = schema;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T read(Decoder decoder, Schema sourceSchema) throws IOException {
+      ResolvedReader resolved = this.resolved;
+      if (resolved == null || resolved.sourceSchema != sourceSchema) {
+        resolved = new ResolvedReader(sourceSchema, getValueReader(type, sourceSchema, schema));
+        this.resolved = resolved;
+      }
+      return (T) resolved.reader.read(decoder);
+    }
+  }
+
+  /**
+   * The reader resolved for a source schema.
+   */
+  private static final class ResolvedReader {
+    private final Schema sourceSchema;
+    private final DatumReaderGenerator.ValueReader reader;
+
+    ResolvedReader(Schema sourceSchema, DatumReaderGenerator.ValueReader reader) {
+      this.sourceSchema = sourceSchema;
+      this.reader = reader;
+    }
+  }
+
+  private static final class CacheKey {
+    private final TypeToken<?> type;
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+
+    private CacheKey(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+      this.type = type;
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+    }
+
+    TypeToken<?> getType() {
+      return type;
+    }
+
+    Schema getSourceSchema() {
+      return sourceSchema;
+    }
+
+    Schema getTargetSchema() {
+      return targetSchema;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      CacheKey cacheKey = (CacheKey) o;
+      return type.equals(cacheKey.type)
+        && sourceSchema.equals(cacheKey.sourceSchema) && targetSchema.equals(cacheKey.targetSchema);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(type, sourceSchema, targetSchema);
+    }
+  }
+}
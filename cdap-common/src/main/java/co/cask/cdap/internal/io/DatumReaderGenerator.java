@@ -0,0 +1,749 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.lang.Instantiator;
+import co.cask.cdap.common.lang.InstantiatorFactory;
+import com.google.common.primitives.Longs;
+import com.google.common.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Generates a {@link ValueReader} that reads data written with a source {@link Schema} into a given type with a
+ * target {@link Schema}. All schema resolution is done once when the reader is generated, following the same
+ * projection rules as {@link ReflectionDatumReader}. This includes finding the {@link FieldAccessor} of every
+ * record field, the enum constant for every enum index, the instance creator for every type and the branch
+ * of a target union that each source schema resolves to. Reading a datum then only decodes values and sets fields.
+ *
+ * A generator instance is not thread safe, but the readers it generates are.
+ */
+final class DatumReaderGenerator {
+
+  private final FieldAccessorFactory fieldAccessorFactory;
+  private final InstantiatorFactory instantiatorFactory;
+  // record readers generated so far, used to resolve recursive record schemas
+  private final Map<RecordKey, DelegatingReader> recordReaders;
+
+  DatumReaderGenerator(FieldAccessorFactory fieldAccessorFactory) {
+    this.fieldAccessorFactory = fieldAccessorFactory;
+    this.instantiatorFactory = new InstantiatorFactory(true);
+    this.recordReaders = new HashMap<>();
+  }
+
+  /**
+   * Generates a reader for the given type.
+   *
+   * @param type type of the object to read
+   * @param sourceSchema schema the data was written with
+   * @param targetSchema schema of the object to read
+   * @return a {@link ValueReader} for the given type and schemas
+   * @throws IOException if the source schema cannot be resolved to the target schema and type
+   */
+  ValueReader generate(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) throws IOException {
+    if (sourceSchema.getType() != Schema.Type.UNION && targetSchema.getType() == Schema.Type.UNION) {
+      // use the first target schema that the source can be resolved to
+      for (Schema schema : targetSchema.getUnionSchemas()) {
+        try {
+          return doGenerate(type, sourceSchema, schema);
+        } catch (IOException e) {
+          // Continue
+        }
+      }
+      throw new IOException(String.format("No matching schema to resolve %s to %s", sourceSchema, targetSchema));
+    }
+    return doGenerate(type, sourceSchema, targetSchema);
+  }
+
+  private ValueReader doGenerate(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) throws IOException {
+    Schema.Type sourceType = sourceSchema.getType();
+    Schema.Type targetType = targetSchema.getType();
+
+    switch (sourceType) {
+      case NULL:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return new ValueReader() {
+          @Override
+          public Object read(Decoder decoder) throws IOException {
+            return decoder.readNull();
+          }
+        };
+      case BYTES:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return generateBytes(type);
+      case ENUM:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return generateEnum(type, sourceSchema, targetSchema);
+      case ARRAY:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return generateArray(type, sourceSchema, targetSchema);
+      case MAP:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return generateMap(type, sourceSchema, targetSchema);
+      case RECORD:
+        check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
+        return generateRecord(type, sourceSchema, targetSchema);
+      case UNION:
+        return generateUnion(type, sourceSchema, targetSchema);
+    }
+    // For simple type other than NULL and BYTES
+    if (sourceType.isSimpleType()) {
+      return generateSimpleType(type, sourceType, targetType);
+    }
+    throw new IOException(String.format("Fails to resolve %s to %s", sourceSchema, targetSchema));
+  }
+
+  private ValueReader generateBytes(TypeToken<?> type) {
+    Class<?> rawType = type.getRawType();
+    if (rawType.equals(byte[].class)) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          ByteBuffer buffer = decoder.readBytes();
+          if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            if (buffer.remaining() == array.length) {
+              return array;
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            System.arraycopy(array, buffer.arrayOffset() + buffer.position(), bytes, 0, buffer.remaining());
+            return bytes;
+          }
+          byte[] bytes = new byte[buffer.remaining()];
+          buffer.get(bytes);
+          return bytes;
+        }
+      };
+    }
+    if (rawType.equals(UUID.class)) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          ByteBuffer buffer = decoder.readBytes();
+          if (buffer.remaining() == Longs.BYTES * 2) {
+            return new UUID(buffer.getLong(), buffer.getLong());
+          }
+          return buffer;
+        }
+      };
+    }
+    return new ValueReader() {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readBytes();
+      }
+    };
+  }
+
+  private ValueReader generateEnum(TypeToken<?> type, final Schema sourceSchema,
+                                   Schema targetSchema) throws IOException {
+    // enum constants indexed by the source enum index. Values missing from the target are left as null.
+    int size = sourceSchema.getEnumValues().size();
+    final Object[] constants = new Object[size];
+    for (int i = 0; i < size; i++) {
+      String enumValue = sourceSchema.getEnumValue(i);
+      if (targetSchema.getEnumValues().contains(enumValue)) {
+        try {
+          constants[i] = type.getRawType().getMethod("valueOf", String.class).invoke(null, enumValue);
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+      }
+    }
+    return new ValueReader() {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        int idx = decoder.readInt();
+        Object value = idx >= 0 && idx < constants.length ? constants[idx] : null;
+        if (value == null) {
+          throw new IOException(String.format("Enum value '%s' missing in target.", sourceSchema.getEnumValue(idx)));
+        }
+        return value;
+      }
+    };
+  }
+
+  private ValueReader generateArray(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) throws IOException {
+    TypeToken<?> componentType = null;
+    if (type.isArray()) {
+      componentType = type.getComponentType();
+    } else if (Collection.class.isAssignableFrom(type.getRawType())) {
+      Type collectionType = type.getType();
+      check(collectionType instanceof ParameterizedType, "Only parameterized type is supported for collection.");
+      componentType = TypeToken.of(((ParameterizedType) collectionType).getActualTypeArguments()[0]);
+    }
+    check(componentType != null, "Only array or collection type is support for array value.");
+
+    final ValueReader componentReader = generate(componentType, sourceSchema.getComponentSchema(),
+                                                 targetSchema.getComponentSchema());
+    if (type.isArray()) {
+      final Class<?> componentClass = componentType.getRawType();
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          List<Object> list = new ArrayList<>();
+          int len = decoder.readInt();
+          while (len != 0) {
+            for (int i = 0; i < len; i++) {
+              list.add(componentReader.read(decoder));
+            }
+            len = decoder.readInt();
+          }
+          Object array = Array.newInstance(componentClass, list.size());
+          int idx = 0;
+          for (Object obj : list) {
+            Array.set(array, idx++, obj);
+          }
+          return array;
+        }
+      };
+    }
+
+    final Instantiator<?> instantiator = instantiatorFactory.get(type);
+    return new ValueReader() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        Collection<Object> collection = (Collection<Object>) instantiator.create();
+        int len = decoder.readInt();
+        while (len != 0) {
+          for (int i = 0; i < len; i++) {
+            collection.add(componentReader.read(decoder));
+          }
+          len = decoder.readInt();
+        }
+        return collection;
+      }
+    };
+  }
+
+  private ValueReader generateMap(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) throws IOException {
+    check(Map.class.isAssignableFrom(type.getRawType()), "Only map type is supported for map data.");
+    Type mapType = type.getType();
+    check(mapType instanceof ParameterizedType, "Only parameterized map is supported.");
+    Type[] typeArgs = ((ParameterizedType) mapType).getActualTypeArguments();
+
+    Map.Entry<Schema, Schema> sourceEntry = sourceSchema.getMapSchema();
+    Map.Entry<Schema, Schema> targetEntry = targetSchema.getMapSchema();
+    final ValueReader keyReader = generate(TypeToken.of(typeArgs[0]), sourceEntry.getKey(), targetEntry.getKey());
+    final ValueReader valueReader = generate(TypeToken.of(typeArgs[1]),
+                                             sourceEntry.getValue(), targetEntry.getValue());
+    final Instantiator<?> instantiator = instantiatorFactory.get(type);
+    return new ValueReader() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        Map<Object, Object> map = (Map<Object, Object>) instantiator.create();
+        int len = decoder.readInt();
+        while (len != 0) {
+          for (int i = 0; i < len; i++) {
+            map.put(keyReader.read(decoder), valueReader.read(decoder));
+          }
+          len = decoder.readInt();
+        }
+        return map;
+      }
+    };
+  }
+
+  private ValueReader generateUnion(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+    List<Schema> sourceSchemas = sourceSchema.getUnionSchemas();
+    final ValueReader[] readers = new ValueReader[sourceSchemas.size()];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = generateUnionBranch(type, i, sourceSchema, targetSchema);
+    }
+    return new ValueReader() {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        int idx = decoder.readInt();
+        if (idx < 0 || idx >= readers.length) {
+          throw new IOException(String.format("Invalid union index %d for %d union schemas", idx, readers.length));
+        }
+        return readers[idx].read(decoder);
+      }
+    };
+  }
+
+  /**
+   * Generates the reader for one of the schemas in a source union. If the branch cannot be resolved, the
+   * returned reader fails when it is used, since data may never be written with that branch.
+   */
+  private ValueReader generateUnionBranch(TypeToken<?> type, int idx, final Schema sourceSchema,
+                                          final Schema targetSchema) {
+    Schema sourceValueSchema = sourceSchema.getUnionSchema(idx);
+    if (targetSchema.getType() != Schema.Type.UNION) {
+      try {
+        return generate(type, sourceValueSchema, targetSchema);
+      } catch (IOException e) {
+        return new FailingReader(e.getMessage());
+      }
+    }
+
+    // A simple optimization to try resolve before resorting to linearly try the union schema.
+    Schema targetValueSchema = targetSchema.getUnionSchema(idx);
+    if (targetValueSchema != null && targetValueSchema.getType() == sourceValueSchema.getType()) {
+      try {
+        return generate(type, sourceValueSchema, targetValueSchema);
+      } catch (IOException e) {
+        // OK to ignore it, as we'll do union schema resolution
+      }
+    }
+    for (Schema schema : targetSchema.getUnionSchemas()) {
+      try {
+        return generate(type, sourceValueSchema, schema);
+      } catch (IOException e) {
+        // It's ok to have exception here, as we'll keep trying until exhausted the target union.
+      }
+    }
+    return new FailingReader(String.format("Fail to resolve %s to %s", sourceSchema, targetSchema));
+  }
+
+  private ValueReader generateRecord(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) throws IOException {
+    RecordKey key = new RecordKey(type, sourceSchema, targetSchema);
+    DelegatingReader recordReader = recordReaders.get(key);
+    if (recordReader != null) {
+      // either generated already or this is a recursive record that is currently being generated
+      return recordReader;
+    }
+    recordReader = new DelegatingReader();
+    recordReaders.put(key, recordReader);
+
+    try {
+      List<Schema.Field> sourceFields = sourceSchema.getFields();
+      final FieldAccessor[] accessors = new FieldAccessor[sourceFields.size()];
+      final ValueReader[] fieldReaders = new ValueReader[sourceFields.size()];
+      for (int i = 0; i < sourceFields.size(); i++) {
+        Schema.Field sourceField = sourceFields.get(i);
+        Schema.Field targetField = targetSchema.getField(sourceField.getName());
+        if (targetField == null) {
+          // a null accessor means the field is skipped
+          fieldReaders[i] = new SkippingReader(sourceField.getSchema());
+          continue;
+        }
+        accessors[i] = fieldAccessorFactory.getFieldAccessor(type, sourceField.getName());
+        fieldReaders[i] = generate(TypeToken.of(accessors[i].getType()),
+                                   sourceField.getSchema(), targetField.getSchema());
+      }
+
+      final Instantiator<?> instantiator = instantiatorFactory.get(type);
+      recordReader.setDelegate(new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          try {
+            Object record = instantiator.create();
+            for (int i = 0; i < fieldReaders.length; i++) {
+              Object value = fieldReaders[i].read(decoder);
+              if (accessors[i] != null) {
+                accessors[i].set(record, value);
+              }
+            }
+            return record;
+          } catch (IOException e) {
+            throw e;
+          } catch (Exception e) {
+            throw new IOException(e);
+          }
+        }
+      });
+      return recordReader;
+    } catch (IOException e) {
+      recordReaders.remove(key);
+      throw e;
+    } catch (Exception e) {
+      recordReaders.remove(key);
+      throw new IOException(e);
+    }
+  }
+
+  private ValueReader generateSimpleType(TypeToken<?> type, Schema.Type sourceType,
+                                         Schema.Type targetType) throws IOException {
+    switch (sourceType) {
+      case BOOLEAN:
+        switch (targetType) {
+          case BOOLEAN:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return decoder.readBool();
+              }
+            };
+          case STRING:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return String.valueOf(decoder.readBool());
+              }
+            };
+        }
+        break;
+      case INT:
+        switch (targetType) {
+          case INT:
+            return generateInt(type.getRawType());
+          case LONG:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return (long) decoder.readInt();
+              }
+            };
+          case FLOAT:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return (float) decoder.readInt();
+              }
+            };
+          case DOUBLE:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return (double) decoder.readInt();
+              }
+            };
+          case STRING:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return String.valueOf(decoder.readInt());
+              }
+            };
+        }
+        break;
+      case LONG:
+        switch (targetType) {
+          case LONG:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return decoder.readLong();
+              }
+            };
+          case FLOAT:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return (float) decoder.readLong();
+              }
+            };
+          case DOUBLE:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return (double) decoder.readLong();
+              }
+            };
+          case STRING:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return String.valueOf(decoder.readLong());
+              }
+            };
+        }
+        break;
+      case FLOAT:
+        switch (targetType) {
+          case FLOAT:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return decoder.readFloat();
+              }
+            };
+          case DOUBLE:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return (double) decoder.readFloat();
+              }
+            };
+          case STRING:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return String.valueOf(decoder.readFloat());
+              }
+            };
+        }
+        break;
+      case DOUBLE:
+        switch (targetType) {
+          case DOUBLE:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return decoder.readDouble();
+              }
+            };
+          case STRING:
+            return new ValueReader() {
+              @Override
+              public Object read(Decoder decoder) throws IOException {
+                return String.valueOf(decoder.readDouble());
+              }
+            };
+        }
+        break;
+      case STRING:
+        switch (targetType) {
+          case STRING:
+            return generateString(type.getRawType());
+        }
+        break;
+    }
+
+    throw new IOException("Fail to resolve type " + sourceType + " to type " + targetType);
+  }
+
+  private ValueReader generateInt(Class<?> targetClass) {
+    if (targetClass.equals(byte.class) || targetClass.equals(Byte.class)) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          return (byte) decoder.readInt();
+        }
+      };
+    }
+    if (targetClass.equals(char.class) || targetClass.equals(Character.class)) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          return (char) decoder.readInt();
+        }
+      };
+    }
+    if (targetClass.equals(short.class) || targetClass.equals(Short.class)) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          return (short) decoder.readInt();
+        }
+      };
+    }
+    return new ValueReader() {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readInt();
+      }
+    };
+  }
+
+  private ValueReader generateString(Class<?> targetClass) {
+    if (targetClass.equals(URI.class)) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          return URI.create(decoder.readString());
+        }
+      };
+    }
+    if (targetClass.equals(URL.class)) {
+      return new ValueReader() {
+        @Override
+        public Object read(Decoder decoder) throws IOException {
+          return new URL(decoder.readString());
+        }
+      };
+    }
+    return new ValueReader() {
+      @Override
+      public Object read(Decoder decoder) throws IOException {
+        return decoder.readString();
+      }
+    };
+  }
+
+  private void check(boolean condition, String message, Object... objs) throws IOException {
+    if (!condition) {
+      throw new IOException(String.format(message, objs));
+    }
+  }
+
+  /**
+   * Reads a single value from a {@link Decoder}.
+   */
+  interface ValueReader {
+
+    /**
+     * Reads a value.
+     *
+     * @param decoder the decoder to read from
+     * @return the value read
+     * @throws IOException if there was some exception reading the value
+     */
+    Object read(Decoder decoder) throws IOException;
+  }
+
+  /**
+   * A {@link ValueReader} that delegates to another reader that is set once it is generated.
+   * Used to break cycles when generating readers for recursive records.
+   */
+  private static final class DelegatingReader implements ValueReader {
+    private ValueReader delegate;
+
+    void setDelegate(ValueReader delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      return delegate.read(decoder);
+    }
+  }
+
+  /**
+   * A {@link ValueReader} that always fails, for source union schemas that cannot be resolved.
+   */
+  private static final class FailingReader implements ValueReader {
+    private final String message;
+
+    FailingReader(String message) {
+      this.message = message;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      throw new IOException(message);
+    }
+  }
+
+  /**
+   * A {@link ValueReader} that skips a value that does not exist in the target schema and always returns null.
+   */
+  private static final class SkippingReader implements ValueReader {
+    private final Schema schema;
+
+    SkippingReader(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public Object read(Decoder decoder) throws IOException {
+      skip(decoder, schema);
+      return null;
+    }
+
+    private static void skip(Decoder decoder, Schema schema) throws IOException {
+      switch (schema.getType()) {
+        case NULL:
+          break;
+        case BOOLEAN:
+          decoder.readBool();
+          break;
+        case INT:
+          decoder.readInt();
+          break;
+        case LONG:
+          decoder.readLong();
+          break;
+        case FLOAT:
+          decoder.skipFloat();
+          break;
+        case DOUBLE:
+          decoder.skipDouble();
+          break;
+        case BYTES:
+          decoder.skipBytes();
+          break;
+        case STRING:
+          decoder.skipString();
+          break;
+        case ENUM:
+          decoder.readInt();
+          break;
+        case ARRAY:
+          int len = decoder.readInt();
+          while (len != 0) {
+            for (int i = 0; i < len; i++) {
+              skip(decoder, schema.getComponentSchema());
+            }
+            len = decoder.readInt();
+          }
+          break;
+        case MAP:
+          Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+          len = decoder.readInt();
+          while (len != 0) {
+            for (int i = 0; i < len; i++) {
+              skip(decoder, mapSchema.getKey());
+              skip(decoder, mapSchema.getValue());
+            }
+            len = decoder.readInt();
+          }
+          break;
+        case RECORD:
+          for (Schema.Field field : schema.getFields()) {
+            skip(decoder, field.getSchema());
+          }
+          break;
+        case UNION:
+          skip(decoder, schema.getUnionSchema(decoder.readInt()));
+          break;
+      }
+    }
+  }
+
+  /**
+   * Identifies a record reader by the type and the exact schema instances it reads.
+   * Schema instances are compared by identity, which is what recursive schemas refer back to.
+   */
+  private static final class RecordKey {
+    private final TypeToken<?> type;
+    private final Schema sourceSchema;
+    private final Schema targetSchema;
+
+    RecordKey(TypeToken<?> type, Schema sourceSchema, Schema targetSchema) {
+      this.type = type;
+      this.sourceSchema = sourceSchema;
+      this.targetSchema = targetSchema;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      RecordKey that = (RecordKey) o;
+      return sourceSchema == that.sourceSchema && targetSchema == that.targetSchema && type.equals(that.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(type, System.identityHashCode(sourceSchema), System.identityHashCode(targetSchema));
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.UnsupportedTypeException;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.DatumReader;
+import co.cask.cdap.internal.io.ASMDatumReaderFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.ReflectionDatumReader;
+import co.cask.cdap.internal.io.ReflectionDatumWriter;
+import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link DatumReader} created by {@link ASMDatumReaderFactory}.
+ */
+public class ASMDatumReaderFactoryTest {
+
+  private static final ASMDatumReaderFactory DATUM_READER_FACTORY
+    = new ASMDatumReaderFactory(new ASMFieldAccessorFactory());
+
+  /**
+   *
+   */
+  public enum Color {
+    RED, GREEN, BLUE
+  }
+
+  /**
+   *
+   */
+  public enum TargetColor {
+    BLUE, RED
+  }
+
+  /**
+   *
+   */
+  public static final class Record {
+    private final int id;
+    private final String name;
+    private final Color color;
+    private final List<String> tags;
+    private final Map<String, Long> counts;
+    private final int[] numbers;
+    private final byte[] bytes;
+    private final UUID uuid;
+    private final URI uri;
+
+    public Record(int id, String name, Color color, List<String> tags, Map<String, Long> counts,
+                  int[] numbers, byte[] bytes, UUID uuid, URI uri) {
+      this.id = id;
+      this.name = name;
+      this.color = color;
+      this.tags = tags;
+      this.counts = counts;
+      this.numbers = numbers;
+      this.bytes = bytes;
+      this.uuid = uuid;
+      this.uri = uri;
+    }
+  }
+
+  /**
+   * Projection of {@link Record} with fields removed, a promoted field type and a nullable field.
+   */
+  public static final class RecordProjection {
+    private long id;
+    private String name;
+    private Set<String> tags;
+    private String missing;
+  }
+
+  /**
+   *
+   */
+  public static final class ColorRecord {
+    private final Color color;
+
+    public ColorRecord(Color color) {
+      this.color = color;
+    }
+  }
+
+  /**
+   *
+   */
+  public static final class TargetColorRecord {
+    private TargetColor color;
+  }
+
+  /**
+   *
+   */
+  public static final class Node {
+    private final int data;
+    private final Node left;
+    private final Node right;
+
+    public Node(int data, Node left, Node right) {
+      this.data = data;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      Node node = (Node) o;
+      return data == node.data && Objects.equal(left, node.left) && Objects.equal(right, node.right);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(data, left, right);
+    }
+  }
+
+  private Schema getSchema(TypeToken<?> type) throws UnsupportedTypeException {
+    return new ReflectionSchemaGenerator().generate(type.getType());
+  }
+
+  private <T> byte[] encode(TypeToken<T> type, T value) throws UnsupportedTypeException, IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new ReflectionDatumWriter<T>(getSchema(type)).encode(value, new BinaryEncoder(os));
+    return os.toByteArray();
+  }
+
+  private <T> T decode(DatumReader<T> reader, byte[] bytes, Schema sourceSchema) throws IOException {
+    return reader.read(new BinaryDecoder(new ByteArrayInputStream(bytes)), sourceSchema);
+  }
+
+  @Test
+  public void testRecord() throws UnsupportedTypeException, IOException {
+    TypeToken<Record> type = TypeToken.of(Record.class);
+    Schema schema = getSchema(type);
+    Record record = new Record(1, "name", Color.GREEN, ImmutableList.of("a", "b"), ImmutableMap.of("x", 1L, "y", 2L),
+                               new int[] { 3, 4, 5 }, new byte[] { 6, 7 }, UUID.randomUUID(),
+                               URI.create("http://localhost"));
+
+    DatumReader<Record> reader = DATUM_READER_FACTORY.create(type, schema);
+    // read twice to make sure the reader resolved for the schema can be reused
+    for (int i = 0; i < 2; i++) {
+      Record value = decode(reader, encode(type, record), schema);
+      Assert.assertEquals(record.id, value.id);
+      Assert.assertEquals(record.name, value.name);
+      Assert.assertEquals(record.color, value.color);
+      Assert.assertEquals(record.tags, value.tags);
+      Assert.assertEquals(record.counts, value.counts);
+      Assert.assertArrayEquals(record.numbers, value.numbers);
+      Assert.assertArrayEquals(record.bytes, value.bytes);
+      Assert.assertEquals(record.uuid, value.uuid);
+      Assert.assertEquals(record.uri, value.uri);
+    }
+  }
+
+  @Test
+  public void testProjection() throws UnsupportedTypeException, IOException {
+    TypeToken<Record> sourceType = TypeToken.of(Record.class);
+    Record record = new Record(10, null, Color.RED, ImmutableList.of("a", "b", "a"), ImmutableMap.<String, Long>of(),
+                               new int[0], new byte[0], UUID.randomUUID(), URI.create("http://localhost"));
+    byte[] bytes = encode(sourceType, record);
+
+    TypeToken<RecordProjection> targetType = TypeToken.of(RecordProjection.class);
+    DatumReader<RecordProjection> reader = DATUM_READER_FACTORY.create(targetType, getSchema(targetType));
+    RecordProjection value = decode(reader, bytes, getSchema(sourceType));
+    Assert.assertEquals(10L, value.id);
+    Assert.assertNull(value.name);
+    Assert.assertEquals(ImmutableSet.of("a", "b"), value.tags);
+    Assert.assertNull(value.missing);
+
+    // Should be the same as what the reflection reader produces
+    RecordProjection expected = decode(new ReflectionDatumReader<>(getSchema(targetType), targetType),
+                                       bytes, getSchema(sourceType));
+    Assert.assertEquals(expected.id, value.id);
+    Assert.assertEquals(expected.name, value.name);
+    Assert.assertEquals(expected.tags, value.tags);
+  }
+
+  @Test
+  public void testEnumProjection() throws UnsupportedTypeException, IOException {
+    TypeToken<ColorRecord> sourceType = TypeToken.of(ColorRecord.class);
+    TypeToken<TargetColorRecord> targetType = TypeToken.of(TargetColorRecord.class);
+    DatumReader<TargetColorRecord> reader = DATUM_READER_FACTORY.create(targetType, getSchema(targetType));
+
+    TargetColorRecord value = decode(reader, encode(sourceType, new ColorRecord(Color.BLUE)), getSchema(sourceType));
+    Assert.assertEquals(TargetColor.BLUE, value.color);
+
+    try {
+      decode(reader, encode(sourceType, new ColorRecord(Color.GREEN)), getSchema(sourceType));
+      Assert.fail("Expected failure for enum value missing in target");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testIncompatibleSchema() throws UnsupportedTypeException, IOException {
+    TypeToken<String> sourceType = TypeToken.of(String.class);
+    TypeToken<Integer> targetType = TypeToken.of(Integer.class);
+    DatumReader<Integer> reader = DATUM_READER_FACTORY.create(targetType, getSchema(targetType));
+    try {
+      decode(reader, encode(sourceType, "string"), getSchema(sourceType));
+      Assert.fail("Expected failure for reading string as int");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testTree() throws UnsupportedTypeException, IOException {
+    TypeToken<Node> type = TypeToken.of(Node.class);
+    Node root = new Node(1, new Node(2, null, new Node(3, null, null)), new Node(4, new Node(5, null, null), null));
+    DatumReader<Node> reader = DATUM_READER_FACTORY.create(type, getSchema(type));
+    Assert.assertEquals(root, decode(reader, encode(type, root), getSchema(type)));
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() throws UnsupportedTypeException, IOException {
+    TypeToken<Node> type = TypeToken.of(Node.class);
+    Schema schema = getSchema(type);
+    Node root = new Node(1, new Node(2, null, new Node(3, null, null)), new Node(4, new Node(5, null, null), null));
+    byte[] bytes = encode(type, root);
+
+    DatumReader<Node> asmReader = DATUM_READER_FACTORY.create(type, schema);
+    DatumReader<Node> reflectionReader = new ReflectionDatumReader<>(schema, type);
+
+    for (int round = 0; round < 2; round++) {
+      long startTime = System.nanoTime();
+      for (int i = 0; i < 100000; i++) {
+        decode(reflectionReader, bytes, schema);
+      }
+      long endTime = System.nanoTime();
+      System.out.println("Reflection time spent: "
+                           + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+
+      startTime = System.nanoTime();
+      for (int i = 0; i < 100000; i++) {
+        decode(asmReader, bytes, schema);
+      }
+      endTime = System.nanoTime();
+      System.out.println("ASM time spent: " + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+    }
+  }
+}
@@ -29,7 +29,9 @@ import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.dataset.table.TableProperties;
 import co.cask.cdap.api.dataset.table.Tables;
+import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.namespace.SimpleNamespaceQueryAdmin;
 import co.cask.cdap.data.hbase.HBaseTestBase;
 import co.cask.cdap.data.hbase.HBaseTestFactory;
@@ -89,6 +91,7 @@ import java.io.InterruptedIOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -656,6 +659,80 @@ public class HBaseTableTest extends BufferingTableTest<BufferingTable> {
     }
   }
 
+  @Test
+  public void testPersistMetrics() throws Exception {
+    String tableName = "persist-metrics";
+    byte[][] splits = new byte[][] {Bytes.toBytes("b")};
+    DatasetProperties props = DatasetProperties.builder().add("hbase.splits", new Gson().toJson(splits)).build();
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, tableName, props);
+    admin.create();
+
+    DetachedTxSystemClient txSystemClient = new DetachedTxSystemClient();
+    DatasetSpecification spec = TABLE_DEFINITION.configure(tableName, props);
+    try {
+      // Only the latency is reported by default
+      GaugeCollector collector = new GaugeCollector();
+      try (HBaseTable table = new HBaseTable(CONTEXT1, spec, Collections.<String, String>emptyMap(),
+                                             cConf, TEST_HBASE.getConfiguration(), hBaseTableUtil)) {
+        table.setMetricsCollector(collector);
+        putAndCommit(txSystemClient, table, "a1", "a2", "b1");
+      }
+      Assert.assertTrue(collector.gauges.containsKey(Constants.Metrics.Name.Dataset.PERSIST_LATENCY_MS));
+      Assert.assertFalse(collector.gauges.containsKey(Constants.Metrics.Name.Dataset.PERSIST_REGIONS));
+      Assert.assertFalse(collector.gauges.containsKey(Constants.Metrics.Name.Dataset.PERSIST_MAX_REGION_MUTATIONS));
+
+      // The region spread is reported if enabled
+      CConfiguration testCConf = CConfiguration.copy(cConf);
+      testCConf.setBoolean(Constants.Dataset.TABLE_PERSIST_REGION_METRICS_ENABLED, true);
+      collector = new GaugeCollector();
+      try (HBaseTable table = new HBaseTable(CONTEXT1, spec, Collections.<String, String>emptyMap(),
+                                             testCConf, TEST_HBASE.getConfiguration(), hBaseTableUtil)) {
+        table.setMetricsCollector(collector);
+        putAndCommit(txSystemClient, table, "a1", "a2", "b1");
+        Assert.assertEquals(Long.valueOf(2L), collector.gauges.get(Constants.Metrics.Name.Dataset.PERSIST_REGIONS));
+        Assert.assertEquals(Long.valueOf(2L),
+                            collector.gauges.get(Constants.Metrics.Name.Dataset.PERSIST_MAX_REGION_MUTATIONS));
+
+        putAndCommit(txSystemClient, table, "b2");
+        Assert.assertEquals(Long.valueOf(1L), collector.gauges.get(Constants.Metrics.Name.Dataset.PERSIST_REGIONS));
+        Assert.assertEquals(Long.valueOf(1L),
+                            collector.gauges.get(Constants.Metrics.Name.Dataset.PERSIST_MAX_REGION_MUTATIONS));
+      }
+      Assert.assertTrue(collector.gauges.containsKey(Constants.Metrics.Name.Dataset.PERSIST_LATENCY_MS));
+    } finally {
+      admin.drop();
+      admin.close();
+    }
+  }
+
+  private void putAndCommit(TransactionSystemClient txSystemClient, HBaseTable table, String... rows)
+    throws Exception {
+    Transaction tx = txSystemClient.startShort();
+    table.startTx(tx);
+    for (String row : rows) {
+      table.put(b(row), b("col1"), b("val1"));
+    }
+    table.commitTx();
+    table.postTxCommit();
+  }
+
+  /**
+   * A {@link MetricsCollector} that keeps the last value of each gauge.
+   */
+  private static final class GaugeCollector implements MetricsCollector {
+    private final Map<String, Long> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(String metricName, long value) {
+      // no-op
+    }
+
+    @Override
+    public void gauge(String metricName, long value) {
+      gauges.put(metricName, value);
+    }
+  }
+
   private void assertTxFail(TransactionSystemClient txSystemClient, HBaseTable table, Runnable op)
     throws Exception {
     Transaction tx = txSystemClient.startShort();
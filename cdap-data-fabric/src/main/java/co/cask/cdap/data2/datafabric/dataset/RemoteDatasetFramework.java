@@ -24,10 +24,14 @@ import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
 import co.cask.cdap.api.dataset.module.DatasetModule;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.lang.ClassLoaders;
+import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.datafabric.dataset.type.ConstantClassLoaderProvider;
 import co.cask.cdap.data2.datafabric.dataset.type.DatasetClassLoaderProvider;
 import co.cask.cdap.data2.dataset2.DatasetDefinitionRegistries;
@@ -45,13 +49,17 @@ import co.cask.cdap.proto.id.DatasetTypeId;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import com.google.common.base.Objects;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
@@ -68,6 +76,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
@@ -75,6 +84,11 @@ import javax.annotation.Nullable;
 
 /**
  * {@link co.cask.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service
+ *
+ * The {@link DatasetMeta} used to instantiate datasets and their admins is cached per principal, since the dataset
+ * service authorizes every lookup for the calling principal. Entries expire after
+ * {@link Constants.Dataset#CLIENT_META_CACHE_EXPIRY_SECS}, and are dropped eagerly when the instance or the
+ * modules of its namespace are changed through this framework.
  */
 @SuppressWarnings("unchecked")
 public class RemoteDatasetFramework implements DatasetFramework {
@@ -82,7 +96,10 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   private final CConfiguration cConf;
   private final LoadingCache<NamespaceId, DatasetServiceClient> clientCache;
+  private final Cache<ImmutablePair<Principal, DatasetId>, DatasetMeta> metaCache;
   private final DatasetDefinitionRegistryFactory registryFactory;
+  private final AuthenticationContext authenticationContext;
+  private volatile MetricsContext metricsContext = new NoopMetricsContext();
 
   @Inject
   public RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
@@ -95,7 +112,25 @@ public class RemoteDatasetFramework implements DatasetFramework {
         return new DatasetServiceClient(discoveryClient, namespace, cConf, authenticationContext);
       }
     });
+    this.metaCache = CacheBuilder.newBuilder()
+      .maximumSize(cConf.getInt(Constants.Dataset.CLIENT_META_CACHE_SIZE))
+      .expireAfterWrite(cConf.getLong(Constants.Dataset.CLIENT_META_CACHE_EXPIRY_SECS), TimeUnit.SECONDS)
+      .build();
     this.registryFactory = registryFactory;
+    this.authenticationContext = authenticationContext;
+  }
+
+  /**
+   * Optional guice injection for the {@link MetricsCollectionService} used to emit the hits and misses of the
+   * dataset metadata cache, and the latency of the lookups in the dataset service.
+   */
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.DATASET_MANAGER,
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace()
+    ));
   }
 
   @Override
@@ -106,6 +141,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
       try {
         clientCache.getUnchecked(moduleId.getParent())
           .addModule(moduleId.getEntityName(), moduleClass.getName(), deploymentJar);
+        invalidateMeta(moduleId.getParent());
       } finally {
         try {
           deploymentJar.delete();
@@ -127,16 +163,19 @@ public class RemoteDatasetFramework implements DatasetFramework {
                         Location jarLocation) throws DatasetManagementException {
     clientCache.getUnchecked(moduleId.getParent())
       .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    invalidateMeta(moduleId.getParent());
   }
 
   @Override
   public void deleteModule(DatasetModuleId moduleId) throws DatasetManagementException {
     clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    invalidateMeta(moduleId.getParent());
   }
 
   @Override
   public void deleteAllModules(NamespaceId namespaceId) throws DatasetManagementException {
     clientCache.getUnchecked(namespaceId).deleteModules();
+    invalidateMeta(namespaceId);
   }
 
   @Override
@@ -145,6 +184,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
     throws DatasetManagementException {
     clientCache.getUnchecked(datasetInstanceId.getParent())
       .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    invalidateMeta(datasetInstanceId);
   }
 
   @Override
@@ -152,6 +192,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
     throws DatasetManagementException {
     clientCache.getUnchecked(datasetInstanceId.getParent())
       .updateInstance(datasetInstanceId.getEntityName(), props);
+    invalidateMeta(datasetInstanceId);
   }
 
   @Override
@@ -169,15 +210,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Nullable
   @Override
   public DatasetSpecification getDatasetSpec(DatasetId datasetInstanceId) throws DatasetManagementException {
-    DatasetMeta meta = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta meta = getRemoteMeta(datasetInstanceId);
     return meta == null ? null : meta.getSpec();
   }
 
   @Override
   public boolean hasInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName()) != null;
+    return getRemoteMeta(datasetInstanceId) != null;
   }
 
   @Override
@@ -198,11 +237,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Override
   public void deleteInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
     clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    invalidateMeta(datasetInstanceId);
   }
 
   @Override
   public void deleteAllInstances(NamespaceId namespaceId) throws DatasetManagementException, IOException {
     clientCache.getUnchecked(namespaceId).deleteInstances();
+    invalidateMeta(namespaceId);
   }
 
   @Override
@@ -217,8 +258,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                              @Nullable ClassLoader parentClassLoader,
                                              DatasetClassLoaderProvider classLoaderProvider)
     throws DatasetManagementException, IOException {
-    DatasetMeta instanceInfo = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta instanceInfo = getCachedMeta(datasetInstanceId);
     if (instanceInfo == null) {
       return null;
     }
@@ -235,7 +275,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                           @Nullable Iterable<? extends EntityId> owners, AccessType accessType)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getInstance(id.getEntityName());
+    DatasetMeta datasetMeta = getCachedMeta(id);
     if (datasetMeta == null) {
       return null;
     }
@@ -249,6 +289,62 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // no-op. The RemoteDatasetFramework doesn't need to do anything. The lineage should be recorded before this point.
   }
 
+  /**
+   * Returns the {@link DatasetMeta} of the given dataset instance, from the cache if it has been fetched by the
+   * current principal before. Datasets that don't exist are not cached, so that they can be seen as soon as they
+   * are created.
+   */
+  @Nullable
+  private DatasetMeta getCachedMeta(DatasetId datasetInstanceId) throws DatasetManagementException {
+    ImmutablePair<Principal, DatasetId> key = ImmutablePair.of(authenticationContext.getPrincipal(),
+                                                               datasetInstanceId);
+    DatasetMeta meta = metaCache.getIfPresent(key);
+    if (meta != null) {
+      metricsContext.increment(Constants.Metrics.Name.Dataset.CLIENT_META_CACHE_HITS, 1);
+      return meta;
+    }
+    metricsContext.increment(Constants.Metrics.Name.Dataset.CLIENT_META_CACHE_MISSES, 1);
+    meta = getRemoteMeta(datasetInstanceId);
+    if (meta != null) {
+      metaCache.put(key, meta);
+    }
+    return meta;
+  }
+
+  /**
+   * Fetches the {@link DatasetMeta} of the given dataset instance from the dataset service.
+   */
+  @Nullable
+  private DatasetMeta getRemoteMeta(DatasetId datasetInstanceId) throws DatasetManagementException {
+    Stopwatch stopwatch = new Stopwatch().start();
+    try {
+      return clientCache.getUnchecked(datasetInstanceId.getParent()).getInstance(datasetInstanceId.getEntityName());
+    } finally {
+      metricsContext.gauge(Constants.Metrics.Name.Dataset.CLIENT_META_REMOTE_LATENCY_MS,
+                           stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+    }
+  }
+
+  /**
+   * Drops the cached {@link DatasetMeta} of the given dataset instance, for all principals.
+   */
+  private void invalidateMeta(DatasetId datasetInstanceId) {
+    metaCache.asMap().keySet().removeIf(key -> key.getSecond().equals(datasetInstanceId));
+  }
+
+  /**
+   * Drops the cached {@link DatasetMeta} of all dataset instances that can be affected by a change in the
+   * given namespace. Since types of the system namespace are available in all namespaces, a change in the
+   * system namespace drops all entries.
+   */
+  private void invalidateMeta(NamespaceId namespaceId) {
+    if (NamespaceId.SYSTEM.equals(namespaceId)) {
+      metaCache.invalidateAll();
+      return;
+    }
+    metaCache.asMap().keySet().removeIf(key -> key.getSecond().getParent().equals(namespaceId));
+  }
+
   private Location createDeploymentJar(Class<?> clz) throws IOException {
     File tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                             cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
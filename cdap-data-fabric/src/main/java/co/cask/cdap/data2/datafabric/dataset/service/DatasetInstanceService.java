@@ -70,8 +70,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 
@@ -452,13 +454,15 @@ public class DatasetInstanceService {
     Principal requestingUser = authenticationContext.getPrincipal();
 
     Map<DatasetId, DatasetSpecification> datasets = new HashMap<>();
+    Set<DatasetId> toEnforce = new LinkedHashSet<>();
     for (DatasetSpecification spec : instanceManager.getAll(namespaceId)) {
       DatasetId datasetId = namespaceId.dataset(spec.getName());
       if (!DatasetsUtil.isSystemDatasetInUserNamespace(datasetId)) {
-        authorizationEnforcer.enforce(datasetId, requestingUser, Action.ADMIN);
+        toEnforce.add(datasetId);
       }
       datasets.put(datasetId, spec);
     }
+    authorizationEnforcer.enforce(toEnforce, requestingUser, Action.ADMIN);
 
     // auth check passed, we can start deleting the datasets
     for (DatasetId datasetId : datasets.keySet()) {
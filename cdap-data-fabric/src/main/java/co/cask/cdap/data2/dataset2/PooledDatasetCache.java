@@ -0,0 +1,397 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2;
+
+import co.cask.cdap.api.data.DatasetInstantiationException;
+import co.cask.cdap.api.dataset.Dataset;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.transaction.MultiThreadTransactionAware;
+import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
+import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Closeables;
+import org.apache.tephra.TransactionAware;
+import org.apache.tephra.TransactionContext;
+import org.apache.tephra.TransactionFailureException;
+import org.apache.tephra.TransactionSystemClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Implementation of {@link DynamicDatasetCache} that shares a bounded pool of {@link SingleThreadDatasetCache}s
+ * among all threads, instead of keeping one for every thread like the {@link MultiThreadDatasetCache}.
+ *
+ * A thread checks out a cache from the pool when it first uses this cache, and returns it when its transaction
+ * is committed or aborted, or when it dismisses its transaction context. The datasets and the transaction context
+ * obtained by a thread must therefore not be used after the end of its transaction. A thread that starts another
+ * transaction gets the same cache again, unless another thread checked it out in the meantime.
+ *
+ * If all caches of the pool are checked out, a thread waits for one to be returned. If none is returned within
+ * the configured wait time, the thread gets a new cache that is closed instead of being returned to the pool.
+ */
+public class PooledDatasetCache extends DynamicDatasetCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PooledDatasetCache.class);
+  private static final long NO_OWNER = -1L;
+
+  private final MetricsContext metricsContext;
+  private final Map<String, Map<String, String>> staticDatasets;
+  private final int poolSize;
+  private final long waitMillis;
+
+  // the caches that are not checked out, most recently returned first
+  private final BlockingDeque<PooledEntry> idleEntries = new LinkedBlockingDeque<>();
+  // all caches that are not closed yet, including the ones created when the pool is exhausted
+  private final Set<PooledEntry> allEntries = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private final AtomicInteger pooledEntries = new AtomicInteger();
+  // the cache each thread checked out last, so that it can get the same one back
+  private final Cache<Thread, ThreadBinding> threadBindings;
+  private final List<TransactionAware> extraTxAwares;
+  private volatile boolean closed;
+
+  /**
+   * See {@link DynamicDatasetCache}.
+   *
+   * @param staticDatasets  if non-null, a map from dataset name to runtime arguments. These datasets will be
+   *                        instantiated in every cache of the pool, and they will participate in every transaction
+   *                        started through {@link #newTransactionContext}.
+   * @param poolSize the maximum number of caches kept in the pool
+   * @param waitMillis the maximum time in milliseconds to wait for a cache to be returned to the pool, if all
+   *                   caches are checked out
+   * @param multiThreadTxAwares a list of {@link MultiThreadTransactionAware} that will get added to each
+   *                            {@link SingleThreadDatasetCache} of the pool when it is checked out, to participate
+   *                            in transaction lifecycle.
+   */
+  public PooledDatasetCache(SystemDatasetInstantiator instantiator,
+                            TransactionSystemClient txClient,
+                            NamespaceId namespace,
+                            Map<String, String> runtimeArguments,
+                            @Nullable MetricsContext metricsContext,
+                            @Nullable Map<String, Map<String, String>> staticDatasets,
+                            int poolSize, long waitMillis,
+                            MultiThreadTransactionAware<?>...multiThreadTxAwares) {
+    super(instantiator, txClient, namespace, runtimeArguments);
+    Preconditions.checkArgument(poolSize > 0, "Pool size must be positive: %s", poolSize);
+    this.metricsContext = metricsContext;
+    this.staticDatasets = staticDatasets;
+    this.poolSize = poolSize;
+    this.waitMillis = waitMillis;
+    this.extraTxAwares = new CopyOnWriteArrayList<>(Arrays.<TransactionAware>asList(multiThreadTxAwares));
+    this.threadBindings = CacheBuilder.newBuilder()
+      .weakKeys()
+      .removalListener(new RemovalListener<Thread, ThreadBinding>() {
+        @Override
+        @ParametersAreNonnullByDefault
+        public void onRemoval(RemovalNotification<Thread, ThreadBinding> notification) {
+          ThreadBinding binding = notification.getValue();
+          // return the cache of a thread that went away without completing its transaction
+          if (notification.getCause() == RemovalCause.COLLECTED && binding != null) {
+            release(binding.entry, binding.threadId);
+          }
+        }
+      })
+      .build();
+  }
+
+  @Override
+  public void invalidate() {
+    // note that this only invalidates the datasets of the cache checked out by the current thread
+    PooledEntry entry = checkedOutEntry();
+    if (entry != null) {
+      entry.invalidate();
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    super.close();
+    threadBindings.invalidateAll();
+    idleEntries.clear();
+    for (PooledEntry entry : allEntries) {
+      closeEntry(entry);
+    }
+    for (TransactionAware txAware : extraTxAwares) {
+      if (txAware instanceof Closeable) {
+        Closeables.closeQuietly((Closeable) txAware);
+      }
+    }
+  }
+
+  @Override
+  public <T extends Dataset> T getDataset(DatasetCacheKey key, boolean bypass)
+    throws DatasetInstantiationException {
+    return entryForCurrentThread().getDataset(key, bypass);
+  }
+
+  @Override
+  public void discardDataset(Dataset dataset) {
+    // a dataset can only be discarded from the cache it was obtained from
+    PooledEntry entry = checkedOutEntry();
+    if (entry != null) {
+      entry.discardDataset(dataset);
+    }
+  }
+
+  @Override
+  public TransactionContext newTransactionContext() throws TransactionFailureException {
+    return entryForCurrentThread().newTransactionContext();
+  }
+
+  @Override
+  public void dismissTransactionContext() {
+    PooledEntry entry = checkedOutEntry();
+    if (entry != null) {
+      entry.dismissTransactionContext();
+      release(entry, Thread.currentThread().getId());
+    }
+  }
+
+  @Override
+  public Iterable<TransactionAware> getStaticTransactionAwares() {
+    return entryForCurrentThread().getStaticTransactionAwares();
+  }
+
+  @Override
+  public Iterable<TransactionAware> getTransactionAwares() {
+    return entryForCurrentThread().getTransactionAwares();
+  }
+
+  @Override
+  public Iterable<TransactionAware> getExtraTransactionAwares() {
+    return Collections.unmodifiableList(extraTxAwares);
+  }
+
+  @Override
+  public void addExtraTransactionAware(TransactionAware txAware) {
+    if (!extraTxAwares.contains(txAware)) {
+      extraTxAwares.add(txAware);
+    }
+    PooledEntry entry = checkedOutEntry();
+    if (entry != null) {
+      entry.addExtraTransactionAware(txAware);
+    }
+  }
+
+  @Override
+  public void removeExtraTransactionAware(TransactionAware txAware) {
+    extraTxAwares.remove(txAware);
+    PooledEntry entry = checkedOutEntry();
+    if (entry != null) {
+      entry.removeExtraTransactionAware(txAware);
+    }
+  }
+
+  @VisibleForTesting
+  public int getIdleCount() {
+    return idleEntries.size();
+  }
+
+  /**
+   * Returns the cache checked out by the current thread, or {@code null} if it has none, without checking out
+   * a cache from the pool.
+   */
+  @Nullable
+  private PooledEntry checkedOutEntry() {
+    Thread thread = Thread.currentThread();
+    ThreadBinding binding = threadBindings.getIfPresent(thread);
+    if (binding == null) {
+      return null;
+    }
+    if (binding.entry.ownerId == thread.getId()) {
+      return binding.entry;
+    }
+    // if nobody checked out the last cache of this thread since it was returned, the thread can take it back
+    return idleEntries.remove(binding.entry) ? checkout(binding.entry, thread) : null;
+  }
+
+  /**
+   * Returns the cache checked out by the current thread, checking one out from the pool if necessary.
+   */
+  private PooledEntry entryForCurrentThread() {
+    Preconditions.checkState(!closed, "Dataset cache is closed.");
+    PooledEntry entry = checkedOutEntry();
+    if (entry != null) {
+      return entry;
+    }
+    Thread thread = Thread.currentThread();
+    entry = acquire();
+    // the cache may still hold the transaction context of the thread that returned it
+    entry.dismissTransactionContext();
+    threadBindings.put(thread, new ThreadBinding(thread.getId(), entry));
+    return checkout(entry, thread);
+  }
+
+  private PooledEntry checkout(PooledEntry entry, Thread thread) {
+    entry.ownerId = thread.getId();
+    // bring the extra transaction awares of the cache up to date
+    for (TransactionAware txAware : ImmutableList.copyOf(entry.getExtraTransactionAwares())) {
+      if (!extraTxAwares.contains(txAware)) {
+        entry.removeExtraTransactionAware(txAware);
+      }
+    }
+    for (TransactionAware txAware : extraTxAwares) {
+      if (!Iterables.contains(entry.getExtraTransactionAwares(), txAware)) {
+        entry.addExtraTransactionAware(txAware);
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * Takes an idle cache from the pool, creates a new one if the pool is not full, or waits for one to be returned.
+   */
+  private PooledEntry acquire() {
+    PooledEntry entry = idleEntries.pollFirst();
+    if (entry != null) {
+      return entry;
+    }
+    if (pooledEntries.incrementAndGet() <= poolSize) {
+      try {
+        return createEntry(true);
+      } catch (RuntimeException e) {
+        pooledEntries.decrementAndGet();
+        throw e;
+      }
+    }
+    pooledEntries.decrementAndGet();
+
+    Stopwatch stopwatch = new Stopwatch().start();
+    try {
+      entry = idleEntries.pollFirst(waitMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (metricsContext != null) {
+        metricsContext.gauge(Constants.Metrics.Name.Dataset.CACHE_POOL_WAIT_MS,
+                             stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+      }
+    }
+    if (entry == null) {
+      LOG.debug("No dataset cache was returned to the pool of size {} within {} ms, creating a new one.",
+                poolSize, waitMillis);
+      entry = createEntry(false);
+    }
+    return entry;
+  }
+
+  private PooledEntry createEntry(boolean pooled) {
+    PooledEntry entry = new PooledEntry(pooled);
+    allEntries.add(entry);
+    return entry;
+  }
+
+  /**
+   * Returns a cache to the pool, if it is still checked out by the given thread.
+   */
+  private void release(PooledEntry entry, long threadId) {
+    if (entry.ownerId != threadId) {
+      return;
+    }
+    entry.ownerId = NO_OWNER;
+    if (entry.pooled && !closed) {
+      idleEntries.offerFirst(entry);
+      // guard against a concurrent close() that may have missed this entry
+      if (closed && idleEntries.remove(entry)) {
+        closeEntry(entry);
+      }
+    } else {
+      closeEntry(entry);
+    }
+  }
+
+  private void closeEntry(PooledEntry entry) {
+    if (!allEntries.remove(entry)) {
+      return;
+    }
+    try {
+      if (entry.pooled) {
+        pooledEntries.decrementAndGet();
+      }
+      // only the datasets of the entry are closed, the instantiator is shared by all entries
+      entry.invalidate();
+    } catch (Throwable t) {
+      LOG.warn("Error closing pooled dataset cache", t);
+    }
+  }
+
+  /**
+   * The cache a thread checked out last.
+   */
+  private static final class ThreadBinding {
+    private final long threadId;
+    private final PooledEntry entry;
+
+    private ThreadBinding(long threadId, PooledEntry entry) {
+      this.threadId = threadId;
+      this.entry = entry;
+    }
+  }
+
+  /**
+   * A {@link SingleThreadDatasetCache} of the pool, which is returned to the pool when its transaction completes.
+   */
+  private final class PooledEntry extends SingleThreadDatasetCache {
+    private final boolean pooled;
+    private volatile long ownerId = NO_OWNER;
+
+    private PooledEntry(boolean pooled) {
+      super(PooledDatasetCache.this.instantiator, PooledDatasetCache.this.txClient,
+            PooledDatasetCache.this.namespace, PooledDatasetCache.this.runtimeArguments,
+            PooledDatasetCache.this.metricsContext, PooledDatasetCache.this.staticDatasets);
+      this.pooled = pooled;
+    }
+
+    @Override
+    protected void transactionCompleted() {
+      release(this, Thread.currentThread().getId());
+    }
+
+    @Override
+    protected void datasetInstantiated(DatasetCacheKey key) {
+      MetricsContext metricsContext = PooledDatasetCache.this.metricsContext;
+      if (metricsContext != null) {
+        metricsContext.increment(Constants.Metrics.Name.Dataset.CACHE_POOL_INSTANTIATIONS, 1);
+      }
+    }
+  }
+}
@@ -362,12 +362,28 @@ public class SingleThreadDatasetCache extends DynamicDatasetCache {
     super.close();
   }
 
+  /**
+   * Called after a transaction of a transaction context returned by {@link #newTransactionContext()} was
+   * committed or aborted. Note that this may be called more than once for the same transaction.
+   */
+  protected void transactionCompleted() {
+    // no-op
+  }
+
+  /**
+   * Called after a new instance of a dataset was created by this cache.
+   */
+  protected void datasetInstantiated(DatasetCacheKey key) {
+    // no-op
+  }
+
   /**
    * Creates a new instance of a dataset based on the given information.
    */
   private Dataset createDatasetInstance(DatasetCacheKey key, boolean recordLineage) {
     DatasetId datasetId = new DatasetId(key.getNamespace(), key.getName());
     Dataset dataset = instantiator.getDataset(datasetId, key.getArguments(), key.getAccessType());
+    datasetInstantiated(key);
     if (dataset instanceof MeteredDataset && metricsContext != null) {
       ((MeteredDataset) dataset).setMetricsCollector(
         metricsContext.childContext(Constants.Metrics.Tag.DATASET, key.getName()));
@@ -407,6 +423,24 @@ public class SingleThreadDatasetCache extends DynamicDatasetCache {
       return allTxAwares;
     }
 
+    @Override
+    public void finish() throws TransactionFailureException {
+      try {
+        super.finish();
+      } finally {
+        transactionCompleted();
+      }
+    }
+
+    @Override
+    public void abort(@Nullable TransactionFailureException cause) throws TransactionFailureException {
+      try {
+        super.abort(cause);
+      } finally {
+        transactionCompleted();
+      }
+    }
+
     @Override
     protected boolean doAddTransactionAware(TransactionAware txAware) {
       if (!regularTxAwares.add(txAware)) {
@@ -0,0 +1,244 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.partitioned;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.PartitionFilter;
+import co.cask.cdap.api.dataset.lib.Partitioning;
+import co.cask.cdap.api.dataset.lib.Partitioning.FieldType;
+import co.cask.cdap.common.utils.ImmutablePair;
+import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Plans how the partitions matching a {@link PartitionFilter} are read from the partitions table, in addition to
+ * the start and stop key computed from the leading fields of the filter.
+ *
+ * <p>The row key of a partition is the concatenation of its field values, separated by a \0 byte. As long as the
+ * position of each field in the row key is known, conditions on the fields that follow the leading fields can be
+ * evaluated by a {@link FuzzyRowFilter}, which seeks over the rows that don't match. This is the case for
+ * {@link FieldType#INT} and {@link FieldType#LONG} fields, and for any field with a single-value condition.
+ * Range conditions on these numeric fields are expanded into multiple fuzzy keys, as long as the number of keys
+ * stays small.</p>
+ *
+ * <p>If the filter cannot be expressed as a {@link FuzzyRowFilter}, for example because a string field without a
+ * single-value condition precedes the constrained fields, a condition on one of the indexed partitioning fields
+ * can be used to look up the partitions in the index instead.</p>
+ *
+ * <p>In all cases, the partitions read must still be matched against the filter.</p>
+ */
+final class PartitionScanPlanner {
+
+  /**
+   * Maximum number of fuzzy keys to generate when expanding range conditions.
+   */
+  static final int MAX_FUZZY_KEYS = 100;
+
+  private final Partitioning partitioning;
+  private final Set<String> indexedFields;
+
+  PartitionScanPlanner(Partitioning partitioning, Set<String> indexedFields) {
+    this.partitioning = partitioning;
+    this.indexedFields = indexedFields;
+  }
+
+  /**
+   * Creates a {@link FuzzyRowFilter} that matches the row keys of the partitions that can satisfy the given filter.
+   *
+   * @return the {@link FuzzyRowFilter}, or {@code null} if the filter cannot be expressed as fuzzy keys or if the
+   *         fuzzy keys would not constrain the scan beyond its start and stop key
+   */
+  @Nullable
+  FuzzyRowFilter createFuzzyRowFilter(PartitionFilter filter) {
+    int prefixLength = getPrefixLength(filter);
+    List<ByteArrayOutputStream> keys = new ArrayList<>(Collections.singletonList(new ByteArrayOutputStream()));
+    ByteArrayOutputStream mask = new ByteArrayOutputStream();
+    int fuzzyKeyLength = 0;
+
+    int idx = 0;
+    for (Map.Entry<String, FieldType> entry : partitioning.getFields().entrySet()) {
+      FieldType fieldType = entry.getValue();
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(entry.getKey());
+      if (condition != null && !isValid(condition, fieldType)) {
+        // the filter doesn't match any partition, leave it to the filter to reject them
+        return null;
+      }
+      if (idx > 0) {
+        // the field separator
+        append(keys, mask, new byte[] { 0 }, false);
+      }
+
+      // the range of the first field after the prefix is already covered by the start and stop key
+      long rangeSize = condition == null || idx <= prefixLength ? 0 : getRangeSize(condition, fieldType);
+      boolean constrained;
+      if (condition != null && condition.isSingleValue()) {
+        append(keys, mask, FieldTypes.toBytes(condition.getValue(), fieldType), false);
+        constrained = true;
+      } else if (rangeSize > 0 && rangeSize <= MAX_FUZZY_KEYS / keys.size()) {
+        keys = expand(keys, condition, fieldType);
+        mask.write(new byte[getLength(fieldType)], 0, getLength(fieldType));
+        constrained = true;
+      } else if (fieldType != FieldType.STRING) {
+        byte[] fuzzy = new byte[getLength(fieldType)];
+        append(keys, mask, fuzzy, true);
+        constrained = false;
+      } else {
+        // a string field without a single value has a variable length, hence the following fields can't be located
+        break;
+      }
+      // the leading single-value fields are already covered by the start and stop key of the scan
+      if (constrained && idx > prefixLength) {
+        fuzzyKeyLength = mask.size();
+      }
+      idx++;
+    }
+
+    if (fuzzyKeyLength == 0) {
+      return null;
+    }
+    byte[] fuzzyMask = Arrays.copyOf(mask.toByteArray(), fuzzyKeyLength);
+    List<ImmutablePair<byte[], byte[]>> fuzzyKeys = new ArrayList<>(keys.size());
+    for (ByteArrayOutputStream key : keys) {
+      fuzzyKeys.add(ImmutablePair.of(Arrays.copyOf(key.toByteArray(), fuzzyKeyLength), fuzzyMask));
+    }
+    return new FuzzyRowFilter(fuzzyKeys);
+  }
+
+  /**
+   * Returns the condition of the given filter that should be used to look up partitions in the index of one of
+   * the indexed partitioning fields. Single-value conditions are preferred over range conditions, and range
+   * conditions are only considered for numeric fields.
+   *
+   * @return the condition to look up in the index, or {@code null} if the index should not be used
+   */
+  @Nullable
+  PartitionFilter.Condition<? extends Comparable> getIndexCondition(PartitionFilter filter) {
+    int prefixLength = getPrefixLength(filter);
+    PartitionFilter.Condition<? extends Comparable> rangeCondition = null;
+    int idx = 0;
+    for (Map.Entry<String, FieldType> entry : partitioning.getFields().entrySet()) {
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(entry.getKey());
+      // conditions up to the prefix are already covered by the start and stop key of the scan
+      if (idx++ <= prefixLength || condition == null || !indexedFields.contains(entry.getKey())
+        || !isValid(condition, entry.getValue())) {
+        continue;
+      }
+      if (condition.isSingleValue()) {
+        return condition;
+      }
+      if (rangeCondition == null && entry.getValue() != FieldType.STRING) {
+        rangeCondition = condition;
+      }
+    }
+    return rangeCondition;
+  }
+
+  /**
+   * Returns the number of leading partitioning fields that have a single-value condition in the given filter.
+   */
+  private int getPrefixLength(PartitionFilter filter) {
+    int prefixLength = 0;
+    for (String fieldName : partitioning.getFields().keySet()) {
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(fieldName);
+      if (condition == null || !condition.isSingleValue()) {
+        break;
+      }
+      prefixLength++;
+    }
+    return prefixLength;
+  }
+
+  /**
+   * Checks whether the values of the given condition are compatible with the field type.
+   */
+  private boolean isValid(PartitionFilter.Condition<? extends Comparable> condition, FieldType fieldType) {
+    try {
+      if (condition.getLower() != null) {
+        fieldType.validate(condition.getLower());
+      }
+      if (condition.getUpper() != null) {
+        fieldType.validate(condition.getUpper());
+      }
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the number of values in the range of the given condition, or 0 if the range cannot be expanded.
+   */
+  private long getRangeSize(PartitionFilter.Condition<? extends Comparable> condition, FieldType fieldType) {
+    if (fieldType == FieldType.STRING || condition.getLower() == null || condition.getUpper() == null) {
+      return 0;
+    }
+    long size = ((Number) condition.getUpper()).longValue() - ((Number) condition.getLower()).longValue();
+    // a non-positive size means the range is either empty or too large to be represented
+    return size > 0 ? size : 0;
+  }
+
+  /**
+   * Returns the number of bytes of a numeric field in the row key.
+   */
+  private int getLength(FieldType fieldType) {
+    return fieldType == FieldType.INT ? Bytes.SIZEOF_INT : Bytes.SIZEOF_LONG;
+  }
+
+  /**
+   * Expands each of the keys into one key for each value in the range of the given condition.
+   */
+  private List<ByteArrayOutputStream> expand(List<ByteArrayOutputStream> keys,
+                                             PartitionFilter.Condition<? extends Comparable> condition,
+                                             FieldType fieldType) {
+    long lower = ((Number) condition.getLower()).longValue();
+    long upper = ((Number) condition.getUpper()).longValue();
+    List<ByteArrayOutputStream> expanded = new ArrayList<>();
+    for (ByteArrayOutputStream key : keys) {
+      for (long value = lower; value < upper; value++) {
+        byte[] bytes = fieldType == FieldType.INT
+          ? FieldTypes.toBytes((int) value, fieldType) : FieldTypes.toBytes(value, fieldType);
+        ByteArrayOutputStream expandedKey = new ByteArrayOutputStream();
+        expandedKey.write(key.toByteArray(), 0, key.size());
+        expandedKey.write(bytes, 0, bytes.length);
+        expanded.add(expandedKey);
+      }
+    }
+    return expanded;
+  }
+
+  /**
+   * Appends the given bytes to all keys, and the corresponding fuzzy info to the mask.
+   */
+  private void append(List<ByteArrayOutputStream> keys, ByteArrayOutputStream mask, byte[] bytes, boolean fuzzy) {
+    for (ByteArrayOutputStream key : keys) {
+      key.write(bytes, 0, bytes.length);
+    }
+    byte[] info = new byte[bytes.length];
+    if (fuzzy) {
+      Arrays.fill(info, (byte) 1);
+    }
+    mask.write(info, 0, info.length);
+  }
+}
@@ -45,11 +45,13 @@ import co.cask.cdap.api.dataset.lib.PartitionMetadata;
 import co.cask.cdap.api.dataset.lib.PartitionOutput;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSet;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSetArguments;
+import co.cask.cdap.api.dataset.lib.PartitionedFileSetProperties;
 import co.cask.cdap.api.dataset.lib.Partitioning;
 import co.cask.cdap.api.dataset.lib.Partitioning.FieldType;
 import co.cask.cdap.api.dataset.lib.partitioned.PartitionKeyCodec;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
@@ -58,6 +60,7 @@ import co.cask.cdap.common.logging.Loggers;
 import co.cask.cdap.data.RuntimeProgramContext;
 import co.cask.cdap.data.RuntimeProgramContextAware;
 import co.cask.cdap.data2.dataset2.lib.file.FileSetDataset;
+import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.explore.client.ExploreFacade;
 import co.cask.cdap.proto.id.DatasetId;
 import com.google.common.annotations.VisibleForTesting;
@@ -129,6 +132,7 @@ public class PartitionedFileSetDataset extends AbstractDataset
   private static final byte[] LAST_MODIFICATION_TIME_COL = { 'm' };
   private static final byte[] RELATIVE_PATH = { 'p' };
   private static final byte[] METADATA_PREFIX = { 'm', '.' };
+  private static final byte[] FIELD_PREFIX = { 'f', '.' };
 
   protected final FileSet files;
   protected final DatasetSpecification spec;
@@ -137,6 +141,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
   protected final Map<String, String> runtimeArguments;
   protected final Partitioning partitioning;
   private final IndexedTable partitionsTable;
+  private final Set<String> indexedFields;
+  private final PartitionScanPlanner scanPlanner;
   private final Provider<ExploreFacade> exploreFacadeProvider;
 
   private final DatasetId datasetInstanceId;
@@ -164,6 +170,8 @@ public class PartitionedFileSetDataset extends AbstractDataset
     this.exploreEnabled = FileSetProperties.isExploreEnabled(spec.getProperties());
     this.runtimeArguments = arguments;
     this.partitioning = partitioning;
+    this.indexedFields = PartitionedFileSetProperties.getIndexedFields(spec.getProperties());
+    this.scanPlanner = new PartitionScanPlanner(partitioning, indexedFields);
     this.exploreFacadeProvider = exploreFacadeProvider;
     this.datasetInstanceId = new DatasetId(datasetContext.getNamespaceId(), name);
   }
@@ -356,6 +364,11 @@ public class PartitionedFileSetDataset extends AbstractDataset
     if (!appending) {
       put.add(RELATIVE_PATH, Bytes.toBytes(path));
       put.add(CREATION_TIME_COL, nowInMillis);
+      // the values of the indexed fields, so that they get indexed in the partitions table
+      for (String indexedField : indexedFields) {
+        put.add(getFieldColumn(indexedField),
+                FieldTypes.toBytes(key.getField(indexedField), partitioning.getFieldType(indexedField)));
+      }
     }
     put.add(LAST_MODIFICATION_TIME_COL, nowInMillis);
 
@@ -757,40 +770,76 @@ public class PartitionedFileSetDataset extends AbstractDataset
   // if decodeMetadata is false, null is passed as the PartitionMetadata to the PartitionConsumer,
   // for efficiency reasons, since the metadata is not always needed
   protected void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata) {
-    byte[] startKey = generateStartKey(filter);
-    byte[] endKey = generateStopKey(filter);
-    getPartitions(filter, consumer, decodeMetadata, startKey, endKey, Long.MAX_VALUE);
+    try (Scanner scanner = scanPartitions(filter)) {
+      getPartitions(scanner, filter, consumer, decodeMetadata, Long.MAX_VALUE);
+    }
   }
 
   private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata,
                              @Nullable byte[] startKey, @Nullable byte[] endKey, long limit) {
-    long count = 0L;
     try (Scanner scanner = partitionsTable.scan(startKey, endKey)) {
-      while (count < limit) {
-        Row row = scanner.next();
-        if (row == null) {
-          break;
-        }
-        PartitionKey key;
-        try {
-          key = parseRowKey(row.getRow(), partitioning);
-        } catch (IllegalArgumentException e) {
-          LOG.debug(String.format("Failed to parse row key for partitioned file set '%s': %s",
-                                  getName(), Bytes.toStringBinary(row.getRow())));
-          continue;
-        }
-        if (filter != null && !filter.match(key)) {
-          continue;
-        }
-        byte[] pathBytes = row.get(RELATIVE_PATH);
-        if (pathBytes != null) {
-          consumer.consume(key, Bytes.toString(pathBytes), decodeMetadata ? metadataFromRow(row) : null);
-        }
-        count++;
+      getPartitions(scanner, filter, consumer, decodeMetadata, limit);
+    }
+  }
+
+  /**
+   * Opens a scanner over the rows of the partitions table that can match the given filter. The scan is bounded by
+   * the leading fields of the filter, and narrowed down with a {@link FuzzyRowFilter} if the conditions on the
+   * following fields allow it. Otherwise, if the filter has a condition on an indexed field, the partitions are
+   * looked up in the index of that field. The rows returned must still be matched against the filter.
+   */
+  private Scanner scanPartitions(@Nullable PartitionFilter filter) {
+    if (filter == null) {
+      return partitionsTable.scan(null, null);
+    }
+    byte[] startKey = generateStartKey(filter);
+    byte[] endKey = generateStopKey(filter);
+    FuzzyRowFilter fuzzyRowFilter = scanPlanner.createFuzzyRowFilter(filter);
+    if (fuzzyRowFilter != null) {
+      return partitionsTable.scan(new Scan(startKey, endKey, fuzzyRowFilter));
+    }
+    PartitionFilter.Condition<? extends Comparable> condition = scanPlanner.getIndexCondition(filter);
+    if (condition == null) {
+      return partitionsTable.scan(startKey, endKey);
+    }
+    byte[] column = getFieldColumn(condition.getFieldName());
+    FieldType fieldType = partitioning.getFieldType(condition.getFieldName());
+    if (condition.isSingleValue()) {
+      return partitionsTable.readByIndex(column, FieldTypes.toBytes(condition.getValue(), fieldType));
+    }
+    return partitionsTable.scanByIndex(
+      column,
+      condition.getLower() == null ? null : FieldTypes.toBytes(condition.getLower(), fieldType),
+      condition.getUpper() == null ? null : FieldTypes.toBytes(condition.getUpper(), fieldType));
+  }
+
+  private void getPartitions(Scanner scanner, @Nullable PartitionFilter filter, PartitionConsumer consumer,
+                             boolean decodeMetadata, long limit) {
+    long count = 0L;
+    while (count < limit) {
+      Row row = scanner.next();
+      if (row == null) {
+        break;
+      }
+      PartitionKey key;
+      try {
+        key = parseRowKey(row.getRow(), partitioning);
+      } catch (IllegalArgumentException e) {
+        LOG.debug(String.format("Failed to parse row key for partitioned file set '%s': %s",
+                                getName(), Bytes.toStringBinary(row.getRow())));
+        continue;
       }
-      if (count == 0) {
-        warnIfInvalidPartitionFilter(filter, partitioning);
+      if (filter != null && !filter.match(key)) {
+        continue;
       }
+      byte[] pathBytes = row.get(RELATIVE_PATH);
+      if (pathBytes != null) {
+        consumer.consume(key, Bytes.toString(pathBytes), decodeMetadata ? metadataFromRow(row) : null);
+      }
+      count++;
+    }
+    if (count == 0) {
+      warnIfInvalidPartitionFilter(filter, partitioning);
     }
   }
 
@@ -1209,6 +1258,13 @@ public class PartitionedFileSetDataset extends AbstractDataset
     return rowKey;
   }
 
+  /**
+   * Returns the column of the partitions table that stores the value of an indexed partitioning field.
+   */
+  static byte[] getFieldColumn(String fieldName) {
+    return Bytes.concat(FIELD_PREFIX, Bytes.toBytes(fieldName));
+  }
+
   private byte[] generateStartKey(PartitionFilter filter) {
     if (null == filter) {
       return null;
@@ -257,6 +257,14 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     this.metricsCollector = metricsCollector;
   }
 
+  /**
+   * @return the collector for data ops metrics of this table, or {@code null} if none was set
+   */
+  @Nullable
+  protected MetricsCollector getMetricsCollector() {
+    return metricsCollector;
+  }
+
   @Override
   public void close() throws IOException {
     // releasing resources
@@ -43,6 +43,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
@@ -393,6 +394,32 @@ public class MetadataStoreDataset extends AbstractDataset {
     }
   }
 
+  /**
+   * Run a scan on MDS for default COLUMN, without deserializing the values
+   *
+   * @param startId  scan start key
+   * @param stopId   scan stop key
+   * @param function function to process the key and raw value of each element returned from scan.
+   *                 If function.apply returns false then the scan is stopped.
+   */
+  protected void scanValues(MDSKey startId, @Nullable MDSKey stopId, BiFunction<MDSKey, byte[], Boolean> function) {
+    byte[] startKey = startId.getKey();
+    byte[] stopKey = stopId == null ? Bytes.stopKeyForPrefix(startKey) : stopId.getKey();
+
+    try (Scanner scan = table.scan(startKey, stopKey)) {
+      Row next;
+      while ((next = scan.next()) != null) {
+        byte[] columnValue = next.get(COLUMN);
+        if (columnValue == null) {
+          continue;
+        }
+        if (!function.apply(new MDSKey(next.getRow()), columnValue)) {
+          break;
+        }
+      }
+    }
+  }
+
   /**
    * Delete all values in the given prefix row key
    *
@@ -459,6 +486,20 @@ public class MetadataStoreDataset extends AbstractDataset {
     }
   }
 
+  /**
+   * Put the raw value with the given row key and default COLUMN, without serializing it
+   *
+   * @param id row key
+   * @param value the value to put
+   */
+  protected void writeValue(MDSKey id, byte[] value) {
+    try {
+      table.put(new Put(id.getKey()).add(COLUMN, value));
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
   /**
    * Increment the value in the row key and default COLUMN by the specified amount
    *
@@ -34,7 +34,10 @@ import co.cask.cdap.api.dataset.lib.KeyValueTable;
 import co.cask.cdap.api.dataset.lib.ObjectStore;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.io.BinaryEncoder;
-import co.cask.cdap.internal.io.ReflectionDatumReader;
+import co.cask.cdap.common.io.DatumReader;
+import co.cask.cdap.internal.io.ASMDatumReaderFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumReaderFactory;
 import co.cask.cdap.internal.io.ReflectionDatumWriter;
 import co.cask.cdap.internal.io.TypeRepresentation;
 import com.google.common.base.Preconditions;
@@ -59,19 +62,26 @@ public class ObjectStoreDataset<T> extends AbstractDataset implements ObjectStor
   private final Schema schema;
 
   private final ReflectionDatumWriter<T> datumWriter;
+  private final DatumReaderFactory datumReaderFactory;
   // we get this lazily, since we may not have the actual Type when simply instantiating this class (for instance, when
   // datasets are instantiated in DatasetSystemMetadataWriter for checking RecordScannable/BatchWritable/etc.),
   // but we do expect to have it when using it in a program context
-  private ReflectionDatumReader<T> datumReader;
+  private DatumReader<T> datumReader;
 
   public ObjectStoreDataset(String name, KeyValueTable kvTable, TypeRepresentation typeRep,
                             Schema schema, @Nullable ClassLoader classLoader) {
+    this(name, kvTable, typeRep, schema, classLoader, new ASMDatumReaderFactory(new ASMFieldAccessorFactory()));
+  }
+
+  public ObjectStoreDataset(String name, KeyValueTable kvTable, TypeRepresentation typeRep,
+                            Schema schema, @Nullable ClassLoader classLoader, DatumReaderFactory datumReaderFactory) {
     super(name, kvTable);
     this.kvTable = kvTable;
     this.typeRep = typeRep;
     this.typeRep.setClassLoader(classLoader);
     this.schema = schema;
     this.datumWriter = new ReflectionDatumWriter<>(this.schema);
+    this.datumReaderFactory = datumReaderFactory;
   }
 
   public ObjectStoreDataset(String name, KeyValueTable kvTable,
@@ -150,9 +160,9 @@ public class ObjectStoreDataset<T> extends AbstractDataset implements ObjectStor
   }
 
   @SuppressWarnings("unchecked")
-  private ReflectionDatumReader<T> getReflectionDatumReader() {
+  private DatumReader<T> getDatumReader() {
     if (datumReader == null) {
-      datumReader = new ReflectionDatumReader<>(schema, (TypeToken<T>) TypeToken.of(this.typeRep.toType()));
+      datumReader = datumReaderFactory.create((TypeToken<T>) TypeToken.of(this.typeRep.toType()), schema);
     }
     return datumReader;
   }
@@ -165,7 +175,7 @@ public class ObjectStoreDataset<T> extends AbstractDataset implements ObjectStor
     ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
     BinaryDecoder decoder = new BinaryDecoder(bis);
     try {
-      return getReflectionDatumReader().read(decoder, this.schema);
+      return getDatumReader().read(decoder, this.schema);
     } catch (IOException e) {
       // SHOULD NEVER happen
       throw new DataSetException("Failed to decode read object: " + e.getMessage(), e);
@@ -27,6 +27,9 @@ import co.cask.cdap.api.dataset.Reconfigurable;
 import co.cask.cdap.api.dataset.lib.AbstractDatasetDefinition;
 import co.cask.cdap.api.dataset.lib.KeyValueTable;
 import co.cask.cdap.api.dataset.lib.ObjectStore;
+import co.cask.cdap.internal.io.ASMDatumReaderFactory;
+import co.cask.cdap.internal.io.ASMFieldAccessorFactory;
+import co.cask.cdap.internal.io.DatumReaderFactory;
 import co.cask.cdap.internal.io.SchemaTypeAdapter;
 import co.cask.cdap.internal.io.TypeRepresentation;
 import com.google.common.base.Preconditions;
@@ -49,11 +52,14 @@ public class ObjectStoreDefinition
     .create();
 
   private final DatasetDefinition<? extends KeyValueTable, ?> tableDef;
+  // shared by all datasets created from this definition, so that datum readers are only generated once per type
+  private final DatumReaderFactory datumReaderFactory;
 
   public ObjectStoreDefinition(String name, DatasetDefinition<? extends KeyValueTable, ?> keyValueDef) {
     super(name);
     Preconditions.checkArgument(keyValueDef != null, "KeyValueTable definition is required");
     this.tableDef = keyValueDef;
+    this.datumReaderFactory = new ASMDatumReaderFactory(new ASMFieldAccessorFactory());
   }
 
   @Override
@@ -102,6 +108,6 @@ public class ObjectStoreDefinition
 
     TypeRepresentation typeRep = GSON.fromJson(spec.getProperty("type"), TypeRepresentation.class);
     Schema schema = GSON.fromJson(spec.getProperty("schema"), Schema.class);
-    return new ObjectStoreDataset(spec.getName(), table, typeRep, schema, classLoader);
+    return new ObjectStoreDataset(spec.getName(), table, typeRep, schema, classLoader, datumReaderFactory);
   }
 }
@@ -25,7 +25,9 @@ import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.table.Filter;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.TableProperties;
+import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
@@ -44,6 +46,7 @@ import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
@@ -104,6 +107,7 @@ public class HBaseTable extends BufferingTable {
   // name length + name of the table: handy to have one cached
   private final byte[] nameAsTxChangePrefix;
   private final boolean safeReadlessIncrements;
+  private final boolean persistRegionMetrics;
   // tx max lifetime property comes usually from cConf in DefaultTransactionProcessor but if it is not available
   // briefly during startup, the coprocessor gets it from the operation's attribute.
   private final byte[] txMaxLifetimeMillis;
@@ -138,6 +142,7 @@ public class HBaseTable extends BufferingTable {
     // table name is not the same as the dataset name anymore
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) this.hTableName.length()}, Bytes.toBytes(this.hTableName));
     this.safeReadlessIncrements = args.containsKey(SAFE_INCREMENTS) && Boolean.valueOf(args.get(SAFE_INCREMENTS));
+    this.persistRegionMetrics = cConf.getBoolean(Constants.Dataset.TABLE_PERSIST_REGION_METRICS_ENABLED);
     this.txMaxLifetimeMillis = Bytes.toBytes(TimeUnit.SECONDS.toMillis(
       cConf.getInt(TxConstants.Manager.CFG_TX_MAX_LIFETIME, TxConstants.Manager.DEFAULT_TX_MAX_LIFETIME)));
     this.arguments = args;
@@ -315,12 +320,53 @@ public class HBaseTable extends BufferingTable {
   private boolean hbaseFlush(List<Mutation> mutations)
     throws IOException, InterruptedException {
 
-    if (!mutations.isEmpty()) {
-      hTable.batch(mutations, new Object[mutations.size()]);
-      hTable.flushCommits();
-      return true;
+    if (mutations.isEmpty()) {
+      return false;
+    }
+    // HTable.batch() already groups the mutations by region server and submits the groups in parallel
+    Stopwatch stopwatch = new Stopwatch().start();
+    hTable.batch(mutations, new Object[mutations.size()]);
+    hTable.flushCommits();
+    MetricsCollector metricsCollector = getMetricsCollector();
+    if (metricsCollector != null) {
+      reportPersist(metricsCollector, mutations, stopwatch.elapsedTime(TimeUnit.MILLISECONDS));
+    }
+    return true;
+  }
+
+  /**
+   * Reports the latency of persisting the given mutations. If enabled, also reports how the mutations were spread
+   * over the regions of the table.
+   */
+  private void reportPersist(MetricsCollector metricsCollector, List<Mutation> mutations, long latencyMillis) {
+    metricsCollector.gauge(Constants.Metrics.Name.Dataset.PERSIST_LATENCY_MS, latencyMillis);
+    // Locating the regions may need a lookup in the meta table if the location is not cached,
+    // hence it is only done if enabled explicitly
+    if (!persistRegionMetrics) {
+      return;
+    }
+    Map<String, Integer> mutationsPerRegion = Maps.newHashMap();
+    try {
+      for (Mutation mutation : mutations) {
+        // the locations are usually cached by the connection from submitting the batch
+        String region = hTable.getRegionLocation(mutation.getRow()).getRegionInfo().getEncodedName();
+        Integer count = mutationsPerRegion.get(region);
+        mutationsPerRegion.put(region, count == null ? 1 : count + 1);
+      }
+    } catch (IOException e) {
+      // metrics must never fail the commit
+      LOG.debug("Failed to locate regions of table {} for persist metrics", hTableName, e);
+      mutationsPerRegion.clear();
+    }
+    if (!mutationsPerRegion.isEmpty()) {
+      metricsCollector.gauge(Constants.Metrics.Name.Dataset.PERSIST_REGIONS, mutationsPerRegion.size());
+      metricsCollector.gauge(Constants.Metrics.Name.Dataset.PERSIST_MAX_REGION_MUTATIONS,
+                             Collections.max(mutationsPerRegion.values()));
+    }
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Persisted {} mutations to table {} in {} ms, mutations per region: {}",
+                mutations.size(), hTableName, latencyMillis, mutationsPerRegion);
     }
-    return false;
   }
 
   private PutBuilder getPut(PutBuilder existing, byte[] row, @Nullable byte[] txId) {
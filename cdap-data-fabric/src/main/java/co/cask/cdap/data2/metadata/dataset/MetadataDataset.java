@@ -76,6 +76,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -698,9 +700,38 @@ public class MetadataDataset extends AbstractDataset {
 
   private SearchResults searchByDefaultIndex(SearchRequest request) {
     List<MetadataEntry> results = new LinkedList<>();
+    scanDefaultIndex(request, (row, column) -> {
+      Optional<MetadataEntry> metadataEntry = parseRow(row, column, request.getTypes(), request.shouldShowHidden());
+      metadataEntry.ifPresent(results::add);
+    });
+
+    // cursors are not supported for default indexes, since results are not ranked here.
+    // See WeightedSearchRanker for ranking and paginating the matched entities.
+    return new SearchResults(results, Collections.emptyList());
+  }
+
+  /**
+   * Searches the default index for entities that match the specified search request, and passes the
+   * {@link MetadataEntity} of each matching index row to the given consumer. An entity is passed once for every
+   * index row that matches it. Unlike {@link #search(SearchRequest)}, matches are streamed to the consumer rather
+   * than collected, and the metadata values are not read, so memory used does not grow with the number of matches.
+   * Index rows are removed together with the metadata value they index, hence every index row matched belongs to
+   * a current value. The sort info, offset, limit and cursor of the request are ignored.
+   *
+   * @param request the search request
+   * @param consumer the consumer of the matched entities
+   */
+  public void searchByDefaultIndex(SearchRequest request, Consumer<MetadataEntity> consumer) {
+    scanDefaultIndex(request, (row, column) -> {
+      filterRow(row, column, request.getTypes(), request.shouldShowHidden()).ifPresent(consumer);
+    });
+  }
+
+  private void scanDefaultIndex(SearchRequest request, BiConsumer<Row, String> rowConsumer) {
     String column = request.isNamespaced() ?
       DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
 
+    // only the row key and the index column are needed, hence the data rows don't need to be read
     for (SearchTerm searchTerm : getSearchTerms(request)) {
       Scanner scanner;
       if (searchTerm.isPrefix()) {
@@ -708,25 +739,20 @@ public class MetadataDataset extends AbstractDataset {
         byte[] startKey = Bytes.toBytes(searchTerm.getTerm());
         @SuppressWarnings("ConstantConditions")
         byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
-        scanner = indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey);
+        scanner = indexedTable.scanIndex(Bytes.toBytes(column), startKey, stopKey);
       } else {
         byte[] value = Bytes.toBytes(searchTerm.getTerm());
-        scanner = indexedTable.readByIndex(Bytes.toBytes(column), value);
+        scanner = indexedTable.readIndex(Bytes.toBytes(column), value);
       }
       try {
         Row next;
         while ((next = scanner.next()) != null) {
-          Optional<MetadataEntry> metadataEntry = parseRow(next, column, request.getTypes(),
-                                                           request.shouldShowHidden());
-          metadataEntry.ifPresent(results::add);
+          rowConsumer.accept(next, column);
         }
       } finally {
         scanner.close();
       }
     }
-
-    // cursors are currently not supported for default indexes
-    return new SearchResults(results, Collections.emptyList());
   }
 
   private SearchResults searchByCustomIndex(SearchRequest request) throws BadRequestException {
@@ -769,7 +795,8 @@ public class MetadataDataset extends AbstractDataset {
       // the remainder is 1. However, this is not true, when the chunk size is 1, since in that case, the
       // remainder on division can never be 1, it is always 0.
       int mod = (limit == 1) ? 0 : 1;
-      try (Scanner scanner = indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey)) {
+      // the metadata is read separately for each entry, hence only the row key and the index column are needed
+      try (Scanner scanner = indexedTable.scanIndex(Bytes.toBytes(column), startKey, stopKey)) {
         Row next;
         while ((next = scanner.next()) != null && results.size() < fetchSize) {
           Optional<MetadataEntry> metadataEntry =
@@ -797,6 +824,16 @@ public class MetadataDataset extends AbstractDataset {
   // so return an Optional
   private Optional<MetadataEntry> parseRow(Row rowToProcess, String indexColumn,
                                            Set<EntityTypeSimpleName> entityFilter, boolean showHidden) {
+    return filterRow(rowToProcess, indexColumn, entityFilter, showHidden).flatMap(metadataEntity -> {
+      String key = MetadataKey.extractMetadataKey(rowToProcess.getRow());
+      return Optional.ofNullable(getMetadata(metadataEntity, key));
+    });
+  }
+
+  // returns the MetadataEntity of the index row, unless the row does not have the index column or the entity
+  // is filtered out by the targetType (entityFilter) or because it is hidden
+  private Optional<MetadataEntity> filterRow(Row rowToProcess, String indexColumn,
+                                             Set<EntityTypeSimpleName> entityFilter, boolean showHidden) {
     String rowValue = rowToProcess.getString(indexColumn);
     if (rowValue == null) {
       return Optional.empty();
@@ -822,10 +859,7 @@ public class MetadataDataset extends AbstractDataset {
     } catch (IllegalArgumentException e) {
       // ignore. For custom entities we don't really want to hide them if they start with _
     }
-
-    String key = MetadataKey.extractMetadataKey(rowKey);
-    MetadataEntry entry = getMetadata(metadataEntity, key);
-    return Optional.ofNullable(entry);
+    return Optional.of(metadataEntity);
   }
 
   /**
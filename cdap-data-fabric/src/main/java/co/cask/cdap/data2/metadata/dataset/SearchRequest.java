@@ -58,8 +58,8 @@ public class SearchRequest {
    * @param limit the number of results to return, starting from #offset. To return all, pass {@link Integer#MAX_VALUE}
    * @param numCursors the number of cursors to return in the response. A cursor identifies the first index of the
    *                   next page for pagination purposes. Defaults to {@code 0}
-   * @param cursor the cursor that acts as the starting index for the requested page. This is only applicable when
-   *               #sortInfo is not {@link SortInfo#DEFAULT}. If offset is also specified, it is applied starting at
+   * @param cursor the cursor that acts as the starting index for the requested page. It must be a cursor returned
+   *               by a previous search with the same #sortInfo. If offset is also specified, it is applied starting at
    *               the cursor. If {@code null}, the first row is used as the cursor
    * @param showHidden boolean which specifies whether to display hidden entities (entity whose name start with "_")
    *                    or not.
@@ -156,7 +156,7 @@ public class SearchRequest {
 
   /**
    * The number of cursors to return in the response. A cursor identifies the first index of the next page for
-   * pagination purposes. Only applies when {@link #getSortInfo()} is not {@link SortInfo#DEFAULT}.
+   * pagination purposes.
    *
    * @return number of cursors to return in the response
    */
@@ -165,8 +165,8 @@ public class SearchRequest {
   }
 
   /**
-   * The cursor that acts as the starting index for the request page. This is only applicable when
-   * {@link #getSortInfo()} is not {@link SortInfo#DEFAULT}. If offset is also specified, it is applied starting at
+   * The cursor that acts as the starting index for the request page. It must be a cursor returned by a previous
+   * search with the same {@link #getSortInfo()}. If offset is also specified, it is applied starting at
    * the cursor. If not present, the first row is used as the cursor.
    *
    * @return the cursor for search results, or null if there is no cursor
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.metadata.MetadataEntity;
+import com.google.common.base.Strings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+
+/**
+ * Ranks the entities matched by a search on the default index by weight, which is the number of index rows
+ * matched for the entity. Only a score per matched entity is kept while matches are added, and selecting a page
+ * keeps at most the entities up to the end of the page and its cursors in a bounded heap, rather than sorting
+ * every match.
+ *
+ * Entities with the same score are ordered by their metadata row key so that the ranking is deterministic.
+ * This allows a page to be identified by a cursor of the form [score]:[row key in hex] of its first entity.
+ */
+public final class WeightedSearchRanker {
+
+  private static final char CURSOR_SEPARATOR = ':';
+
+  // Orders from the highest rank to the lowest
+  private static final Comparator<Score> RANK_ORDER = (s1, s2) -> {
+    int cmp = Integer.compare(s2.score, s1.score);
+    return cmp != 0 ? cmp : Bytes.compareTo(s1.getRowKey(), s2.getRowKey());
+  };
+
+  private final Map<MetadataEntity, Score> scores = new HashMap<>();
+
+  /**
+   * Adds a match for the given entity, which increases its score by one.
+   */
+  public void add(MetadataEntity entity) {
+    Score score = scores.get(entity);
+    if (score == null) {
+      scores.put(entity, new Score(entity, 1));
+    } else {
+      score.score++;
+    }
+  }
+
+  /**
+   * Adds all matches from another ranker.
+   */
+  public void addAll(WeightedSearchRanker other) {
+    for (Score otherScore : other.scores.values()) {
+      Score score = scores.get(otherScore.entity);
+      if (score == null) {
+        scores.put(otherScore.entity, new Score(otherScore.entity, otherScore.score));
+      } else {
+        score.score += otherScore.score;
+      }
+    }
+  }
+
+  /**
+   * @return the number of distinct entities matched
+   */
+  public int getTotal() {
+    return scores.size();
+  }
+
+  /**
+   * Selects a page of the ranked entities.
+   *
+   * @param offset the number of entities to skip, starting from the cursor if it is given
+   * @param limit the maximum number of entities in the page
+   * @param numCursors the number of cursors of subsequent pages to return
+   * @param cursor the cursor of the first entity to consider, or {@code null} to start from the highest ranked entity
+   * @return the {@link Page} selected
+   * @throws IllegalArgumentException if the cursor is not valid
+   */
+  public Page rank(int offset, int limit, int numCursors, @Nullable String cursor) {
+    Score start = Strings.isNullOrEmpty(cursor) ? null : parseCursor(cursor);
+    // Keep entities of the page and of the pages after it that cursors are needed for.
+    // There's a potential for overflow so we account by limiting it to Integer.MAX_VALUE
+    int size = (int) Math.min(offset + ((numCursors + 1) * (long) limit), Integer.MAX_VALUE);
+    if (size == 0) {
+      return new Page(Collections.emptyList(), Collections.emptyList());
+    }
+
+    // The heap has the lowest ranked entity at its head, so that it can be replaced by a higher ranked one
+    PriorityQueue<Score> heap = new PriorityQueue<>(Math.max(1, Math.min(size, scores.size())),
+                                                    RANK_ORDER.reversed());
+    for (Score score : scores.values()) {
+      if (start != null && RANK_ORDER.compare(score, start) < 0) {
+        continue;
+      }
+      if (heap.size() < size) {
+        heap.add(score);
+      } else if (RANK_ORDER.compare(score, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(score);
+      }
+    }
+
+    List<Score> ranked = new ArrayList<>(heap);
+    ranked.sort(RANK_ORDER);
+
+    int endIndex = (int) Math.min(ranked.size(), (long) offset + limit);
+    List<MetadataEntity> entities = new ArrayList<>();
+    for (int i = offset; i < endIndex; i++) {
+      entities.add(ranked.get(i).entity);
+    }
+    List<String> cursors = new ArrayList<>();
+    for (int i = 1; i <= numCursors; i++) {
+      long index = offset + i * (long) limit;
+      if (limit == 0 || index >= ranked.size()) {
+        break;
+      }
+      cursors.add(toCursor(ranked.get((int) index)));
+    }
+    return new Page(entities, cursors);
+  }
+
+  /**
+   * Returns whether the given cursor is a valid cursor for a ranked search.
+   */
+  public static boolean isValidCursor(String cursor) {
+    try {
+      parseCursor(cursor);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static String toCursor(Score score) {
+    return score.score + String.valueOf(CURSOR_SEPARATOR) + Bytes.toHexString(score.getRowKey());
+  }
+
+  private static Score parseCursor(String cursor) {
+    int idx = cursor.indexOf(CURSOR_SEPARATOR);
+    if (idx <= 0 || idx == cursor.length() - 1) {
+      throw new IllegalArgumentException("Invalid cursor for search with default sorting: " + cursor);
+    }
+    try {
+      return new Score(Integer.parseInt(cursor.substring(0, idx)), Bytes.fromHexString(cursor.substring(idx + 1)));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor for search with default sorting: " + cursor, e);
+    }
+  }
+
+  /**
+   * A page of ranked entities, along with the cursors for the pages after it.
+   */
+  public static final class Page {
+    private final List<MetadataEntity> entities;
+    private final List<String> cursors;
+
+    private Page(List<MetadataEntity> entities, List<String> cursors) {
+      this.entities = entities;
+      this.cursors = cursors;
+    }
+
+    /**
+     * @return the entities in the page, from the highest ranked to the lowest
+     */
+    public List<MetadataEntity> getEntities() {
+      return entities;
+    }
+
+    /**
+     * @return the cursors of the pages after this page
+     */
+    public List<String> getCursors() {
+      return cursors;
+    }
+  }
+
+  /**
+   * The score of an entity. The row key is only computed when needed to break ties.
+   */
+  private static final class Score {
+    private final MetadataEntity entity;
+    private int score;
+    private byte[] rowKey;
+
+    Score(MetadataEntity entity, int score) {
+      this.entity = entity;
+      this.score = score;
+    }
+
+    Score(int score, byte[] rowKey) {
+      this.entity = null;
+      this.score = score;
+      this.rowKey = rowKey;
+    }
+
+    byte[] getRowKey() {
+      if (rowKey == null) {
+        rowKey = MetadataKey.createValueRowKey(entity, null).getKey();
+      }
+      return rowKey;
+    }
+  }
+}
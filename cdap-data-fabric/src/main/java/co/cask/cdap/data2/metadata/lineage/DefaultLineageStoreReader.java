@@ -114,6 +114,38 @@ public class DefaultLineageStoreReader implements LineageStoreReader {
     return execute(input -> input.getRelations(program, start, end, filter));
   }
 
+  /**
+   * Fetch program-data access information for a set of datasets and streams for a given period.
+   * All the scans are done in one transaction.
+   *
+   * @param data datasets and streams for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-data access information of all the given datasets and streams
+   */
+  @Override
+  public Set<Relation> getDataRelations(final Set<? extends NamespacedEntityId> data, final long start,
+                                        final long end, final Predicate<Relation> filter) {
+    return execute(input -> input.getDataRelations(data, start, end, filter));
+  }
+
+  /**
+   * Fetch program-data access information for a set of programs for a given period.
+   * All the scans are done in one transaction.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-data access information of all the given programs
+   */
+  @Override
+  public Set<Relation> getProgramRelations(final Set<ProgramId> programs, final long start, final long end,
+                                           final Predicate<Relation> filter) {
+    return execute(input -> input.getProgramRelations(programs, start, end, filter));
+  }
+
   private <T> T execute(TransactionExecutor.Function<LineageDataset, T> func) {
     return Transactionals.execute(transactional, context -> {
       LineageDataset lineageDataset = LineageDataset.getLineageDataset(context, datasetFramework, lineageDatasetId);
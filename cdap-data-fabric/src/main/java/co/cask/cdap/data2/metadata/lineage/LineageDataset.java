@@ -52,6 +52,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
@@ -274,6 +276,52 @@ public class LineageDataset extends AbstractDataset {
                          filter);
   }
 
+  /**
+   * Fetch program-data access information for a set of datasets and streams for a given period.
+   * The scans for all the data are done one after another in row key order.
+   *
+   * @param data datasets and streams for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-data access information of all the given datasets and streams
+   */
+  public Set<Relation> getDataRelations(Set<? extends NamespacedEntityId> data, long start, long end,
+                                        Predicate<Relation> filter) {
+    SortedMap<byte[], byte[]> scanRanges = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (NamespacedEntityId entityId : data) {
+      if (entityId instanceof DatasetId) {
+        DatasetId datasetInstance = (DatasetId) entityId;
+        scanRanges.put(getDatasetScanStartKey(datasetInstance, end), getDatasetScanEndKey(datasetInstance, start));
+      } else if (entityId instanceof StreamId) {
+        StreamId stream = (StreamId) entityId;
+        scanRanges.put(getStreamScanStartKey(stream, end), getStreamScanEndKey(stream, start));
+      } else {
+        throw new IllegalStateException("Unknown data type " + entityId);
+      }
+    }
+    return scanRelations(scanRanges, filter);
+  }
+
+  /**
+   * Fetch program-data access information for a set of programs for a given period.
+   * The scans for all the programs are done one after another in row key order.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-data access information of all the given programs
+   */
+  public Set<Relation> getProgramRelations(Set<ProgramId> programs, long start, long end,
+                                           Predicate<Relation> filter) {
+    SortedMap<byte[], byte[]> scanRanges = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (ProgramId program : programs) {
+      scanRanges.put(getProgramScanStartKey(program, end), getProgramScanEndKey(program, start));
+    }
+    return scanRelations(scanRanges, filter);
+  }
+
   /**
    * @return a set of access times (for program and data it accesses) associated with a program run.
    */
@@ -298,6 +346,20 @@ public class LineageDataset extends AbstractDataset {
 
   private Set<Relation> scanRelations(byte[] startKey, byte[] endKey, Predicate<Relation> filter) {
     ImmutableSet.Builder<Relation> relationsBuilder = ImmutableSet.builder();
+    scanRelations(startKey, endKey, filter, relationsBuilder);
+    return relationsBuilder.build();
+  }
+
+  private Set<Relation> scanRelations(SortedMap<byte[], byte[]> scanRanges, Predicate<Relation> filter) {
+    ImmutableSet.Builder<Relation> relationsBuilder = ImmutableSet.builder();
+    for (Map.Entry<byte[], byte[]> range : scanRanges.entrySet()) {
+      scanRelations(range.getKey(), range.getValue(), filter, relationsBuilder);
+    }
+    return relationsBuilder.build();
+  }
+
+  private void scanRelations(byte[] startKey, byte[] endKey, Predicate<Relation> filter,
+                             ImmutableSet.Builder<Relation> relationsBuilder) {
     try (Scanner scanner = accessRegistryTable.scan(startKey, endKey)) {
       Row row;
       while ((row = scanner.next()) != null) {
@@ -310,7 +372,6 @@ public class LineageDataset extends AbstractDataset {
         }
       }
     }
-    return relationsBuilder.build();
   }
 
   private byte[] getDatasetKey(DatasetId datasetInstance, ProgramRunId run,
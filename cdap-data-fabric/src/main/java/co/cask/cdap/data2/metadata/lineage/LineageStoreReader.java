@@ -68,4 +68,29 @@ public interface LineageStoreReader {
    * @return program-dataset access information
    */
   Set<Relation> getRelations(ProgramId program, long start, long end, Predicate<Relation> filter);
+
+  /**
+   * Fetch program-data access information for a set of datasets and streams for a given period.
+   * All the scans are done in one transaction.
+   *
+   * @param data datasets and streams for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-data access information of all the given datasets and streams
+   */
+  Set<Relation> getDataRelations(Set<? extends NamespacedEntityId> data, long start, long end,
+                                 Predicate<Relation> filter);
+
+  /**
+   * Fetch program-data access information for a set of programs for a given period.
+   * All the scans are done in one transaction.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-data access information of all the given programs
+   */
+  Set<Relation> getProgramRelations(Set<ProgramId> programs, long start, long end, Predicate<Relation> filter);
 }
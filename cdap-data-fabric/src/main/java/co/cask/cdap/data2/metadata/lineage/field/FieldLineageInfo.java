@@ -25,6 +25,8 @@ import co.cask.cdap.api.lineage.field.TransformOperation;
 import co.cask.cdap.api.lineage.field.WriteOperation;
 import co.cask.cdap.proto.codec.OperationTypeAdapter;
 import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -33,11 +35,11 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -58,6 +60,10 @@ public class FieldLineageInfo {
     .create();
   private static final Logger LOG = LoggerFactory.getLogger(FieldLineageInfo.class);
 
+  // Summaries of recently seen operations keyed by their checksum. Pipelines usually emit the same
+  // operations for every run, in which case the summaries are only computed once.
+  private static final Cache<Long, Summaries> SUMMARIES_CACHE = CacheBuilder.newBuilder().maximumSize(100).build();
+
   private final Set<Operation> operations;
 
   // Map of EndPoint representing destination to the set of fields belonging to it.
@@ -82,6 +88,9 @@ public class FieldLineageInfo {
   // Destination endpoints in the lineage info
   private transient Set<EndPoint> destinations;
 
+  // Operations in topological order
+  private transient List<Operation> sortedOperations;
+
   private long checksum;
 
   /**
@@ -118,14 +127,14 @@ public class FieldLineageInfo {
    * @throws IllegalArgumentException if validation fails
    */
   public FieldLineageInfo(Collection<? extends Operation> operations, boolean computeSummaries) {
-    LOG.trace("Received field lineage operations {}", GSON.toJson(operations));
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Received field lineage operations {}", GSON.toJson(operations));
+    }
     this.operations = new HashSet<>(operations);
     computeAndValidateFieldLineageInfo(operations);
     this.checksum = computeChecksum();
     if (computeSummaries) {
-      this.destinationFields = computeDestinationFields();
-      this.incomingSummary = computeIncomingSummary();
-      this.outgoingSummary = computeOutgoingSummary();
+      computeSummaries();
     }
   }
 
@@ -210,7 +219,7 @@ public class FieldLineageInfo {
               invalidOrigins));
     }
 
-    getTopologicallySortedOperations(this.operations);
+    this.sortedOperations = getTopologicallySortedOperations(this.operations);
   }
 
   /**
@@ -232,21 +241,21 @@ public class FieldLineageInfo {
    */
   public Map<EndPoint, Set<String>> getDestinationFields() {
     if (destinationFields == null) {
-      destinationFields = computeDestinationFields();
+      computeSummaries();
     }
     return destinationFields;
   }
 
   public Map<EndPointField, Set<EndPointField>> getIncomingSummary() {
     if (incomingSummary == null) {
-      incomingSummary = computeIncomingSummary();
+      computeSummaries();
     }
     return incomingSummary;
   }
 
   public Map<EndPointField, Set<EndPointField>> getOutgoingSummary() {
     if (outgoingSummary == null) {
-      outgoingSummary = computeOutgoingSummary();
+      computeSummaries();
     }
     return outgoingSummary;
   }
@@ -285,6 +294,22 @@ public class FieldLineageInfo {
     }
   }
 
+  /**
+   * Sets the destination fields and the summaries, either from the {@link #SUMMARIES_CACHE} if the same operations
+   * were seen before, or by computing them.
+   */
+  private void computeSummaries() {
+    Summaries summaries = SUMMARIES_CACHE.getIfPresent(checksum);
+    if (summaries == null) {
+      Map<EndPointField, Set<EndPointField>> incoming = computeIncomingSummary();
+      summaries = new Summaries(computeDestinationFields(), incoming, computeOutgoingSummary(incoming));
+      SUMMARIES_CACHE.put(checksum, summaries);
+    }
+    destinationFields = summaries.destinationFields;
+    incomingSummary = summaries.incomingSummary;
+    outgoingSummary = summaries.outgoingSummary;
+  }
+
   private long computeChecksum() {
     return fingerprint64(canonicalize().getBytes(Charsets.UTF_8));
   }
@@ -304,24 +329,68 @@ public class FieldLineageInfo {
     return destinationFields;
   }
 
+  /**
+   * Computes the incoming summary in one pass over the topologically sorted operations. For every transform
+   * the set of source fields contributing to its outputs is computed once from the already computed sets of
+   * the operations it reads from, and then reused by all the operations downstream of it.
+   */
   private Map<EndPointField, Set<EndPointField>> computeIncomingSummary() {
     if (writeOperations == null) {
       computeAndValidateFieldLineageInfo(this.operations);
     }
 
+    // Map of transform operation name to the source fields responsible for generating its outputs
+    Map<String, Set<EndPointField>> transformSources = new HashMap<>();
+    for (Operation operation : sortedOperations) {
+      if (operation.getType() != OperationType.TRANSFORM) {
+        continue;
+      }
+      TransformOperation transform = (TransformOperation) operation;
+      Set<EndPointField> sources = new HashSet<>();
+      for (Set<EndPointField> originSources : getOriginSources(transform.getInputs(), transformSources).values()) {
+        sources.addAll(originSources);
+      }
+      transformSources.put(transform.getName(), sources);
+    }
+
     Map<EndPointField, Set<EndPointField>> result = new HashMap<>();
     for (WriteOperation write : writeOperations) {
-      List<InputField> inputs = write.getInputs();
-      for (InputField input : inputs) {
-        Set<String> visitedOperationNames = new LinkedHashSet<>();
-        visitedOperationNames.add(write.getName());
-        computeIncomingSummaryHelper(new EndPointField(write.getDestination(), input.getName()),
-                                     operationsMap.get(input.getOrigin()), write, visitedOperationNames, result);
+      Map<String, Set<EndPointField>> originSources = getOriginSources(write.getInputs(), transformSources);
+      for (InputField input : write.getInputs()) {
+        Set<EndPointField> sources = originSources.get(input.getOrigin());
+        if (!sources.isEmpty()) {
+          result.computeIfAbsent(new EndPointField(write.getDestination(), input.getName()),
+                                 k -> new HashSet<>()).addAll(sources);
+        }
       }
     }
     return result;
   }
 
+  /**
+   * Returns the source fields contributed through each origin of the given inputs of an operation.
+   * If the origin is a read operation, the contributed fields are the inputs of the operation read from it.
+   * If the origin is a transform, they are the sources already computed for the transform.
+   */
+  private Map<String, Set<EndPointField>> getOriginSources(List<InputField> inputs,
+                                                           Map<String, Set<EndPointField>> transformSources) {
+    Map<String, Set<EndPointField>> originSources = new HashMap<>();
+    for (InputField input : inputs) {
+      Operation origin = operationsMap.get(input.getOrigin());
+      Set<EndPointField> sources = originSources.get(origin.getName());
+      if (sources == null) {
+        sources = origin.getType() == OperationType.TRANSFORM
+          ? transformSources.getOrDefault(origin.getName(), Collections.emptySet())
+          : new HashSet<>();
+        originSources.put(origin.getName(), sources);
+      }
+      if (origin.getType() == OperationType.READ) {
+        sources.add(new EndPointField(((ReadOperation) origin).getSource(), input.getName()));
+      }
+    }
+    return originSources;
+  }
+
   private void computeIncomingSummaryHelper(EndPointField destination, Operation currentOperation,
                                             Operation previousOperation, Set<String> visitedOperationNames,
                                             Map<EndPointField, Set<EndPointField>> result) {
@@ -365,11 +434,8 @@ public class FieldLineageInfo {
     }
   }
 
-  private Map<EndPointField, Set<EndPointField>> computeOutgoingSummary() {
-    if (incomingSummary == null) {
-      incomingSummary = computeIncomingSummary();
-    }
-
+  private Map<EndPointField, Set<EndPointField>> computeOutgoingSummary(
+    Map<EndPointField, Set<EndPointField>> incomingSummary) {
     Map<EndPointField, Set<EndPointField>> outgoingSummary = new HashMap<>();
     for (Map.Entry<EndPointField, Set<EndPointField>> entry : incomingSummary.entrySet()) {
       Set<EndPointField> values = entry.getValue();
@@ -619,4 +685,33 @@ public class FieldLineageInfo {
   public int hashCode() {
     return (int) (checksum ^ (checksum >>> 32));
   }
+
+  /**
+   * The destination fields and the summaries computed for a set of operations.
+   */
+  private static final class Summaries {
+    private final Map<EndPoint, Set<String>> destinationFields;
+    private final Map<EndPointField, Set<EndPointField>> incomingSummary;
+    private final Map<EndPointField, Set<EndPointField>> outgoingSummary;
+
+    Summaries(Map<EndPoint, Set<String>> destinationFields,
+              Map<EndPointField, Set<EndPointField>> incomingSummary,
+              Map<EndPointField, Set<EndPointField>> outgoingSummary) {
+      this.destinationFields = unmodifiable(destinationFields);
+      this.incomingSummary = unmodifiable(incomingSummary);
+      this.outgoingSummary = unmodifiable(outgoingSummary);
+    }
+
+    /**
+     * Returns an unmodifiable view of the given map whose value sets are unmodifiable too, so that
+     * callers cannot change the cached summaries shared by other {@link FieldLineageInfo} instances.
+     */
+    private static <K, V> Map<K, Set<V>> unmodifiable(Map<K, Set<V>> map) {
+      Map<K, Set<V>> result = new HashMap<>(map.size());
+      for (Map.Entry<K, Set<V>> entry : map.entrySet()) {
+        result.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+      }
+      return Collections.unmodifiableMap(result);
+    }
+  }
 }
@@ -45,6 +45,7 @@ import co.cask.cdap.data2.metadata.dataset.MetadataEntry;
 import co.cask.cdap.data2.metadata.dataset.SearchRequest;
 import co.cask.cdap.data2.metadata.dataset.SearchResults;
 import co.cask.cdap.data2.metadata.dataset.SortInfo;
+import co.cask.cdap.data2.metadata.dataset.WeightedSearchRanker;
 import co.cask.cdap.data2.transaction.TransactionSystemClientAdapter;
 import co.cask.cdap.data2.transaction.Transactions;
 import co.cask.cdap.proto.audit.AuditType;
@@ -66,9 +67,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -99,12 +98,6 @@ public class DefaultMetadataStore implements MetadataStore {
   private static final Set<String> NEEDS_UPGRADE_TAG_SET = Collections.singleton(NEEDS_UPGRADE_TAG);
   private static final String VERSION_TAG_PREFIX = "cdap.version:";
 
-  private static final Comparator<Map.Entry<MetadataEntity, Integer>> SEARCH_RESULT_DESC_SCORE_COMPARATOR =
-    (o1, o2) -> {
-      // sort in descending order
-      return o2.getValue() - o1.getValue();
-    };
-
 
   private final Transactional transactional;
   private final DatasetFramework dsFramework;
@@ -434,6 +427,10 @@ public class DefaultMetadataStore implements MetadataStore {
   }
 
   private MetadataSearchResponseV2 search(Set<MetadataScope> scopes, SearchRequest request) {
+    if (SortInfo.DEFAULT.equals(request.getSortInfo())) {
+      return searchByWeight(scopes, request);
+    }
+
     List<MetadataEntry> results = new LinkedList<>();
     List<String> cursors = new LinkedList<>();
     for (MetadataScope scope : scopes) {
@@ -449,14 +446,15 @@ public class DefaultMetadataStore implements MetadataStore {
     int offset = request.getOffset();
     int limit = request.getLimit();
     SortInfo sortInfo = request.getSortInfo();
-    // sort if required
-    Set<MetadataEntity> sortedEntities = getSortedEntities(results, sortInfo);
+    // the backing storage returns results in the expected order.
+    Set<MetadataEntity> sortedEntities = new LinkedHashSet<>(results.size());
+    for (MetadataEntry metadataEntry : results) {
+      sortedEntities.add(metadataEntry.getMetadataEntity());
+    }
     int total = sortedEntities.size();
 
-    // pagination is not performed at the dataset level, because:
-    // 1. scoring is needed for DEFAULT sort info. So perform it here for now.
-    // 2. Even when using custom sorting, we need to remove elements from the beginning to the offset and the cursors
-    //    at the end
+    // pagination is not performed at the dataset level, because even when using custom sorting,
+    // we need to remove elements from the beginning to the offset and the cursors at the end
     // TODO: Figure out how all of this can be done server (HBase) side
     int startIndex = Math.min(request.getOffset(), sortedEntities.size());
     // Account for overflow
@@ -468,44 +466,44 @@ public class DefaultMetadataStore implements MetadataStore {
       ImmutableList.copyOf(sortedEntities).subList(startIndex, endIndex)
     );
 
+    return createSearchResponse(request, sortedEntities, total, cursors);
+  }
+
+  /**
+   * Searches with the default sort info, which ranks entities by the number of index entries they match.
+   * Matches are streamed from the default index into a {@link WeightedSearchRanker}, so that only the score of
+   * each matched entity is kept rather than every matched entry, and only the requested page is sorted.
+   */
+  private MetadataSearchResponseV2 searchByWeight(Set<MetadataScope> scopes, SearchRequest request) {
+    WeightedSearchRanker ranker = new WeightedSearchRanker();
+    for (MetadataScope scope : scopes) {
+      // score within the transaction, so that a retried transaction does not count matches twice
+      ranker.addAll(execute(mds -> {
+        WeightedSearchRanker scopeRanker = new WeightedSearchRanker();
+        mds.searchByDefaultIndex(request, scopeRanker::add);
+        return scopeRanker;
+      }, scope, DATASET.V2));
+    }
+
+    WeightedSearchRanker.Page page = ranker.rank(request.getOffset(), request.getLimit(),
+                                                 request.getNumCursors(), request.getCursor());
+    return createSearchResponse(request, new LinkedHashSet<>(page.getEntities()), ranker.getTotal(),
+                                page.getCursors());
+  }
+
+  private MetadataSearchResponseV2 createSearchResponse(SearchRequest request, Set<MetadataEntity> entities,
+                                                        int total, List<String> cursors) {
     // Fetch metadata for entities in the result list
     // Note: since the fetch is happening in a different transaction, the metadata for entities may have been
     // removed. It is okay not to have metadata for some results in case this happens.
-    Map<MetadataEntity, Metadata> systemMetadata = fetchMetadata(sortedEntities, MetadataScope.SYSTEM);
-    Map<MetadataEntity, Metadata> userMetadata = fetchMetadata(sortedEntities, MetadataScope.USER);
+    Map<MetadataEntity, Metadata> systemMetadata = fetchMetadata(entities, MetadataScope.SYSTEM);
+    Map<MetadataEntity, Metadata> userMetadata = fetchMetadata(entities, MetadataScope.USER);
 
+    SortInfo sortInfo = request.getSortInfo();
     return new MetadataSearchResponseV2(
-      sortInfo.getSortBy() + " " + sortInfo.getSortOrder(), offset, limit, request.getNumCursors(), total,
-      addMetadataToEntities(sortedEntities, systemMetadata, userMetadata), cursors, request.shouldShowHidden(),
-      request.getEntityScopes());
-  }
-
-  private Set<MetadataEntity> getSortedEntities(List<MetadataEntry> results, SortInfo sortInfo) {
-    // if sort order is not weighted, return entities in the order received.
-    // in this case, the backing storage is expected to return results in the expected order.
-    if (SortInfo.SortOrder.WEIGHTED != sortInfo.getSortOrder()) {
-      Set<MetadataEntity> entities = new LinkedHashSet<>(results.size());
-      for (MetadataEntry metadataEntry : results) {
-        entities.add(metadataEntry.getMetadataEntity());
-      }
-      return entities;
-    }
-    // if sort order is weighted, score results by weight, and return in descending order of weights
-    // Score results
-    final Map<MetadataEntity, Integer> weightedResults = new HashMap<>();
-    for (MetadataEntry metadataEntry : results) {
-      weightedResults.put(metadataEntry.getMetadataEntity(),
-                          weightedResults.getOrDefault(metadataEntry.getMetadataEntity(), 0) + 1);
-    }
-
-    // Sort the results by score
-    List<Map.Entry<MetadataEntity, Integer>> resultList = new ArrayList<>(weightedResults.entrySet());
-    resultList.sort(SEARCH_RESULT_DESC_SCORE_COMPARATOR);
-    Set<MetadataEntity> result = new LinkedHashSet<>(resultList.size());
-    for (Map.Entry<MetadataEntity, Integer> entry : resultList) {
-      result.add(entry.getKey());
-    }
-    return result;
+      sortInfo.getSortBy() + " " + sortInfo.getSortOrder(), request.getOffset(), request.getLimit(),
+      request.getNumCursors(), total, addMetadataToEntities(entities, systemMetadata, userMetadata), cursors,
+      request.shouldShowHidden(), request.getEntityScopes());
   }
 
   private Map<MetadataEntity, Metadata> fetchMetadata(final Set<MetadataEntity> metadataEntities,
@@ -33,6 +33,8 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.Collections;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -394,6 +396,18 @@ public class IndexedTableTest {
             scanner.close();
           }
 
+          // ensure that index only reads filter the false positive rows in index
+          scanner = iTable.readIndex(a, bc);
+          try {
+            Row row = scanner.next();
+            Assert.assertNotNull(row);
+            Assert.assertArrayEquals(x, row.getRow());
+            Assert.assertArrayEquals(bc, row.get(a));
+            assertEmpty(scanner);
+          } finally {
+            scanner.close();
+          }
+
           // ensure that scanByIndex filters the false positive rows in index
           scanner = iTable.scanByIndex(a, bcd, null);
           try {
@@ -828,6 +842,122 @@ public class IndexedTableTest {
       dsFrameworkUtil.deleteInstance(incrTabInstance);
     }
   }
+
+  @Test
+  public void testIndexReadAhead() throws Exception {
+    DatasetId readAheadTabInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("readaheadtab");
+    dsFrameworkUtil.createInstance("indexedTable", readAheadTabInstance, DatasetProperties.builder()
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, idxColString)
+      .add(IndexedTable.INDEX_READ_AHEAD_CONF_KEY, "3")
+      .build());
+    final IndexedTable iTable = dsFrameworkUtil.getInstance(readAheadTabInstance);
+    try {
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(iTable);
+      // write rows in reverse order, alternating between two index values
+      tx.execute(() -> {
+        for (int i = 9; i >= 0; i--) {
+          iTable.put(Bytes.toBytes("row" + i), colIdxVal, new byte[][] { i % 2 == 0 ? idx1 : idx2, valA });
+        }
+      });
+
+      tx.execute(() -> {
+        // reads through multiple batches must return the rows in index order
+        try (Scanner scanner = iTable.readByIndex(idxCol, idx1)) {
+          for (int i = 0; i < 10; i += 2) {
+            TableAssert.assertRow(scanner.next(), Bytes.toBytes("row" + i), colIdxVal, new byte[][] { idx1, valA });
+          }
+          assertEmpty(scanner);
+        }
+
+        try (Scanner scanner = iTable.scanByIndex(idxCol, idx1, null)) {
+          for (int i = 0; i < 10; i += 2) {
+            TableAssert.assertRow(scanner.next(), Bytes.toBytes("row" + i), colIdxVal, new byte[][] { idx1, valA });
+          }
+          for (int i = 1; i < 10; i += 2) {
+            TableAssert.assertRow(scanner.next(), Bytes.toBytes("row" + i), colIdxVal, new byte[][] { idx2, valA });
+          }
+          assertEmpty(scanner);
+        }
+
+        // index only reads must only contain the indexed column
+        try (Scanner scanner = iTable.readIndex(idxCol, idx2)) {
+          for (int i = 1; i < 10; i += 2) {
+            TableAssert.assertRow(scanner.next(), Bytes.toBytes("row" + i), new byte[][] { idxCol },
+                                  new byte[][] { idx2 });
+          }
+          assertEmpty(scanner);
+        }
+
+        try (Scanner scanner = iTable.scanIndex(idxCol, null, idx2)) {
+          for (int i = 0; i < 10; i += 2) {
+            TableAssert.assertRow(scanner.next(), Bytes.toBytes("row" + i), new byte[][] { idxCol },
+                                  new byte[][] { idx1 });
+          }
+          assertEmpty(scanner);
+        }
+      });
+
+      // the read ahead can be overridden with runtime arguments, but must be positive
+      try {
+        dsFrameworkUtil.getInstance(readAheadTabInstance,
+                                    Collections.singletonMap(IndexedTable.INDEX_READ_AHEAD_CONF_KEY, "0"));
+        fail("Expected IllegalArgumentException for a read ahead of 0");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    } finally {
+      dsFrameworkUtil.deleteInstance(readAheadTabInstance);
+    }
+  }
+
+  @Test
+  public void testWriteWhileIterating() throws Exception {
+    DatasetId writeTabInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("writetab");
+    dsFrameworkUtil.createInstance("indexedTable", writeTabInstance, DatasetProperties.builder()
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, idxColString)
+      .build());
+    try {
+      final IndexedTable iTable = dsFrameworkUtil.getInstance(writeTabInstance);
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(iTable);
+      tx.execute(() -> {
+        for (int i = 0; i < 5; i++) {
+          iTable.put(Bytes.toBytes("row" + i), colIdxVal, new byte[][] { idx1, valA });
+        }
+      });
+
+      // with the default read ahead, the rows are read before the writes made while iterating
+      tx.execute(() -> {
+        try (Scanner scanner = iTable.readByIndex(idxCol, idx1)) {
+          TableAssert.assertRow(scanner.next(), Bytes.toBytes("row0"), colIdxVal, new byte[][] { idx1, valA });
+          for (int i = 1; i < 5; i++) {
+            iTable.put(Bytes.toBytes("row" + i), valCol, valB);
+          }
+          for (int i = 1; i < 5; i++) {
+            TableAssert.assertRow(scanner.next(), Bytes.toBytes("row" + i), colIdxVal, new byte[][] { idx1, valA });
+          }
+          assertEmpty(scanner);
+        }
+      });
+
+      // with a read ahead of 1, each row is read when the scanner advances to it
+      final IndexedTable noReadAheadTable = dsFrameworkUtil.getInstance(
+        writeTabInstance, Collections.singletonMap(IndexedTable.INDEX_READ_AHEAD_CONF_KEY, "1"));
+      dsFrameworkUtil.newTransactionExecutor(noReadAheadTable).execute(() -> {
+        try (Scanner scanner = noReadAheadTable.scanByIndex(idxCol, idx1, idx2)) {
+          TableAssert.assertRow(scanner.next(), Bytes.toBytes("row0"), colIdxVal, new byte[][] { idx1, valA });
+          for (int i = 1; i < 5; i++) {
+            noReadAheadTable.put(Bytes.toBytes("row" + i), valCol, valC);
+          }
+          for (int i = 1; i < 5; i++) {
+            TableAssert.assertRow(scanner.next(), Bytes.toBytes("row" + i), colIdxVal, new byte[][] { idx1, valC });
+          }
+          assertEmpty(scanner);
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(writeTabInstance);
+    }
+  }
   /**
    * Asserts that the given scanner contains no more rows.
    */
@@ -16,8 +16,11 @@
 
 package co.cask.cdap.data2.datafabric.dataset;
 
+import co.cask.cdap.api.dataset.DatasetDefinition;
 import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.module.DatasetModule;
+import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfigurationUtil;
 import co.cask.cdap.common.conf.Constants;
@@ -56,6 +59,7 @@ import co.cask.cdap.data2.transaction.TransactionSystemClientService;
 import co.cask.cdap.explore.client.DiscoveryExploreClient;
 import co.cask.cdap.explore.client.ExploreFacade;
 import co.cask.cdap.proto.NamespaceMeta;
+import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -98,6 +102,8 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
   private DatasetOpExecutorService opExecutorService;
   private DatasetService service;
   private RemoteDatasetFramework framework;
+  // a framework that changes dataset instances behind the back of the one under test
+  private RemoteDatasetFramework otherFramework;
 
   @Before
   public void before() throws Exception {
@@ -142,6 +148,8 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     AuthenticationContext authenticationContext = injector.getInstance(AuthenticationContext.class);
 
     framework = new RemoteDatasetFramework(cConf, discoveryServiceClient, registryFactory, authenticationContext);
+    otherFramework = new RemoteDatasetFramework(cConf, discoveryServiceClient, registryFactory,
+                                                authenticationContext);
     SystemDatasetInstantiatorFactory datasetInstantiatorFactory =
       new SystemDatasetInstantiatorFactory(locationFactory, framework, cConf);
 
@@ -220,6 +228,24 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     }
   }
 
+  @Test
+  public void testMetaCache() throws Exception {
+    DatasetId datasetId = NAMESPACE_ID.dataset("cached");
+    // a dataset that doesn't exist is not cached, hence it can be seen once created elsewhere
+    Assert.assertNull(framework.getDataset(datasetId, DatasetDefinition.NO_ARGUMENTS, null));
+    otherFramework.addInstance("table", datasetId, DatasetProperties.EMPTY);
+    try (Table table = framework.getDataset(datasetId, DatasetDefinition.NO_ARGUMENTS, null)) {
+      Assert.assertNotNull(table);
+    }
+    try (Table table = framework.getDataset(datasetId, DatasetDefinition.NO_ARGUMENTS, null)) {
+      Assert.assertNotNull(table);
+    }
+    // changes made through the framework itself are seen right away
+    framework.deleteInstance(datasetId);
+    Assert.assertNull(framework.getDataset(datasetId, DatasetDefinition.NO_ARGUMENTS, null));
+    Assert.assertNull(framework.getAdmin(datasetId, null));
+  }
+
   private void createNamespace (NamespaceId namespaceId) throws Exception {
     // since the namespace admin here is an in memory one we need to create the location explicitly
     namespacedLocationFactory.get(namespaceId).mkdirs();
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.cache;
+
+import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
+import co.cask.cdap.data2.dataset2.DynamicDatasetCache;
+import co.cask.cdap.data2.dataset2.PooledDatasetCache;
+import co.cask.cdap.data2.transaction.Transactions;
+import com.google.common.base.Throwables;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PooledDatasetCacheTest extends DynamicDatasetCacheTest {
+
+  private static final int POOL_SIZE = 2;
+
+  @Override
+  protected DynamicDatasetCache createCache(SystemDatasetInstantiator instantiator,
+                                            Map<String, String> arguments,
+                                            Map<String, Map<String, String>> staticDatasets) {
+    return new PooledDatasetCache(instantiator, txClient, NAMESPACE, arguments, null, staticDatasets,
+                                  POOL_SIZE, TimeUnit.SECONDS.toMillis(30));
+  }
+
+  @Test
+  public void testPooling() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final Set<TestDataset> instances = Collections.newSetFromMap(new ConcurrentHashMap<>());
+      final AtomicInteger inUse = new AtomicInteger();
+      final AtomicInteger maxInUse = new AtomicInteger();
+      final CountDownLatch startLatch = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          startLatch.await();
+          for (int j = 0; j < 20; j++) {
+            Transactions.execute(cache.newTransactionContext(), "pooled", () -> {
+              try {
+                int current = inUse.incrementAndGet();
+                maxInUse.accumulateAndGet(current, Math::max);
+                TestDataset ds = cache.getDataset("a");
+                instances.add(ds);
+                // the dataset participates in the transaction of the current thread
+                Assert.assertNotNull(ds.getCurrentTransaction());
+                TimeUnit.MILLISECONDS.sleep(1);
+                inUse.decrementAndGet();
+              } catch (Exception e) {
+                throw Throwables.propagate(e);
+              }
+            });
+          }
+          return null;
+        }));
+      }
+      startLatch.countDown();
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+
+      // no more transactions than caches in the pool ran at the same time, and datasets were reused
+      Assert.assertTrue(maxInUse.get() <= POOL_SIZE);
+      Assert.assertTrue(instances.size() <= POOL_SIZE);
+      Assert.assertEquals(instances.size(), ((PooledDatasetCache) cache).getIdleCount());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.partitioned;
+
+import co.cask.cdap.api.dataset.lib.PartitionFilter;
+import co.cask.cdap.api.dataset.lib.PartitionKey;
+import co.cask.cdap.api.dataset.lib.Partitioning;
+import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link PartitionScanPlanner}.
+ */
+public class PartitionScanPlannerTest {
+
+  private static final Partitioning TIME_PARTITIONING = Partitioning.builder()
+    .addIntField("year")
+    .addIntField("month")
+    .addIntField("day")
+    .addLongField("hour")
+    .build();
+
+  private static final Partitioning MIXED_PARTITIONING = Partitioning.builder()
+    .addStringField("s")
+    .addIntField("i")
+    .addLongField("l")
+    .build();
+
+  @Test
+  public void testFuzzyRowFilter() {
+    List<PartitionKey> keys = new ArrayList<>();
+    for (int year = 2017; year <= 2018; year++) {
+      for (int month = 1; month <= 12; month++) {
+        for (int day = 1; day <= 3; day++) {
+          for (long hour = 0; hour < 24; hour++) {
+            keys.add(PartitionKey.builder()
+                       .addIntField("year", year).addIntField("month", month)
+                       .addIntField("day", day).addLongField("hour", hour).build());
+          }
+        }
+      }
+    }
+    PartitionScanPlanner planner = new PartitionScanPlanner(TIME_PARTITIONING, Collections.emptySet());
+
+    // leading single-value conditions are covered by the start and stop key
+    Assert.assertNull(planner.createFuzzyRowFilter(PartitionFilter.builder()
+                                                     .addValueCondition("year", 2018)
+                                                     .addRangeCondition("month", 2, 4).build()));
+
+    List<PartitionFilter> filters = new ArrayList<>();
+    filters.add(PartitionFilter.builder().addValueCondition("hour", 5L).build());
+    filters.add(PartitionFilter.builder().addValueCondition("month", 3).addValueCondition("hour", 23L).build());
+    filters.add(PartitionFilter.builder().addValueCondition("year", 2018)
+                  .addRangeCondition("day", 2, 4).addRangeCondition("hour", 10L, 12L).build());
+    filters.add(PartitionFilter.builder().addRangeCondition("year", 2016, 2018)
+                  .addRangeCondition("month", 11, 13).addValueCondition("day", 1).build());
+    filters.add(PartitionFilter.builder().addRangeCondition("month", null, 3).addValueCondition("day", 3).build());
+    // expanding both ranges would exceed the maximum number of fuzzy keys
+    filters.add(PartitionFilter.builder().addRangeCondition("day", 1, 31)
+                  .addRangeCondition("hour", 0L, 24L).build());
+
+    for (PartitionFilter filter : filters) {
+      FuzzyRowFilter fuzzyRowFilter = planner.createFuzzyRowFilter(filter);
+      Assert.assertNotNull(fuzzyRowFilter);
+      Assert.assertTrue(fuzzyRowFilter.getFuzzyKeysData().size() <= PartitionScanPlanner.MAX_FUZZY_KEYS);
+      assertFuzzyRowFilter(filter, fuzzyRowFilter, keys, TIME_PARTITIONING);
+    }
+  }
+
+  @Test
+  public void testFuzzyRowFilterStringFields() {
+    List<PartitionKey> keys = new ArrayList<>();
+    for (String s : new String[] { "", "a", "ab", "b" }) {
+      for (int i = -2; i <= 2; i++) {
+        for (long l = -2; l <= 2; l++) {
+          keys.add(PartitionKey.builder().addStringField("s", s).addIntField("i", i).addLongField("l", l).build());
+        }
+      }
+    }
+    PartitionScanPlanner planner = new PartitionScanPlanner(MIXED_PARTITIONING, Collections.emptySet());
+
+    // the position of the fields after a string field is only known if the string has a single value
+    Assert.assertNull(planner.createFuzzyRowFilter(PartitionFilter.builder()
+                                                     .addRangeCondition("s", "a", "b")
+                                                     .addValueCondition("l", 1L).build()));
+    // incompatible values cannot be represented in the row key
+    Assert.assertNull(planner.createFuzzyRowFilter(PartitionFilter.builder().addValueCondition("l", 1).build()));
+
+    List<PartitionFilter> filters = new ArrayList<>();
+    filters.add(PartitionFilter.builder().addValueCondition("l", 1L).build());
+    filters.add(PartitionFilter.builder().addValueCondition("s", "a").addValueCondition("l", -2L).build());
+    filters.add(PartitionFilter.builder().addValueCondition("s", "").addRangeCondition("l", -1L, 1L).build());
+    filters.add(PartitionFilter.builder().addRangeCondition("i", -1, 1).addRangeCondition("l", 0L, 2L).build());
+
+    for (PartitionFilter filter : filters) {
+      FuzzyRowFilter fuzzyRowFilter = planner.createFuzzyRowFilter(filter);
+      Assert.assertNotNull(fuzzyRowFilter);
+      assertFuzzyRowFilter(filter, fuzzyRowFilter, keys, MIXED_PARTITIONING);
+    }
+  }
+
+  @Test
+  public void testIndexCondition() {
+    PartitionScanPlanner planner = new PartitionScanPlanner(MIXED_PARTITIONING, ImmutableSet.of("s", "i", "l"));
+
+    // the leading field is covered by the start and stop key
+    Assert.assertNull(planner.getIndexCondition(PartitionFilter.builder().addValueCondition("s", "a").build()));
+    Assert.assertNull(planner.getIndexCondition(PartitionFilter.builder().addRangeCondition("s", "a", "b").build()));
+
+    // single-value conditions are preferred over range conditions
+    PartitionFilter filter = PartitionFilter.builder()
+      .addRangeCondition("s", "a", "b").addRangeCondition("i", 1, 3).addValueCondition("l", 1L).build();
+    Assert.assertEquals(filter.getCondition("l"), planner.getIndexCondition(filter));
+
+    filter = PartitionFilter.builder().addRangeCondition("i", 1, 3).addRangeCondition("l", null, 1L).build();
+    Assert.assertEquals(filter.getCondition("l"), planner.getIndexCondition(filter));
+
+    // only indexed fields can be used
+    planner = new PartitionScanPlanner(MIXED_PARTITIONING, ImmutableSet.of("l"));
+    filter = PartitionFilter.builder().addRangeCondition("s", "a", "b").addValueCondition("i", 1).build();
+    Assert.assertNull(planner.getIndexCondition(filter));
+  }
+
+  /**
+   * Asserts that the fuzzy row filter includes the row keys of all partitions that match the partition filter,
+   * and excludes at least some of the ones that don't.
+   */
+  private void assertFuzzyRowFilter(PartitionFilter filter, FuzzyRowFilter fuzzyRowFilter,
+                                    List<PartitionKey> keys, Partitioning partitioning) {
+    int excluded = 0;
+    for (PartitionKey key : keys) {
+      byte[] rowKey = PartitionedFileSetDataset.generateRowKey(key, partitioning);
+      boolean included = fuzzyRowFilter.filterRow(rowKey) == FuzzyRowFilter.ReturnCode.INCLUDE;
+      if (filter.match(key)) {
+        Assert.assertTrue("Expected " + key + " to be included by " + fuzzyRowFilter + " for " + filter, included);
+      } else if (!included) {
+        excluded++;
+      }
+    }
+    Assert.assertTrue("Expected " + fuzzyRowFilter + " to exclude partitions for " + filter, excluded > 0);
+  }
+}
@@ -38,6 +38,7 @@ import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.data2.dataset2.DatasetFrameworkTestUtil;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.test.SlowTests;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -55,6 +56,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
@@ -73,6 +75,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -1038,6 +1041,154 @@ public class PartitionedFileSetTest {
 
   }
 
+  @Test
+  public void testGetPartitionsWithIndexedFields() throws Exception {
+    DatasetId indexedInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("indexed");
+    dsFrameworkUtil.createInstance("partitionedFileSet", indexedInstance, PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING_1)
+      .setIndexedFields("i", "l")
+      .setBasePath("indexedDir")
+      .build());
+    try {
+      final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(indexedInstance);
+      final Set<BasicPartition> allPartitionDetails = Sets.newHashSet();
+      for (int s = 0; s < 4; s++) {
+        for (int i = 0; i < 4; i++) {
+          for (int l = 0; l < 4; l++) {
+            final PartitionKey key = PartitionKey.builder()
+              .addField("s", String.format("%c-%d", 'a' + s, s))
+              .addField("i", i * 100)
+              .addField("l", 15L - 10 * l)
+              .build();
+            allPartitionDetails.add(dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset)
+              .execute(new Callable<BasicPartition>() {
+                @Override
+                public BasicPartition call() throws Exception {
+                  PartitionOutput p = dataset.getPartitionOutput(key);
+                  p.addPartition();
+                  return new BasicPartition((PartitionedFileSetDataset) dataset,
+                                            p.getRelativePath(), p.getPartitionKey());
+                }
+              }));
+          }
+        }
+      }
+      List<PartitionFilter> filters = generateFilters();
+      testAllFilters(dataset, allPartitionDetails, filters);
+
+      // dropped partitions must also be removed from the indexes
+      final BasicPartition toRemove = allPartitionDetails.iterator().next();
+      dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          dataset.dropPartition(toRemove.getPartitionKey());
+        }
+      });
+      allPartitionDetails.remove(toRemove);
+      testAllFilters(dataset, allPartitionDetails, filters);
+    } finally {
+      dsFrameworkUtil.deleteInstance(indexedInstance);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIndexedFieldNotInPartitioning() throws Exception {
+    dsFrameworkUtil.createInstance("partitionedFileSet", DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("badIndex"),
+                                   PartitionedFileSetProperties.builder()
+                                     .setPartitioning(PARTITIONING_1)
+                                     .setIndexedFields("x")
+                                     .build());
+  }
+
+  @Ignore
+  @Test
+  public void testGetPartitionsSpeed() throws Exception {
+    DatasetId speedInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("speed");
+    dsFrameworkUtil.createInstance("partitionedFileSet", speedInstance, PartitionedFileSetProperties.builder()
+      .setPartitioning(PARTITIONING_1)
+      .setIndexedFields("l")
+      .setBasePath("speedDir")
+      .build());
+    try {
+      final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(speedInstance);
+      // 1M partitions, with 10 values of s, 1000 values of i and 100 values of l
+      final int numPartitions = 1000000;
+      final int batchSize = 10000;
+      TransactionExecutor txExecutor = dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset);
+      for (int batch = 0; batch < numPartitions; batch += batchSize) {
+        final int start = batch;
+        txExecutor.execute(new TransactionExecutor.Subroutine() {
+          @Override
+          public void apply() throws Exception {
+            for (int n = start; n < start + batchSize; n++) {
+              PartitionKey key = PartitionKey.builder()
+                .addField("s", "s" + n % 10)
+                .addField("i", n / 10 % 1000)
+                .addField("l", (long) (n / 10000))
+                .build();
+              dataset.addPartition(key, "path" + n);
+            }
+          }
+        });
+      }
+
+      // the leading field is covered by the start and stop key, the condition on l by a fuzzy row filter
+      PartitionFilter fuzzyFilter = PartitionFilter.builder()
+        .addValueCondition("s", "s3").addValueCondition("l", 7L).build();
+      // the range on the leading string field prevents a fuzzy row filter, the condition on l uses the index
+      PartitionFilter indexFilter = PartitionFilter.builder()
+        .addRangeCondition("s", "s0", "s5").addValueCondition("l", 7L).build();
+
+      for (int round = 0; round < 3; round++) {
+        for (PartitionFilter filter : ImmutableList.of(fuzzyFilter, indexFilter)) {
+          // what the scan did without a plan: read all rows between the start and stop key and match them
+          PartitionFilter.Builder leadingBuilder = PartitionFilter.builder();
+          PartitionFilter.Condition<? extends Comparable> leading = filter.getCondition("s");
+          if (leading.isSingleValue()) {
+            leadingBuilder.addValueCondition("s", (String) leading.getValue());
+          } else {
+            leadingBuilder.addRangeCondition("s", (String) leading.getLower(), (String) leading.getUpper());
+          }
+          long startTime = System.nanoTime();
+          Set<PartitionKey> scanned = getPartitionKeys(dataset, leadingBuilder.build());
+          Set<PartitionKey> fullScan = new HashSet<>();
+          for (PartitionKey key : scanned) {
+            if (filter.match(key)) {
+              fullScan.add(key);
+            }
+          }
+          long endTime = System.nanoTime();
+          System.out.println("Full scan of " + scanned.size() + " partitions for " + filter + ": "
+                               + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+
+          startTime = System.nanoTime();
+          Set<PartitionKey> planned = getPartitionKeys(dataset, filter);
+          endTime = System.nanoTime();
+          System.out.println("Planned scan for " + filter + ": "
+                               + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+          Assert.assertEquals(fullScan, planned);
+        }
+      }
+    } finally {
+      dsFrameworkUtil.deleteInstance(speedInstance);
+    }
+  }
+
+  private Set<PartitionKey> getPartitionKeys(final PartitionedFileSet dataset,
+                                             final PartitionFilter filter) throws Exception {
+    return dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(
+      new Callable<Set<PartitionKey>>() {
+        @Override
+        public Set<PartitionKey> call() throws Exception {
+          Set<PartitionKey> keys = new HashSet<>();
+          for (PartitionDetail partition : dataset.getPartitions(filter)) {
+            keys.add(partition.getPartitionKey());
+          }
+          return keys;
+        }
+      });
+  }
+
   private void testAllFilters(PartitionedFileSet dataset,
                               Set<BasicPartition> allPartitionDetails,
                               List<PartitionFilter> filters) throws Exception {
@@ -446,6 +446,41 @@ public class MetadataDatasetTest {
     });
   }
 
+  @Test
+  public void testStreamingSearchByDefaultIndex() throws Exception {
+    txnl.execute(() -> {
+      dataset.addTags(app1, "tag1", "tag2");
+      dataset.addTags(flow1, "tag1");
+      dataset.setProperty(dataset1, "key1", "tag1");
+    });
+
+    txnl.execute(() -> {
+      // every matched index row is passed, so an entity is passed once for each match
+      Map<MetadataEntity, Integer> matches = searchByDefaultIndexStreaming("ns1", "tag1 tag2");
+      Assert.assertEquals(ImmutableMap.of(app1, 2, flow1, 1, dataset1, 1), matches);
+
+      matches = searchByDefaultIndexStreaming("ns1", "tags:tag*");
+      Assert.assertEquals(ImmutableMap.of(app1, 2, flow1, 1), matches);
+
+      Assert.assertTrue(searchByDefaultIndexStreaming("ns2", "tag1").isEmpty());
+    });
+
+    // Matches are gone once the metadata is removed
+    txnl.execute(() -> {
+      dataset.removeTags(app1, "tag1");
+      dataset.removeProperties(dataset1);
+    });
+    txnl.execute(() -> {
+      Map<MetadataEntity, Integer> matches = searchByDefaultIndexStreaming("ns1", "tag1 tag2");
+      Assert.assertEquals(ImmutableMap.of(app1, 1, flow1, 1), matches);
+    });
+
+    txnl.execute(() -> {
+      dataset.removeTags(app1);
+      dataset.removeTags(flow1);
+    });
+  }
+
   @Test
   public void testSearchOnTypes() throws Exception {
     MetadataEntity myField1 =
@@ -1057,6 +1092,15 @@ public class MetadataDatasetTest {
     results = txnl.execute(() -> dataset.search(star));
     expected.add(new MetadataEntry(ns1App, "k2", "v2"));
     Assert.assertEquals(expected, new HashSet<>(results.getResults()));
+
+    // streaming the matched entities should match an entity once for every matched entry
+    List<MetadataEntity> entities = new ArrayList<>();
+    txnl.execute(() -> dataset.searchByDefaultIndex(star, entities::add));
+    List<MetadataEntity> expectedEntities = new ArrayList<>();
+    for (MetadataEntry entry : results.getResults()) {
+      expectedEntities.add(entry.getMetadataEntity());
+    }
+    Assert.assertEquals(expectedEntities, entities);
   }
 
   @Test
@@ -1504,6 +1548,16 @@ public class MetadataDatasetTest {
     return dataset.search(request).getResults();
   }
 
+  // should be called inside a transaction
+  private Map<MetadataEntity, Integer> searchByDefaultIndexStreaming(String namespaceId, String searchQuery) {
+    SearchRequest request = new SearchRequest(new NamespaceId(namespaceId), searchQuery,
+                                              ImmutableSet.of(EntityTypeSimpleName.ALL), SortInfo.DEFAULT,
+                                              0, Integer.MAX_VALUE, 1, null, false, EnumSet.allOf(EntityScope.class));
+    Map<MetadataEntity, Integer> matches = new HashMap<>();
+    dataset.searchByDefaultIndex(request, entity -> matches.merge(entity, 1, Integer::sum));
+    return matches;
+  }
+
   private static MetadataDataset getDataset(DatasetId instance) throws Exception {
     return getDataset(instance, MetadataScope.USER);
   }
@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.metadata.MetadataEntity;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link WeightedSearchRanker}.
+ */
+public class WeightedSearchRankerTest {
+
+  private static final MetadataEntity DS1 = MetadataEntity.ofDataset("ns", "ds1");
+  private static final MetadataEntity DS2 = MetadataEntity.ofDataset("ns", "ds2");
+  private static final MetadataEntity DS3 = MetadataEntity.ofDataset("ns", "ds3");
+  private static final MetadataEntity DS4 = MetadataEntity.ofDataset("ns", "ds4");
+
+  @Test
+  public void testRank() {
+    WeightedSearchRanker ranker = new WeightedSearchRanker();
+    add(ranker, DS1, 1);
+    add(ranker, DS2, 3);
+    add(ranker, DS3, 2);
+    add(ranker, DS4, 2);
+
+    Assert.assertEquals(4, ranker.getTotal());
+    WeightedSearchRanker.Page page = ranker.rank(0, Integer.MAX_VALUE, 0, null);
+    // ties are ordered by row key
+    Assert.assertEquals(ImmutableList.of(DS2, DS3, DS4, DS1), page.getEntities());
+    Assert.assertTrue(page.getCursors().isEmpty());
+
+    Assert.assertEquals(ImmutableList.of(DS3, DS4), ranker.rank(1, 2, 0, null).getEntities());
+    Assert.assertEquals(ImmutableList.of(DS1), ranker.rank(3, 2, 0, null).getEntities());
+    Assert.assertTrue(ranker.rank(4, 2, 0, null).getEntities().isEmpty());
+    Assert.assertTrue(ranker.rank(0, 0, 2, null).getEntities().isEmpty());
+  }
+
+  @Test
+  public void testAddAll() {
+    WeightedSearchRanker ranker = new WeightedSearchRanker();
+    add(ranker, DS1, 2);
+    add(ranker, DS2, 1);
+
+    WeightedSearchRanker other = new WeightedSearchRanker();
+    add(other, DS2, 2);
+    add(other, DS3, 1);
+
+    ranker.addAll(other);
+    Assert.assertEquals(3, ranker.getTotal());
+    Assert.assertEquals(ImmutableList.of(DS2, DS1, DS3), ranker.rank(0, 10, 0, null).getEntities());
+  }
+
+  @Test
+  public void testCursors() {
+    WeightedSearchRanker ranker = new WeightedSearchRanker();
+    List<MetadataEntity> expected = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      MetadataEntity entity = MetadataEntity.ofDataset("ns", "ds" + i);
+      // score decreases with the index, with ties for every two entities
+      add(ranker, entity, 10 - i / 2);
+      expected.add(entity);
+    }
+
+    WeightedSearchRanker.Page page = ranker.rank(0, 3, 3, null);
+    Assert.assertEquals(expected.subList(0, 3), page.getEntities());
+    // cursors for the pages starting at index 3, 6 and 9
+    Assert.assertEquals(3, page.getCursors().size());
+
+    List<MetadataEntity> paged = new ArrayList<>(page.getEntities());
+    for (String cursor : page.getCursors()) {
+      Assert.assertTrue(WeightedSearchRanker.isValidCursor(cursor));
+      paged.addAll(ranker.rank(0, 3, 0, cursor).getEntities());
+    }
+    Assert.assertEquals(expected, paged);
+
+    // offset is applied starting at the cursor
+    Assert.assertEquals(expected.subList(7, 9), ranker.rank(1, 2, 0, page.getCursors().get(1)).getEntities());
+
+    // cursor of an entity that no longer matches should start at the next ranked entity
+    WeightedSearchRanker reduced = new WeightedSearchRanker();
+    for (int i = 0; i < 10; i++) {
+      if (i != 3) {
+        add(reduced, expected.get(i), 10 - i / 2);
+      }
+    }
+    Assert.assertEquals(expected.subList(4, 7), reduced.rank(0, 3, 0, page.getCursors().get(0)).getEntities());
+  }
+
+  @Test
+  public void testManyEntities() {
+    // many more entities than the pages requested, with the highest ranked entities matched last
+    int numEntities = 1000;
+    WeightedSearchRanker ranker = new WeightedSearchRanker();
+    for (int i = 0; i < numEntities; i++) {
+      ranker.add(MetadataEntity.ofDataset("ns", "ds" + i));
+    }
+    WeightedSearchRanker other = new WeightedSearchRanker();
+    for (int i = 0; i < numEntities; i += 10) {
+      add(other, MetadataEntity.ofDataset("ns", "ds" + i), 2);
+    }
+    add(other, DS1, 5);
+    add(other, DS2, 4);
+    ranker.addAll(other);
+
+    // every distinct entity is counted exactly once
+    Assert.assertEquals(numEntities, ranker.getTotal());
+    WeightedSearchRanker.Page page = ranker.rank(0, 3, 1, null);
+    Assert.assertEquals(ImmutableList.of(DS1, DS2, MetadataEntity.ofDataset("ns", "ds0")), page.getEntities());
+    Assert.assertEquals(1, page.getCursors().size());
+
+    // all entities matched three times rank before the ones matched once, whichever page they are on
+    List<MetadataEntity> paged = new ArrayList<>();
+    for (int offset = 2; offset < numEntities; offset += 10) {
+      paged.addAll(ranker.rank(offset, 10, 0, null).getEntities());
+    }
+    Assert.assertEquals(numEntities - 2, paged.size());
+    for (int i = 0; i < numEntities / 10; i++) {
+      Assert.assertEquals(0, Integer.parseInt(paged.get(i).getValue(MetadataEntity.DATASET).substring(2)) % 10);
+    }
+    Assert.assertTrue(ranker.rank(numEntities, 10, 0, null).getEntities().isEmpty());
+  }
+
+  @Test
+  public void testInvalidCursor() {
+    Assert.assertFalse(WeightedSearchRanker.isValidCursor("abc"));
+    Assert.assertFalse(WeightedSearchRanker.isValidCursor("abc:0102"));
+    Assert.assertFalse(WeightedSearchRanker.isValidCursor("1:"));
+    Assert.assertFalse(WeightedSearchRanker.isValidCursor("1:012"));
+    try {
+      new WeightedSearchRanker().rank(0, 1, 0, "invalid");
+      Assert.fail("Expected failure for invalid cursor");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() {
+    // Synthetic catalog of 1M entities, each matching between one and five index rows
+    int numEntities = 1000000;
+    List<MetadataEntity> entities = new ArrayList<>(numEntities);
+    for (int i = 0; i < numEntities; i++) {
+      entities.add(MetadataEntity.ofDataset("ns", "dataset" + i));
+    }
+    Random random = new Random(0);
+    List<MetadataEntity> matches = new ArrayList<>();
+    for (MetadataEntity entity : entities) {
+      for (int i = random.nextInt(5); i >= 0; i--) {
+        matches.add(entity);
+      }
+    }
+    Collections.shuffle(matches, random);
+
+    for (int round = 0; round < 3; round++) {
+      // previous approach: count every match, then sort all entities by score
+      long startTime = System.nanoTime();
+      Map<MetadataEntity, Integer> counts = new HashMap<>();
+      for (MetadataEntity entity : matches) {
+        counts.merge(entity, 1, Integer::sum);
+      }
+      List<Map.Entry<MetadataEntity, Integer>> sorted = new ArrayList<>(counts.entrySet());
+      sorted.sort((o1, o2) -> o2.getValue() - o1.getValue());
+      Set<MetadataEntity> result = new LinkedHashSet<>();
+      for (Map.Entry<MetadataEntity, Integer> entry : sorted) {
+        result.add(entry.getKey());
+      }
+      long endTime = System.nanoTime();
+      System.out.println("Full sort time spent: "
+                           + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+
+      startTime = System.nanoTime();
+      WeightedSearchRanker ranker = new WeightedSearchRanker();
+      for (MetadataEntity entity : matches) {
+        ranker.add(entity);
+      }
+      WeightedSearchRanker.Page page = ranker.rank(0, 100, 5, null);
+      endTime = System.nanoTime();
+      System.out.println("Top-K time spent: "
+                           + TimeUnit.MILLISECONDS.convert(endTime - startTime, TimeUnit.NANOSECONDS));
+      Assert.assertEquals(100, page.getEntities().size());
+      Assert.assertEquals(result.size(), ranker.getTotal());
+    }
+  }
+
+  private void add(WeightedSearchRanker ranker, MetadataEntity entity, int count) {
+    for (int i = 0; i < count; i++) {
+      ranker.add(entity);
+    }
+  }
+}
@@ -162,6 +162,24 @@ public class LineageDatasetTest {
         lineageDataset.getRelations(datasetInstance2, 0, 35000, x -> true)
       );
 
+      // Batched lookups should return the union of the individual lookups
+      Assert.assertEquals(
+        ImmutableSet.of(new Relation(datasetInstance1, program1, AccessType.READ, runId1, ImmutableSet.of(flowlet1)),
+                        new Relation(stream1, program2, AccessType.READ, runId2),
+                        new Relation(stream2, program2, AccessType.READ, runId3),
+                        new Relation(stream2, program3, AccessType.UNKNOWN, runId4)
+        ),
+        lineageDataset.getDataRelations(toSet(datasetInstance1, stream1, stream2), 0, 100000, x -> true)
+      );
+
+      Assert.assertEquals(
+        ImmutableSet.of(new Relation(datasetInstance1, program1, AccessType.READ, runId1, ImmutableSet.of(flowlet1)),
+                        new Relation(datasetInstance2, program3, AccessType.READ_WRITE, runId4),
+                        new Relation(stream2, program3, AccessType.UNKNOWN, runId4)
+        ),
+        lineageDataset.getProgramRelations(toSet(program1, program3), 0, 100000, x -> true)
+      );
+
       Assert.assertEquals(toSet(program1, datasetInstance1), lineageDataset.getEntitiesForRun(run11));
       Assert.assertEquals(ImmutableList.of(run11Data1AccessTime), lineageDataset.getAccessTimesForRun(run11));
 
@@ -27,6 +27,7 @@ import co.cask.cdap.proto.codec.OperationTypeAdapter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.lang.reflect.Type;
@@ -38,6 +39,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test for {@link FieldLineageInfo}
@@ -721,6 +723,106 @@ public class FieldLineageInfoTest {
     assertBefore(topologicallySortedOperations, read2, write2);
   }
 
+  @Test
+  public void testSummariesReused() {
+    ReadOperation read = new ReadOperation("read", "read descr", EndPoint.of("ns", "input"), "offset", "body");
+    TransformOperation parse = new TransformOperation("parse", "parse descr",
+                                                      Collections.singletonList(InputField.of("read", "body")),
+                                                      "name", "address");
+    WriteOperation write = new WriteOperation("write", "write descr", EndPoint.of("ns", "output"),
+                                              Arrays.asList(InputField.of("read", "offset"),
+                                                            InputField.of("parse", "name"),
+                                                            InputField.of("parse", "address")));
+
+    FieldLineageInfo info1 = new FieldLineageInfo(Arrays.asList(read, parse, write));
+    FieldLineageInfo info2 = new FieldLineageInfo(Arrays.asList(write, parse, read));
+    Assert.assertEquals(info1.getChecksum(), info2.getChecksum());
+    Assert.assertSame(info1.getIncomingSummary(), info2.getIncomingSummary());
+    Assert.assertSame(info1.getOutgoingSummary(), info2.getOutgoingSummary());
+
+    // Summaries of an instance deserialized without them are the same as the computed ones
+    FieldLineageInfo info3 = new FieldLineageInfo(Arrays.asList(read, parse, write), false);
+    Assert.assertEquals(info1.getDestinationFields(), info3.getDestinationFields());
+    Assert.assertEquals(info1.getIncomingSummary(), info3.getIncomingSummary());
+    Assert.assertEquals(info1.getOutgoingSummary(), info3.getOutgoingSummary());
+
+    // Cached summaries are shared, so they cannot be modified through any of the instances
+    EndPointField offset = new EndPointField(EndPoint.of("ns", "input"), "offset");
+    Set<EndPointField> incoming = info1.getIncomingSummary().get(new EndPointField(EndPoint.of("ns", "output"),
+                                                                                   "offset"));
+    Assert.assertEquals(Collections.singleton(offset), incoming);
+    try {
+      incoming.clear();
+      Assert.fail("Cached incoming summary should not be modifiable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      info1.getOutgoingSummary().get(offset).clear();
+      Assert.fail("Cached outgoing summary should not be modifiable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      info1.getDestinationFields().get(EndPoint.of("ns", "output")).clear();
+      Assert.fail("Cached destination fields should not be modifiable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    Assert.assertEquals(Collections.singleton(offset),
+                        info2.getIncomingSummary().get(new EndPointField(EndPoint.of("ns", "output"), "offset")));
+  }
+
+  @Ignore
+  @Test
+  public void testSpeed() {
+    // read: (f0..f599) -> transform0 -> ... -> transform9 -> write: (f0..f599), each transform reads all fields
+    int numFields = 600;
+    int numTransforms = 10;
+    String[] fields = new String[numFields];
+    for (int i = 0; i < numFields; i++) {
+      fields[i] = "f" + i;
+    }
+
+    int iterations = 20;
+    long computeTime = 0;
+    long cachedTime = 0;
+    for (int i = 0; i < iterations; i++) {
+      // Use a different endpoint for every iteration so that the checksum is different
+      List<Operation> operations = new ArrayList<>();
+      operations.add(new ReadOperation("read", "read descr", EndPoint.of("ns", "input" + i), fields));
+      String previous = "read";
+      for (int j = 0; j < numTransforms; j++) {
+        List<InputField> inputs = new ArrayList<>();
+        for (String field : fields) {
+          inputs.add(InputField.of(previous, field));
+        }
+        String name = "transform" + j;
+        operations.add(new TransformOperation(name, "transform descr", inputs, fields));
+        previous = name;
+      }
+      List<InputField> inputs = new ArrayList<>();
+      for (String field : fields) {
+        inputs.add(InputField.of(previous, field));
+      }
+      operations.add(new WriteOperation("write", "write descr", EndPoint.of("ns", "output"), inputs));
+
+      long startTime = System.nanoTime();
+      FieldLineageInfo info = new FieldLineageInfo(operations);
+      computeTime += System.nanoTime() - startTime;
+      Assert.assertEquals(numFields, info.getIncomingSummary().size());
+
+      startTime = System.nanoTime();
+      new FieldLineageInfo(operations);
+      cachedTime += System.nanoTime() - startTime;
+    }
+
+    System.out.println("Compute summaries for " + numFields + " fields: "
+                         + TimeUnit.NANOSECONDS.toMillis(computeTime / iterations) + " ms");
+    System.out.println("Cached summaries for " + numFields + " fields: "
+                         + TimeUnit.NANOSECONDS.toMillis(cachedTime / iterations) + " ms");
+  }
+
   private void assertBefore(List<Operation> list, Operation a, Operation b) {
     int aIndex = list.indexOf(a);
     int bIndex = list.indexOf(b);
@@ -16,19 +16,26 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.common.ServiceBindException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
 import co.cask.cdap.gateway.router.handlers.AuditLogHandler;
+import co.cask.cdap.gateway.router.handlers.AccessTokenCache;
 import co.cask.cdap.gateway.router.handlers.AuthenticationHandler;
+import co.cask.cdap.gateway.router.handlers.BackendConnectionPool;
 import co.cask.cdap.gateway.router.handlers.HttpRequestRouter;
 import co.cask.cdap.gateway.router.handlers.HttpStatusRequestHandler;
+import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 import co.cask.cdap.security.auth.TokenValidator;
 import co.cask.http.SSLConfig;
 import co.cask.http.SSLHandlerFactory;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
@@ -84,6 +91,7 @@ public class NettyRouter extends AbstractIdleService {
   private final boolean sslEnabled;
   private final SSLHandlerFactory sslHandlerFactory;
   private InetSocketAddress boundAddress;
+  private MetricsContext metricsContext = new NoopMetricsContext();
 
   private DiscoveryServiceClient discoveryServiceClient;
   private Cancellable serverCancellable;
@@ -125,6 +133,20 @@ public class NettyRouter extends AbstractIdleService {
     }
   }
 
+  /**
+   * Optional guice injection for the {@link MetricsCollectionService} used to emit metrics about the connections
+   * to internal services. It is optional because the router doesn't always run with metrics collection.
+   */
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY,
+      Constants.Metrics.Tag.INSTANCE_ID, "0",
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace()
+    ));
+  }
+
   /**
    * Returns an {@link Optional} {@link InetSocketAddress} that this router is bound to. If the router is not
    * running, an empty {@link Optional} will be returned.
@@ -169,6 +191,9 @@ public class NettyRouter extends AbstractIdleService {
   private ServerBootstrap createServerBootstrap(final ChannelGroup channelGroup) {
     EventLoopGroup bossGroup = createEventLoopGroup(serverBossThreadPoolSize, "router-server-boss-thread-%d");
     EventLoopGroup workerGroup = createEventLoopGroup(serverWorkerThreadPoolSize, "router-server-worker-thread-%d");
+    // Connections to internal services are shared by all client connections
+    BackendConnectionPool connectionPool = new BackendConnectionPool(cConf, metricsContext);
+    AccessTokenCache tokenCache = new AccessTokenCache(cConf, tokenValidator);
 
     return new ServerBootstrap()
       .group(bossGroup, workerGroup)
@@ -187,7 +212,8 @@ public class NettyRouter extends AbstractIdleService {
           if (securityEnabled) {
             pipeline.addLast("access-token-authenticator",
                              new AuthenticationHandler(cConf, tokenValidator,
-                                                       discoveryServiceClient, accessTokenTransformer));
+                                                       discoveryServiceClient, accessTokenTransformer,
+                                                       tokenCache, metricsContext));
           }
           if (cConf.getBoolean(Constants.Router.ROUTER_AUDIT_LOG_ENABLED)) {
             pipeline.addLast("audit-log", new AuditLogHandler());
@@ -195,7 +221,7 @@ public class NettyRouter extends AbstractIdleService {
           // Always let the client to continue sending the request body after the authentication passed
           pipeline.addLast("expect-continue", new HttpServerExpectContinueHandler());
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
-          pipeline.addLast("http-request-handler", new HttpRequestRouter(cConf, serviceLookup));
+          pipeline.addLast("http-request-handler", new HttpRequestRouter(serviceLookup, connectionPool));
         }
       });
   }
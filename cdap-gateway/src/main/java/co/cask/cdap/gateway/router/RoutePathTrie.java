@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router;
+
+import com.google.common.base.Preconditions;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A trie of path patterns, used to find the first route of an ordered list of routes that matches a request path.
+ *
+ * A route is a sequence of path segments, in which a {@code null} segment matches any segment. A route can match
+ * the beginning of a path, the whole path or the end of a path, and it can be restricted to a single http method.
+ * If several routes match a path, the one that was added first wins. Routes are compiled into two tries of path
+ * segments, one for the routes matched from the beginning of a path and one for the routes matched from its end.
+ * A lookup walks over the segments of the path in place, without splitting it and without allocating objects.
+ *
+ * @param <T> type of the value associated with each route
+ */
+final class RoutePathTrie<T> {
+
+  private final Node prefixRoot;
+  private final Node suffixRoot;
+  private final List<T> values;
+  private final List<HttpMethod> methods;
+
+  private RoutePathTrie(Node prefixRoot, Node suffixRoot, List<T> values, List<HttpMethod> methods) {
+    this.prefixRoot = prefixRoot;
+    this.suffixRoot = suffixRoot;
+    this.values = values;
+    this.methods = methods;
+  }
+
+  static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Returns the value of the first route that matches the given path and method, or {@code null} if no route matches.
+   *
+   * @param path the request path. Empty segments are ignored, hence leading, trailing and duplicate slashes
+   *             do not change the result
+   * @param method the request method
+   */
+  @Nullable
+  T lookup(String path, HttpMethod method) {
+    int route = matchForward(prefixRoot, path, 0, method, Integer.MAX_VALUE);
+    route = matchBackward(suffixRoot, path, path.length(), method, route);
+    return route == Integer.MAX_VALUE ? null : values.get(route);
+  }
+
+  /**
+   * Returns the index of the first route in the subtree of the given node that matches the remainder of the path
+   * starting at the given position, or {@code best} if there is no such route with a smaller index than {@code best}.
+   */
+  private int matchForward(Node node, String path, int pos, HttpMethod method, int best) {
+    if (node.minRoute >= best) {
+      return best;
+    }
+    best = firstRoute(node.routes, method, best);
+
+    int length = path.length();
+    while (pos < length && path.charAt(pos) == '/') {
+      pos++;
+    }
+    if (pos == length) {
+      return firstRoute(node.exactRoutes, method, best);
+    }
+    int end = path.indexOf('/', pos);
+    if (end < 0) {
+      end = length;
+    }
+    Node child = node.getChild(path, pos, end);
+    if (child != null) {
+      best = matchForward(child, path, end, method, best);
+    }
+    if (node.wildcard != null) {
+      best = matchForward(node.wildcard, path, end, method, best);
+    }
+    return best;
+  }
+
+  /**
+   * Same as {@link #matchForward(Node, String, int, HttpMethod, int)}, but walks the path backwards from the
+   * given end position.
+   */
+  private int matchBackward(Node node, String path, int end, HttpMethod method, int best) {
+    if (node.minRoute >= best) {
+      return best;
+    }
+    best = firstRoute(node.routes, method, best);
+
+    while (end > 0 && path.charAt(end - 1) == '/') {
+      end--;
+    }
+    if (end == 0) {
+      return best;
+    }
+    int start = path.lastIndexOf('/', end - 1) + 1;
+    Node child = node.getChild(path, start, end);
+    if (child != null) {
+      best = matchBackward(child, path, start, method, best);
+    }
+    if (node.wildcard != null) {
+      best = matchBackward(node.wildcard, path, start, method, best);
+    }
+    return best;
+  }
+
+  private int firstRoute(int[] routes, HttpMethod method, int best) {
+    // routes are sorted, hence the first one that applies to the method is the best one
+    for (int route : routes) {
+      if (route >= best) {
+        return best;
+      }
+      HttpMethod routeMethod = methods.get(route);
+      if (routeMethod == null || routeMethod.equals(method)) {
+        return route;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Builder for {@link RoutePathTrie}. Routes must be added in order of precedence.
+   *
+   * @param <T> type of the value associated with each route
+   */
+  static final class Builder<T> {
+    private final Node prefixRoot = new Node();
+    private final Node suffixRoot = new Node();
+    private final List<T> values = new ArrayList<>();
+    private final List<HttpMethod> methods = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    /**
+     * Adds a route that matches all paths that begin with the given segments.
+     */
+    Builder<T> addPrefix(T value, String... segments) {
+      return addPrefix(null, value, segments);
+    }
+
+    /**
+     * Adds a route that matches all paths that begin with the given segments, for the given method only.
+     */
+    Builder<T> addPrefix(@Nullable HttpMethod method, T value, String... segments) {
+      Node node = insert(prefixRoot, segments, false);
+      node.routes = append(node.routes, values.size());
+      return add(method, value);
+    }
+
+    /**
+     * Adds a route that matches the paths that consist of exactly the given segments.
+     */
+    Builder<T> addExact(T value, String... segments) {
+      Node node = insert(prefixRoot, segments, false);
+      node.exactRoutes = append(node.exactRoutes, values.size());
+      return add(null, value);
+    }
+
+    /**
+     * Adds a route that matches all paths that end with the given segments.
+     */
+    Builder<T> addSuffix(T value, String... segments) {
+      Node node = insert(suffixRoot, segments, true);
+      node.routes = append(node.routes, values.size());
+      return add(null, value);
+    }
+
+    RoutePathTrie<T> build() {
+      return new RoutePathTrie<>(prefixRoot, suffixRoot, new ArrayList<>(values), new ArrayList<>(methods));
+    }
+
+    private Builder<T> add(@Nullable HttpMethod method, T value) {
+      values.add(value);
+      methods.add(method);
+      return this;
+    }
+
+    private Node insert(Node root, String[] segments, boolean reverse) {
+      int route = values.size();
+      Node node = root;
+      node.minRoute = Math.min(node.minRoute, route);
+      for (int i = 0; i < segments.length; i++) {
+        String segment = segments[reverse ? segments.length - 1 - i : i];
+        Preconditions.checkArgument(segment == null || (!segment.isEmpty() && segment.indexOf('/') < 0),
+                                    "Invalid path segment '%s' in route %s", segment, Arrays.toString(segments));
+        node = node.getOrCreateChild(segment);
+        node.minRoute = Math.min(node.minRoute, route);
+      }
+      return node;
+    }
+
+    private static int[] append(int[] array, int value) {
+      int[] result = Arrays.copyOf(array, array.length + 1);
+      result[array.length] = value;
+      return result;
+    }
+  }
+
+  /**
+   * A node in the trie. The path from the root to a node is a sequence of segments, each either a literal
+   * or a wildcard.
+   */
+  private static final class Node {
+    private String[] literals = new String[0];
+    private Node[] children = new Node[0];
+    private Node wildcard;
+    // routes that match any path reaching this node, in ascending order
+    private int[] routes = new int[0];
+    // routes that match only if the path ends at this node, in ascending order
+    private int[] exactRoutes = new int[0];
+    // smallest route in the subtree of this node, used to stop the search early
+    private int minRoute = Integer.MAX_VALUE;
+
+    /**
+     * Returns the child for the literal segment {@code path[start, end)}, or {@code null} if there is none.
+     */
+    @Nullable
+    Node getChild(String path, int start, int end) {
+      int length = end - start;
+      for (int i = 0; i < literals.length; i++) {
+        String literal = literals[i];
+        if (literal.length() == length && path.regionMatches(start, literal, 0, length)) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    Node getOrCreateChild(@Nullable String segment) {
+      if (segment == null) {
+        if (wildcard == null) {
+          wildcard = new Node();
+        }
+        return wildcard;
+      }
+      Node child = getChild(segment, 0, segment.length());
+      if (child == null) {
+        child = new Node();
+        literals = Arrays.copyOf(literals, literals.length + 1);
+        literals[literals.length - 1] = segment;
+        children = Arrays.copyOf(children, children.length + 1);
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
+  }
+}
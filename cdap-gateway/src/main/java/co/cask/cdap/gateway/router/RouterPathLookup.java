@@ -21,20 +21,27 @@ import co.cask.cdap.common.service.ServiceDiscoverable;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.http.AbstractHttpHandler;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import org.apache.commons.lang.StringUtils;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 
 /**
  * Class to match the request path to corresponding service like app-fabric, or metrics service.
+ *
+ * The routes are declared in order of precedence in {@link #createRoutes()}, and compiled into a
+ * {@link RoutePathTrie} once, so that routing a request only takes a single walk over the segments of its path.
  */
 public final class RouterPathLookup extends AbstractHttpHandler {
 
-  @SuppressWarnings("unused")
-  private enum AllowedMethod {
-    GET, PUT, POST, DELETE
-  }
+  private static final Set<HttpMethod> ALLOWED_METHODS = ImmutableSet.of(HttpMethod.GET, HttpMethod.PUT,
+                                                                         HttpMethod.POST, HttpMethod.DELETE);
 
   public static final RouteDestination APP_FABRIC_HTTP = new RouteDestination(Constants.Service.APP_FABRIC_HTTP);
   public static final RouteDestination METRICS = new RouteDestination(Constants.Service.METRICS);
@@ -51,6 +58,9 @@ public final class RouterPathLookup extends AbstractHttpHandler {
   public static final RouteDestination MESSAGING = new RouteDestination(Constants.Service.MESSAGING_SERVICE);
   public static final RouteDestination DONT_ROUTE = new RouteDestination(Constants.Router.DONT_ROUTE_SERVICE);
 
+  // Each route maps the request path to its destination. Most of them ignore the path and return a fixed destination.
+  private static final RoutePathTrie<Function<String, RouteDestination>> ROUTES = createRoutes();
+
   /**
    * Returns the CDAP service which will handle the HttpRequest
    *
@@ -60,143 +70,160 @@ public final class RouterPathLookup extends AbstractHttpHandler {
    */
   @Nullable
   public RouteDestination getRoutingService(String requestPath, HttpRequest httpRequest) {
-    try {
-      String method = httpRequest.method().name();
-      AllowedMethod requestMethod = AllowedMethod.valueOf(method);
-      String[] uriParts = StringUtils.split(requestPath, '/');
-
-      if (uriParts[0].equals(Constants.Gateway.API_VERSION_3_TOKEN)) {
-        return getV3RoutingService(uriParts, requestMethod);
-      }
-    } catch (Exception e) {
-      // Ignore exception. Default routing to app-fabric.
+    HttpMethod method = httpRequest.method();
+    if (!ALLOWED_METHODS.contains(method) || !isV3Path(requestPath)) {
+      return APP_FABRIC_HTTP;
     }
-    return APP_FABRIC_HTTP;
+    Function<String, RouteDestination> route = ROUTES.lookup(requestPath, method);
+    return route == null ? APP_FABRIC_HTTP : route.apply(requestPath);
   }
 
-  private boolean isUserServiceType(String uriPart) {
-    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
-      if (type.getCategoryName().equals(uriPart)) {
-        return true;
-      }
+  /**
+   * Returns whether the first segment of the given path is the v3 api version.
+   */
+  private static boolean isV3Path(String path) {
+    String v3 = Constants.Gateway.API_VERSION_3_TOKEN;
+    int start = 0;
+    while (start < path.length() && path.charAt(start) == '/') {
+      start++;
     }
-    return false;
+    int end = start + v3.length();
+    return path.startsWith(v3, start) && (end == path.length() || path.charAt(end) == '/');
   }
 
-  @Nullable
-  private RouteDestination getV3RoutingService(String [] uriParts, AllowedMethod requestMethod) {
-    if ((uriParts.length >= 2) && uriParts[1].equals("feeds")) {
-      // TODO(Rohit) find a better way to handle that - this looks hackish
-      // This needs to now changed especially metadata since now it can have custom parts
-      return null;
-    } else if ("bootstrap".equals(uriParts[1])) {
-      return APP_FABRIC_HTTP;
-    } else if ("dashboard".equals(uriParts[1])) {
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 11) && "versions".equals(uriParts[5]) && isUserServiceType(uriParts[7])
-      && "methods".equals(uriParts[9])) {
+  /**
+   * Creates the routes for v3 paths. Routes that match the end of a path only apply to v3 paths as well, since
+   * other paths are routed to app fabric without a lookup.
+   */
+  private static RoutePathTrie<Function<String, RouteDestination>> createRoutes() {
+    RoutePathTrie.Builder<Function<String, RouteDestination>> routes = RoutePathTrie.builder();
+    String v3 = Constants.Gateway.API_VERSION_3_TOKEN;
+
+    // TODO(Rohit) find a better way to handle that - this looks hackish
+    // This needs to now changed especially metadata since now it can have custom parts
+    routes.addPrefix(to(null), v3, "feeds");
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "bootstrap");
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "dashboard");
+
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
       // User defined services (version specific) handle methods on them:
       //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
       //       <user-defined-method-path>"
-      String serviceName = ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-                                                       ProgramType.valueOfCategoryName(uriParts[7]), uriParts[8]);
-      String version = uriParts[6];
-      return new RouteDestination(serviceName, version);
-    } else if ((uriParts.length >= 9) && isUserServiceType(uriParts[5]) && "methods".equals(uriParts[7])) {
+      routes.addPrefix(RouterPathLookup::getVersionedUserServiceDestination,
+                       v3, null, null, null, null, "versions", null, type.getCategoryName(), null, "methods", null);
+    }
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
       //User defined services handle methods on them:
       //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
-      return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-                                                              ProgramType.valueOfCategoryName(uriParts[5]),
-                                                              uriParts[6]));
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "logs")) {
-      //Log Handler Path /v3/system/services/<service-id>/logs
-      return METRICS;
-    } else if ((!beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) && (endsWith(uriParts, "metadata") ||
-      // do no intercept the namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the
-      // SecureStoreHandler
-      endsWith(uriParts, "metadata", "properties") || endsWith(uriParts, "metadata", "properties", null) ||
-      endsWith(uriParts, "metadata", "tags") || endsWith(uriParts, "metadata", "tags", null) ||
-      endsWith(uriParts, "metadata", "search") ||
-      beginsWith(uriParts, "v3", "namespaces", null, "datasets", null, "lineage") ||
-      beginsWith(uriParts, "v3", "namespaces", null, "streams", null, "lineage") ||
-      beginsWith(uriParts, "v3", "metadata", "search"))) {
-      return METADATA_SERVICE;
-    } else if (beginsWith(uriParts, "v3", "security", "authorization") ||
-      beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) {
-      // Authorization and Secure Store Handlers currently run in App Fabric
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "security", "store", "namespaces", null)) {
-      return APP_FABRIC_HTTP;
-    } else if ((beginsWith(uriParts, "v3", "namespaces", null, "streams", null, "programs")
-      || beginsWith(uriParts, "v3", "namespaces", null, "data", "datasets", null, "programs")) &&
-      requestMethod.equals(AllowedMethod.GET)) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "profiles") ||
-      beginsWith(uriParts, "v3", "profiles")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "previews")) {
-      return PREVIEW_HTTP;
-    } else if (beginsWith(uriParts, "v3", "system", "serviceproviders")) {
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 4) && uriParts[1].equals("namespaces") && uriParts[3].equals("streams")) {
-      return STREAMS_SERVICE;
-    } else if ((uriParts.length >= 8 && uriParts[7].equals("logs")) ||
-      (uriParts.length >= 10 && uriParts[9].equals("logs")) ||
-      (uriParts.length >= 6 && uriParts[5].equals("logs"))) {
-      //Log Handler Paths:
-      // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
-      return METRICS;
-    } else if (uriParts.length >= 2 && uriParts[1].equals("metrics")) {
-      //Metrics Search Handler Path /v3/metrics
-      return METRICS;
-    } else if (uriParts.length >= 5 && uriParts[1].equals("data") && uriParts[2].equals("explore") &&
-      (uriParts[3].equals("queries") || uriParts[3].equals("jdbc") || uriParts[3].equals("namespaces"))) {
-      // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (uriParts.length >= 6 && uriParts[3].equals("data") && uriParts[4].equals("explore") &&
-      (uriParts[5].equals("queries") || uriParts[5].equals("streams") || uriParts[5].equals("datasets")
-        || uriParts[5].equals("tables") || uriParts[5].equals("jdbc"))) {
-      // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/streams/{stream}/enable
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if ((uriParts.length == 3) && uriParts[1].equals("explore") && uriParts[2].equals("status")) {
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "status")
-      || beginsWith(uriParts, "v3", "system", "services", null, "stacks")) {
-      switch (uriParts[3]) {
-        case Constants.Service.LOGSAVER: return LOG_SAVER;
-        case Constants.Service.TRANSACTION: return TRANSACTION;
-        case Constants.Service.METRICS_PROCESSOR: return METRICS_PROCESSOR;
-        case Constants.Service.METRICS: return METRICS;
-        case Constants.Service.APP_FABRIC_HTTP: return APP_FABRIC_HTTP;
-        case Constants.Service.STREAMS: return STREAMS_SERVICE;
-        case Constants.Service.DATASET_EXECUTOR: return DATASET_EXECUTOR;
-        case Constants.Service.METADATA_SERVICE: return METADATA_SERVICE;
-        case Constants.Service.EXPLORE_HTTP_USER_SERVICE: return EXPLORE_HTTP_USER_SERVICE;
-        case Constants.Service.MESSAGING_SERVICE: return MESSAGING;
-        default: return null;
+      routes.addPrefix(RouterPathLookup::getUserServiceDestination,
+                       v3, null, null, null, null, type.getCategoryName(), null, "methods", null);
+    }
+
+    //Log Handler Path /v3/system/services/<service-id>/logs
+    routes.addPrefix(to(METRICS), v3, "system", "services", null, "logs");
+
+    // Authorization and Secure Store Handlers currently run in App Fabric.
+    // This must come before the metadata routes, in order not to intercept the
+    // namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the SecureStoreHandler
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "namespaces", null, "securekeys");
+
+    routes.addSuffix(to(METADATA_SERVICE), "metadata");
+    routes.addSuffix(to(METADATA_SERVICE), "metadata", "properties");
+    routes.addSuffix(to(METADATA_SERVICE), "metadata", "properties", null);
+    routes.addSuffix(to(METADATA_SERVICE), "metadata", "tags");
+    routes.addSuffix(to(METADATA_SERVICE), "metadata", "tags", null);
+    routes.addSuffix(to(METADATA_SERVICE), "metadata", "search");
+    routes.addPrefix(to(METADATA_SERVICE), v3, "namespaces", null, "datasets", null, "lineage");
+    routes.addPrefix(to(METADATA_SERVICE), v3, "namespaces", null, "streams", null, "lineage");
+    routes.addPrefix(to(METADATA_SERVICE), v3, "metadata", "search");
+
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "security", "authorization");
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "security", "store", "namespaces", null);
+    routes.addPrefix(HttpMethod.GET, to(APP_FABRIC_HTTP), v3, "namespaces", null, "streams", null, "programs");
+    routes.addPrefix(HttpMethod.GET, to(APP_FABRIC_HTTP),
+                     v3, "namespaces", null, "data", "datasets", null, "programs");
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "namespaces", null, "profiles");
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "profiles");
+    routes.addPrefix(to(PREVIEW_HTTP), v3, "namespaces", null, "previews");
+    routes.addPrefix(to(APP_FABRIC_HTTP), v3, "system", "serviceproviders");
+    routes.addPrefix(to(STREAMS_SERVICE), v3, "namespaces", null, "streams");
+
+    //Log Handler Paths:
+    // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
+    routes.addPrefix(to(METRICS), v3, null, null, null, null, null, null, "logs");
+    routes.addPrefix(to(METRICS), v3, null, null, null, null, null, null, null, null, "logs");
+    routes.addPrefix(to(METRICS), v3, null, null, null, null, "logs");
+    //Metrics Search Handler Path /v3/metrics
+    routes.addPrefix(to(METRICS), v3, "metrics");
+
+    // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
+    for (String resource : new String[] { "queries", "jdbc", "namespaces" }) {
+      routes.addPrefix(to(EXPLORE_HTTP_USER_SERVICE), v3, "data", "explore", resource, null);
+    }
+    // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/streams/{stream}/enable
+    for (String resource : new String[] { "queries", "streams", "datasets", "tables", "jdbc" }) {
+      routes.addPrefix(to(EXPLORE_HTTP_USER_SERVICE), v3, null, null, "data", "explore", resource);
+    }
+    routes.addExact(to(EXPLORE_HTTP_USER_SERVICE), v3, "explore", "status");
+
+    Map<String, RouteDestination> systemServices = ImmutableMap.<String, RouteDestination>builder()
+      .put(Constants.Service.LOGSAVER, LOG_SAVER)
+      .put(Constants.Service.TRANSACTION, TRANSACTION)
+      .put(Constants.Service.METRICS_PROCESSOR, METRICS_PROCESSOR)
+      .put(Constants.Service.METRICS, METRICS)
+      .put(Constants.Service.APP_FABRIC_HTTP, APP_FABRIC_HTTP)
+      .put(Constants.Service.STREAMS, STREAMS_SERVICE)
+      .put(Constants.Service.DATASET_EXECUTOR, DATASET_EXECUTOR)
+      .put(Constants.Service.METADATA_SERVICE, METADATA_SERVICE)
+      .put(Constants.Service.EXPLORE_HTTP_USER_SERVICE, EXPLORE_HTTP_USER_SERVICE)
+      .put(Constants.Service.MESSAGING_SERVICE, MESSAGING)
+      .build();
+    for (String resource : new String[] { "status", "stacks" }) {
+      for (Map.Entry<String, RouteDestination> entry : systemServices.entrySet()) {
+        routes.addPrefix(to(entry.getValue()), v3, "system", "services", entry.getKey(), resource);
       }
-    } else if (uriParts.length == 7 && uriParts[3].equals("data") && uriParts[4].equals("datasets") &&
-      (uriParts[6].equals("flows") || uriParts[6].equals("workers") || uriParts[6].equals("mapreduce"))) {
-      // namespaced app fabric data operations:
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 4) && uriParts[3].equals("data")) {
-      // other data operations. For example:
-      // /v3/namespaces/{namespace-id}/data/datasets
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
-      return DATASET_MANAGER;
-    } else if ((uriParts.length >= 4) && uriParts[3].equals("artifact-internals")) {
-      // we don't want to expose endpoints in artifact handler that are internal and can only by called by programs
-      // /v3/namespaces/{namespace-id}/artifact-internals/list/artifacts
-      // /v3/namespaces/{namespace-id}/artifact-internals/artifact/{artifact-name}
-      return DONT_ROUTE;
+      routes.addPrefix(to(null), v3, "system", "services", null, resource);
+    }
+
+    // namespaced app fabric data operations:
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
+    for (String programs : new String[] { "flows", "workers", "mapreduce" }) {
+      routes.addExact(to(APP_FABRIC_HTTP), v3, null, null, "data", "datasets", null, programs);
     }
-    return APP_FABRIC_HTTP;
+    // other data operations. For example:
+    // /v3/namespaces/{namespace-id}/data/datasets
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
+    routes.addPrefix(to(DATASET_MANAGER), v3, null, null, "data");
+    // we don't want to expose endpoints in artifact handler that are internal and can only by called by programs
+    // /v3/namespaces/{namespace-id}/artifact-internals/list/artifacts
+    // /v3/namespaces/{namespace-id}/artifact-internals/artifact/{artifact-name}
+    routes.addPrefix(to(DONT_ROUTE), v3, null, null, "artifact-internals");
+
+    // everything else is routed to app fabric
+    return routes.build();
+  }
+
+  private static Function<String, RouteDestination> to(@Nullable RouteDestination destination) {
+    return path -> destination;
+  }
+
+  private static RouteDestination getVersionedUserServiceDestination(String path) {
+    String[] uriParts = StringUtils.split(path, '/');
+    String serviceName = ServiceDiscoverable.getName(uriParts[2], uriParts[4],
+                                                     ProgramType.valueOfCategoryName(uriParts[7]), uriParts[8]);
+    return new RouteDestination(serviceName, uriParts[6]);
+  }
+
+  private static RouteDestination getUserServiceDestination(String path) {
+    String[] uriParts = StringUtils.split(path, '/');
+    return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
+                                                            ProgramType.valueOfCategoryName(uriParts[5]),
+                                                            uriParts[6]));
   }
 
   /**
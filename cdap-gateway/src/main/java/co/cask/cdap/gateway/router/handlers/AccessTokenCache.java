@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.security.auth.TokenValidator;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A router wide cache of access tokens that were successfully validated, so that repeated requests carrying the
+ * same token don't need to decode the token, verify its signature and re-encode the token identifier again.
+ *
+ * Entries are keyed by a digest of the token, hence the cache doesn't hold on to the tokens themselves.
+ * A cached token is never served beyond the expiration time of the token, nor after the secret key that signed
+ * the token is no longer known to the {@link TokenValidator}, for example because the key was rotated out or revoked.
+ */
+public final class AccessTokenCache {
+
+  private static final HashFunction TOKEN_DIGEST = Hashing.sha256();
+
+  private final TokenValidator tokenValidator;
+  private final Cache<HashCode, ValidatedToken> cache;
+
+  public AccessTokenCache(CConfiguration cConf, TokenValidator tokenValidator) {
+    this.tokenValidator = tokenValidator;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(cConf.getLong(Constants.Router.AUTH_TOKEN_CACHE_SIZE))
+      .expireAfterWrite(cConf.getLong(Constants.Router.AUTH_TOKEN_CACHE_EXPIRY_SECS), TimeUnit.SECONDS)
+      .build();
+  }
+
+  /**
+   * Returns the {@link ValidatedToken} for the given access token, or {@code null} if the token is not
+   * in the cache, it has expired or its signing key is no longer valid.
+   */
+  @Nullable
+  ValidatedToken get(String accessToken) {
+    HashCode key = TOKEN_DIGEST.hashString(accessToken, StandardCharsets.UTF_8);
+    ValidatedToken token = cache.getIfPresent(key);
+    if (token == null) {
+      return null;
+    }
+    if (token.getExpireTimestamp() < System.currentTimeMillis() || !tokenValidator.isKeyValid(token.getKeyId())) {
+      cache.invalidate(key);
+      return null;
+    }
+    return token;
+  }
+
+  /**
+   * Adds an access token that was successfully validated to the cache.
+   */
+  void put(String accessToken, ValidatedToken token) {
+    cache.put(TOKEN_DIGEST.hashString(accessToken, StandardCharsets.UTF_8), token);
+  }
+
+  /**
+   * The result of validating and transforming an access token.
+   */
+  static final class ValidatedToken {
+    private final String authorizationHeader;
+    private final String userName;
+    private final long expireTimestamp;
+    private final int keyId;
+
+    ValidatedToken(String authorizationHeader, String userName, long expireTimestamp, int keyId) {
+      this.authorizationHeader = authorizationHeader;
+      this.userName = userName;
+      this.expireTimestamp = expireTimestamp;
+      this.keyId = keyId;
+    }
+
+    /**
+     * Returns the value of the authorization header to forward to the internal services.
+     */
+    String getAuthorizationHeader() {
+      return authorizationHeader;
+    }
+
+    String getUserName() {
+      return userName;
+    }
+
+    long getExpireTimestamp() {
+      return expireTimestamp;
+    }
+
+    /**
+     * Returns the ID of the secret key that signed the access token.
+     */
+    int getKeyId() {
+      return keyId;
+    }
+  }
+}
@@ -16,10 +16,12 @@
 
 package co.cask.cdap.gateway.router.handlers;
 
+import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.logging.AuditLogEntry;
 import co.cask.cdap.common.utils.Networks;
+import co.cask.cdap.security.auth.AccessTokenIdentifier;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 import co.cask.cdap.security.auth.TokenState;
 import co.cask.cdap.security.auth.TokenValidator;
@@ -80,10 +82,13 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
   private final List<String> authServerURLs;
   private final DiscoveryServiceClient discoveryServiceClient;
   private final AccessTokenTransformer tokenTransformer;
+  private final AccessTokenCache tokenCache;
+  private final MetricsContext metricsContext;
 
   public AuthenticationHandler(CConfiguration cConf, TokenValidator tokenValidator,
                                DiscoveryServiceClient discoveryServiceClient,
-                               AccessTokenTransformer tokenTransformer) {
+                               AccessTokenTransformer tokenTransformer,
+                               AccessTokenCache tokenCache, MetricsContext metricsContext) {
     this.cConf = cConf;
     this.realm = cConf.get(Constants.Security.CFG_REALM);
     this.tokenValidator = tokenValidator;
@@ -92,6 +97,8 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
     this.authServerURLs = getConfiguredAuthServerURLs(cConf);
     this.discoveryServiceClient = discoveryServiceClient;
     this.tokenTransformer = tokenTransformer;
+    this.tokenCache = tokenCache;
+    this.metricsContext = metricsContext;
   }
 
   @Override
@@ -180,28 +187,47 @@ public class AuthenticationHandler extends ChannelInboundHandlerAdapter {
 
       accessToken = auth.substring(idx + 1).trim();
     }
-    TokenState state = tokenValidator.validate(accessToken);
+    if (accessToken == null) {
+      return tokenValidator.validate(null);
+    }
 
-    if (state.isValid()) {
+    // Tokens that were validated before are served from the cache, which avoids decoding the token,
+    // verifying the signature and encoding the token identifier again. The cache still checks the expiration
+    // and the signing key of the token on every hit.
+    long startTime = System.nanoTime();
+    AccessTokenCache.ValidatedToken validatedToken = tokenCache.get(accessToken);
+    if (validatedToken != null) {
+      metricsContext.increment(Constants.Metrics.Name.Router.AUTH_TOKEN_CACHE_HITS, 1);
+    } else {
+      metricsContext.increment(Constants.Metrics.Name.Router.AUTH_TOKEN_CACHE_MISSES, 1);
+      TokenState state = tokenValidator.validate(accessToken);
+      if (!state.isValid()) {
+        return state;
+      }
       try {
         AccessTokenTransformer.AccessTokenIdentifierPair tokenPair = tokenTransformer.transform(accessToken);
-        // Update message header
-        request.headers().set(HttpHeaderNames.AUTHORIZATION,
-                              "CDAP-verified " + tokenPair.getAccessTokenIdentifierStr());
-        request.headers().set(Constants.Security.Headers.USER_ID,
-                              tokenPair.getAccessTokenIdentifierObj().getUsername());
-        String clientIP = Networks.getIP(channel.remoteAddress());
-        if (clientIP != null) {
-          request.headers().set(Constants.Security.Headers.USER_IP, clientIP);
-        }
+        AccessTokenIdentifier identifier = tokenPair.getAccessTokenIdentifierObj();
+        validatedToken = new AccessTokenCache.ValidatedToken("CDAP-verified " + tokenPair.getAccessTokenIdentifierStr(),
+                                                             identifier.getUsername(),
+                                                             identifier.getExpireTimestamp(), tokenPair.getKeyId());
+        tokenCache.put(accessToken, validatedToken);
       } catch (Exception e) {
         // This shouldn't happen in normal case, since the token is already validated
         LOG.debug("Exception raised when getting token information from a validate token", e);
         return TokenState.INVALID;
       }
     }
-
-    return state;
+    metricsContext.gauge(Constants.Metrics.Name.Router.AUTH_LATENCY_US,
+                         TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+
+    // Update message header
+    request.headers().set(HttpHeaderNames.AUTHORIZATION, validatedToken.getAuthorizationHeader());
+    request.headers().set(Constants.Security.Headers.USER_ID, validatedToken.getUserName());
+    String clientIP = Networks.getIP(channel.remoteAddress());
+    if (clientIP != null) {
+      request.headers().set(Constants.Security.Headers.USER_IP, clientIP);
+    }
+    return TokenState.VALID;
   }
 
   /**
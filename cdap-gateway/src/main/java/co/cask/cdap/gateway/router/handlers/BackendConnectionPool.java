@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.apache.twill.discovery.Discoverable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+
+/**
+ * A router wide pool of keep-alive connections to the internal services.
+ *
+ * Connections are pooled per event loop, since a connection must be served by the same event loop as the inbound
+ * channel it forwards to. Consequently, all the methods of this class that take a {@link Channel} must be called
+ * from the event loop of that channel. Idle connections are closed after the router connection idle timeout, and at
+ * most a configured number of idle connections is kept for each endpoint and event loop.
+ *
+ * The pool also keeps track of endpoints that recently failed to accept a connection, so that requests can be
+ * routed to other endpoints of the same service for a while.
+ */
+public final class BackendConnectionPool {
+
+  private static final byte[] HTTPS_SCHEME_BYTES = Constants.Security.SSL_URI_SCHEME.getBytes();
+
+  private final int connectionIdleTimeoutSecs;
+  private final int maxIdleConnections;
+  private final long failureBackoffMillis;
+  private final MetricsContext metricsContext;
+  private final ConcurrentMap<EventLoop, Map<Discoverable, Deque<Channel>>> idleConnections;
+  private final ConcurrentMap<Discoverable, Long> failedEndpoints;
+  private final AtomicInteger idleCount;
+  private volatile SslContext sslContext;
+
+  public BackendConnectionPool(CConfiguration cConf, MetricsContext metricsContext) {
+    this.connectionIdleTimeoutSecs = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
+    this.maxIdleConnections = cConf.getInt(Constants.Router.BACKEND_POOL_MAX_IDLE_CONNECTIONS);
+    this.failureBackoffMillis = TimeUnit.SECONDS.toMillis(cConf.getLong(Constants.Router.BACKEND_FAILURE_BACKOFF_SECS));
+    this.metricsContext = metricsContext;
+    this.idleConnections = new ConcurrentHashMap<>();
+    this.failedEndpoints = new ConcurrentHashMap<>();
+    this.idleCount = new AtomicInteger();
+  }
+
+  /**
+   * Returns an idle connection to the given endpoint, attached to the given inbound channel, or {@code null} if
+   * there is no idle connection to that endpoint.
+   */
+  @Nullable
+  Channel acquire(Channel inboundChannel, Discoverable discoverable) {
+    Deque<Channel> connections = getIdleConnections(inboundChannel.eventLoop(), discoverable);
+    Channel channel = connections.pollFirst();
+    while (channel != null) {
+      updateIdleCount(-1);
+      if (channel.isActive()) {
+        channel.pipeline().get(OutboundHandler.class).setInboundChannel(inboundChannel);
+        metricsContext.increment(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_REUSED, 1);
+        return channel;
+      }
+      channel = connections.pollFirst();
+    }
+    return null;
+  }
+
+  /**
+   * Opens a new connection to the given endpoint, attached to the given inbound channel.
+   */
+  ChannelFuture connect(Channel inboundChannel, Discoverable discoverable) {
+    EventLoop eventLoop = inboundChannel.eventLoop();
+    long startTime = System.nanoTime();
+
+    // The connection must use the same event loop as the inbound channel to make
+    // sure thread safety between the inbound and outbound channels callbacks.
+    ChannelFuture connectFuture = new Bootstrap()
+      .group(eventLoop)
+      .channel(NioSocketChannel.class)
+      .option(ChannelOption.SO_KEEPALIVE, true)
+      .handler(new ChannelInitializer<SocketChannel>() {
+        @Override
+        protected void initChannel(SocketChannel ch) throws Exception {
+          ChannelPipeline pipeline = ch.pipeline();
+
+          SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
+          if (sslHandler != null) {
+            pipeline.addLast("ssl", sslHandler);
+          }
+          pipeline.addLast("idle-state-handler", new IdleStateHandler(0, 0, connectionIdleTimeoutSecs));
+          pipeline.addLast("codec", new HttpClientCodec());
+          pipeline.addLast("forwarder", new OutboundHandler(inboundChannel));
+        }
+      })
+      .connect(discoverable.getSocketAddress());
+
+    connectFuture.addListener((ChannelFutureListener) future -> {
+      if (future.isSuccess()) {
+        failedEndpoints.remove(discoverable);
+        metricsContext.increment(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_CREATED, 1);
+        metricsContext.gauge(Constants.Metrics.Name.Router.BACKEND_CONNECT_LATENCY_MS,
+                             TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        // Make sure a connection that gets closed while idle, either by the idle timeout or by the endpoint,
+        // does not stay in the pool
+        Channel channel = future.channel();
+        channel.closeFuture().addListener(closeFuture -> {
+          if (getIdleConnections(eventLoop, discoverable).remove(channel)) {
+            updateIdleCount(-1);
+          }
+        });
+      } else {
+        failedEndpoints.put(discoverable, System.currentTimeMillis() + failureBackoffMillis);
+        metricsContext.increment(Constants.Metrics.Name.Router.BACKEND_CONNECT_FAILURES, 1);
+      }
+    });
+    return connectFuture;
+  }
+
+  /**
+   * Returns the given connection to the pool if it can be reused. It gets detached from its inbound channel.
+   *
+   * @return {@code true} if the connection was released; {@code false} if it cannot be reused, in which case
+   *         it is left untouched
+   */
+  boolean release(Discoverable discoverable, Channel channel) {
+    OutboundHandler handler = channel.pipeline().get(OutboundHandler.class);
+    if (handler == null || !channel.isActive() || !handler.isReusable()) {
+      return false;
+    }
+    handler.setInboundChannel(null);
+
+    Deque<Channel> connections = getIdleConnections(channel.eventLoop(), discoverable);
+    if (connections.size() >= maxIdleConnections) {
+      channel.close();
+      return true;
+    }
+    // The most recently used connection is reused first, so that the others can time out when there is less traffic
+    connections.addFirst(channel);
+    updateIdleCount(1);
+    return true;
+  }
+
+  /**
+   * Returns {@code false} if a connection to the given endpoint failed recently.
+   */
+  boolean isHealthy(Discoverable discoverable) {
+    Long failedUntil = failedEndpoints.get(discoverable);
+    if (failedUntil == null) {
+      return true;
+    }
+    if (failedUntil <= System.currentTimeMillis()) {
+      failedEndpoints.remove(discoverable, failedUntil);
+      return true;
+    }
+    return false;
+  }
+
+  private Deque<Channel> getIdleConnections(EventLoop eventLoop, Discoverable discoverable) {
+    // The inner map is only accessed from the event loop it belongs to, hence doesn't need to be thread safe
+    return idleConnections.computeIfAbsent(eventLoop, loop -> new HashMap<>())
+      .computeIfAbsent(discoverable, d -> new ArrayDeque<>());
+  }
+
+  private void updateIdleCount(int delta) {
+    metricsContext.gauge(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_IDLE, idleCount.addAndGet(delta));
+  }
+
+  /**
+   * Returns the {@link SslHandler} to be used for a given discoverable endpoint
+   *
+   * @param discoverable the endpoint to connect to
+   * @return the {@link SslHandler} or {@code null} if SSL is not needed
+   */
+  @Nullable
+  private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc) throws SSLException {
+    if (!Arrays.equals(HTTPS_SCHEME_BYTES, discoverable.getPayload())) {
+      return null;
+    }
+    SslContext context = sslContext;
+    if (context != null) {
+      return context.newHandler(alloc);
+    }
+    synchronized (this) {
+      context = sslContext;
+      if (context == null) {
+        sslContext = context = SslContextBuilder.forClient()
+                                                .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+      }
+      return context.newHandler(alloc);
+    }
+  }
+}
@@ -17,38 +17,23 @@
 package co.cask.cdap.gateway.router.handlers;
 
 import co.cask.cdap.common.HandlerException;
-import co.cask.cdap.common.conf.CConfiguration;
-import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.EndpointStrategy;
 import co.cask.cdap.gateway.router.RouterServiceLookup;
-import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandler;
-import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
-import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
-import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.SslHandler;
-import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
-import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.ReferenceCountUtil;
 import org.apache.twill.discovery.Discoverable;
 import org.slf4j.Logger;
@@ -58,13 +43,10 @@ import java.io.Closeable;
 import java.io.Flushable;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
-import javax.annotation.Nullable;
-import javax.net.ssl.SSLException;
 
 /**
  * A {@link ChannelInboundHandler} for forwarding incoming request to appropriate CDAP service endpoint
@@ -74,18 +56,20 @@ import javax.net.ssl.SSLException;
 public class HttpRequestRouter extends ChannelDuplexHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestRouter.class);
-  private static final byte[] HTTPS_SCHEME_BYTES = Constants.Security.SSL_URI_SCHEME.getBytes();
+  // Number of additional endpoints to try when the endpoint picked for a request recently failed
+  private static final int MAX_ENDPOINT_RETRIES = 3;
 
-  private final CConfiguration cConf;
   private final RouterServiceLookup serviceLookup;
+  private final BackendConnectionPool connectionPool;
   private final Map<Discoverable, Queue<MessageSender>> messageSenders;
   private int inflightRequests;
+  private boolean clientKeepAlive;
   private MessageSender currentMessageSender;
   private ChannelFutureListener failureResponseListener;
 
-  public HttpRequestRouter(CConfiguration cConf, RouterServiceLookup serviceLookup) {
-    this.cConf = cConf;
+  public HttpRequestRouter(RouterServiceLookup serviceLookup, BackendConnectionPool connectionPool) {
     this.serviceLookup = serviceLookup;
+    this.connectionPool = connectionPool;
     this.messageSenders = new HashMap<>();
   }
 
@@ -121,6 +105,11 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
         currentMessageSender = getMessageSender(
           inboundChannel, getDiscoverable(request)
         );
+
+        // Always ask the internal service to keep the connection open, so that it can be reused by other clients.
+        // Whether the client connection is kept open is decided by the router when the response is completed.
+        clientKeepAlive = HttpUtil.isKeepAlive(request);
+        HttpUtil.setKeepAlive(request, true);
       }
 
       if (inflightRequests == 1 && currentMessageSender != null) {
@@ -142,6 +131,9 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    if (msg instanceof HttpResponse && !clientKeepAlive) {
+      HttpUtil.setKeepAlive((HttpResponse) msg, false);
+    }
     ctx.writeAndFlush(msg, promise);
 
     // When the response for the first request is completed, write N failure responses for pipelining requests (if any).
@@ -151,10 +143,14 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       }
       inflightRequests = 0;
 
-      // Recycle the message sender
+      // Return the connection to the pool if possible and recycle the message sender
       if (currentMessageSender != null) {
+        currentMessageSender.release();
         messageSenders.get(currentMessageSender.getDiscoverable()).add(currentMessageSender);
       }
+      if (!clientKeepAlive) {
+        Channels.closeOnFlush(ctx.channel());
+      }
     }
   }
 
@@ -210,6 +206,14 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       throw new HandlerException(HttpResponseStatus.SERVICE_UNAVAILABLE,
                                  "No discoverable found for request " + getRequestLine(httpRequest));
     }
+    // Prefer an endpoint that didn't fail recently, if the strategy can provide one
+    for (int i = 0; i < MAX_ENDPOINT_RETRIES && !connectionPool.isHealthy(discoverable); i++) {
+      Discoverable other = strategy.pick();
+      if (other != null && connectionPool.isHealthy(other)) {
+        LOG.trace("Picked endpoint {} instead of recently failed endpoint {}", other, discoverable);
+        return other;
+      }
+    }
     return discoverable;
   }
 
@@ -230,7 +234,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
     }
 
     // Create new MessageSender
-    sender = new MessageSender(cConf, inboundChannel, discoverable);
+    sender = new MessageSender(connectionPool, inboundChannel, discoverable);
     LOG.trace("Create new message sender for {}", discoverable);
     return sender;
   }
@@ -258,54 +262,32 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   /**
    * For sending messages to outbound channel while maintaining the order of messages according to
-   * the order that {@link #send(Object, ChannelFutureListener)} method is called.
+   * the order that {@link #send(Object, ChannelFutureListener)} method is called. The outbound channel is
+   * taken from the {@link BackendConnectionPool} for each request, and returned to it once the response is completed.
    */
   private static final class MessageSender implements Flushable, Closeable {
 
+    private final BackendConnectionPool connectionPool;
+    private final Channel inboundChannel;
     private final Discoverable discoverable;
     private final Queue<OutboundMessage> pendingMessages;
-    private final Bootstrap clientBootstrap;
-    private volatile SslContext sslContext;
+    // A channel listener for resetting the state of this message sender on closing of outbound channel
+    private final ChannelFutureListener onCloseResetListener;
     private Channel outboundChannel;
     private boolean closed;
     private boolean connecting;
 
-    private MessageSender(final CConfiguration cConf, final Channel inboundChannel, final Discoverable discoverable) {
+    private MessageSender(BackendConnectionPool connectionPool, Channel inboundChannel, Discoverable discoverable) {
+      this.connectionPool = connectionPool;
+      this.inboundChannel = inboundChannel;
       this.discoverable = discoverable;
       this.pendingMessages = new LinkedList<>();
-
-      // A channel listener for resetting the state of this message sender on closing of outbound channel
-      final ChannelFutureListener onCloseResetListener = new ChannelFutureListener() {
-        @Override
-        public void operationComplete(ChannelFuture future) {
+      this.onCloseResetListener = future -> {
+        if (future.channel() == outboundChannel) {
           outboundChannel = null;
           connecting = false;
         }
       };
-
-      // Create a client Bootstrap for connecting to internal services
-      // It must be create using the same EventLoopGroup as the inbound channel to make
-      // sure thread safety between the inbound and outbound channels callbacks.
-      this.clientBootstrap = new Bootstrap()
-        .group(inboundChannel.eventLoop())
-        .channel(NioSocketChannel.class)
-        .option(ChannelOption.SO_KEEPALIVE, true)
-        .handler(new ChannelInitializer<SocketChannel>() {
-          @Override
-          protected void initChannel(SocketChannel ch) throws Exception {
-            ch.closeFuture().addListener(onCloseResetListener);
-            ChannelPipeline pipeline = ch.pipeline();
-
-            SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
-            if (sslHandler != null) {
-              pipeline.addLast("ssl", sslHandler);
-            }
-            pipeline.addLast("idle-state-handler",
-                             new IdleStateHandler(0, 0, cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS)));
-            pipeline.addLast("codec", new HttpClientCodec());
-            pipeline.addLast("forwarder", new OutboundHandler(inboundChannel));
-          }
-        });
     }
 
     /**
@@ -315,6 +297,16 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
      * @param writeCompletedListener a {@link ChannelFutureListener} to be notified when the write completed
      */
     void send(Object msg, ChannelFutureListener writeCompletedListener) {
+      if (outboundChannel == null && !connecting) {
+        // Reuse an idle connection from the pool if there is one
+        Channel channel = connectionPool.acquire(inboundChannel, discoverable);
+        if (channel != null) {
+          LOG.trace("Reuse connection {} for {}", channel, discoverable);
+          outboundChannel = channel;
+          channel.closeFuture().addListener(onCloseResetListener);
+        }
+      }
+
       if (outboundChannel != null) {
         outboundChannel.write(msg).addListener(writeCompletedListener);
         return;
@@ -329,13 +321,14 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       }
 
       // Make a new connection
-      ChannelFuture connectFuture = clientBootstrap.connect(discoverable.getSocketAddress());
+      ChannelFuture connectFuture = connectionPool.connect(inboundChannel, discoverable);
       connectFuture.addListener(new ChannelFutureListener() {
         @Override
         public void operationComplete(ChannelFuture future) throws Exception {
           // Always remember the outbound channel even if the connection fail.
           // This make sure any message received before the inbound channel is closed will not get forwarded
           outboundChannel = future.channel();
+          outboundChannel.closeFuture().addListener(onCloseResetListener);
           connecting = false;
 
           if (future.isSuccess()) {
@@ -358,6 +351,18 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       connecting = true;
     }
 
+    /**
+     * Returns the outbound channel to the pool if the exchange on it is completed and it can be reused.
+     * Otherwise the channel stays with this sender.
+     */
+    void release() {
+      Channel channel = outboundChannel;
+      if (channel != null && !closed && connectionPool.release(discoverable, channel)) {
+        channel.closeFuture().removeListener(onCloseResetListener);
+        outboundChannel = null;
+      }
+    }
+
     @Override
     public void flush() {
       if (outboundChannel != null && !closed) {
@@ -379,31 +384,6 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       return discoverable;
     }
 
-    /**
-     * Returns the {@link SslContext} to be used for a given discoverable endpoint
-     *
-     * @param discoverable the endpoint to connect to
-     * @return the {@link SslContext} or {@code null} if SSL is not needed
-     */
-    @Nullable
-    private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc) throws SSLException {
-      if (!Arrays.equals(HTTPS_SCHEME_BYTES, discoverable.getPayload())) {
-        return null;
-      }
-      SslContext context = sslContext;
-      if (context != null) {
-        return context.newHandler(alloc);
-      }
-      synchronized (this) {
-        context = sslContext;
-        if (context == null) {
-          sslContext = context = SslContextBuilder.forClient()
-                                                  .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
-        }
-        return context.newHandler(alloc);
-      }
-    }
-
     /**
      * Process the message by sending to the given channel or have a failure call to the message callback,
      * depending on the state of this sender.
@@ -26,42 +26,75 @@ import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 /**
  * A {@link ChannelDuplexHandler} for forwarding requests/responses between the router and the internal service.
  * It also handle idle state event for closing idled internal connections.
+ *
+ * When the connection is returned to the {@link BackendConnectionPool}, it is detached from the inbound channel
+ * until it is attached to the inbound channel of the next request that reuses it.
  */
 public class OutboundHandler extends ChannelDuplexHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private Channel inboundChannel;
   private boolean requestInProgress;
+  private boolean requestCompleted;
+  private boolean requestKeepAlive;
   private boolean keepAlive;
 
   public OutboundHandler(Channel inboundChannel) {
     this.inboundChannel = inboundChannel;
   }
 
+  /**
+   * Sets the inbound channel that responses are forwarded to, or {@code null} to detach this handler.
+   */
+  void setInboundChannel(@Nullable Channel inboundChannel) {
+    this.inboundChannel = inboundChannel;
+  }
+
+  /**
+   * Returns whether the connection can be used for another request. This is the case if both the last request
+   * and its response were fully transferred, and both of them allowed keep-alive.
+   */
+  boolean isReusable() {
+    return !requestInProgress && requestCompleted && requestKeepAlive && keepAlive;
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-    // One receiving messages from the internal service, forward it to the inbound channel
-    inboundChannel.write(msg);
+    if (inboundChannel == null) {
+      // Nothing is expected from the internal service while the connection is idle in the pool
+      ReferenceCountUtil.release(msg);
+      ctx.close();
+      return;
+    }
 
     if (msg instanceof HttpResponse) {
       keepAlive = HttpUtil.isKeepAlive((HttpResponse) msg);
     }
 
-    // A response is completed by receiving the last http content
+    // A response is completed by receiving the last http content.
+    // The state is updated before forwarding, so that the connection can be released as soon as it is written.
     if (msg instanceof LastHttpContent) {
       requestInProgress = false;
     }
+
+    // One receiving messages from the internal service, forward it to the inbound channel
+    inboundChannel.write(msg);
   }
 
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-    inboundChannel.flush();
+    if (inboundChannel != null) {
+      inboundChannel.flush();
+    }
   }
 
   @Override
@@ -69,14 +102,20 @@ public class OutboundHandler extends ChannelDuplexHandler {
     // A request starts with a HttpRequest
     if (msg instanceof HttpRequest) {
       requestInProgress = true;
-      keepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
+      requestCompleted = false;
+      requestKeepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
+      keepAlive = requestKeepAlive;
+    }
+    if (msg instanceof LastHttpContent) {
+      requestCompleted = true;
     }
     ctx.write(msg, promise);
   }
 
   @Override
   public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
-    if (requestInProgress) {
+    final Channel inboundChannel = this.inboundChannel;
+    if (requestInProgress && inboundChannel != null) {
       final Channel channel = ctx.channel();
       ctx.executor().execute(() -> {
         // If outboundChannel is not saturated anymore, continue accepting
@@ -97,7 +136,7 @@ public class OutboundHandler extends ChannelDuplexHandler {
   @Override
   public void channelInactive(ChannelHandlerContext ctx) throws Exception {
     // Close the inbound channel if there is request in progress, or the last request/response has keep-alive == false
-    if (requestInProgress || !keepAlive) {
+    if (inboundChannel != null && (requestInProgress || !keepAlive)) {
       Channels.closeOnFlush(inboundChannel);
     }
     ctx.fireChannelInactive();
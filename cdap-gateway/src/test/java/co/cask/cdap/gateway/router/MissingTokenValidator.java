@@ -40,4 +40,9 @@ public class MissingTokenValidator extends AbstractService implements TokenValid
   public TokenState validate(String token) {
     return TokenState.MISSING;
   }
+
+  @Override
+  public boolean isKeyValid(int keyId) {
+    return true;
+  }
 }
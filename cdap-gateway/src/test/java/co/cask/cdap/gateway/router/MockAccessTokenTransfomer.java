@@ -32,6 +32,6 @@ public class MockAccessTokenTransfomer extends AccessTokenTransformer {
   public AccessTokenIdentifierPair transform(String accessToken) throws IOException {
     return new AccessTokenIdentifierPair("dummy", new AccessTokenIdentifier("dummy", new LinkedHashSet<String>(),
                                                                             System.currentTimeMillis(),
-                                                                            System.currentTimeMillis() + 100000));
+                                                                            System.currentTimeMillis() + 100000), 0);
   }
 }
@@ -49,4 +49,9 @@ public class MockTokenValidator extends AbstractService implements TokenValidato
   public TokenState validate(String token) {
     return tokenToFail.equals(token) ? TokenState.INVALID : TokenState.VALID;
   }
+
+  @Override
+  public boolean isKeyValid(int keyId) {
+    return true;
+  }
 }
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
@@ -41,8 +42,9 @@ import javax.net.SocketFactory;
 public class NettyRouterHttpTest extends NettyRouterTestBase {
 
   @Override
-  protected RouterService createRouterService(String hostname, DiscoveryService discoveryService) {
-    return new HttpRouterService(hostname, discoveryService);
+  protected RouterService createRouterService(String hostname, DiscoveryService discoveryService,
+                                              MetricsCollectionService metricsCollectionService) {
+    return new HttpRouterService(hostname, discoveryService, metricsCollectionService);
   }
 
   @Override
@@ -63,12 +65,15 @@ public class NettyRouterHttpTest extends NettyRouterTestBase {
   private static class HttpRouterService extends RouterService {
     private final String hostname;
     private final DiscoveryService discoveryService;
+    private final MetricsCollectionService metricsCollectionService;
 
     private NettyRouter router;
 
-    private HttpRouterService(String hostname, DiscoveryService discoveryService) {
+    private HttpRouterService(String hostname, DiscoveryService discoveryService,
+                              MetricsCollectionService metricsCollectionService) {
       this.hostname = hostname;
       this.discoveryService = discoveryService;
+      this.metricsCollectionService = metricsCollectionService;
     }
 
     @Override
@@ -89,6 +94,7 @@ public class NettyRouterHttpTest extends NettyRouterTestBase {
                         new RouterServiceLookup(cConf, (DiscoveryServiceClient) discoveryService,
                                                 new RouterPathLookup(), routeStore),
                         new SuccessTokenValidator(), accessTokenTransformer, discoveryServiceClient);
+      router.setMetricsCollectionService(metricsCollectionService);
       router.startAndWait();
     }
 
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
@@ -54,8 +55,9 @@ import javax.net.ssl.SSLContext;
 public class NettyRouterHttpsTest extends NettyRouterTestBase {
 
   @Override
-  protected RouterService createRouterService(String hostname, DiscoveryService discoveryService) {
-    return new HttpsRouterService(hostname, discoveryService);
+  protected RouterService createRouterService(String hostname, DiscoveryService discoveryService,
+                                              MetricsCollectionService metricsCollectionService) {
+    return new HttpsRouterService(hostname, discoveryService, metricsCollectionService);
   }
 
   @Override
@@ -97,12 +99,15 @@ public class NettyRouterHttpsTest extends NettyRouterTestBase {
   private static class HttpsRouterService extends RouterService {
     private final String hostname;
     private final DiscoveryService discoveryService;
+    private final MetricsCollectionService metricsCollectionService;
 
     private NettyRouter router;
 
-    private HttpsRouterService(String hostname, DiscoveryService discoveryService) {
+    private HttpsRouterService(String hostname, DiscoveryService discoveryService,
+                               MetricsCollectionService metricsCollectionService) {
       this.hostname = hostname;
       this.discoveryService = discoveryService;
+      this.metricsCollectionService = metricsCollectionService;
     }
 
     @Override
@@ -131,6 +136,7 @@ public class NettyRouterHttpsTest extends NettyRouterTestBase {
                         new RouterServiceLookup(cConf, (DiscoveryServiceClient) discoveryService,
                                                 new RouterPathLookup(), routeStore),
                         new SuccessTokenValidator(), accessTokenTransformer, discoveryServiceClient);
+      router.setMetricsCollectionService(metricsCollectionService);
       router.startAndWait();
     }
 
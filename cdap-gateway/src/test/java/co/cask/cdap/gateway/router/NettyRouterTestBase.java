@@ -16,10 +16,14 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.RandomEndpointStrategy;
 import co.cask.cdap.common.discovery.ResolvingDiscoverable;
 import co.cask.cdap.common.http.AbstractBodyConsumer;
+import co.cask.cdap.common.utils.Tasks;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.BodyConsumer;
 import co.cask.http.ChannelPipelineModifier;
@@ -46,11 +50,14 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -89,11 +96,15 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.net.SocketFactory;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -117,12 +128,15 @@ public abstract class NettyRouterTestBase {
   private static final int CHUNK_SIZE = 1024 * 1024;      // NOTE: MAX_UPLOAD_BYTES % CHUNK_SIZE == 0
 
   private final DiscoveryService discoveryService = new InMemoryDiscoveryService();
-  private final RouterService routerService = createRouterService(HOSTNAME, discoveryService);
+  private final InMemoryMetricsCollectionService metricsCollectionService = new InMemoryMetricsCollectionService();
+  private final RouterService routerService = createRouterService(HOSTNAME, discoveryService,
+                                                                  metricsCollectionService);
   private final ServerService defaultServer1 = new ServerService(HOSTNAME, discoveryService, APP_FABRIC_SERVICE);
   private final ServerService defaultServer2 = new ServerService(HOSTNAME, discoveryService, APP_FABRIC_SERVICE);
   private final List<ServerService> allServers = Lists.newArrayList(defaultServer1, defaultServer2);
 
-  protected abstract RouterService createRouterService(String hostname, DiscoveryService discoveryService);
+  protected abstract RouterService createRouterService(String hostname, DiscoveryService discoveryService,
+                                                       MetricsCollectionService metricsCollectionService);
   protected abstract String getProtocol();
   protected abstract DefaultHttpClient getHTTPClient() throws Exception;
   protected abstract SocketFactory getSocketFactory() throws Exception;
@@ -380,6 +394,102 @@ public abstract class NettyRouterTestBase {
     return firstLine;
   }
 
+  @Test
+  public void testBackendConnectionReuse() throws Exception {
+    // Only use server1
+    defaultServer2.cancelRegistration();
+
+    // Backend connections are pooled per router worker thread, and client connections are assigned to the
+    // worker threads in turn. Make enough requests to have each backend connection reused.
+    int workerThreads = CConfiguration.create().getInt(Constants.Router.SERVER_WORKER_THREADS);
+    int numRequests = 2 * workerThreads;
+    URI uri = new URI(resolveURI("/v2/ping"));
+    for (int i = 0; i < numRequests; i++) {
+      // every request is made on a new client connection, that asks the router to close it after the response
+      try (Socket socket = getSocketFactory().createSocket(uri.getHost(), uri.getPort())) {
+        socket.setSoTimeout(10000);
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                         StandardCharsets.UTF_8));
+        List<String> response = makeRequest(uri, out, reader, HttpHeaderValues.CLOSE.toString());
+        Assert.assertEquals("HTTP/1.1 200 OK", response.get(0));
+
+        // the client's "Connection: close" is honored, although the request is sent to the backend with keep-alive
+        Assert.assertTrue(response.contains(HttpHeaderNames.CONNECTION + ": " + HttpHeaderValues.CLOSE));
+        Assert.assertEquals(-1, reader.read());
+      }
+    }
+
+    // the backend connections are kept alive and shared by the client connections
+    Assert.assertEquals(numRequests, defaultServer1.getNumRequests());
+    int numConnections = defaultServer1.getNumConnectionsOpened();
+    Assert.assertTrue(numConnections <= workerThreads);
+    Assert.assertEquals(numConnections,
+                        metricsCollectionService.get(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_CREATED));
+    Assert.assertEquals(numRequests - numConnections,
+                        metricsCollectionService.get(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_REUSED));
+  }
+
+  @Test
+  public void testIdleBackendConnectionClosed() throws Exception {
+    // Only use server1
+    defaultServer2.cancelRegistration();
+
+    URL url = new URL(resolveURI("/v2/ping"));
+    HttpURLConnection urlConn = openURL(url);
+    Assert.assertEquals(200, urlConn.getResponseCode());
+    urlConn.getInputStream().close();
+    urlConn.disconnect();
+
+    // the backend connection is returned to the pool after the response
+    Tasks.waitFor(1L, () -> metricsCollectionService.get(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_IDLE),
+                  5, TimeUnit.SECONDS);
+
+    // when the backend closes the idle connection, the router removes it from the pool
+    defaultServer1.closeConnections();
+    Tasks.waitFor(0L, () -> metricsCollectionService.get(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_IDLE),
+                  5, TimeUnit.SECONDS);
+
+    // the next request uses a new backend connection
+    urlConn = openURL(url);
+    Assert.assertEquals(200, urlConn.getResponseCode());
+    urlConn.getInputStream().close();
+    urlConn.disconnect();
+
+    Assert.assertEquals(2, defaultServer1.getNumRequests());
+    Assert.assertEquals(2, defaultServer1.getNumConnectionsOpened());
+    Assert.assertEquals(0, metricsCollectionService.get(Constants.Metrics.Name.Router.BACKEND_CONNECTIONS_REUSED));
+  }
+
+  /**
+   * Makes a request with the given value of the Connection header, and returns the status line followed by
+   * the headers of the response in lower case. The body of the response is consumed.
+   */
+  private List<String> makeRequest(URI uri, PrintWriter out, BufferedReader reader,
+                                   String connection) throws IOException {
+    out.print("GET " + uri.getPath() + " HTTP/1.1\r\n" +
+                "Host: " + uri.getHost() + "\r\n" +
+                "Connection: " + connection + "\r\n\r\n");
+    out.flush();
+
+    List<String> response = new ArrayList<>();
+    response.add(reader.readLine());
+    int contentLength = 0;
+    String line = reader.readLine();
+    while (!line.isEmpty()) {
+      line = line.toLowerCase();
+      if (line.startsWith(HttpHeaderNames.CONTENT_LENGTH.toString())) {
+        contentLength = Integer.parseInt(line.split(":", 2)[1].trim());
+      }
+      response.add(line);
+      line = reader.readLine();
+    }
+    for (int i = 0; i < contentLength; i++) {
+      reader.read();
+    }
+    return response;
+  }
+
   @Test
   public void testConnectionIdleTimeoutWithMultipleServers() throws Exception {
     defaultServer2.cancelRegistration();
@@ -587,6 +697,61 @@ public abstract class NettyRouterTestBase {
     return client.execute(get);
   }
 
+  /**
+   * A {@link MetricsCollectionService} that keeps the metrics emitted by the router in memory. Increments are
+   * summed up, and for gauges the latest value is kept.
+   */
+  private static final class InMemoryMetricsCollectionService extends AbstractIdleService
+    implements MetricsCollectionService {
+
+    private final ConcurrentMap<String, AtomicLong> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    protected void startUp() {
+      // no-op
+    }
+
+    @Override
+    protected void shutDown() {
+      // no-op
+    }
+
+    long get(String metricName) {
+      AtomicLong value = metrics.get(metricName);
+      return value == null ? 0L : value.get();
+    }
+
+    @Override
+    public MetricsContext getContext(Map<String, String> tags) {
+      return new MetricsContext() {
+        @Override
+        public void increment(String metricName, long value) {
+          metrics.computeIfAbsent(metricName, name -> new AtomicLong()).addAndGet(value);
+        }
+
+        @Override
+        public void gauge(String metricName, long value) {
+          metrics.computeIfAbsent(metricName, name -> new AtomicLong()).set(value);
+        }
+
+        @Override
+        public MetricsContext childContext(Map<String, String> tags) {
+          return this;
+        }
+
+        @Override
+        public MetricsContext childContext(String tagName, String tagValue) {
+          return this;
+        }
+
+        @Override
+        public Map<String, String> getTags() {
+          return tags;
+        }
+      };
+    }
+  }
+
   /**
    * A server for the router.
    */
@@ -606,6 +771,7 @@ public abstract class NettyRouterTestBase {
     private final AtomicInteger numRequests = new AtomicInteger(0);
     private final AtomicInteger numConnectionsOpened = new AtomicInteger(0);
     private final AtomicInteger numConnectionsClosed = new AtomicInteger(0);
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
     private NettyHttpService httpService;
     private Cancellable cancelDiscovery;
@@ -629,6 +795,7 @@ public abstract class NettyRouterTestBase {
             @Override
             public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
               numConnectionsOpened.incrementAndGet();
+              channels.add(ctx.channel());
               super.channelActive(ctx);
             }
 
@@ -666,6 +833,13 @@ public abstract class NettyRouterTestBase {
       return numConnectionsClosed.get();
     }
 
+    /**
+     * Closes all connections that are open on this server.
+     */
+    public void closeConnections() {
+      channels.close().awaitUninterruptibly();
+    }
+
 
     public void registerServer() {
       // Register services of test server
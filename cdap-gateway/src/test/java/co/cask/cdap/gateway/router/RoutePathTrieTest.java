@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RoutePathTrie}.
+ */
+public class RoutePathTrieTest {
+
+  @Test
+  public void testPrefixAndExact() {
+    RoutePathTrie<String> trie = RoutePathTrie.<String>builder()
+      .addExact("exact", "a", "b")
+      .addPrefix("prefix", "a", "b")
+      .addPrefix("wildcard", "a", null, "c")
+      .build();
+
+    Assert.assertEquals("exact", trie.lookup("/a/b", HttpMethod.GET));
+    Assert.assertEquals("exact", trie.lookup("a//b/", HttpMethod.GET));
+    Assert.assertEquals("prefix", trie.lookup("/a/b/c", HttpMethod.GET));
+    Assert.assertEquals("wildcard", trie.lookup("/a/x/c", HttpMethod.GET));
+    Assert.assertEquals("wildcard", trie.lookup("/a/x/c/d", HttpMethod.GET));
+    Assert.assertNull(trie.lookup("/a", HttpMethod.GET));
+    Assert.assertNull(trie.lookup("/a/x", HttpMethod.GET));
+    Assert.assertNull(trie.lookup("/ab", HttpMethod.GET));
+    Assert.assertNull(trie.lookup("", HttpMethod.GET));
+    Assert.assertNull(trie.lookup("/", HttpMethod.GET));
+  }
+
+  @Test
+  public void testPrecedence() {
+    // the route added first wins, even if a later route is more specific
+    RoutePathTrie<String> trie = RoutePathTrie.<String>builder()
+      .addPrefix("any", "a", null)
+      .addPrefix("specific", "a", "b")
+      .addSuffix("suffix", "c")
+      .addPrefix("late", "x", "c")
+      .build();
+
+    Assert.assertEquals("any", trie.lookup("/a/b", HttpMethod.GET));
+    Assert.assertEquals("any", trie.lookup("/a/b/c", HttpMethod.GET));
+    Assert.assertEquals("suffix", trie.lookup("/x/c", HttpMethod.GET));
+    Assert.assertEquals("late", trie.lookup("/x/c/d", HttpMethod.GET));
+  }
+
+  @Test
+  public void testSuffix() {
+    RoutePathTrie<String> trie = RoutePathTrie.<String>builder()
+      .addSuffix("tags", "metadata", "tags")
+      .addSuffix("tag", "metadata", "tags", null)
+      .build();
+
+    Assert.assertEquals("tags", trie.lookup("/x/metadata/tags", HttpMethod.GET));
+    Assert.assertEquals("tags", trie.lookup("metadata/tags/", HttpMethod.GET));
+    Assert.assertEquals("tag", trie.lookup("/x/metadata/tags/t", HttpMethod.GET));
+    Assert.assertNull(trie.lookup("/x/metadata/tags/t/u", HttpMethod.GET));
+    Assert.assertNull(trie.lookup("/tags", HttpMethod.GET));
+  }
+
+  @Test
+  public void testMethod() {
+    RoutePathTrie<String> trie = RoutePathTrie.<String>builder()
+      .addPrefix(HttpMethod.GET, "get", "a", "b")
+      .addPrefix("other", "a")
+      .build();
+
+    Assert.assertEquals("get", trie.lookup("/a/b", HttpMethod.GET));
+    Assert.assertEquals("other", trie.lookup("/a/b", HttpMethod.PUT));
+    Assert.assertEquals("other", trie.lookup("/a/c", HttpMethod.GET));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSegment() {
+    RoutePathTrie.<String>builder().addPrefix("invalid", "a/b");
+  }
+}
@@ -26,9 +26,11 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpVersion;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
 
 /**
  *  To test the RouterPathLookup regular expression tests.
@@ -552,6 +554,47 @@ public class RouterPathLookupTest {
     Assert.assertFalse(RouterPathLookup.endsWith(new String[]{"a", "b", "c", "d"}, "a", "b", null));
   }
 
+  @Ignore
+  @Test
+  public void testSpeed() {
+    // A mix of paths as seen by the router of a typical instance
+    String[] paths = {
+      "/v3/namespaces/default/apps/PurchaseHistory/services/PurchaseHistoryService/methods/history/joe",
+      "/v3/namespaces/default/apps/PurchaseHistory/versions/1.0/services/CatalogLookup/methods/v1/product/1/catalog",
+      "/v3/namespaces/default/apps/PurchaseHistory/workflows/PurchaseHistoryWorkflow/runs",
+      "/v3/namespaces/default/apps/PurchaseHistory/workflows/PurchaseHistoryWorkflow/runs/abc/logs",
+      "/v3/namespaces/default/apps/PurchaseHistory/flows/PurchaseFlow/status",
+      "/v3/namespaces/default/apps",
+      "/v3/namespaces/default/datasets/purchases/metadata/tags",
+      "/v3/namespaces/default/datasets/purchases/lineage",
+      "/v3/namespaces/default/data/datasets/purchases",
+      "/v3/namespaces/default/streams/purchaseStream/events",
+      "/v3/namespaces/default/data/explore/queries",
+      "/v3/metrics/query",
+      "/v3/system/services/appfabric/status",
+      "/v3/metadata/search",
+      "/v3/namespaces/default/previews/123/status",
+      "/v3/namespaces/default/artifacts",
+    };
+    HttpRequest[] requests = new HttpRequest[paths.length];
+    for (int i = 0; i < paths.length; i++) {
+      requests[i] = new DefaultHttpRequest(VERSION, HttpMethod.GET, paths[i]);
+    }
+
+    int iterations = 5000000;
+    int routed = 0;
+    long startTime = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      int idx = i % paths.length;
+      if (pathLookup.getRoutingService(paths[idx], requests[idx]) != null) {
+        routed++;
+      }
+    }
+    long elapsed = System.nanoTime() - startTime;
+    System.out.println(String.format("Routed %d paths in %d ms, %d ns per path",
+                                     routed, TimeUnit.NANOSECONDS.toMillis(elapsed), elapsed / iterations));
+  }
+
   private void assertRouting(String path, RouteDestination destination) {
     for (HttpMethod method : ImmutableList.of(HttpMethod.GET, HttpMethod.POST, HttpMethod.DELETE)) {
       HttpRequest httpRequest = new DefaultHttpRequest(VERSION, method, path);
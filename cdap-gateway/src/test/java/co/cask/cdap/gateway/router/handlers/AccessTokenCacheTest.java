@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.security.auth.TokenState;
+import co.cask.cdap.security.auth.TokenValidator;
+import com.google.common.util.concurrent.AbstractIdleService;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link AccessTokenCache}.
+ */
+public class AccessTokenCacheTest {
+
+  @Test
+  public void testCache() {
+    AccessTokenCache cache = new AccessTokenCache(createCConf(100), new KeySetTokenValidator(1));
+    long expiration = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+
+    Assert.assertNull(cache.get("token1"));
+    cache.put("token1", new AccessTokenCache.ValidatedToken("CDAP-verified id1", "user1", expiration, 1));
+    cache.put("token2", new AccessTokenCache.ValidatedToken("CDAP-verified id2", "user2", expiration, 1));
+
+    AccessTokenCache.ValidatedToken token = cache.get("token1");
+    Assert.assertNotNull(token);
+    Assert.assertEquals("CDAP-verified id1", token.getAuthorizationHeader());
+    Assert.assertEquals("user1", token.getUserName());
+
+    token = cache.get("token2");
+    Assert.assertNotNull(token);
+    Assert.assertEquals("user2", token.getUserName());
+
+    Assert.assertNull(cache.get("token3"));
+  }
+
+  @Test
+  public void testExpiredToken() {
+    AccessTokenCache cache = new AccessTokenCache(createCConf(100), new KeySetTokenValidator(1));
+
+    // A token that has expired must not be served from the cache
+    cache.put("token", new AccessTokenCache.ValidatedToken("CDAP-verified id", "user",
+                                                           System.currentTimeMillis() - 1, 1));
+    Assert.assertNull(cache.get("token"));
+  }
+
+  @Test
+  public void testRemovedKey() {
+    KeySetTokenValidator tokenValidator = new KeySetTokenValidator(1, 2);
+    AccessTokenCache cache = new AccessTokenCache(createCConf(100), tokenValidator);
+    long expiration = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+
+    cache.put("token1", new AccessTokenCache.ValidatedToken("CDAP-verified id1", "user1", expiration, 1));
+    cache.put("token2", new AccessTokenCache.ValidatedToken("CDAP-verified id2", "user2", expiration, 2));
+    Assert.assertNotNull(cache.get("token1"));
+    Assert.assertNotNull(cache.get("token2"));
+
+    // A token signed by a key that has been removed must not be served from the cache
+    tokenValidator.removeKey(1);
+    Assert.assertNull(cache.get("token1"));
+    Assert.assertNotNull(cache.get("token2"));
+
+    // The entry is gone from the cache even if the key becomes known again
+    tokenValidator.addKey(1);
+    Assert.assertNull(cache.get("token1"));
+  }
+
+  @Test
+  public void testDisabled() {
+    AccessTokenCache cache = new AccessTokenCache(createCConf(0), new KeySetTokenValidator(1));
+    cache.put("token", new AccessTokenCache.ValidatedToken("CDAP-verified id", "user",
+                                                           System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1), 1));
+    Assert.assertNull(cache.get("token"));
+  }
+
+  private CConfiguration createCConf(int cacheSize) {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.Router.AUTH_TOKEN_CACHE_SIZE, cacheSize);
+    cConf.setInt(Constants.Router.AUTH_TOKEN_CACHE_EXPIRY_SECS, 300);
+    return cConf;
+  }
+
+  /**
+   * A {@link TokenValidator} that considers a fixed set of secret keys as valid.
+   */
+  private static final class KeySetTokenValidator extends AbstractIdleService implements TokenValidator {
+
+    private final Set<Integer> keyIds = ConcurrentHashMap.newKeySet();
+
+    KeySetTokenValidator(int... keyIds) {
+      for (int keyId : keyIds) {
+        addKey(keyId);
+      }
+    }
+
+    void addKey(int keyId) {
+      keyIds.add(keyId);
+    }
+
+    void removeKey(int keyId) {
+      keyIds.remove(keyId);
+    }
+
+    @Override
+    protected void startUp() {
+      // no-op
+    }
+
+    @Override
+    protected void shutDown() {
+      // no-op
+    }
+
+    @Override
+    public TokenState validate(String token) {
+      return TokenState.VALID;
+    }
+
+    @Override
+    public boolean isKeyValid(int keyId) {
+      return keyIds.contains(keyId);
+    }
+  }
+}
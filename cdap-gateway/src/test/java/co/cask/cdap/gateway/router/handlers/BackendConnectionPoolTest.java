@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.common.utils.Tasks;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.apache.twill.discovery.Discoverable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link BackendConnectionPool}.
+ */
+public class BackendConnectionPoolTest {
+
+  @Test
+  public void testFailedEndpointBackoff() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setLong(Constants.Router.BACKEND_FAILURE_BACKOFF_SECS, 1L);
+    BackendConnectionPool pool = new BackendConnectionPool(
+      cConf, new NoOpMetricsCollectionService().getContext(Collections.emptyMap()));
+
+    // An endpoint that does not accept connections
+    InetAddress loopback = InetAddress.getLoopbackAddress();
+    InetSocketAddress address;
+    try (ServerSocket serverSocket = new ServerSocket(0, 0, loopback)) {
+      address = new InetSocketAddress(loopback, serverSocket.getLocalPort());
+    }
+    Discoverable discoverable = new Discoverable("test", address);
+    Assert.assertTrue(pool.isHealthy(discoverable));
+
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+    try {
+      Channel inboundChannel = new NioSocketChannel();
+      eventLoopGroup.register(inboundChannel).sync();
+
+      ChannelFuture connectFuture = pool.connect(inboundChannel, discoverable).await();
+      Assert.assertFalse(connectFuture.isSuccess());
+
+      // The endpoint is avoided after the failure, until the backoff time has passed
+      Tasks.waitFor(false, () -> pool.isHealthy(discoverable), 5, TimeUnit.SECONDS, 10, TimeUnit.MILLISECONDS);
+      Tasks.waitFor(true, () -> pool.isHealthy(discoverable), 5, TimeUnit.SECONDS);
+
+      inboundChannel.close().sync();
+    } finally {
+      eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+  }
+}
@@ -53,6 +53,24 @@ public interface AuthorizationEnforcer {
    */
   void enforce(EntityId entity, Principal principal, Set<Action> actions) throws Exception;
 
+  /**
+   * Enforces authorization for the specified {@link Principal} for the specified {@link Action} on each of the
+   * specified {@link EntityId entities}. Implementations can override this method to check all the entities at once,
+   * which is cheaper than calling {@link #enforce(EntityId, Principal, Action)} for every entity.
+   *
+   * @param entities the {@link EntityId entities} on which authorization is to be enforced
+   * @param principal the {@link Principal} that performs the action
+   * @param action the {@link Action} being performed
+   * @throws UnauthorizedException if the principal is not authorized to perform the specified action on any of
+   *                               the entities
+   * @throws Exception if any other errors occurred while performing the authorization enforcement check
+   */
+  default void enforce(Set<? extends EntityId> entities, Principal principal, Action action) throws Exception {
+    for (EntityId entity : entities) {
+      enforce(entity, principal, action);
+    }
+  }
+
   /**
    * Checks whether the set of {@link EntityId}s are visible to the specified {@link Principal}.
    * An entity is visible to a principal if the principal has any privileges on the entity, or any of its descendants.
@@ -43,6 +43,8 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
   private static final Logger LOG = LoggerFactory.getLogger(AbstractKeyManager.class);
 
   protected ThreadLocal<Mac> threadLocalMac;
+  // The key that the Mac of the current thread was last initialized with
+  private ThreadLocal<SecretKey> threadLocalMacKey;
   protected KeyGenerator keyGenerator;
   protected volatile KeyIdentifier currentKey;
   protected final String keyAlgo;
@@ -83,6 +85,7 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
         }
       }
     };
+    threadLocalMacKey = new ThreadLocal<>();
     doInit();
   }
 
@@ -141,6 +144,11 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
     }
   }
 
+  @Override
+  public final boolean containsKey(int keyId) {
+    return hasKey(keyId);
+  }
+
   @Override
   public final DigestId generateMAC(byte[] message) throws InvalidKeyException {
     KeyIdentifier signingKey = currentKey;
@@ -166,8 +174,12 @@ public abstract class AbstractKeyManager extends AbstractIdleService implements
 
   protected final byte[] generateMAC(SecretKey key, byte[] message) throws InvalidKeyException {
     Mac mac = threadLocalMac.get();
-    // TODO: should we only initialize when the key changes?
-    mac.init(key);
+    // Mac.doFinal resets the Mac to the state after init, hence only need to initialize when the key changes
+    if (threadLocalMacKey.get() != key) {
+      threadLocalMacKey.remove();
+      mac.init(key);
+      threadLocalMacKey.set(key);
+    }
     return mac.doFinal(message);
   }
 }
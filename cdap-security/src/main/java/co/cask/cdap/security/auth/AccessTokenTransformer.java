@@ -48,7 +48,7 @@ public class AccessTokenTransformer {
     AccessTokenIdentifier accessTokenIdentifierObj = accessTokenObj.getIdentifier();
     byte[] encodedAccessTokenIdentifier = accessTokenIdentifierCodec.encode(accessTokenIdentifierObj);
     return new AccessTokenIdentifierPair(Base64.encodeBase64String(encodedAccessTokenIdentifier).trim(),
-                                         accessTokenIdentifierObj);
+                                         accessTokenIdentifierObj, accessTokenObj.getKeyId());
   }
 
   /**
@@ -58,10 +58,13 @@ public class AccessTokenTransformer {
   public class AccessTokenIdentifierPair {
     private final String accessTokenIdentifierStr;
     private final AccessTokenIdentifier accessTokenIdentifierObj;
+    private final int keyId;
 
-    public AccessTokenIdentifierPair(String accessTokenIdentifierStr, AccessTokenIdentifier accessTokenIdentifierObj) {
+    public AccessTokenIdentifierPair(String accessTokenIdentifierStr, AccessTokenIdentifier accessTokenIdentifierObj,
+                                     int keyId) {
       this.accessTokenIdentifierObj = accessTokenIdentifierObj;
       this.accessTokenIdentifierStr = accessTokenIdentifierStr;
+      this.keyId = keyId;
     }
 
     public String getAccessTokenIdentifierStr() {
@@ -72,6 +75,13 @@ public class AccessTokenTransformer {
       return accessTokenIdentifierObj;
     }
 
+    /**
+     * Returns the ID of the secret key that signed the access token.
+     */
+    public int getKeyId() {
+      return keyId;
+    }
+
     @Override
     public String toString() {
       return accessTokenIdentifierStr;
@@ -72,4 +72,9 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
     }
     return state;
   }
+
+  @Override
+  public boolean isKeyValid(int keyId) {
+    return tokenManager.hasKey(keyId);
+  }
 }
@@ -64,4 +64,10 @@ public interface KeyManager extends Service {
   <T> void validateMAC(Codec<T> codec, Signed<T> signedMessage)
     throws InvalidDigestException, InvalidKeyException;
 
+  /**
+   * Returns whether the secret key with the given ID is known, hence messages signed with it can be validated.
+   * @param keyId The ID of the secret key.
+   */
+  boolean containsKey(int keyId);
+
 }
@@ -64,6 +64,15 @@ public class TokenManager extends AbstractIdleService {
     }
   }
 
+  /**
+   * Returns whether tokens signed by the secret key with the given ID can still be validated. The key of a token
+   * is no longer known once it has been removed, for example after it has been rotated out or revoked.
+   * @param keyId The ID of the secret key that signed a token.
+   */
+  public boolean hasKey(int keyId) {
+    return keyManager.containsKey(keyId);
+  }
+
   /**
    * Given an {@link AccessToken} instance, checks that the token has not yet expired and that the digest matches
    * the expected value. To validate the token digest, we recompute the digest value, based on the asserted identity
@@ -30,4 +30,14 @@ public interface TokenValidator extends Service {
    * @return The state after validation.
    */
   TokenState validate(String token);
+
+  /**
+   * Checks whether a token that was validated before is still valid with respect to the secret key that
+   * signed it, without decoding the token again. This is used to find tokens whose signing key was
+   * rotated out or revoked since the token was validated.
+   *
+   * @param keyId The ID of the secret key that signed the token.
+   * @return {@code true} if the secret key is still known.
+   */
+  boolean isKeyValid(int keyId);
 }
@@ -33,6 +33,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -40,6 +41,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -52,7 +54,9 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -71,6 +75,7 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
     .registerTypeAdapter(EntityId.class, new EntityIdTypeAdapter())
     .create();
   private static final Type SET_ENTITY_TYPE = new TypeToken<Set<EntityId>>() { }.getType();
+  private static final Type SET_PRIVILEGE_TYPE = new TypeToken<Set<AuthorizationPrivilege>>() { }.getType();
 
   private static final Function<VisibilityKey, EntityId> VISIBILITY_KEY_ENTITY_ID_FUNCTION =
     new Function<VisibilityKey, EntityId>() {
@@ -115,6 +120,19 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
           LOG.trace("Cache miss for {}", authorizationPrivilege);
           return doEnforce(authorizationPrivilege);
         }
+
+        @Override
+        public Map<AuthorizationPrivilege, Boolean> loadAll(Iterable<? extends AuthorizationPrivilege> keys)
+          throws Exception {
+          LOG.trace("Cache miss for {}", keys);
+          Set<AuthorizationPrivilege> privileges = ImmutableSet.copyOf(keys);
+          Set<AuthorizationPrivilege> allowed = enforceAllCall(privileges);
+          Map<AuthorizationPrivilege, Boolean> result = new HashMap<>();
+          for (AuthorizationPrivilege privilege : privileges) {
+            result.put(privilege, allowed.contains(privilege));
+          }
+          return result;
+        }
       });
 
     visibilityCache = CacheBuilder.newBuilder()
@@ -149,6 +167,41 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
     }
   }
 
+  @Override
+  public void enforce(EntityId entity, Principal principal, Set<Action> actions) throws Exception {
+    if (!isSecurityAuthorizationEnabled()) {
+      return;
+    }
+    Set<AuthorizationPrivilege> privileges = new LinkedHashSet<>();
+    for (Action action : actions) {
+      privileges.add(new AuthorizationPrivilege(principal, entity, action));
+    }
+
+    Set<Action> disallowed = EnumSet.noneOf(Action.class);
+    for (AuthorizationPrivilege privilege : getDisallowed(privileges)) {
+      disallowed.add(privilege.getAction());
+    }
+    if (!disallowed.isEmpty()) {
+      throw new UnauthorizedException(principal, disallowed, entity);
+    }
+  }
+
+  @Override
+  public void enforce(Set<? extends EntityId> entities, Principal principal, Action action) throws Exception {
+    if (!isSecurityAuthorizationEnabled()) {
+      return;
+    }
+    Set<AuthorizationPrivilege> privileges = new LinkedHashSet<>();
+    for (EntityId entity : entities) {
+      privileges.add(new AuthorizationPrivilege(principal, entity, action));
+    }
+
+    Set<AuthorizationPrivilege> disallowed = getDisallowed(privileges);
+    if (!disallowed.isEmpty()) {
+      throw new UnauthorizedException(principal, action, disallowed.iterator().next().getEntity());
+    }
+  }
+
   @Override
   public Set<? extends EntityId> isVisible(Set<? extends EntityId> entityIds, Principal principal) throws Exception {
     if (!isSecurityAuthorizationEnabled()) {
@@ -183,6 +236,30 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
     }
   }
 
+  /**
+   * Returns the privileges from the given set that are not granted, in the iteration order of the given set.
+   * All privileges that are not in the cache are checked with a single remote call.
+   */
+  private Set<AuthorizationPrivilege> getDisallowed(Set<AuthorizationPrivilege> privileges) throws Exception {
+    if (privileges.isEmpty()) {
+      return Collections.emptySet();
+    }
+    Set<AuthorizationPrivilege> allowed = cacheEnabled
+      ? Maps.filterValues(authPolicyCache.getAll(privileges), Predicates.equalTo(true)).keySet()
+      : enforceAllCall(privileges);
+    return ImmutableSet.copyOf(Sets.difference(privileges, allowed));
+  }
+
+  /**
+   * Checks all the given privileges with one remote call and returns the privileges that are granted.
+   */
+  private Set<AuthorizationPrivilege> enforceAllCall(Set<AuthorizationPrivilege> privileges) throws IOException {
+    HttpRequest request = remoteClient.requestBuilder(HttpMethod.POST, "enforceAll")
+      .withBody(GSON.toJson(privileges, SET_PRIVILEGE_TYPE))
+      .build();
+    return GSON.fromJson(remoteClient.execute(request).getResponseBodyAsString(), SET_PRIVILEGE_TYPE);
+  }
+
   private Set<? extends EntityId> visibilityCheckCall(VisibilityRequest visibilityRequest) throws IOException {
     HttpRequest request = remoteClient.requestBuilder(HttpMethod.POST, "isVisible")
       .withBody(GSON.toJson(visibilityRequest))
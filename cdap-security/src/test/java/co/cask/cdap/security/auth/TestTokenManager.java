@@ -28,6 +28,8 @@ import java.util.List;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -85,6 +87,10 @@ public abstract class TestTokenManager {
              Bytes.toStringBinary(tokenCodec.encode(invalidToken)));
     } catch (InvalidTokenException expected) { }
 
+    // only the key that signed the token is known
+    assertTrue(tokenManager.hasKey(token1.getKeyId()));
+    assertFalse(tokenManager.hasKey(invalidKeyToken.getKeyId()));
+
     tokenManager.stopAndWait();
   }
 
@@ -103,6 +103,13 @@ public abstract class AbstractMessagingSubscriberService<T> extends AbstractRetr
     return topicId;
   }
 
+  /**
+   * Returns the {@link MetricsContext} for emitting metrics about the message consumption.
+   */
+  protected final MetricsContext getMetricsContext() {
+    return metricsContext;
+  }
+
   /**
    * Returns the {@link MessageContext} that this service used for interacting with TMS.
    */
@@ -233,6 +240,9 @@ public abstract class AbstractMessagingSubscriberService<T> extends AbstractRetr
 
     startTime = System.currentTimeMillis();
 
+    // The lag of the topic is how long the oldest unprocessed message has been waiting
+    metricsContext.gauge("process.lag.ms", startTime - getMessagePublishTime(messages.get(0).getId()));
+
     MessageTrackingIterator iterator;
     int curTxTimeout = txTimeoutSeconds;
     while (true) {